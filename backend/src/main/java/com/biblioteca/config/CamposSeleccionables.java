@@ -0,0 +1,19 @@
+package com.biblioteca.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Documenta ?fields= e ?include= (SeleccionCampos) en un endpoint con ejemplos de su propio tipo de respuesta.
+// OpenApiConfig agrega los dos parámetros; include vacío: el tipo no tiene relaciones y no se documenta
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CamposSeleccionables {
+
+    String fields();
+
+    String include() default "";
+}
@@ -0,0 +1,28 @@
+package com.biblioteca.config;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+@Configuration
+public class JacksonConfig {
+
+    // Las entidades llevan @JsonFilter para ?fields= e ?include= (SeleccionCampos). Sin esos parámetros no
+    // hay filtro registrado con su id y se serializan completas en lugar de fallar
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer filtrosPorDefecto() {
+        return builder -> builder.filters(new SimpleFilterProvider().setFailOnUnknownId(false));
+    }
+
+    // Accept: application/cbor con la misma configuración que el JSON (fechas ISO, módulos, filtros). Reemplaza
+    // al conversor CBOR por defecto de Spring, que usa un ObjectMapper sin configurar, y ocupa su lugar
+    // después del de JSON: quien no pide CBOR sigue recibiendo JSON
+    @Bean
+    public MappingJackson2CborHttpMessageConverter conversorCbor(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
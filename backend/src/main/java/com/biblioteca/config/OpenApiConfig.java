@@ -5,8 +5,11 @@ import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.info.Contact;
 import io.swagger.v3.oas.models.info.Info;
 import io.swagger.v3.oas.models.info.License;
+import io.swagger.v3.oas.models.media.StringSchema;
+import io.swagger.v3.oas.models.parameters.Parameter;
 import io.swagger.v3.oas.models.security.SecurityRequirement;
 import io.swagger.v3.oas.models.security.SecurityScheme;
+import org.springdoc.core.customizers.OperationCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -21,7 +24,8 @@ public class OpenApiConfig {
                         .version("1.0.0")
                         .description("API REST para el sistema de gestión de biblioteca. " +
                                 "Permite gestionar libros, usuarios, categorías y préstamos. " +
-                                "Utiliza autenticación JWT para endpoints protegidos.")
+                                "Utiliza autenticación JWT para endpoints protegidos. " +
+                                "Las respuestas se pueden pedir en CBOR (Accept: application/cbor) con la misma estructura que el JSON, errores incluidos.")
                         .contact(new Contact()
                                 .name("InkVerse Biblioteca")
                                 .email("biblioteca@inkverse.com"))
@@ -38,5 +42,34 @@ public class OpenApiConfig {
                                         .description("Ingresa el token JWT obtenido del endpoint /api/auth/login. " +
                                                 "Formato: Bearer {token}")));
     }
-}
 
+    // ?fields= e ?include= de los endpoints con @CamposSeleccionables, con los ejemplos de cada uno
+    @Bean
+    public OperationCustomizer camposSeleccionables() {
+        return (operacion, metodo) -> {
+            CamposSeleccionables campos = metodo.getMethodAnnotation(CamposSeleccionables.class);
+            if (campos == null) {
+                return operacion;
+            }
+            operacion.addParametersItem(new Parameter()
+                    .in("query")
+                    .name("fields")
+                    .required(false)
+                    .description("Campos a devolver, separados por comas. Una relación (libro) cuenta como campo; "
+                            + "tipo.campo elige los campos de un tipo anidado (libro.titulo). El id siempre va")
+                    .schema(new StringSchema())
+                    .example(campos.fields()));
+            if (!campos.include().isEmpty()) {
+                operacion.addParametersItem(new Parameter()
+                        .in("query")
+                        .name("include")
+                        .required(false)
+                        .description("Relaciones a incluir, separadas por comas (también anidadas: libro.categoria); "
+                                + "con include, las relaciones no nombradas se omiten")
+                        .schema(new StringSchema())
+                        .example(campos.include()));
+            }
+            return operacion;
+        };
+    }
+}
@@ -0,0 +1,191 @@
+package com.biblioteca.config;
+
+import com.biblioteca.controller.AdminController;
+import com.biblioteca.controller.LibroController;
+import com.biblioteca.model.Categoria;
+import com.biblioteca.model.Ejemplar;
+import com.biblioteca.model.Libro;
+import com.biblioteca.model.Prestamo;
+import com.biblioteca.model.Usuario;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// ?fields= e ?include= en las respuestas de LibroController y AdminController. Se traducen a filtros de
+// Jackson sobre los @JsonFilter de las entidades: lo que no se pide ni se recorre ni se escribe.
+//   fields=titulo,autor              atributos del tipo de la respuesta (el id siempre va)
+//   fields=libro.titulo,usuario.nombre  atributos de un tipo anidado
+//   include=libro,libro.categoria    relaciones a incluir; con include, las no nombradas se omiten
+// Sin parámetros la respuesta sale completa, como siempre.
+@RestControllerAdvice(assignableTypes = {LibroController.class, AdminController.class})
+public class SeleccionCampos extends AbstractMappingJacksonResponseBodyAdvice {
+
+    // Id de @JsonFilter -> entidad. Las relaciones de cada tipo son sus propiedades de uno de estos tipos
+    private static final Map<String, Class<?>> TIPOS = Map.of(
+            "libro", Libro.class,
+            "categoria", Categoria.class,
+            "prestamo", Prestamo.class,
+            "usuario", Usuario.class,
+            "ejemplar", Ejemplar.class);
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, Set<String>> propiedades = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> relaciones = new ConcurrentHashMap<>();
+
+    public SeleccionCampos(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue contenedor, MediaType tipoContenido,
+                                           MethodParameter retorno, ServerHttpRequest peticion,
+                                           ServerHttpResponse respuesta) {
+        if (!(peticion instanceof ServletServerHttpRequest servlet)) {
+            return;
+        }
+        String[] fields = servlet.getServletRequest().getParameterValues("fields");
+        String[] include = servlet.getServletRequest().getParameterValues("include");
+        if (fields == null && include == null) {
+            return;
+        }
+        String raiz = tipoRaiz(retorno);
+        Map<String, Set<String>> campos = fields != null ? leer(fields, raiz, false) : Map.of();
+        Map<String, Set<String>> incluidas = include != null ? leer(include, raiz, true) : null;
+
+        SimpleFilterProvider filtros = new SimpleFilterProvider().setFailOnUnknownId(false);
+        for (String tipo : TIPOS.keySet()) {
+            Set<String> permitidos = campos.get(tipo);
+            Set<String> tipoIncluidas = incluidas != null ? incluidas.getOrDefault(tipo, Set.of()) : null;
+            if (permitidos != null || tipoIncluidas != null) {
+                filtros.addFilter(tipo, new Filtro(permitidos, relaciones(tipo), tipoIncluidas));
+            }
+        }
+        contenedor.setFilters(filtros);
+    }
+
+    // "tipo.nombre" o "nombre" (del tipo de la respuesta), separados por comas; valida que existan
+    private Map<String, Set<String>> leer(String[] valores, String raiz, boolean soloRelaciones) {
+        String parametro = soloRelaciones ? "include" : "fields";
+        Map<String, Set<String>> porTipo = new HashMap<>();
+        for (String valor : valores) {
+            for (String parte : valor.split(",")) {
+                String nombre = parte.trim();
+                if (nombre.isEmpty()) {
+                    continue;
+                }
+                int punto = nombre.lastIndexOf('.');
+                String tipo = punto >= 0 ? nombre.substring(0, punto) : raiz;
+                nombre = nombre.substring(punto + 1);
+                if (tipo == null) {
+                    throw new IllegalArgumentException(parametro + ": esta respuesta no admite campos sin tipo; use tipo.campo "
+                            + "(tipos: " + String.join(", ", TIPOS.keySet()) + ")");
+                }
+                if (!TIPOS.containsKey(tipo)) {
+                    throw new IllegalArgumentException(parametro + ": tipo desconocido '" + tipo + "' (tipos: "
+                            + String.join(", ", TIPOS.keySet()) + ")");
+                }
+                Set<String> validos = soloRelaciones ? relaciones(tipo) : propiedades(tipo);
+                if (!validos.contains(nombre)) {
+                    throw new IllegalArgumentException(parametro + ": '" + nombre + "' no es " + (soloRelaciones ? "una relación" : "un campo")
+                            + " de " + tipo + " (" + String.join(", ", validos) + ")");
+                }
+                porTipo.computeIfAbsent(tipo, t -> new HashSet<>()).add(nombre);
+            }
+        }
+        return porTipo;
+    }
+
+    // Id de filtro del elemento que devuelve el endpoint: ResponseEntity<List<Libro>> -> "libro"
+    private static String tipoRaiz(MethodParameter retorno) {
+        ResolvableType tipo = ResolvableType.forMethodParameter(retorno);
+        if (ResponseEntity.class.isAssignableFrom(tipo.toClass())) {
+            tipo = tipo.getGeneric(0);
+        }
+        if (Collection.class.isAssignableFrom(tipo.toClass())) {
+            tipo = tipo.asCollection().getGeneric(0);
+        }
+        JsonFilter filtro = AnnotationUtils.findAnnotation(tipo.toClass(), JsonFilter.class);
+        return filtro != null && TIPOS.containsKey(filtro.value()) ? filtro.value() : null;
+    }
+
+    // Nombres tal como los serializa Jackson; se calculan una vez por tipo
+    private Set<String> propiedades(String tipo) {
+        return propiedades.computeIfAbsent(tipo, t -> {
+            Set<String> nombres = new TreeSet<>();
+            for (BeanPropertyDefinition propiedad : definiciones(t)) {
+                nombres.add(propiedad.getName());
+            }
+            return nombres;
+        });
+    }
+
+    private Set<String> relaciones(String tipo) {
+        return relaciones.computeIfAbsent(tipo, t -> {
+            Set<String> nombres = new TreeSet<>();
+            for (BeanPropertyDefinition propiedad : definiciones(t)) {
+                if (TIPOS.containsValue(propiedad.getPrimaryType().getRawClass())) {
+                    nombres.add(propiedad.getName());
+                }
+            }
+            return nombres;
+        });
+    }
+
+    private List<BeanPropertyDefinition> definiciones(String tipo) {
+        return objectMapper.getSerializationConfig()
+                .introspect(objectMapper.constructType(TIPOS.get(tipo)))
+                .findProperties();
+    }
+
+    // permitidos null: todos los atributos. incluidas null: sin ?include, las relaciones siguen a fields
+    private static final class Filtro extends SimpleBeanPropertyFilter {
+
+        private final Set<String> permitidos;
+        private final Set<String> relaciones;
+        private final Set<String> incluidas;
+
+        Filtro(Set<String> permitidos, Set<String> relaciones, Set<String> incluidas) {
+            this.permitidos = permitidos;
+            this.relaciones = relaciones;
+            this.incluidas = incluidas;
+        }
+
+        @Override
+        protected boolean include(PropertyWriter escritor) {
+            String nombre = escritor.getName();
+            if (incluidas != null && relaciones.contains(nombre)) {
+                return incluidas.contains(nombre);
+            }
+            return permitidos == null || permitidos.contains(nombre) || nombre.equals("id");
+        }
+
+        @Override
+        protected boolean include(BeanPropertyWriter escritor) {
+            return include((PropertyWriter) escritor);
+        }
+    }
+}
@@ -1,22 +1,38 @@
 package com.biblioteca.controller;
 
+import com.biblioteca.config.CamposSeleccionables;
+import com.biblioteca.dto.OperacionUsuarios;
+import com.biblioteca.dto.PaginaUsuarios;
+import com.biblioteca.dto.ResultadoOperacionUsuarios;
 import com.biblioteca.model.Categoria;
 import com.biblioteca.model.Libro;
 import com.biblioteca.model.Prestamo;
 import com.biblioteca.model.Usuario;
 import com.biblioteca.model.Rol;
-import com.biblioteca.model.EstadoPrestamo;
+import com.biblioteca.model.EventoPrestamo;
+import com.biblioteca.model.EstadoEjecucion;
 import com.biblioteca.repository.CategoriaRepository;
 import com.biblioteca.repository.LibroRepository;
 import com.biblioteca.repository.UsuarioRepository;
 import com.biblioteca.repository.PrestamoRepository;
+import com.biblioteca.repository.EjecucionTareaRepository;
+import com.biblioteca.service.ArchivoPrestamos;
 import com.biblioteca.service.BibliotecaService;
+import com.biblioteca.service.BusInvalidaciones;
+import com.biblioteca.service.DiarioPrestamos;
+import com.biblioteca.service.EstadisticasService;
+import com.biblioteca.service.InventarioEjemplares;
+import com.biblioteca.service.RecomendacionService;
+import com.biblioteca.service.ReservaService;
+import com.biblioteca.service.TareasProgramadas;
+import com.biblioteca.service.TokensRenovacion;
+import com.biblioteca.service.UsuarioService;
+import com.biblioteca.util.ETags;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
-import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -24,9 +40,11 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -40,19 +58,49 @@ public class AdminController {
     private final UsuarioRepository usuarioRepository;
     private final PrestamoRepository prestamoRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ReservaService reservaService;
+    private final EstadisticasService estadisticasService;
+    private final RecomendacionService recomendacionService;
+    private final UsuarioService usuarioService;
+    private final DiarioPrestamos diarioPrestamos;
+    private final ArchivoPrestamos archivoPrestamos;
+    private final InventarioEjemplares inventarioEjemplares;
+    private final TokensRenovacion tokensRenovacion;
+    private final BusInvalidaciones busInvalidaciones;
+    private final TareasProgramadas tareasProgramadas;
 
     public AdminController(BibliotecaService bibliotecaService,
                            CategoriaRepository categoriaRepository,
                            LibroRepository libroRepository,
                            UsuarioRepository usuarioRepository,
                            PrestamoRepository prestamoRepository,
-                           PasswordEncoder passwordEncoder) {
+                           PasswordEncoder passwordEncoder,
+                           ReservaService reservaService,
+                           EstadisticasService estadisticasService,
+                           RecomendacionService recomendacionService,
+                           UsuarioService usuarioService,
+                           DiarioPrestamos diarioPrestamos,
+                           ArchivoPrestamos archivoPrestamos,
+                           InventarioEjemplares inventarioEjemplares,
+                           TokensRenovacion tokensRenovacion,
+                           BusInvalidaciones busInvalidaciones,
+                           TareasProgramadas tareasProgramadas) {
         this.bibliotecaService = bibliotecaService;
         this.categoriaRepository = categoriaRepository;
         this.libroRepository = libroRepository;
         this.usuarioRepository = usuarioRepository;
         this.prestamoRepository = prestamoRepository;
         this.passwordEncoder = passwordEncoder;
+        this.reservaService = reservaService;
+        this.estadisticasService = estadisticasService;
+        this.recomendacionService = recomendacionService;
+        this.usuarioService = usuarioService;
+        this.diarioPrestamos = diarioPrestamos;
+        this.archivoPrestamos = archivoPrestamos;
+        this.inventarioEjemplares = inventarioEjemplares;
+        this.tokensRenovacion = tokensRenovacion;
+        this.busInvalidaciones = busInvalidaciones;
+        this.tareasProgramadas = tareasProgramadas;
     }
 
     @PostMapping("/categorias")
@@ -81,6 +129,7 @@ public class AdminController {
         @ApiResponse(responseCode = "200", description = "Lista de categorías obtenida exitosamente"),
         @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
     })
+    @CamposSeleccionables(fields = "nombre")
     public ResponseEntity<List<Categoria>> listarCategorias() {
         return ResponseEntity.ok(categoriaRepository.findAll());
     }
@@ -88,42 +137,51 @@ public class AdminController {
     @GetMapping("/categorias/{id}")
     @Operation(
         summary = "Obtener categoría por ID",
-        description = "Obtiene los detalles de una categoría específica por su ID. Requiere rol ADMIN."
+        description = "Obtiene los detalles de una categoría específica por su ID. Devuelve su versión en el header ETag; con If-None-Match igual a la versión actual responde 304 sin cuerpo. Requiere rol ADMIN."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Categoría encontrada",
             content = @Content(schema = @Schema(implementation = Categoria.class))),
+        @ApiResponse(responseCode = "304", description = "La categoría no cambió desde la versión de If-None-Match"),
         @ApiResponse(responseCode = "404", description = "Categoría no encontrada"),
         @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
     })
     public ResponseEntity<Categoria> obtenerCategoria(
         @Parameter(description = "ID de la categoría", required = true, example = "1")
         @PathVariable Long id) {
-        return ResponseEntity.ok(categoriaRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Categoría no encontrada")));
+        Categoria categoria = categoriaRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Categoría no encontrada"));
+        // Con ETag en un GET, Spring compara If-None-Match y responde 304 sin serializar el cuerpo
+        return ResponseEntity.ok().eTag(ETags.de(categoria.getVersion())).body(categoria);
     }
 
     @PutMapping("/categorias/{id}")
     @Operation(
         summary = "Actualizar categoría",
-        description = "Actualiza el nombre de una categoría existente. Requiere rol ADMIN."
+        description = "Actualiza el nombre de una categoría existente. Si se envía If-Match con el ETag leído, solo se guarda cuando nadie la modificó desde entonces. Requiere rol ADMIN."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Categoría actualizada exitosamente",
             content = @Content(schema = @Schema(implementation = Categoria.class))),
         @ApiResponse(responseCode = "404", description = "Categoría no encontrada"),
+        @ApiResponse(responseCode = "409", description = "Otra escritura simultánea ganó la carrera"),
+        @ApiResponse(responseCode = "412", description = "La categoría cambió desde la versión de If-Match"),
         @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
     })
     public ResponseEntity<Categoria> actualizarCategoria(
         @Parameter(description = "ID de la categoría a actualizar", required = true, example = "1")
         @PathVariable Long id,
         @Parameter(description = "Datos actualizados de la categoría", required = true)
-        @RequestBody Categoria categoria) {
+        @RequestBody Categoria categoria,
+        @Parameter(description = "ETag de la versión que se editó", example = "\"3\"")
+        @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         Categoria existente = categoriaRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Categoría no encontrada"));
+        ETags.comprobar(ifMatch, existente.getVersion());
 
         existente.setNombre(categoria.getNombre());
-        return ResponseEntity.ok(categoriaRepository.save(existente));
+        Categoria guardada = categoriaRepository.save(existente);
+        return ResponseEntity.ok().eTag(ETags.de(guardada.getVersion())).body(guardada);
     }
 
     @DeleteMapping("/categorias/{id}")
@@ -175,7 +233,11 @@ public class AdminController {
         } else {
             libro.setCategoria(null);
         }
-        return ResponseEntity.ok(libroRepository.save(libro));
+        Libro guardado = libroRepository.save(libro);
+        // Una copia con código de barras por cada unidad
+        inventarioEjemplares.ajustar(guardado);
+        estadisticasService.registrarLibro(guardado);
+        return ResponseEntity.ok(guardado);
     }
 
     @GetMapping("/libros")
@@ -187,6 +249,7 @@ public class AdminController {
         @ApiResponse(responseCode = "200", description = "Lista de libros obtenida exitosamente"),
         @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
     })
+    @CamposSeleccionables(fields = "titulo,autor,categoria,categoria.nombre", include = "categoria")
     public ResponseEntity<List<Libro>> listarLibros() {
         return ResponseEntity.ok(libroRepository.findAll());
     }
@@ -194,57 +257,54 @@ public class AdminController {
     @GetMapping("/libros/{id}")
     @Operation(
         summary = "Obtener libro por ID",
-        description = "Obtiene los detalles completos de un libro específico por su ID. Requiere rol ADMIN."
+        description = "Obtiene los detalles completos de un libro específico por su ID. Devuelve en el header ETag su versión y su cantidad disponible; con If-None-Match igual al actual responde 304 sin cuerpo. Los préstamos y devoluciones no cambian la versión pero sí el ETag. Requiere rol ADMIN."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Libro encontrado",
             content = @Content(schema = @Schema(implementation = Libro.class))),
+        @ApiResponse(responseCode = "304", description = "El libro no cambió desde la versión de If-None-Match"),
         @ApiResponse(responseCode = "404", description = "Libro no encontrado"),
         @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
     })
     public ResponseEntity<Libro> obtenerLibro(
         @Parameter(description = "ID del libro", required = true, example = "1")
         @PathVariable Long id) {
-        return ResponseEntity.ok(libroRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Libro no encontrado")));
+        Libro libro = libroRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Libro no encontrado"));
+        return ResponseEntity.ok().eTag(ETags.de(libro.getVersion(), libro.getCantidadDisponible())).body(libro);
     }
 
     @PutMapping("/libros/{id}")
     @Operation(
         summary = "Actualizar libro",
-        description = "Actualiza la información de un libro existente. Requiere rol ADMIN."
+        description = "Actualiza la información de un libro existente. Si cambia la cantidad total se crean copias nuevas o se dan de baja copias que estén en la biblioteca, y la cantidad disponible se ajusta en la misma diferencia (la del cuerpo se ignora). Si se envía If-Match con el ETag leído, solo se guarda cuando nadie editó el libro desde entonces; los préstamos intermedios no cuentan. Requiere rol ADMIN."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Libro actualizado exitosamente",
             content = @Content(schema = @Schema(implementation = Libro.class))),
         @ApiResponse(responseCode = "404", description = "Libro no encontrado"),
-        @ApiResponse(responseCode = "400", description = "Datos inválidos o categoría no encontrada"),
+        @ApiResponse(responseCode = "409", description = "Otra escritura simultánea ganó la carrera"),
+        @ApiResponse(responseCode = "412", description = "El libro se editó desde la versión de If-Match"),
+        @ApiResponse(responseCode = "400", description = "Datos inválidos, categoría no encontrada o copias prestadas que no se pueden dar de baja"),
         @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
     })
     public ResponseEntity<Libro> actualizarLibro(
         @Parameter(description = "ID del libro a actualizar", required = true, example = "1")
         @PathVariable Long id,
         @Parameter(description = "Datos actualizados del libro", required = true)
-        @RequestBody Libro libro) {
-        Libro existente = libroRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Libro no encontrado"));
-
-        existente.setTitulo(libro.getTitulo());
-        existente.setAutor(libro.getAutor());
-        existente.setDescripcion(libro.getDescripcion());
-        existente.setImagenUrl(libro.getImagenUrl());
-        existente.setCantidadTotal(libro.getCantidadTotal());
-        existente.setCantidadDisponible(libro.getCantidadDisponible());
-
+        @RequestBody Libro libro,
+        @Parameter(description = "ETag del libro que se editó", example = "\"3-2\"")
+        @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         if (libro.getCategoria() != null && libro.getCategoria().getId() != null) {
             Categoria categoria = categoriaRepository.findById(libro.getCategoria().getId())
                     .orElseThrow(() -> new IllegalArgumentException("Categoría no encontrada con ID: " + libro.getCategoria().getId()));
-            existente.setCategoria(categoria);
+            libro.setCategoria(categoria);
         } else {
-            existente.setCategoria(null);
+            libro.setCategoria(null);
         }
-
-        return ResponseEntity.ok(libroRepository.save(existente));
+        // La cantidad disponible del cuerpo se ignora: la mueven los préstamos, no el formulario
+        Libro guardado = bibliotecaService.actualizarLibro(id, libro, ifMatch);
+        return ResponseEntity.ok().eTag(ETags.de(guardado.getVersion(), guardado.getCantidadDisponible())).body(guardado);
     }
 
     @DeleteMapping("/libros/{id}")
@@ -271,22 +331,24 @@ public class AdminController {
             throw new IllegalStateException("LIBRO_CON_PRESTAMOS_ACTIVOS: El libro no puede ser eliminado porque aún se encuentran " + prestamosActivos + " ejemplar(es) en préstamo con algunos usuarios.");
         }
 
-        libroRepository.deleteById(id);
+        inventarioEjemplares.eliminarLibro(id);
+        estadisticasService.registrarLibroEliminado(id);
         return ResponseEntity.ok().build();
     }
 
     @GetMapping("/prestamos")
     @Operation(
         summary = "Ver todos los préstamos",
-        description = "Obtiene la lista completa de todos los préstamos del sistema, incluyendo devueltos, activos y con multa. Requiere rol ADMIN."
+        description = "Obtiene la lista completa de todos los préstamos del sistema, incluyendo devueltos (también los archivados), activos y con multa. Requiere rol ADMIN."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Lista de préstamos obtenida exitosamente"),
         @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
     })
+    @CamposSeleccionables(fields = "fechaLimite,estado,libro,libro.titulo", include = "libro,usuario")
     public ResponseEntity<List<Prestamo>> listarPrestamos() {
 
-        List<Prestamo> prestamos = prestamoRepository.findAllWithRelations();
+        List<Prestamo> prestamos = archivoPrestamos.todos();
         System.out.println("Total de prestamos encontrados: " + prestamos.size());
 
         prestamos.forEach(p -> {
@@ -313,6 +375,7 @@ public class AdminController {
         @ApiResponse(responseCode = "200", description = "Lista de préstamos con multa obtenida exitosamente"),
         @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
     })
+    @CamposSeleccionables(fields = "valorMulta,diasRetraso,usuario,usuario.email", include = "libro,usuario")
     public ResponseEntity<List<Prestamo>> listarPrestamosConMulta() {
         return ResponseEntity.ok(bibliotecaService.prestamosConMulta());
     }
@@ -326,17 +389,15 @@ public class AdminController {
         @ApiResponse(responseCode = "200", description = "Lista de préstamos activos obtenida exitosamente"),
         @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
     })
+    @CamposSeleccionables(fields = "fechaLimite,estado,usuario,usuario.username", include = "libro,usuario,libro.categoria")
     public ResponseEntity<List<Prestamo>> listarPrestamosActivos() {
-        List<Prestamo> activos = prestamoRepository.findAll().stream()
-                .filter(p -> p.getEstado() != EstadoPrestamo.DEVUELTO)
-                .toList();
-        return ResponseEntity.ok(activos);
+        return ResponseEntity.ok(prestamoRepository.findActivosWithRelations());
     }
 
     @PutMapping("/prestamos/{id}/devolver")
     @Operation(
         summary = "Recibir libro prestado",
-        description = "Marca un préstamo como devuelto. Calcula automáticamente multa si hay retraso. Incrementa la cantidad disponible del libro. Requiere rol ADMIN."
+        description = "Marca un préstamo como devuelto. Calcula automáticamente multa si hay retraso. El ejemplar se aparta para la siguiente reserva en espera o incrementa la cantidad disponible del libro. Requiere rol ADMIN."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Libro recibido exitosamente",
@@ -351,6 +412,75 @@ public class AdminController {
         return ResponseEntity.ok(prestamo);
     }
 
+    @GetMapping("/prestamos/{id}/eventos")
+    @Operation(
+        summary = "Historial de un préstamo",
+        description = "Reconstruye la línea de tiempo de un préstamo a partir del diario de eventos: préstamo, devolución, multas y pago, con el usuario que hizo cada cambio. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Eventos en orden cronológico"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<List<EventoPrestamo>> eventosPrestamo(
+        @Parameter(description = "ID del préstamo", required = true, example = "1")
+        @PathVariable Long id) {
+        return ResponseEntity.ok(diarioPrestamos.historial(id));
+    }
+
+    @GetMapping("/prestamos/diario")
+    @Operation(
+        summary = "Estado del diario de préstamos",
+        description = "Eventos pendientes de escribir, escritos y descartados por cola llena desde el arranque. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Contadores del diario"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<Map<String, Long>> estadoDiario() {
+        return ResponseEntity.ok(diarioPrestamos.estado());
+    }
+
+    @GetMapping("/invalidacion")
+    @Operation(
+        summary = "Estado del bus de invalidación",
+        description = "Identificador de este nodo, si está escuchando en Postgres (LISTEN), avisos recibidos de otros nodos, repartos a las cachés y reconexiones desde el arranque. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Estado del bus"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<Map<String, Object>> estadoInvalidacion() {
+        return ResponseEntity.ok(busInvalidaciones.estado());
+    }
+
+    @PostMapping("/prestamos/avisos")
+    @Operation(
+        summary = "Enviar avisos de vencimiento",
+        description = "Ejecuta ahora el envío de recordatorios (préstamos que vencen pronto) y avisos de préstamos vencidos, que normalmente corre una vez al día. Cada aviso se envía una sola vez por préstamo y fecha límite. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Resumen: usuarios, avisos, enviados, fallidos, omitidos y duración"),
+        @ApiResponse(responseCode = "400", description = "Ya hay un envío en curso en este u otro nodo"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<Map<String, Object>> enviarAvisos() {
+        return ResponseEntity.ok(tareasProgramadas.enviarAvisos());
+    }
+
+    @PostMapping("/prestamos/archivar")
+    @Operation(
+        summary = "Archivar préstamos devueltos",
+        description = "Mueve ahora, por bloques, los préstamos devueltos hace más de biblioteca.archivo.dias días a la tabla de archivo (normalmente corre cada noche). Siguen apareciendo en los historiales. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Resumen: fecha de corte, préstamos movidos, bloques y duración"),
+        @ApiResponse(responseCode = "400", description = "Ya hay un archivado en curso en este u otro nodo"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<Map<String, Object>> archivarPrestamos() {
+        return ResponseEntity.ok(tareasProgramadas.archivarPrestamos());
+    }
+
     @GetMapping("/prestamos/diagnostico")
     @Operation(
         summary = "Diagnóstico de autenticación",
@@ -373,101 +503,113 @@ public class AdminController {
     @PutMapping("/prestamos/actualizar-multas")
     @Operation(
         summary = "Actualizar multas de préstamos vencidos",
-        description = "Calcula y actualiza automáticamente las multas de todos los préstamos que han vencido. La multa es de 5000 por día de retraso. Requiere rol ADMIN."
+        description = "Calcula y actualiza las multas de todos los préstamos vencidos que siguen sin devolverse, según la política de multas de su categoría (valor por día, tope, días de gracia y días hábiles). El trabajo se reparte por tramos entre todos los nodos (también corre cada noche); si ya hay un recalculo en curso se suma a él. Espera el resultado hasta biblioteca.tareas.espera-multas-ms. Requiere rol ADMIN."
     )
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "Multas actualizadas exitosamente",
+        @ApiResponse(responseCode = "200", description = "Multas actualizadas exitosamente, o el recalculo sigue en curso",
             content = @Content(schema = @Schema(implementation = String.class))),
+        @ApiResponse(responseCode = "400", description = "Algún tramo falló tras varios intentos"),
         @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
     })
     public ResponseEntity<String> actualizarMultas() {
-        LocalDate hoy = LocalDate.now();
-        int actualizados = 0;
-        int multaPorDia = 5000;
-
-        List<Prestamo> prestamosPendientes = prestamoRepository.findAll().stream()
-                .filter(p -> p.getEstado() == EstadoPrestamo.PRESTADO)
-                .filter(p -> hoy.isAfter(p.getFechaLimite()))
-                .toList();
-
-        for (Prestamo prestamo : prestamosPendientes) {
-            long diasRetraso = ChronoUnit.DAYS.between(prestamo.getFechaLimite(), hoy);
-            int diasRetrasoInt = (int) diasRetraso;
-            int multaTotal = diasRetrasoInt * multaPorDia;
-
-            prestamo.setDiasRetraso(diasRetrasoInt);
-            prestamo.setValorMulta(multaTotal);
-            prestamo.setEstado(EstadoPrestamo.MULTA);
-            prestamoRepository.save(prestamo);
-            actualizados++;
+        EjecucionTareaRepository.Resultado resultado = tareasProgramadas.actualizarMultas();
+        if (resultado.getEstado() == EstadoEjecucion.FALLIDA) {
+            throw new IllegalStateException("El recalculo de multas falló: " + resultado.getDetalle());
         }
-
-        return ResponseEntity.ok("Se actualizaron " + actualizados + " préstamo(s) con multa");
+        if (resultado.getEstado() == EstadoEjecucion.EN_CURSO) {
+            return ResponseEntity.ok("El recalculo de multas sigue en curso en los nodos; consulte /api/admin/tareas/ejecuciones");
+        }
+        return ResponseEntity.ok("Se actualizaron " + resultado.getProcesados() + " préstamo(s) con multa");
     }
 
     @PutMapping("/prestamos/{id}/pagar-multa")
     @Operation(
         summary = "Marcar multa como pagada",
-        description = "Marca una multa como pagada y devuelve el libro. El valor de la multa se conserva en el historial. Incrementa la cantidad disponible del libro. Requiere rol ADMIN."
+        description = "Marca una multa como pagada y devuelve el libro. El valor de la multa se conserva en el historial. El ejemplar se aparta para la siguiente reserva en espera o incrementa la cantidad disponible del libro. Requiere rol ADMIN."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Multa pagada exitosamente",
             content = @Content(schema = @Schema(implementation = Prestamo.class))),
         @ApiResponse(responseCode = "404", description = "Préstamo no encontrado"),
         @ApiResponse(responseCode = "400", description = "El préstamo no tiene multa pendiente"),
-        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador"),
+        @ApiResponse(responseCode = "409", description = "Otra solicitud con la misma Idempotency-Key está en curso"),
+        @ApiResponse(responseCode = "422", description = "La Idempotency-Key ya se usó con otra solicitud")
     })
+    @Parameter(in = ParameterIn.HEADER, name = "Idempotency-Key", required = false,
+        description = "Clave única por intento lógico; los reintentos con la misma clave devuelven la respuesta original",
+        schema = @Schema(type = "string"))
     public ResponseEntity<Prestamo> pagarMulta(
         @Parameter(description = "ID del préstamo con multa", required = true, example = "1")
         @PathVariable Long id) {
-        Prestamo prestamo = prestamoRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Préstamo no encontrado"));
-
-        if (prestamo.getEstado() != EstadoPrestamo.MULTA) {
-            throw new IllegalStateException("Este préstamo no tiene multa pendiente");
-        }
-
-        int valorMultaPagada = prestamo.getValorMulta() != null ? prestamo.getValorMulta() : 0;
-
-        prestamo.setFechaDevolucion(LocalDate.now());
-        prestamo.setEstado(EstadoPrestamo.DEVUELTO);
-
-        Libro libro = prestamo.getLibro();
-        libro.setCantidadDisponible(libro.getCantidadDisponible() + 1);
-        libroRepository.save(libro);
-
-        Prestamo prestamoGuardado = prestamoRepository.save(prestamo);
-        System.out.println("Multa pagada - Prestamo ID: " + prestamoGuardado.getId() +
-                          ", Valor multa: " + prestamoGuardado.getValorMulta() +
-                          ", Estado: " + prestamoGuardado.getEstado());
+        return ResponseEntity.ok(bibliotecaService.pagarMulta(id));
+    }
 
-        return ResponseEntity.ok(prestamoGuardado);
+    @PostMapping("/recomendaciones/reconstruir")
+    @Operation(
+        summary = "Reconstruir recomendaciones",
+        description = "Recalcula en paralelo la matriz de coocurrencias de préstamos a partir de todo el historial. Normalmente se ejecuta de forma programada cada noche. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Reconstrucción completada"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<String> reconstruirRecomendaciones() {
+        recomendacionService.reconstruir();
+        return ResponseEntity.ok("Recomendaciones reconstruidas");
     }
 
     // CRUD Usuarios
     @GetMapping("/usuarios")
     @Operation(
         summary = "Listar todos los usuarios",
-        description = "Obtiene la lista completa de todos los usuarios del sistema. Las contraseñas no se incluyen en la respuesta. Requiere rol ADMIN."
+        description = "Obtiene la lista completa de todos los usuarios del sistema. Las contraseñas no se incluyen en la respuesta. Para directorios grandes usar /usuarios/buscar. Requiere rol ADMIN."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Lista de usuarios obtenida exitosamente"),
         @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
     })
+    @CamposSeleccionables(fields = "username,nombre,apellido,email")
     public ResponseEntity<List<Usuario>> listarUsuarios() {
         List<Usuario> usuarios = usuarioRepository.findAll();
         usuarios.forEach(u -> u.setPassword(null));
         return ResponseEntity.ok(usuarios);
     }
 
+    @GetMapping("/usuarios/buscar")
+    @Operation(
+        summary = "Buscar usuarios",
+        description = "Directorio paginado de usuarios ordenado por username. q busca por prefijo (sin distinguir mayúsculas) en username, nombre, apellido y email. Para la página siguiente se envía en despuesDe el valor 'siguiente' de la respuesta; es null en la última página. Las contraseñas no se incluyen. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Página de usuarios",
+            content = @Content(schema = @Schema(implementation = PaginaUsuarios.class))),
+        @ApiResponse(responseCode = "400", description = "Límite inválido"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<PaginaUsuarios> buscarUsuarios(
+        @Parameter(description = "Prefijo de username, nombre, apellido o email", example = "gar")
+        @RequestParam(required = false) String q,
+        @Parameter(description = "Filtrar por rol", example = "USUARIO")
+        @RequestParam(required = false) Rol rol,
+        @Parameter(description = "Filtrar por estado de bloqueo", example = "false")
+        @RequestParam(required = false) Boolean bloqueado,
+        @Parameter(description = "Username del último usuario de la página anterior")
+        @RequestParam(required = false) String despuesDe,
+        @Parameter(description = "Tamaño de página (1-200)", example = "50")
+        @RequestParam(defaultValue = "50") int limite) {
+        return ResponseEntity.ok(usuarioService.buscar(q, rol, bloqueado, despuesDe, limite));
+    }
+
     @GetMapping("/usuarios/{id}")
     @Operation(
         summary = "Obtener usuario por ID",
-        description = "Obtiene los detalles de un usuario específico por su ID. La contraseña no se incluye en la respuesta. Requiere rol ADMIN."
+        description = "Obtiene los detalles de un usuario específico por su ID. La contraseña no se incluye en la respuesta. Devuelve su versión en el header ETag; con If-None-Match igual a la versión actual responde 304 sin cuerpo. Requiere rol ADMIN."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Usuario encontrado",
             content = @Content(schema = @Schema(implementation = Usuario.class))),
+        @ApiResponse(responseCode = "304", description = "El usuario no cambió desde la versión de If-None-Match"),
         @ApiResponse(responseCode = "404", description = "Usuario no encontrado"),
         @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
     })
@@ -477,7 +619,7 @@ public class AdminController {
         Usuario usuario = usuarioRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
         usuario.setPassword(null);
-        return ResponseEntity.ok(usuario);
+        return ResponseEntity.ok().eTag(ETags.de(usuario.getVersion())).body(usuario);
     }
 
     @PostMapping("/usuarios")
@@ -516,12 +658,14 @@ public class AdminController {
     @PutMapping("/usuarios/{id}")
     @Operation(
         summary = "Actualizar usuario",
-        description = "Actualiza la información de un usuario existente. Si se proporciona contraseña, se encripta. Permite cambiar rol y estado de bloqueo. Requiere rol ADMIN."
+        description = "Actualiza la información de un usuario existente. Si se proporciona contraseña, se encripta. Permite cambiar rol y estado de bloqueo. Si se envía If-Match con el ETag leído, solo se guarda cuando nadie lo modificó desde entonces. Requiere rol ADMIN."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Usuario actualizado exitosamente",
             content = @Content(schema = @Schema(implementation = Usuario.class))),
         @ApiResponse(responseCode = "404", description = "Usuario no encontrado"),
+        @ApiResponse(responseCode = "409", description = "Otra escritura simultánea ganó la carrera"),
+        @ApiResponse(responseCode = "412", description = "El usuario cambió desde la versión de If-Match"),
         @ApiResponse(responseCode = "400", description = "Username o email ya existe"),
         @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
     })
@@ -529,9 +673,12 @@ public class AdminController {
         @Parameter(description = "ID del usuario a actualizar", required = true, example = "1")
         @PathVariable Long id,
         @Parameter(description = "Datos actualizados del usuario", required = true)
-        @RequestBody Usuario usuario) {
+        @RequestBody Usuario usuario,
+        @Parameter(description = "ETag de la versión que se editó", example = "\"3\"")
+        @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         Usuario existente = usuarioRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        ETags.comprobar(ifMatch, existente.getVersion());
 
         if (!existente.getUsername().equals(usuario.getUsername()) &&
             usuarioRepository.existsByUsername(usuario.getUsername())) {
@@ -550,13 +697,18 @@ public class AdminController {
         existente.setRol(usuario.getRol());
         existente.setBloqueado(usuario.isBloqueado());
 
-        if (usuario.getPassword() != null && !usuario.getPassword().isEmpty()) {
+        boolean cambioPassword = usuario.getPassword() != null && !usuario.getPassword().isEmpty();
+        if (cambioPassword) {
             existente.setPassword(passwordEncoder.encode(usuario.getPassword()));
         }
 
         Usuario actualizado = usuarioRepository.save(existente);
+        // Bloqueo o nueva contraseña cierran las sesiones abiertas: no podrán renovar el access token
+        if (actualizado.isBloqueado() || cambioPassword) {
+            tokensRenovacion.revocarUsuarios(List.of(id));
+        }
         actualizado.setPassword(null); // No exponer contraseña
-        return ResponseEntity.ok(actualizado);
+        return ResponseEntity.ok().eTag(ETags.de(actualizado.getVersion())).body(actualizado);
     }
 
     @DeleteMapping("/usuarios/{id}")
@@ -576,8 +728,25 @@ public class AdminController {
             throw new IllegalArgumentException("Usuario no encontrado");
         }
         usuarioRepository.deleteById(id);
+        tokensRenovacion.revocarUsuarios(List.of(id));
         return ResponseEntity.ok().build();
     }
-}
-
 
+    @PostMapping("/usuarios/masivo")
+    @Operation(
+        summary = "Operación masiva sobre usuarios",
+        description = "Bloquea, desbloquea, cambia el rol o elimina en una sola transacción a los usuarios indicados por ids o, si no se envían ids, a los que cumplan el filtro (q, rol, bloqueado). Informa el resultado por usuario: APLICADO, SIN_CAMBIOS, OMITIDO (el propio administrador o, al eliminar, usuarios con préstamos o reservas) o NO_ENCONTRADO. Bloquear o eliminar revoca las sesiones. Máximo 5000 usuarios por operación. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Operación aplicada",
+            content = @Content(schema = @Schema(implementation = ResultadoOperacionUsuarios.class))),
+        @ApiResponse(responseCode = "400", description = "Acción o destinatarios inválidos, o más usuarios que el máximo"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<ResultadoOperacionUsuarios> operacionMasivaUsuarios(
+        @Parameter(description = "Acción y destinatarios", required = true)
+        @RequestBody OperacionUsuarios operacion,
+        Authentication authentication) {
+        return ResponseEntity.ok(usuarioService.aplicar(operacion, authentication.getName()));
+    }
+}
@@ -3,6 +3,7 @@ package com.biblioteca.controller;
 import com.biblioteca.dto.LoginRequest;
 import com.biblioteca.dto.LoginResponse;
 import com.biblioteca.dto.RegistroRequest;
+import com.biblioteca.dto.RenovarRequest;
 import com.biblioteca.model.Usuario;
 import com.biblioteca.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -62,7 +63,8 @@ public class AuthController {
         @ApiResponse(responseCode = "200", description = "Login exitoso, se devuelve el token JWT",
             content = @Content(schema = @Schema(implementation = LoginResponse.class))),
         @ApiResponse(responseCode = "401", description = "Credenciales inválidas"),
-        @ApiResponse(responseCode = "403", description = "Usuario bloqueado")
+        @ApiResponse(responseCode = "403", description = "Usuario bloqueado"),
+        @ApiResponse(responseCode = "429", description = "Demasiadas solicitudes, reintentar tras Retry-After")
     })
     public ResponseEntity<?> login(
         @io.swagger.v3.oas.annotations.parameters.RequestBody(
@@ -90,6 +92,40 @@ public class AuthController {
         }
     }
 
+    @PostMapping("/refresh")
+    @Operation(
+        summary = "Renovar la sesión",
+        description = "Cambia un refresh token vigente por un access token nuevo (válido unos minutos) y otro refresh token; el presentado deja de servir. Presentar un refresh token ya usado revoca toda la sesión. No verifica la contraseña. Endpoint público."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Sesión renovada",
+            content = @Content(schema = @Schema(implementation = LoginResponse.class))),
+        @ApiResponse(responseCode = "401", description = "Refresh token inválido, vencido, revocado o reutilizado"),
+        @ApiResponse(responseCode = "403", description = "Usuario bloqueado")
+    })
+    public ResponseEntity<LoginResponse> renovar(
+        @io.swagger.v3.oas.annotations.parameters.RequestBody(
+            description = "Refresh token recibido en el login o en la última renovación",
+            required = true,
+            content = @Content(schema = @Schema(implementation = RenovarRequest.class))
+        )
+        @RequestBody RenovarRequest request) {
+        return ResponseEntity.ok(authService.renovar(request.getRefreshToken()));
+    }
+
+    @PostMapping("/logout")
+    @Operation(
+        summary = "Cerrar sesión",
+        description = "Revoca el refresh token y todos los de su sesión. El access token vigente sigue valiendo hasta vencer (pocos minutos). Endpoint público."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Sesión cerrada")
+    })
+    public ResponseEntity<Void> cerrarSesion(@RequestBody RenovarRequest request) {
+        authService.cerrarSesion(request.getRefreshToken());
+        return ResponseEntity.noContent().build();
+    }
+
     @PostMapping("/create-admin")
     @Operation(
         summary = "Crear el primer administrador",
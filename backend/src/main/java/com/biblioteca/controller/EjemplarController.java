@@ -0,0 +1,107 @@
+package com.biblioteca.controller;
+
+import com.biblioteca.dto.EjemplarDetalle;
+import com.biblioteca.model.Ejemplar;
+import com.biblioteca.model.Prestamo;
+import com.biblioteca.repository.PrestamoRepository;
+import com.biblioteca.service.BibliotecaService;
+import com.biblioteca.service.InventarioEjemplares;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/ejemplares")
+@Tag(name = "Ejemplares", description = "Inventario por copia física y lectura de códigos de barras en el mostrador")
+@PreAuthorize("hasRole('ADMIN')")
+public class EjemplarController {
+
+    private final InventarioEjemplares inventarioEjemplares;
+    private final PrestamoRepository prestamoRepository;
+    private final BibliotecaService bibliotecaService;
+
+    public EjemplarController(InventarioEjemplares inventarioEjemplares,
+                              PrestamoRepository prestamoRepository,
+                              BibliotecaService bibliotecaService) {
+        this.inventarioEjemplares = inventarioEjemplares;
+        this.prestamoRepository = prestamoRepository;
+        this.bibliotecaService = bibliotecaService;
+    }
+
+    @GetMapping("/codigo/{codigo}")
+    @Operation(
+        summary = "Buscar ejemplar por código de barras",
+        description = "Devuelve la copia leída por el escáner con su libro y, si está prestada, el préstamo en curso. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Ejemplar encontrado",
+            content = @Content(schema = @Schema(implementation = EjemplarDetalle.class))),
+        @ApiResponse(responseCode = "400", description = "Código de barras desconocido"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<EjemplarDetalle> buscarPorCodigo(
+        @Parameter(description = "Código de barras", required = true, example = "LIB000001-001")
+        @PathVariable String codigo) {
+        Ejemplar ejemplar = buscar(codigo);
+        Prestamo prestamo = prestamoRepository.findFirstByEjemplarIdAndFechaDevolucionIsNull(ejemplar.getId())
+                .map(this::sinPassword)
+                .orElse(null);
+        return ResponseEntity.ok(new EjemplarDetalle(ejemplar, prestamo));
+    }
+
+    @PostMapping("/codigo/{codigo}/devolver")
+    @Operation(
+        summary = "Recibir ejemplar escaneado",
+        description = "Registra la devolución del préstamo en curso de la copia escaneada, igual que recibir el préstamo por ID (multa si hay retraso, reserva en espera o cantidad disponible). Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Devolución registrada",
+            content = @Content(schema = @Schema(implementation = Prestamo.class))),
+        @ApiResponse(responseCode = "400", description = "Código desconocido o la copia no está prestada"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<Prestamo> devolverPorCodigo(
+        @Parameter(description = "Código de barras", required = true, example = "LIB000001-001")
+        @PathVariable String codigo) {
+        Ejemplar ejemplar = buscar(codigo);
+        Prestamo prestamo = prestamoRepository.findFirstByEjemplarIdAndFechaDevolucionIsNull(ejemplar.getId())
+                .orElseThrow(() -> new IllegalStateException("El ejemplar " + ejemplar.getCodigoBarras() + " no está prestado"));
+        return ResponseEntity.ok(sinPassword(bibliotecaService.devolverLibro(prestamo.getId())));
+    }
+
+    @GetMapping("/libro/{libroId}")
+    @Operation(
+        summary = "Ejemplares de un libro",
+        description = "Lista las copias de un libro con su código de barras y estado (disponible, prestado o de baja) para auditorías de inventario. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Copias ordenadas por número"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<List<Ejemplar>> ejemplaresDeLibro(
+        @Parameter(description = "ID del libro", required = true, example = "1")
+        @PathVariable Long libroId) {
+        return ResponseEntity.ok(inventarioEjemplares.ejemplaresDe(libroId));
+    }
+
+    private Ejemplar buscar(String codigo) {
+        return inventarioEjemplares.buscarPorCodigo(codigo)
+                .orElseThrow(() -> new IllegalArgumentException("Código de barras desconocido: " + codigo));
+    }
+
+    private Prestamo sinPassword(Prestamo prestamo) {
+        if (prestamo.getUsuario() != null) {
+            prestamo.getUsuario().setPassword(null);
+        }
+        return prestamo;
+    }
+}
@@ -0,0 +1,56 @@
+package com.biblioteca.controller;
+
+import com.biblioteca.dto.EstadisticasResponse;
+import com.biblioteca.service.EstadisticasService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/stats")
+@Tag(name = "Estadísticas", description = "Contadores agregados del catálogo y de préstamos")
+public class EstadisticasController {
+
+    private final EstadisticasService estadisticasService;
+
+    public EstadisticasController(EstadisticasService estadisticasService) {
+        this.estadisticasService = estadisticasService;
+    }
+
+    @GetMapping
+    @Operation(
+        summary = "Obtener estadísticas",
+        description = "Devuelve los contadores globales (libros, ejemplares disponibles, préstamos por estado y multas) mantenidos en memoria, sin recorrer las tablas. " +
+                "Opcionalmente incluye los contadores de un libro o una categoría. Los contadores por usuario requieren rol ADMIN. Endpoint público."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Estadísticas obtenidas exitosamente",
+            content = @Content(schema = @Schema(implementation = EstadisticasResponse.class))),
+        @ApiResponse(responseCode = "403", description = "Se pidieron contadores de usuario sin rol ADMIN")
+    })
+    public ResponseEntity<EstadisticasResponse> obtenerEstadisticas(
+        @Parameter(description = "ID de libro a detallar", example = "1")
+        @RequestParam(required = false) Long libroId,
+        @Parameter(description = "ID de categoría a detallar", example = "1")
+        @RequestParam(required = false) Long categoriaId,
+        @Parameter(description = "ID de usuario a detallar (solo ADMIN)", example = "1")
+        @RequestParam(required = false) Long usuarioId,
+        Authentication authentication) {
+        if (usuarioId != null && (authentication == null || authentication.getAuthorities().stream()
+                .noneMatch(a -> a.getAuthority().equals("ROLE_ADMIN")))) {
+            throw new AccessDeniedException("Se requiere rol ADMIN");
+        }
+        return ResponseEntity.ok(estadisticasService.consultar(libroId, categoriaId, usuarioId));
+    }
+}
@@ -43,7 +43,8 @@ public class FileUploadController {
             content = @Content(schema = @Schema(implementation = Map.class))),
         @ApiResponse(responseCode = "400", description = "Archivo inválido o muy grande"),
         @ApiResponse(responseCode = "403", description = "Sin permisos de administrador"),
-        @ApiResponse(responseCode = "500", description = "Error al guardar la imagen")
+        @ApiResponse(responseCode = "500", description = "Error al guardar la imagen"),
+        @ApiResponse(responseCode = "429", description = "Demasiadas solicitudes, reintentar tras Retry-After")
     })
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<Map<String, String>> uploadImagen(
@@ -1,23 +1,35 @@
 package com.biblioteca.controller;
 
+import com.biblioteca.config.CamposSeleccionables;
+import com.biblioteca.dto.CatalogoFacetado;
+import com.biblioteca.dto.LibroTendencia;
 import com.biblioteca.model.Categoria;
 import com.biblioteca.model.Libro;
 import com.biblioteca.model.Prestamo;
+import com.biblioteca.model.Reserva;
 import com.biblioteca.repository.CategoriaRepository;
+import com.biblioteca.service.ArchivoPrestamos;
 import com.biblioteca.service.BibliotecaService;
+import com.biblioteca.service.IndiceCatalogo;
+import com.biblioteca.service.RecomendacionService;
+import com.biblioteca.service.ReservaService;
+import com.biblioteca.service.TendenciasService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/libros")
@@ -26,10 +38,26 @@ public class LibroController {
 
     private final BibliotecaService bibliotecaService;
     private final CategoriaRepository categoriaRepository;
+    private final ReservaService reservaService;
+    private final RecomendacionService recomendacionService;
+    private final TendenciasService tendenciasService;
+    private final ArchivoPrestamos archivoPrestamos;
+    private final IndiceCatalogo indiceCatalogo;
 
-    public LibroController(BibliotecaService bibliotecaService, CategoriaRepository categoriaRepository) {
+    public LibroController(BibliotecaService bibliotecaService,
+                           CategoriaRepository categoriaRepository,
+                           ReservaService reservaService,
+                           RecomendacionService recomendacionService,
+                           TendenciasService tendenciasService,
+                           ArchivoPrestamos archivoPrestamos,
+                           IndiceCatalogo indiceCatalogo) {
         this.bibliotecaService = bibliotecaService;
         this.categoriaRepository = categoriaRepository;
+        this.reservaService = reservaService;
+        this.recomendacionService = recomendacionService;
+        this.tendenciasService = tendenciasService;
+        this.archivoPrestamos = archivoPrestamos;
+        this.indiceCatalogo = indiceCatalogo;
     }
 
     @GetMapping
@@ -40,10 +68,69 @@ public class LibroController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Lista de libros obtenida exitosamente")
     })
+    @CamposSeleccionables(fields = "titulo,autor,cantidadDisponible", include = "categoria")
     public ResponseEntity<List<Libro>> listarLibros() {
         return ResponseEntity.ok(bibliotecaService.listarLibros());
     }
 
+    @GetMapping("/tendencias")
+    @Operation(
+        summary = "Libros más prestados",
+        description = "Ranking de los libros más prestados en la última semana o el último mes, global o por categoría. Los conteos son estimaciones que pueden exceder el real como mucho en errorMaximo. La respuesta se puede cachear 60 segundos. Endpoint público, no requiere autenticación."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Ranking obtenido exitosamente"),
+        @ApiResponse(responseCode = "400", description = "Periodo, límite o categoría inválidos")
+    })
+    public ResponseEntity<List<LibroTendencia>> tendencias(
+        @Parameter(description = "Ventana de tiempo: SEMANA o MES", example = "SEMANA")
+        @RequestParam(defaultValue = "SEMANA") TendenciasService.Periodo periodo,
+        @Parameter(description = "ID de la categoría (opcional)", example = "1")
+        @RequestParam(required = false) Long categoriaId,
+        @Parameter(description = "Cantidad de libros del ranking", example = "10")
+        @RequestParam(defaultValue = "10") int limite) {
+        if (limite < 1 || limite > 100) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y 100");
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic())
+                .body(tendenciasService.masPrestados(periodo, categoriaId, limite));
+    }
+
+    @GetMapping("/buscar")
+    @Operation(
+        summary = "Buscar en el catálogo con facetas",
+        description = "Filtra el catálogo por texto (título o autor, sin distinguir tildes), categoría, inicial del autor y disponibilidad, y devuelve una página de libros junto con los conteos de cada faceta. Cada faceta se cuenta con los demás filtros aplicados, de modo que indica cuántos libros quedarían al elegir ese valor. En modo AUTO, si ningún libro contiene el texto se responde con los más parecidos por trigramas (aproximado = true) y una sugerencia de título o autor. Endpoint público, no requiere autenticación."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Resultados y facetas obtenidos exitosamente"),
+        @ApiResponse(responseCode = "400", description = "Página, tamaño o texto inválido")
+    })
+    public ResponseEntity<CatalogoFacetado> buscar(
+        @Parameter(description = "Texto a buscar en título o autor (opcional)", example = "garcia")
+        @RequestParam(required = false) String q,
+        @Parameter(description = "ID de la categoría (opcional)", example = "1")
+        @RequestParam(required = false) Long categoriaId,
+        @Parameter(description = "Inicial del apellido o nombre del autor (opcional)", example = "G")
+        @RequestParam(required = false) String inicial,
+        @Parameter(description = "true: solo disponibles, false: solo agotados (opcional)")
+        @RequestParam(required = false) Boolean disponible,
+        @Parameter(description = "AUTO (exacta y, sin resultados, aproximada), EXACTO o APROXIMADO", example = "AUTO")
+        @RequestParam(defaultValue = "AUTO") IndiceCatalogo.Modo modo,
+        @Parameter(description = "Número de página, desde 0", example = "0")
+        @RequestParam(defaultValue = "0") int pagina,
+        @Parameter(description = "Libros por página", example = "20")
+        @RequestParam(defaultValue = "20") int tamano) {
+        if (pagina < 0 || tamano < 1 || tamano > 100) {
+            throw new IllegalArgumentException("La página debe ser 0 o mayor y el tamaño entre 1 y 100");
+        }
+        if (q != null && q.length() > 200) {
+            throw new IllegalArgumentException("El texto a buscar no puede superar 200 caracteres");
+        }
+        IndiceCatalogo.Filtro filtro = new IndiceCatalogo.Filtro(q, categoriaId, inicial, disponible, modo);
+        return ResponseEntity.ok(indiceCatalogo.pagina(filtro, pagina, tamano));
+    }
+
     @GetMapping("/{id}")
     @Operation(
         summary = "Obtener detalle de un libro",
@@ -60,6 +147,28 @@ public class LibroController {
         return ResponseEntity.ok(bibliotecaService.obtenerLibro(id));
     }
 
+    @GetMapping("/{id}/recomendaciones")
+    @Operation(
+        summary = "Libros recomendados",
+        description = "Devuelve los libros que más prestaron los lectores de este libro (\"quienes leyeron esto también prestaron\"), ordenados por similitud. Mientras el nodo recién iniciado construye las recomendaciones responde una lista vacía con el encabezado X-Recomendaciones: preparando. Endpoint público, no requiere autenticación."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Lista de libros recomendados (vacía si aún no hay datos o se están preparando)")
+    })
+    public ResponseEntity<List<Libro>> recomendaciones(
+        @Parameter(description = "ID del libro", required = true, example = "1")
+        @PathVariable Long id,
+        @Parameter(description = "Cantidad máxima de recomendaciones", example = "5")
+        @RequestParam(defaultValue = "5") int limite) {
+        if (limite < 1 || limite > 50) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y 50");
+        }
+        if (!recomendacionService.lista()) {
+            return ResponseEntity.ok().header("X-Recomendaciones", "preparando").body(List.of());
+        }
+        return ResponseEntity.ok(recomendacionService.recomendar(id, limite));
+    }
+
     @PostMapping("/{id}/prestar")
     @Operation(
         summary = "Prestar un libro",
@@ -70,8 +179,14 @@ public class LibroController {
             content = @Content(schema = @Schema(implementation = Prestamo.class))),
         @ApiResponse(responseCode = "400", description = "Libro no disponible o no encontrado"),
         @ApiResponse(responseCode = "401", description = "No autenticado"),
-        @ApiResponse(responseCode = "403", description = "Usuario bloqueado")
+        @ApiResponse(responseCode = "403", description = "Usuario bloqueado"),
+        @ApiResponse(responseCode = "409", description = "Otra solicitud con la misma Idempotency-Key está en curso"),
+        @ApiResponse(responseCode = "422", description = "La Idempotency-Key ya se usó con otra solicitud"),
+        @ApiResponse(responseCode = "429", description = "Demasiadas solicitudes, reintentar tras Retry-After")
     })
+    @Parameter(in = ParameterIn.HEADER, name = "Idempotency-Key", required = false,
+        description = "Clave única por intento lógico; los reintentos con la misma clave devuelven la respuesta original",
+        schema = @Schema(type = "string"))
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<Prestamo> prestarLibro(
         @Parameter(description = "ID del libro a prestar", required = true, example = "1")
@@ -82,6 +197,63 @@ public class LibroController {
         return ResponseEntity.ok(prestamo);
     }
 
+    @PostMapping("/{id}/reservar")
+    @Operation(
+        summary = "Reservar un libro sin unidades disponibles",
+        description = "Agrega al usuario a la lista de espera del libro. Solo se admite una reserva activa por usuario y libro: repetir la solicitud devuelve la reserva existente con su posición. Cuando se devuelve un ejemplar se aparta para el primero de la lista durante un plazo de recogida. Requiere autenticación."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Reserva registrada o existente",
+            content = @Content(schema = @Schema(implementation = Reserva.class))),
+        @ApiResponse(responseCode = "400", description = "Libro no encontrado o con unidades disponibles"),
+        @ApiResponse(responseCode = "401", description = "No autenticado"),
+        @ApiResponse(responseCode = "429", description = "Demasiadas solicitudes, reintentar tras Retry-After")
+    })
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Reserva> reservarLibro(
+        @Parameter(description = "ID del libro a reservar", required = true, example = "1")
+        @PathVariable Long id,
+        Authentication authentication) {
+        Reserva reserva = reservaService.reservar(id, authentication.getName());
+        reserva.getUsuario().setPassword(null);
+        return ResponseEntity.ok(reserva);
+    }
+
+    @GetMapping("/mis-reservas")
+    @Operation(
+        summary = "Obtener reservas del usuario actual",
+        description = "Obtiene las reservas del usuario autenticado con su estado, posición en la lista de espera y plazo de recogida si ya tiene un ejemplar apartado. Requiere autenticación."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Lista de reservas obtenida exitosamente"),
+        @ApiResponse(responseCode = "401", description = "No autenticado")
+    })
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<List<Reserva>> misReservas(Authentication authentication) {
+        List<Reserva> reservas = reservaService.reservasPorUsuario(authentication.getName());
+        reservas.forEach(r -> r.getUsuario().setPassword(null));
+        return ResponseEntity.ok(reservas);
+    }
+
+    @DeleteMapping("/reservas/{reservaId}")
+    @Operation(
+        summary = "Cancelar una reserva",
+        description = "Cancela una reserva activa del usuario autenticado. Si ya tenía un ejemplar apartado, pasa al siguiente de la lista de espera. Requiere autenticación."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Reserva cancelada"),
+        @ApiResponse(responseCode = "400", description = "Reserva no encontrada o ya no activa"),
+        @ApiResponse(responseCode = "401", description = "No autenticado")
+    })
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Void> cancelarReserva(
+        @Parameter(description = "ID de la reserva", required = true, example = "1")
+        @PathVariable Long reservaId,
+        Authentication authentication) {
+        reservaService.cancelar(reservaId, authentication.getName());
+        return ResponseEntity.ok().build();
+    }
+
     @GetMapping("/mis-prestamos")
     @Operation(
         summary = "Obtener préstamos del usuario actual",
@@ -94,7 +266,7 @@ public class LibroController {
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<List<Prestamo>> misPrestamos(Authentication authentication) {
         String username = authentication.getName();
-        List<Prestamo> prestamos = bibliotecaService.prestamosPorUsuario(username);
+        List<Prestamo> prestamos = archivoPrestamos.historialUsuario(username);
         prestamos.forEach(p -> {
             if (p.getUsuario() != null && p.getUsuario().getPassword() != null) {
                 p.getUsuario().setPassword(null);
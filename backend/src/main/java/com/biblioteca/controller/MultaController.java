@@ -0,0 +1,143 @@
+package com.biblioteca.controller;
+
+import com.biblioteca.model.Feriado;
+import com.biblioteca.model.PoliticaMulta;
+import com.biblioteca.service.PoliticaMultas;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/multas")
+@Tag(name = "Multas", description = "Políticas de multa por categoría y calendario de feriados")
+@PreAuthorize("hasRole('ADMIN')")
+public class MultaController {
+
+    private final PoliticaMultas politicaMultas;
+
+    public MultaController(PoliticaMultas politicaMultas) {
+        this.politicaMultas = politicaMultas;
+    }
+
+    @GetMapping("/politicas")
+    @Operation(
+        summary = "Listar políticas de multa",
+        description = "Reglas configuradas: valor por día, tope, días de gracia y si cuentan solo días hábiles. La regla sin categoría es la general; sin ella se usan los valores de configuración. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Políticas configuradas"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<List<PoliticaMulta>> listarPoliticas() {
+        return ResponseEntity.ok(politicaMultas.politicas());
+    }
+
+    @PutMapping("/politicas")
+    @Operation(
+        summary = "Guardar política de multa",
+        description = "Crea o reemplaza la regla de una categoría (o la general si categoriaId es nulo). Tope 0 = sin tope. Se aplica a las devoluciones y al próximo recálculo de multas. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Política guardada"),
+        @ApiResponse(responseCode = "400", description = "Valores negativos o categoría no encontrada"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<PoliticaMulta> guardarPolitica(
+        @Parameter(description = "Regla de multa", required = true)
+        @RequestBody PoliticaMulta politica) {
+        return ResponseEntity.ok(politicaMultas.guardarPolitica(politica));
+    }
+
+    @DeleteMapping("/politicas/{id}")
+    @Operation(
+        summary = "Eliminar política de multa",
+        description = "La categoría vuelve a usar la regla general. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Política eliminada"),
+        @ApiResponse(responseCode = "400", description = "Política no encontrada"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<Void> eliminarPolitica(
+        @Parameter(description = "ID de la política", required = true, example = "1")
+        @PathVariable Long id) {
+        politicaMultas.eliminarPolitica(id);
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping("/feriados")
+    @Operation(
+        summary = "Listar feriados",
+        description = "Días que no cuentan como retraso en las reglas de días hábiles. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Feriados ordenados por fecha"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<List<Feriado>> listarFeriados() {
+        return ResponseEntity.ok(politicaMultas.feriados());
+    }
+
+    @PostMapping("/feriados")
+    @Operation(
+        summary = "Agregar feriado",
+        description = "Registra un día no hábil; el calendario de días hábiles se recalcula al guardar. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Feriado agregado"),
+        @ApiResponse(responseCode = "400", description = "Fecha faltante o repetida"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<Feriado> agregarFeriado(
+        @Parameter(description = "Fecha y descripción del feriado", required = true)
+        @RequestBody Feriado feriado) {
+        return ResponseEntity.ok(politicaMultas.agregarFeriado(feriado));
+    }
+
+    @DeleteMapping("/feriados/{id}")
+    @Operation(
+        summary = "Eliminar feriado",
+        description = "Quita un día no hábil del calendario. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Feriado eliminado"),
+        @ApiResponse(responseCode = "400", description = "Feriado no encontrado"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<Void> eliminarFeriado(
+        @Parameter(description = "ID del feriado", required = true, example = "1")
+        @PathVariable Long id) {
+        politicaMultas.eliminarFeriado(id);
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping("/simular")
+    @Operation(
+        summary = "Simular multa",
+        description = "Calcula la multa que correspondería a un préstamo de la categoría indicada con esa fecha límite devuelto en la fecha dada, con las reglas y feriados vigentes. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Días de retraso contados y valor de la multa"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<PoliticaMultas.Multa> simular(
+        @Parameter(description = "ID de la categoría (vacío = sin categoría)", example = "1")
+        @RequestParam(required = false) Long categoriaId,
+        @Parameter(description = "Fecha límite del préstamo", required = true, example = "2024-03-01")
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaLimite,
+        @Parameter(description = "Fecha de devolución (por defecto hoy)", example = "2024-03-15")
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaDevolucion) {
+        LocalDate hasta = fechaDevolucion != null ? fechaDevolucion : LocalDate.now();
+        return ResponseEntity.ok(politicaMultas.calcular(categoriaId != null ? categoriaId : 0L,
+                fechaLimite.toEpochDay(), hasta.toEpochDay()));
+    }
+}
@@ -0,0 +1,106 @@
+package com.biblioteca.controller;
+
+import com.biblioteca.dto.ReporteCategoria;
+import com.biblioteca.dto.ReporteDia;
+import com.biblioteca.dto.ReporteMes;
+import com.biblioteca.service.ResumenesPrestamos;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/reportes")
+@Tag(name = "Reportes", description = "Reportes de gestión sobre agregados diarios de préstamos y multas")
+@PreAuthorize("hasRole('ADMIN')")
+public class ReporteController {
+
+    private final ResumenesPrestamos resumenesPrestamos;
+
+    public ReporteController(ResumenesPrestamos resumenesPrestamos) {
+        this.resumenesPrestamos = resumenesPrestamos;
+    }
+
+    @GetMapping("/prestamos-por-dia")
+    @Operation(
+        summary = "Préstamos por día",
+        description = "Préstamos, devoluciones y devoluciones con multa por día en el rango (fechas incluidas), opcionalmente de una categoría. Se lee de los agregados diarios. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Una fila por día con movimiento"),
+        @ApiResponse(responseCode = "400", description = "Rango de fechas inválido"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<List<ReporteDia>> prestamosPorDia(
+        @Parameter(description = "Fecha inicial", required = true, example = "2024-01-01")
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+        @Parameter(description = "Fecha final", required = true, example = "2024-01-31")
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+        @Parameter(description = "ID de categoría (0 = sin categoría)", example = "1")
+        @RequestParam(required = false) Long categoriaId) {
+        return ResponseEntity.ok(resumenesPrestamos.prestamosPorDia(desde, hasta, categoriaId));
+    }
+
+    @GetMapping("/multas-por-mes")
+    @Operation(
+        summary = "Multas por mes",
+        description = "Multas cobradas (cantidad y valor), devoluciones con multa y préstamos que pasaron a multa por vencimiento, por mes. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Una fila por mes con movimiento"),
+        @ApiResponse(responseCode = "400", description = "Rango de fechas inválido"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<List<ReporteMes>> multasPorMes(
+        @Parameter(description = "Fecha inicial", required = true, example = "2024-01-01")
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+        @Parameter(description = "Fecha final", required = true, example = "2024-12-31")
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        return ResponseEntity.ok(resumenesPrestamos.multasPorMes(desde, hasta));
+    }
+
+    @GetMapping("/categorias")
+    @Operation(
+        summary = "Utilización por categoría",
+        description = "Préstamos, devoluciones y multas cobradas por categoría en el rango, con las unidades actuales de la categoría y los préstamos por unidad. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Categorías ordenadas por préstamos"),
+        @ApiResponse(responseCode = "400", description = "Rango de fechas inválido"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<List<ReporteCategoria>> utilizacionPorCategoria(
+        @Parameter(description = "Fecha inicial", required = true, example = "2024-01-01")
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+        @Parameter(description = "Fecha final", required = true, example = "2024-12-31")
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        return ResponseEntity.ok(resumenesPrestamos.utilizacionPorCategoria(desde, hasta));
+    }
+
+    @PostMapping("/reconstruir")
+    @Operation(
+        summary = "Reconstruir agregados",
+        description = "Recalcula los agregados diarios por meses en paralelo desde el diario de eventos (y las fechas de los préstamos anteriores al diario). Sin fechas reconstruye todo el historial hasta ayer; el día en curso se mantiene de forma incremental. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Resumen: rango, meses, filas y duración"),
+        @ApiResponse(responseCode = "400", description = "Ya hay una reconstrucción en curso"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<Map<String, Object>> reconstruir(
+        @Parameter(description = "Fecha inicial (incluida)", example = "2024-01-01")
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+        @Parameter(description = "Fecha final (excluida, como máximo hoy)", example = "2024-07-01")
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        return ResponseEntity.ok(resumenesPrestamos.reconstruir(desde, hasta));
+    }
+}
@@ -0,0 +1,90 @@
+package com.biblioteca.controller;
+
+import com.biblioteca.model.ArriendoTarea;
+import com.biblioteca.model.EjecucionTarea;
+import com.biblioteca.model.TramoTarea;
+import com.biblioteca.repository.ArriendoTareaRepository;
+import com.biblioteca.repository.EjecucionTareaRepository;
+import com.biblioteca.repository.TramoTareaRepository;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/tareas")
+@Tag(name = "Tareas programadas", description = "Historial, tramos y arriendos de las tareas programadas entre nodos")
+@PreAuthorize("hasRole('ADMIN')")
+public class TareaController {
+
+    private static final int LIMITE_MAXIMO = 500;
+
+    private final EjecucionTareaRepository ejecucionRepository;
+    private final TramoTareaRepository tramoRepository;
+    private final ArriendoTareaRepository arriendoRepository;
+
+    public TareaController(EjecucionTareaRepository ejecucionRepository,
+                           TramoTareaRepository tramoRepository,
+                           ArriendoTareaRepository arriendoRepository) {
+        this.ejecucionRepository = ejecucionRepository;
+        this.tramoRepository = tramoRepository;
+        this.arriendoRepository = arriendoRepository;
+    }
+
+    @GetMapping("/ejecuciones")
+    @Operation(
+        summary = "Historial de ejecuciones",
+        description = "Últimas ejecuciones de las tareas programadas (avisos, archivo-prestamos, reservas-expiradas, multas), de la más reciente a la más antigua, con el nodo que la ejecutó o planificó, estado, duración, elementos procesados y detalle. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Ejecuciones encontradas"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<List<EjecucionTarea>> ejecuciones(
+        @Parameter(description = "Filtra por nombre de tarea", example = "multas")
+        @RequestParam(required = false) String tarea,
+        @Parameter(description = "Máximo de ejecuciones a devolver (hasta 500)", example = "50")
+        @RequestParam(defaultValue = "50") int limite) {
+        Pageable pagina = PageRequest.of(0, Math.max(1, Math.min(limite, LIMITE_MAXIMO)));
+        List<EjecucionTarea> ejecuciones = tarea == null || tarea.isBlank()
+                ? ejecucionRepository.findAllByOrderByIdDesc(pagina)
+                : ejecucionRepository.findByTareaOrderByIdDesc(tarea.trim(), pagina);
+        return ResponseEntity.ok(ejecuciones);
+    }
+
+    @GetMapping("/ejecuciones/{id}/tramos")
+    @Operation(
+        summary = "Tramos de una ejecución repartida",
+        description = "Rangos de ids en que se dividió una ejecución repartida, con el nodo que procesó cada uno, su duración, intentos y último error. Permite ver cómo se repartió el trabajo entre nodos. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Tramos de la ejecución (vacío en las tareas de un solo nodo)"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<List<TramoTarea>> tramos(
+        @Parameter(description = "ID de la ejecución", required = true, example = "1")
+        @PathVariable Long id) {
+        return ResponseEntity.ok(tramoRepository.findByEjecucionIdOrderById(id));
+    }
+
+    @GetMapping("/arriendos")
+    @Operation(
+        summary = "Arriendos de tareas",
+        description = "Qué nodo tiene o tuvo por última vez cada tarea y hasta cuándo. Un arriendo vencido lo puede tomar cualquier nodo. Requiere rol ADMIN."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Arriendos registrados"),
+        @ApiResponse(responseCode = "403", description = "Sin permisos de administrador")
+    })
+    public ResponseEntity<List<ArriendoTarea>> arriendos() {
+        return ResponseEntity.ok(arriendoRepository.findAll());
+    }
+}
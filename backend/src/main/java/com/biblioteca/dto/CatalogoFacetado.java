@@ -0,0 +1,24 @@
+package com.biblioteca.dto;
+
+import com.biblioteca.model.Libro;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class CatalogoFacetado {
+    private List<Libro> libros;
+    private int total;
+    // Conteos por valor de faceta, cada uno con los demás filtros aplicados
+    private Map<Long, Integer> categorias;
+    private Map<String, Integer> iniciales;
+    private int disponibles;
+    private int noDisponibles;
+    // true si los libros salen de la búsqueda aproximada por trigramas, ordenados por parecido
+    private boolean aproximado;
+    // "Quizás quisiste decir": título o autor más parecido cuando no hubo coincidencias exactas
+    private String sugerencia;
+}
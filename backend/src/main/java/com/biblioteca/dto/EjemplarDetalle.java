@@ -0,0 +1,14 @@
+package com.biblioteca.dto;
+
+import com.biblioteca.model.Ejemplar;
+import com.biblioteca.model.Prestamo;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class EjemplarDetalle {
+    private Ejemplar ejemplar;
+    // Préstamo en curso de la copia; nulo si está en la biblioteca
+    private Prestamo prestamoActivo;
+}
@@ -0,0 +1,21 @@
+package com.biblioteca.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EstadisticasResponse {
+    private Map<String, Long> global;
+    private Map<String, Long> libro;
+    private Map<String, Long> categoria;
+    private Map<String, Long> usuario;
+    private LocalDateTime ultimaConciliacion;
+}
@@ -0,0 +1,14 @@
+package com.biblioteca.dto;
+
+import com.biblioteca.model.Libro;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class LibroTendencia {
+    private Libro libro;
+    // Estimación del resumen: puede sobreestimar el conteo real como mucho en errorMaximo
+    private long prestamos;
+    private long errorMaximo;
+}
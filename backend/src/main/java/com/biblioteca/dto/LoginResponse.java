@@ -7,6 +7,8 @@ import lombok.Data;
 @AllArgsConstructor
 public class LoginResponse {
     private String token;
+    // Opaco y de un solo uso: se cambia por un par nuevo en /api/auth/refresh
+    private String refreshToken;
     private String username;
     private String rol;
 }
@@ -0,0 +1,22 @@
+package com.biblioteca.dto;
+
+import com.biblioteca.model.Rol;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class OperacionUsuarios {
+
+    public enum Accion { BLOQUEAR, DESBLOQUEAR, CAMBIAR_ROL, ELIMINAR }
+
+    private Accion accion;
+    // Solo para CAMBIAR_ROL
+    private Rol nuevoRol;
+
+    // Destinatarios: una lista de ids o, si no se envía, los que cumplan el filtro (mismos criterios que /usuarios/buscar)
+    private List<Long> ids;
+    private String q;
+    private Rol rol;
+    private Boolean bloqueado;
+}
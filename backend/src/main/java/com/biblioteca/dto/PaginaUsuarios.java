@@ -0,0 +1,15 @@
+package com.biblioteca.dto;
+
+import com.biblioteca.model.Usuario;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class PaginaUsuarios {
+    private List<Usuario> usuarios;
+    // Username del último de la página; se envía como despuesDe para pedir la siguiente. null si no hay más
+    private String siguiente;
+}
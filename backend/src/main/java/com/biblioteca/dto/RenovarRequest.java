@@ -0,0 +1,8 @@
+package com.biblioteca.dto;
+
+import lombok.Data;
+
+@Data
+public class RenovarRequest {
+    private String refreshToken;
+}
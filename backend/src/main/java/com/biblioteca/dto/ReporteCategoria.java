@@ -0,0 +1,18 @@
+package com.biblioteca.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ReporteCategoria {
+    // 0 = libros sin categoría
+    private long categoriaId;
+    private String nombre;
+    private long prestamos;
+    private long devoluciones;
+    private long valorMultasCobradas;
+    // Unidades actuales de la categoría (suma de cantidadTotal) y préstamos por unidad en el rango
+    private long unidades;
+    private double prestamosPorUnidad;
+}
@@ -0,0 +1,15 @@
+package com.biblioteca.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+public class ReporteDia {
+    private LocalDate fecha;
+    private long prestamos;
+    private long devoluciones;
+    private long devolucionesConMulta;
+}
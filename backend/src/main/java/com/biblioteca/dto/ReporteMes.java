@@ -0,0 +1,17 @@
+package com.biblioteca.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+public class ReporteMes {
+    // Primer día del mes
+    private LocalDate mes;
+    private long multasCobradas;
+    private long valorCobrado;
+    private long devolucionesConMulta;
+    private long multasPorVencimiento;
+}
@@ -0,0 +1,31 @@
+package com.biblioteca.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ResultadoOperacionUsuarios {
+
+    public enum Estado { APLICADO, SIN_CAMBIOS, OMITIDO, NO_ENCONTRADO }
+
+    @Data
+    @AllArgsConstructor
+    public static class Detalle {
+        private Long id;
+        private String username;
+        private Estado estado;
+        // Por qué se omitió; null en el resto de estados
+        private String motivo;
+    }
+
+    private int aplicados;
+    private int sinCambios;
+    private int omitidos;
+    private int noEncontrados;
+    // Sesiones (tokens de renovación) revocadas por bloqueo o eliminación
+    private int sesionesRevocadas;
+    private List<Detalle> resultados;
+}
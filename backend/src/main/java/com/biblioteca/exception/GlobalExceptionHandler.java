@@ -1,11 +1,16 @@
 package com.biblioteca.exception;
 
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.HttpMediaTypeNotSupportedException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
@@ -39,6 +44,51 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
     }
 
+    @ExceptionHandler(PrecondicionFallidaException.class)
+    public ResponseEntity<Map<String, String>> handlePrecondicionFallidaException(PrecondicionFallidaException e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "PRECONDICION_FALLIDA");
+        error.put("message", e.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(error);
+    }
+
+    // Otra transacción escribió la misma fila entre la lectura y el UPDATE (columna @Version)
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleOptimisticLockingFailureException(OptimisticLockingFailureException e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "CONFLICTO_CONCURRENTE");
+        error.put("message", "Otra operación modificó el mismo registro al mismo tiempo. Vuelve a intentarlo.");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
+    // Cuerpo JSON o CBOR mal formado o con tipos que no corresponden
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<Map<String, String>> handleHttpMessageNotReadableException(HttpMessageNotReadableException e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "CUERPO_INVALIDO");
+        error.put("message", "No se pudo leer el cuerpo de la solicitud. Verifica el formato y los tipos de los campos.");
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
+    @ExceptionHandler(HttpMediaTypeNotSupportedException.class)
+    public ResponseEntity<Map<String, String>> handleHttpMediaTypeNotSupportedException(HttpMediaTypeNotSupportedException e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "FORMATO_NO_SOPORTADO");
+        error.put("message", "Content-Type no soportado: " + e.getContentType()
+                + ". Formatos aceptados: " + MediaType.toString(e.getSupportedMediaTypes()));
+        return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body(error);
+    }
+
+    // Nada se puede escribir en lo que pide el Accept: el error sale en JSON (Content-Type fijado)
+    @ExceptionHandler(HttpMediaTypeNotAcceptableException.class)
+    public ResponseEntity<Map<String, String>> handleHttpMediaTypeNotAcceptableException(HttpMediaTypeNotAcceptableException e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "FORMATO_NO_ACEPTABLE");
+        error.put("message", "El recurso no está disponible en el formato pedido. Formatos disponibles: "
+                + MediaType.toString(e.getSupportedMediaTypes()));
+        return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).contentType(MediaType.APPLICATION_JSON).body(error);
+    }
+
     @ExceptionHandler(IllegalStateException.class)
     public ResponseEntity<Map<String, String>> handleIllegalStateException(IllegalStateException e) {
         Map<String, String> error = new HashMap<>();
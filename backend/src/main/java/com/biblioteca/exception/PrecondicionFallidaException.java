@@ -0,0 +1,9 @@
+package com.biblioteca.exception;
+
+// If-Match no coincide con la versión actual del recurso: la respuesta es 412
+public class PrecondicionFallidaException extends RuntimeException {
+
+    public PrecondicionFallidaException(String message) {
+        super(message);
+    }
+}
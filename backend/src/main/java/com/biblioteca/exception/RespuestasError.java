@@ -0,0 +1,81 @@
+package com.biblioteca.exception;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Errores que se responden desde un filtro, antes de llegar a los controladores: mismo cuerpo que
+// GlobalExceptionHandler ({"error", "message"}) y mismos conversores que la aplicación, así que un cliente
+// con Accept: application/cbor recibe CBOR. Si nada de lo aceptado sirve, JSON como el resto de errores
+@Component
+public class RespuestasError {
+
+    private final List<HttpMessageConverter<?>> conversores;
+
+    public RespuestasError(HttpMessageConverters conversores) {
+        this.conversores = conversores.getConverters();
+    }
+
+    public static Map<String, String> cuerpo(String codigo, String mensaje) {
+        Map<String, String> error = new LinkedHashMap<>();
+        error.put("error", codigo);
+        error.put("message", mensaje);
+        return error;
+    }
+
+    public void escribir(HttpServletRequest request, HttpServletResponse response, HttpStatus estado,
+                         String codigo, String mensaje) throws IOException {
+        Map<String, String> error = cuerpo(codigo, mensaje);
+        response.setStatus(estado.value());
+        ServletServerHttpResponse salida = new ServletServerHttpResponse(response);
+        for (MediaType aceptado : aceptados(request)) {
+            for (HttpMessageConverter<?> conversor : conversores) {
+                if (conversor.canWrite(error.getClass(), aceptado)) {
+                    escribir(conversor, error, aceptado.isConcrete() ? aceptado.removeQualityValue() : null, salida);
+                    return;
+                }
+            }
+        }
+        for (HttpMessageConverter<?> conversor : conversores) {
+            if (conversor.canWrite(error.getClass(), MediaType.APPLICATION_JSON)) {
+                escribir(conversor, error, MediaType.APPLICATION_JSON, salida);
+                return;
+            }
+        }
+        throw new IllegalStateException("No hay un conversor JSON registrado");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void escribir(HttpMessageConverter<?> conversor, Map<String, String> error, MediaType tipo,
+                                 ServletServerHttpResponse salida) throws IOException {
+        ((HttpMessageConverter<Object>) conversor).write(error, tipo, salida);
+        salida.flush();
+    }
+
+    private static List<MediaType> aceptados(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        List<MediaType> tipos;
+        try {
+            tipos = accept == null || accept.isBlank() ? List.of(MediaType.ALL) : MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            tipos = List.of(MediaType.ALL);
+        }
+        List<MediaType> ordenados = new ArrayList<>(tipos);
+        ordenados.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        return ordenados;
+    }
+}
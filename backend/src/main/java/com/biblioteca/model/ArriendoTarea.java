@@ -0,0 +1,31 @@
+package com.biblioteca.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Arriendo de una tarea de un solo nodo: quien tiene la fila con expira en el futuro es el líder.
+// Las fechas las pone la base (now()) para no depender del reloj de cada nodo.
+@Entity
+@Table(name = "tareas_arriendos")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArriendoTarea {
+
+    @Id
+    @Column(length = 60)
+    private String nombre;
+
+    @Column(nullable = false, length = 100)
+    private String nodo;
+
+    @Column(nullable = false)
+    private LocalDateTime adquirido;
+
+    @Column(nullable = false)
+    private LocalDateTime expira;
+}
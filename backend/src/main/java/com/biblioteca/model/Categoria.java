@@ -1,5 +1,7 @@
 package com.biblioteca.model;
 
+import com.biblioteca.service.OyenteInvalidaciones;
+import com.fasterxml.jackson.annotation.JsonFilter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -7,6 +9,8 @@ import lombok.NoArgsConstructor;
 
 @Entity
 @Table(name = "categorias")
+@EntityListeners(OyenteInvalidaciones.class)
+@JsonFilter("categoria")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -18,6 +22,11 @@ public class Categoria {
 
     @Column(nullable = false, unique = true)
     private String nombre;
+
+    // Bloqueo optimista, expuesto como ETag (ver Libro)
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
 }
 
 
@@ -0,0 +1,54 @@
+package com.biblioteca.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Historial de las tareas programadas de PlanificadorTareas. En las de un solo nodo, nodo es quien la ejecutó;
+// en las repartidas es quien la planificó y cada tramo (TramoTarea) guarda qué nodo lo procesó.
+@Entity
+@Table(name = "tareas_ejecuciones", indexes = {
+        @Index(name = "idx_tareas_ejecuciones_tarea", columnList = "tarea, id"),
+        @Index(name = "idx_tareas_ejecuciones_estado", columnList = "estado")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EjecucionTarea {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 60)
+    private String tarea;
+
+    @Column(nullable = false, length = 100)
+    private String nodo;
+
+    @Column(nullable = false)
+    private LocalDateTime inicio;
+
+    private LocalDateTime fin;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EstadoEjecucion estado;
+
+    private Long procesados;
+
+    // 0 en las tareas de un solo nodo
+    private int tramos;
+
+    // Resumen devuelto por la tarea o mensaje de error
+    @Column(length = 1000)
+    private String detalle;
+
+    public Long getDuracionMs() {
+        return fin != null ? Duration.between(inicio, fin).toMillis() : null;
+    }
+}
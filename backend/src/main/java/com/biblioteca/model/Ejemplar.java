@@ -0,0 +1,46 @@
+package com.biblioteca.model;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Copia física de un libro. "numero" es la posición de la copia dentro del título (0, 1, 2...) y
+// coincide con el bit que la representa en el mapa de disponibilidad de InventarioEjemplares.
+@Entity
+@Table(name = "ejemplares", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_ejemplares_libro_numero", columnNames = {"libro_id", "numero"})
+}, indexes = {
+        @Index(name = "idx_ejemplares_libro_estado", columnList = "libro_id, estado")
+})
+@JsonFilter("ejemplar")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Ejemplar {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "libro_id")
+    private Libro libro;
+
+    @Column(nullable = false)
+    private int numero;
+
+    // Único (y por lo tanto indexado) para la búsqueda exacta desde los lectores del mostrador
+    @Column(nullable = false, unique = true, length = 32)
+    private String codigoBarras;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EstadoEjemplar estado;
+
+    @Column(nullable = false)
+    private LocalDateTime fechaAlta;
+}
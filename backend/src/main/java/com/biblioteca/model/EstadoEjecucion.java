@@ -0,0 +1,7 @@
+package com.biblioteca.model;
+
+public enum EstadoEjecucion {
+    EN_CURSO,
+    COMPLETADA,
+    FALLIDA
+}
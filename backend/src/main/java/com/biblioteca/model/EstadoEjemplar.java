@@ -0,0 +1,7 @@
+package com.biblioteca.model;
+
+public enum EstadoEjemplar {
+    DISPONIBLE,
+    PRESTADO,
+    BAJA
+}
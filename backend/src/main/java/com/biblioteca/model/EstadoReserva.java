@@ -0,0 +1,9 @@
+package com.biblioteca.model;
+
+public enum EstadoReserva {
+    EN_ESPERA,
+    ASIGNADA,
+    COMPLETADA,
+    EXPIRADA,
+    CANCELADA
+}
@@ -0,0 +1,55 @@
+package com.biblioteca.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Evento del ciclo de vida de un préstamo escrito en la misma transacción que el cambio (patrón outbox).
+// RelayOutbox lo entrega a los oyentes y lo borra; si un oyente falla se reintenta desde disponibleDesde.
+@Entity
+@Table(name = "outbox_eventos", indexes = {
+        @Index(name = "idx_outbox_eventos_disponible", columnList = "disponibleDesde, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventoOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TipoEventoPrestamo tipo;
+
+    @Column(nullable = false)
+    private Long prestamoId;
+
+    private Long usuarioId;
+
+    private Long libroId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EstadoPrestamo estado;
+
+    private LocalDate fechaLimite;
+
+    private Integer valorMulta;
+
+    @Column(nullable = false)
+    private LocalDateTime creado;
+
+    @Column(nullable = false)
+    private LocalDateTime disponibleDesde;
+
+    private int intentos;
+
+    @Column(length = 1000)
+    private String ultimoError;
+}
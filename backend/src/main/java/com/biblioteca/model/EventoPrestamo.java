@@ -0,0 +1,53 @@
+package com.biblioteca.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Diario de solo inserción con cada cambio de estado de un préstamo. Guarda ids simples en lugar de
+// relaciones para que el historial sobreviva al borrado de usuarios o libros.
+@Entity
+@Table(name = "eventos_prestamo", indexes = {
+        @Index(name = "idx_eventos_prestamo_prestamo_fecha", columnList = "prestamoId, fecha")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventoPrestamo {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long prestamoId;
+
+    private Long usuarioId;
+
+    private Long libroId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TipoEventoPrestamo tipo;
+
+    @Enumerated(EnumType.STRING)
+    private EstadoPrestamo estadoAnterior;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EstadoPrestamo estadoNuevo;
+
+    private Integer diasRetraso;
+
+    private Integer valorMulta;
+
+    // Usuario que originó el cambio, o "sistema" para procesos programados
+    @Column(nullable = false)
+    private String actor;
+
+    @Column(nullable = false)
+    private LocalDateTime fecha;
+}
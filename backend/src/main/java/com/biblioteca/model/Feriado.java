@@ -0,0 +1,25 @@
+package com.biblioteca.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "feriados")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Feriado {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private LocalDate fecha;
+
+    private String descripcion;
+}
@@ -1,5 +1,8 @@
 package com.biblioteca.model;
 
+import com.biblioteca.service.OyenteCambiosLibro;
+import com.biblioteca.service.OyenteInvalidaciones;
+import com.fasterxml.jackson.annotation.JsonFilter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -7,6 +10,8 @@ import lombok.NoArgsConstructor;
 
 @Entity
 @Table(name = "libros")
+@EntityListeners({OyenteCambiosLibro.class, OyenteInvalidaciones.class})
+@JsonFilter("libro")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -36,6 +41,12 @@ public class Libro {
     @ManyToOne
     @JoinColumn(name = "categoria_id")
     private Categoria categoria;
+
+    // Bloqueo optimista: cada UPDATE lleva "WHERE version = ?" y la incrementa. Se expone como ETag en la API
+    // de administración (util/ETags). El default llena las filas que ya existían al añadir la columna
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
 }
 
 
@@ -0,0 +1,41 @@
+package com.biblioteca.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Aviso ya enviado por préstamo. La restricción única hace que cada aviso salga una sola vez por fecha límite,
+// aunque varias ejecuciones o nodos corran a la vez; si la fecha límite cambia se vuelve a avisar.
+@Entity
+@Table(name = "notificaciones_prestamo", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_notificaciones_prestamo_aviso", columnNames = {"prestamoId", "tipo", "fechaLimite"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificacionPrestamo {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long prestamoId;
+
+    @Column(nullable = false)
+    private Long usuarioId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TipoAviso tipo;
+
+    @Column(nullable = false)
+    private LocalDate fechaLimite;
+
+    @Column(nullable = false)
+    private LocalDateTime enviado;
+}
@@ -0,0 +1,38 @@
+package com.biblioteca.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Regla de multas de una categoría; la fila con categoriaId nulo es la regla general.
+// Sin clave foránea a propósito: borrar una categoría no debe depender de su política.
+@Entity
+@Table(name = "politicas_multa")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PoliticaMulta {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(unique = true)
+    private Long categoriaId;
+
+    @Column(nullable = false)
+    private int valorDia;
+
+    // Valor máximo de la multa de un préstamo; 0 = sin tope
+    @Column(nullable = false)
+    private int tope;
+
+    // Días de retraso que no se cobran
+    @Column(nullable = false)
+    private int diasGracia;
+
+    // true: solo cuentan días hábiles (sin fines de semana ni feriados)
+    @Column(nullable = false)
+    private boolean soloHabiles;
+}
@@ -1,5 +1,7 @@
 package com.biblioteca.model;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -8,7 +10,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "prestamos")
+@Table(name = "prestamos", indexes = {
+        @Index(name = "idx_prestamos_fecha_prestamo", columnList = "fechaPrestamo")
+})
+@JsonFilter("prestamo")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -26,6 +31,12 @@ public class Prestamo {
     @JoinColumn(name = "libro_id")
     private Libro libro;
 
+    // Copia física entregada; nulo en préstamos anteriores al inventario por ejemplar sin copia libre
+    @ManyToOne
+    @JoinColumn(name = "ejemplar_id")
+    @JsonIgnoreProperties("libro")
+    private Ejemplar ejemplar;
+
     @Column(nullable = false)
     private LocalDate fechaPrestamo;
 
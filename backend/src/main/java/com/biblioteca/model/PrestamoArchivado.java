@@ -0,0 +1,62 @@
+package com.biblioteca.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Préstamo devuelto movido fuera de "prestamos" por ArchivoPrestamos. Conserva el id original
+// para que el diario de eventos y los avisos sigan apuntando al mismo préstamo.
+@Entity
+@Table(name = "prestamos_archivo", indexes = {
+        @Index(name = "idx_prestamos_archivo_usuario_fecha", columnList = "usuario_id, fechaPrestamo"),
+        @Index(name = "idx_prestamos_archivo_fecha_prestamo", columnList = "fechaPrestamo")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrestamoArchivado {
+
+    @Id
+    private Long id;
+
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "usuario_id")
+    private Usuario usuario;
+
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "libro_id")
+    private Libro libro;
+
+    @ManyToOne
+    @JoinColumn(name = "ejemplar_id")
+    @JsonIgnoreProperties("libro")
+    private Ejemplar ejemplar;
+
+    @Column(nullable = false)
+    private LocalDate fechaPrestamo;
+
+    @Column(nullable = false)
+    private LocalDate fechaLimite;
+
+    private LocalDate fechaDevolucion;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EstadoPrestamo estado;
+
+    private Integer diasRetraso;
+
+    private Integer valorMulta;
+
+    @Column(nullable = false)
+    private LocalDate archivado;
+
+    // Misma forma que un préstamo activo para que el historial no distinga de dónde viene
+    public Prestamo aPrestamo() {
+        return new Prestamo(id, usuario, libro, ejemplar, fechaPrestamo, fechaLimite, fechaDevolucion, estado, diasRetraso, valorMulta);
+    }
+}
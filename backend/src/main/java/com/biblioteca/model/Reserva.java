@@ -0,0 +1,46 @@
+package com.biblioteca.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "reservas", indexes = {
+        @Index(name = "idx_reservas_libro_estado", columnList = "libro_id, estado"),
+        @Index(name = "idx_reservas_estado_limite", columnList = "estado, fechaLimiteRecogida")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Reserva {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "usuario_id")
+    private Usuario usuario;
+
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "libro_id")
+    private Libro libro;
+
+    @Column(nullable = false)
+    private LocalDateTime fechaSolicitud;
+
+    private LocalDateTime fechaAsignacion;
+
+    private LocalDateTime fechaLimiteRecogida;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EstadoReserva estado;
+
+    // Posición en la lista de espera: de la cola en memoria del nodo o, si no está en ella, contada en la base
+    @Transient
+    private Integer posicion;
+}
@@ -0,0 +1,41 @@
+package com.biblioteca.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Agregado diario de transiciones de préstamos por categoría (0 = sin categoría) y tipo de evento.
+// Lo mantiene ResumenesPrestamos; los reportes leen rangos de fechas de aquí y nunca de "prestamos".
+@Entity
+@Table(name = "resumen_diario_prestamos", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_resumen_diario_fecha_categoria_tipo", columnNames = {"fecha", "categoriaId", "tipo"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenDiario {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(nullable = false)
+    private long categoriaId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TipoEventoPrestamo tipo;
+
+    @Column(nullable = false)
+    private long cantidad;
+
+    // Suma de valorMulta de los eventos (solo significativa en los tipos con multa)
+    @Column(nullable = false)
+    private long valorMultas;
+}
@@ -0,0 +1,40 @@
+package com.biblioteca.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Respuesta registrada para una cabecera Idempotency-Key (modo bd del almacén de idempotencia).
+// Mientras la solicitud original se procesa, estadoHttp es null.
+@Entity
+@Table(name = "solicitudes_idempotentes", indexes = {
+        @Index(name = "idx_solicitudes_idempotentes_expira", columnList = "expira")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SolicitudIdempotente {
+
+    // Usuario + ":" + valor de la cabecera
+    @Id
+    @Column(length = 320)
+    private String clave;
+
+    @Column(nullable = false, length = 64)
+    private String huella;
+
+    @Column(nullable = false)
+    private LocalDateTime creada;
+
+    @Column(nullable = false)
+    private LocalDateTime expira;
+
+    private Integer estadoHttp;
+
+    private String tipoContenido;
+
+    private byte[] cuerpo;
+}
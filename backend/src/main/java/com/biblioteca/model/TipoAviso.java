@@ -0,0 +1,6 @@
+package com.biblioteca.model;
+
+public enum TipoAviso {
+    RECORDATORIO,
+    VENCIDO
+}
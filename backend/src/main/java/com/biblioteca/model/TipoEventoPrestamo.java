@@ -0,0 +1,10 @@
+package com.biblioteca.model;
+
+public enum TipoEventoPrestamo {
+    PRESTADO,
+    DEVUELTO,
+    DEVUELTO_CON_MULTA,
+    MULTA_POR_VENCIMIENTO,
+    MULTA_RECALCULADA,
+    MULTA_PAGADA
+}
@@ -0,0 +1,48 @@
+package com.biblioteca.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Token de renovación (refresh token) opaco. Solo se guarda su SHA-256: una copia de la tabla no sirve para
+// renovar sesiones. Cada renovación marca el token como usado y emite otro de la misma familia; presentar
+// uno ya usado indica que fue copiado y revoca toda la familia.
+@Entity
+@Table(name = "tokens_renovacion", indexes = {
+        @Index(name = "idx_tokens_renovacion_usuario", columnList = "usuarioId"),
+        @Index(name = "idx_tokens_renovacion_familia", columnList = "familia"),
+        @Index(name = "idx_tokens_renovacion_expira", columnList = "expira")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenRenovacion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String hash;
+
+    @Column(nullable = false)
+    private Long usuarioId;
+
+    // Sesión a la que pertenece: todos los tokens que salieron de un mismo login
+    @Column(nullable = false, length = 36)
+    private String familia;
+
+    @Column(nullable = false)
+    private LocalDateTime creado;
+
+    @Column(nullable = false)
+    private LocalDateTime expira;
+
+    // Momento en que se cambió por uno nuevo; null mientras sea el vigente de su familia
+    private LocalDateTime usado;
+
+    private boolean revocado;
+}
@@ -0,0 +1,48 @@
+package com.biblioteca.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Rango de ids [desde, hasta] de una ejecución repartida. Un nodo lo toma con FOR UPDATE SKIP LOCKED y lo
+// procesa en la misma transacción: queda hecho entero o, si el nodo falla o muere, vuelve a estar libre.
+@Entity
+@Table(name = "tareas_tramos", indexes = {
+        @Index(name = "idx_tareas_tramos_ejecucion", columnList = "ejecucionId, hecho")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TramoTarea {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long ejecucionId;
+
+    private long desde;
+
+    private long hasta;
+
+    private boolean hecho;
+
+    // Fallos al procesarlo; con PlanificadorTareas.INTENTOS_MAXIMOS se deja sin hacer y la ejecución termina FALLIDA
+    private int intentos;
+
+    @Column(length = 100)
+    private String nodo;
+
+    private Integer procesados;
+
+    private LocalDateTime inicio;
+
+    private LocalDateTime fin;
+
+    @Column(length = 1000)
+    private String error;
+}
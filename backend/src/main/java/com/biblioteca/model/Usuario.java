@@ -1,12 +1,20 @@
 package com.biblioteca.model;
 
+import com.biblioteca.service.OyenteInvalidaciones;
+import com.fasterxml.jackson.annotation.JsonFilter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "usuarios")
+// Los índices de prefijo sobre lower(username/nombre/apellido/email) están en schema.sql
+@Table(name = "usuarios", indexes = {
+        @Index(name = "idx_usuarios_rol_username", columnList = "rol, username"),
+        @Index(name = "idx_usuarios_bloqueado_username", columnList = "bloqueado, username")
+})
+@EntityListeners(OyenteInvalidaciones.class)
+@JsonFilter("usuario")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -36,6 +44,11 @@ public class Usuario {
     private Rol rol;
 
     private boolean bloqueado = false;
+
+    // Bloqueo optimista, expuesto como ETag (ver Libro)
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
 }
 
 
@@ -0,0 +1,27 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.model.ArriendoTarea;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface ArriendoTareaRepository extends JpaRepository<ArriendoTarea, String> {
+
+    // 1 si este nodo quedó como líder: la fila no existía o su arriendo ya venció. El UPSERT bloquea la fila,
+    // así que de dos nodos que lo intentan a la vez solo uno la encuentra vencida
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO tareas_arriendos (nombre, nodo, adquirido, expira) "
+            + "VALUES (:nombre, :nodo, now(), now() + make_interval(secs => :segundos)) "
+            + "ON CONFLICT (nombre) DO UPDATE SET nodo = EXCLUDED.nodo, adquirido = EXCLUDED.adquirido, "
+            + "expira = EXCLUDED.expira WHERE tareas_arriendos.expira < now()", nativeQuery = true)
+    int adquirir(String nombre, String nodo, double segundos);
+
+    // Al terminar, el arriendo se acorta a adquirido + minimo (puede quedar ya vencido)
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE tareas_arriendos SET expira = adquirido + make_interval(secs => :segundosMinimos) "
+            + "WHERE nombre = :nombre AND nodo = :nodo", nativeQuery = true)
+    int liberar(String nombre, String nodo, double segundosMinimos);
+}
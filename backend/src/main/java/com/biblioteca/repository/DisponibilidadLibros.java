@@ -0,0 +1,12 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.model.Libro;
+
+// Fragmento de LibroRepository para préstamos y devoluciones (DisponibilidadLibrosImpl)
+public interface DisponibilidadLibros {
+
+    // Descuenta un ejemplar disponible; false si no quedaba ninguno
+    boolean tomarDisponible(Libro libro);
+
+    void devolverDisponible(Libro libro);
+}
@@ -0,0 +1,64 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.model.Libro;
+import com.biblioteca.service.BusInvalidaciones;
+import com.biblioteca.service.IndiceCatalogo;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.annotation.Transactional;
+
+// La disponibilidad cambia con un UPDATE atómico que no incrementa la versión: préstamos simultáneos del
+// mismo título no chocan entre sí ni con el If-Match de administración. La edición del libro lo lee con
+// FOR UPDATE (BibliotecaService.actualizarLibro), así que este UPDATE espera a que termine y no se pierde.
+// El UPDATE no pasa por los listeners JPA de Libro, así que aquí se avisa al índice y al bus como lo harían ellos.
+class DisponibilidadLibrosImpl implements DisponibilidadLibros {
+
+    private static final String CAMBIAR = "UPDATE Libro l SET l.cantidadDisponible = l.cantidadDisponible + :cambio "
+            + "WHERE l.id = :id AND l.cantidadDisponible + :cambio >= 0";
+
+    private final EntityManager entityManager;
+    private final ObjectProvider<IndiceCatalogo> indiceCatalogo;
+    private final ObjectProvider<BusInvalidaciones> bus;
+
+    DisponibilidadLibrosImpl(EntityManager entityManager,
+                             ObjectProvider<IndiceCatalogo> indiceCatalogo,
+                             ObjectProvider<BusInvalidaciones> bus) {
+        this.entityManager = entityManager;
+        this.indiceCatalogo = indiceCatalogo;
+        this.bus = bus;
+    }
+
+    @Override
+    @Transactional
+    public boolean tomarDisponible(Libro libro) {
+        return cambiar(libro, -1);
+    }
+
+    @Override
+    @Transactional
+    public void devolverDisponible(Libro libro) {
+        cambiar(libro, 1);
+    }
+
+    private boolean cambiar(Libro libro, int cambio) {
+        int filas = entityManager.createQuery(CAMBIAR)
+                .setParameter("cambio", cambio)
+                .setParameter("id", libro.getId())
+                .executeUpdate();
+        if (filas == 0) {
+            return false;
+        }
+        // El libro en memoria queda con el valor de la base sin marcarse como modificado
+        if (entityManager.contains(libro)) {
+            entityManager.refresh(libro);
+        } else {
+            libro.setCantidadDisponible(entityManager.createQuery(
+                            "SELECT l.cantidadDisponible FROM Libro l WHERE l.id = :id", Integer.class)
+                    .setParameter("id", libro.getId())
+                    .getSingleResult());
+        }
+        indiceCatalogo.ifAvailable(indice -> indice.registrar(libro));
+        bus.ifAvailable(b -> b.publicar(BusInvalidaciones.Tipo.LIBRO, libro.getId()));
+        return true;
+    }
+}
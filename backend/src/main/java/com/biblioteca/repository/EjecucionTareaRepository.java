@@ -0,0 +1,65 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.model.EjecucionTarea;
+import com.biblioteca.model.EstadoEjecucion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface EjecucionTareaRepository extends JpaRepository<EjecucionTarea, Long> {
+
+    // Lectura fresca del resultado: la entidad puede estar cacheada en el contexto de persistencia de la
+    // petición mientras otro nodo cierra la ejecución
+    interface Resultado {
+        EstadoEjecucion getEstado();
+
+        Long getProcesados();
+
+        String getDetalle();
+    }
+
+    List<EjecucionTarea> findAllByOrderByIdDesc(Pageable pagina);
+
+    List<EjecucionTarea> findByTareaOrderByIdDesc(String tarea, Pageable pagina);
+
+    Optional<EjecucionTarea> findFirstByTareaOrderByIdDesc(String tarea);
+
+    Optional<EjecucionTarea> findFirstByTareaAndEstadoOrderByIdDesc(String tarea, EstadoEjecucion estado);
+
+    // Solo se llama con el arriendo de la tarea en mano: una ejecución de un solo nodo que sigue EN_CURSO
+    // es de un nodo que murió a mitad
+    @Transactional
+    @Modifying
+    @Query("UPDATE EjecucionTarea e SET e.estado = com.biblioteca.model.EstadoEjecucion.FALLIDA, e.fin = :ahora, "
+            + "e.detalle = 'Interrumpida: el nodo dejó de ejecutarla' "
+            + "WHERE e.tarea = :tarea AND e.estado = 'EN_CURSO' AND e.tramos = 0")
+    int marcarInterrumpidas(String tarea, LocalDateTime ahora);
+
+    // Cierra una ejecución repartida cuando ya no quedan tramos por tomar ni tomados. La condición sobre
+    // estado hace que, si dos nodos terminan a la vez, solo uno la cierre
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE tareas_ejecuciones e SET fin = :ahora, "
+            + "procesados = (SELECT COALESCE(SUM(t.procesados), 0) FROM tareas_tramos t WHERE t.ejecucion_id = e.id), "
+            + "estado = CASE WHEN EXISTS (SELECT 1 FROM tareas_tramos t WHERE t.ejecucion_id = e.id AND NOT t.hecho) "
+            + "THEN 'FALLIDA' ELSE 'COMPLETADA' END, "
+            + "detalle = (SELECT CASE WHEN COUNT(*) = 0 THEN e.detalle ELSE COUNT(*) || ' tramo(s) fallaron' END "
+            + "FROM tareas_tramos t WHERE t.ejecucion_id = e.id AND NOT t.hecho) "
+            + "WHERE e.id = :id AND e.estado = 'EN_CURSO' AND NOT EXISTS (SELECT 1 FROM tareas_tramos t "
+            + "WHERE t.ejecucion_id = e.id AND NOT t.hecho AND t.intentos < :intentosMaximos)", nativeQuery = true)
+    int finalizar(Long id, int intentosMaximos, LocalDateTime ahora);
+
+    @Query("SELECT e.estado AS estado, e.procesados AS procesados, e.detalle AS detalle FROM EjecucionTarea e WHERE e.id = :id")
+    Optional<Resultado> findResultadoById(Long id);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM EjecucionTarea e WHERE e.inicio < :antes AND e.estado <> 'EN_CURSO'")
+    int eliminarAnteriores(LocalDateTime antes);
+}
@@ -0,0 +1,40 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.model.Ejemplar;
+import com.biblioteca.model.EstadoEjemplar;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface EjemplarRepository extends JpaRepository<Ejemplar, Long> {
+
+    Optional<Ejemplar> findByCodigoBarras(String codigoBarras);
+
+    List<Ejemplar> findByLibroIdOrderByNumero(Long libroId);
+
+    List<Ejemplar> findByLibroIdAndEstadoOrderByNumeroDesc(Long libroId, EstadoEjemplar estado);
+
+    long countByLibroIdAndEstadoNot(Long libroId, EstadoEjemplar estado);
+
+    @Query("SELECT COALESCE(MAX(e.numero), -1) FROM Ejemplar e WHERE e.libro.id = :libroId")
+    int findMaxNumero(Long libroId);
+
+    // libro_id, numero, id, estado de las copias vigentes para armar los mapas de disponibilidad
+    @Query("SELECT e.libro.id, e.numero, e.id, e.estado FROM Ejemplar e WHERE e.estado <> com.biblioteca.model.EstadoEjemplar.BAJA")
+    List<Object[]> findMapa();
+
+    @Query("SELECT e.libro.id, e.numero, e.id, e.estado FROM Ejemplar e WHERE e.libro.id = :libroId AND e.estado <> com.biblioteca.model.EstadoEjemplar.BAJA")
+    List<Object[]> findMapaPorLibro(Long libroId);
+
+    // Cambio condicional: 1 si la copia estaba en el estado esperado, 0 si otra transacción se adelantó
+    @Modifying
+    @Query("UPDATE Ejemplar e SET e.estado = :nuevo WHERE e.id = :id AND e.estado = :actual")
+    int cambiarEstado(Long id, EstadoEjemplar actual, EstadoEjemplar nuevo);
+
+    @Modifying
+    @Query("DELETE FROM Ejemplar e WHERE e.libro.id = :libroId")
+    int deleteByLibroId(Long libroId);
+}
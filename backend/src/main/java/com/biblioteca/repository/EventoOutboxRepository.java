@@ -0,0 +1,22 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.model.EventoOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EventoOutboxRepository extends JpaRepository<EventoOutbox, Long> {
+
+    // SKIP LOCKED: cada nodo toma un lote distinto sin esperar a los demás
+    @Query(value = "SELECT * FROM outbox_eventos WHERE disponible_desde <= :ahora ORDER BY id LIMIT :limite "
+            + "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<EventoOutbox> bloquearPendientes(LocalDateTime ahora, int limite);
+
+    @Modifying
+    @Query("UPDATE EventoOutbox e SET e.intentos = e.intentos + 1, e.disponibleDesde = :disponibleDesde, "
+            + "e.ultimoError = :error WHERE e.id = :id")
+    int registrarFallo(Long id, LocalDateTime disponibleDesde, String error);
+}
@@ -0,0 +1,11 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.model.EventoPrestamo;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface EventoPrestamoRepository extends JpaRepository<EventoPrestamo, Long> {
+
+    List<EventoPrestamo> findByPrestamoIdOrderByFechaAscIdAsc(Long prestamoId);
+}
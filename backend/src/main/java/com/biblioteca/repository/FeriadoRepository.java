@@ -0,0 +1,14 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.model.Feriado;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface FeriadoRepository extends JpaRepository<Feriado, Long> {
+
+    List<Feriado> findAllByOrderByFechaAsc();
+
+    boolean existsByFecha(LocalDate fecha);
+}
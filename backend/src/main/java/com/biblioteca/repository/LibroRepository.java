@@ -1,10 +1,35 @@
 package com.biblioteca.repository;
 
 import com.biblioteca.model.Libro;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 
-public interface LibroRepository extends JpaRepository<Libro, Long> {
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface LibroRepository extends JpaRepository<Libro, Long>, DisponibilidadLibros {
     long countByCategoriaId(Long categoriaId);
+
+    @Query("SELECT l.id, c.id, l.cantidadTotal, l.cantidadDisponible FROM Libro l LEFT JOIN l.categoria c")
+    List<Object[]> findResumenInventario();
+
+    // Primera sentencia de una transacción REPEATABLE READ: fija su foto sin leer ninguna tabla
+    @Query(value = "SELECT 1", nativeQuery = true)
+    int fijarFoto();
+
+    @Query("SELECT l.id, l.titulo, l.autor, c.id, l.cantidadDisponible FROM Libro l LEFT JOIN l.categoria c ORDER BY l.id")
+    List<Object[]> findResumenCatalogo();
+
+    @Query("SELECT l.id, l.titulo, l.autor, c.id, l.cantidadDisponible FROM Libro l LEFT JOIN l.categoria c WHERE l.id IN :ids")
+    List<Object[]> findResumenCatalogo(Collection<Long> ids);
+
+    // SELECT ... FOR UPDATE: no incrementa la versión del libro
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM Libro l WHERE l.id = :id")
+    Optional<Libro> findByIdParaActualizar(Long id);
 }
 
 
@@ -0,0 +1,13 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.model.PoliticaMulta;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface PoliticaMultaRepository extends JpaRepository<PoliticaMulta, Long> {
+
+    Optional<PoliticaMulta> findByCategoriaId(Long categoriaId);
+
+    Optional<PoliticaMulta> findByCategoriaIdIsNull();
+}
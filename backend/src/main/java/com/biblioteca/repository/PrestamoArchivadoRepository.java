@@ -0,0 +1,21 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.model.PrestamoArchivado;
+import com.biblioteca.model.Usuario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface PrestamoArchivadoRepository extends JpaRepository<PrestamoArchivado, Long> {
+
+    @Query("SELECT p FROM PrestamoArchivado p LEFT JOIN FETCH p.usuario LEFT JOIN FETCH p.libro LEFT JOIN FETCH p.libro.categoria ORDER BY p.fechaPrestamo DESC")
+    List<PrestamoArchivado> findAllWithRelations();
+
+    @Query("SELECT p FROM PrestamoArchivado p LEFT JOIN FETCH p.usuario LEFT JOIN FETCH p.libro LEFT JOIN FETCH p.libro.categoria WHERE p.usuario = :usuario ORDER BY p.fechaPrestamo DESC")
+    List<PrestamoArchivado> findByUsuarioWithRelations(Usuario usuario);
+
+    // Misma forma que PrestamoRepository.findResumenPorLibroUsuarioEstado para la conciliación de estadísticas
+    @Query("SELECT l.id, c.id, p.usuario.id, p.estado, COUNT(p), COALESCE(SUM(p.valorMulta), 0) FROM PrestamoArchivado p JOIN p.libro l LEFT JOIN l.categoria c GROUP BY l.id, c.id, p.usuario.id, p.estado")
+    List<Object[]> findResumenPorLibroUsuarioEstado();
+}
@@ -5,9 +5,13 @@ import com.biblioteca.model.Prestamo;
 import com.biblioteca.model.Usuario;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.QueryHint;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface PrestamoRepository extends JpaRepository<Prestamo, Long> {
 
@@ -15,16 +19,39 @@ public interface PrestamoRepository extends JpaRepository<Prestamo, Long> {
 
     List<Prestamo> findByEstado(EstadoPrestamo estado);
 
-    List<Prestamo> findByEstadoAndFechaLimiteBefore(EstadoPrestamo estado, LocalDate fecha);
+    // Vencidos que siguen sin devolverse (PRESTADO o MULTA) con id en [desde, hasta], para recalcular su multa
+    @Query("SELECT p FROM Prestamo p JOIN FETCH p.libro l LEFT JOIN FETCH l.categoria WHERE p.estado IN ('PRESTADO', 'MULTA') "
+            + "AND p.fechaDevolucion IS NULL AND p.fechaLimite < :hoy AND p.id BETWEEN :desde AND :hasta")
+    List<Prestamo> findVencidosSinDevolverEntre(LocalDate hoy, long desde, long hasta);
+
+    // Préstamo en curso de una copia física (todavía no devuelta)
+    Optional<Prestamo> findFirstByEjemplarIdAndFechaDevolucionIsNull(Long ejemplarId);
 
     @Query("SELECT p FROM Prestamo p LEFT JOIN FETCH p.usuario LEFT JOIN FETCH p.libro LEFT JOIN FETCH p.libro.categoria")
     List<Prestamo> findAllWithRelations();
 
+    // Préstamos activos: sin devolver o devueltos con la multa pendiente
+    @Query("SELECT p FROM Prestamo p LEFT JOIN FETCH p.usuario LEFT JOIN FETCH p.libro LEFT JOIN FETCH p.libro.categoria WHERE p.estado IN ('PRESTADO', 'MULTA')")
+    List<Prestamo> findActivosWithRelations();
+
     @Query("SELECT p FROM Prestamo p LEFT JOIN FETCH p.usuario LEFT JOIN FETCH p.libro LEFT JOIN FETCH p.libro.categoria WHERE p.usuario = :usuario ORDER BY p.fechaPrestamo DESC")
     List<Prestamo> findByUsuarioWithRelations(Usuario usuario);
 
     @Query("SELECT COUNT(p) FROM Prestamo p WHERE p.libro.id = :libroId AND (p.estado = 'PRESTADO' OR p.estado = 'MULTA')")
     long countPrestamosActivosByLibroId(Long libroId);
+
+    @Query("SELECT l.id, c.id, p.usuario.id, p.estado, COUNT(p), COALESCE(SUM(p.valorMulta), 0) FROM Prestamo p JOIN p.libro l LEFT JOIN l.categoria c GROUP BY l.id, c.id, p.usuario.id, p.estado")
+    List<Object[]> findResumenPorLibroUsuarioEstado();
+
+    // Pares distintos ordenados por usuario para reconstruir las recomendaciones sin cargar entidades;
+    // incluye los préstamos archivados
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "10000"))
+    @Query(value = "SELECT DISTINCT t.usuario_id, t.libro_id FROM (SELECT usuario_id, libro_id FROM prestamos "
+            + "UNION ALL SELECT usuario_id, libro_id FROM prestamos_archivo) t ORDER BY t.usuario_id", nativeQuery = true)
+    Stream<Object[]> streamParesUsuarioLibro();
+
+    @Query("SELECT l.id, c.id, p.fechaPrestamo, COUNT(p) FROM Prestamo p JOIN p.libro l LEFT JOIN l.categoria c WHERE p.fechaPrestamo >= :desde GROUP BY l.id, c.id, p.fechaPrestamo")
+    List<Object[]> findConteoPorLibroYFechaDesde(LocalDate desde);
 }
 
 
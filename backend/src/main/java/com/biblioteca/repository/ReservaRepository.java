@@ -0,0 +1,42 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.model.EstadoReserva;
+import com.biblioteca.model.Libro;
+import com.biblioteca.model.Reserva;
+import com.biblioteca.model.Usuario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ReservaRepository extends JpaRepository<Reserva, Long> {
+
+    Optional<Reserva> findFirstByUsuarioAndLibroAndEstadoIn(Usuario usuario, Libro libro, Collection<EstadoReserva> estados);
+
+    Optional<Reserva> findFirstByUsuarioAndLibroAndEstado(Usuario usuario, Libro libro, EstadoReserva estado);
+
+    List<Reserva> findByEstadoAndFechaLimiteRecogidaBefore(EstadoReserva estado, LocalDateTime fecha);
+
+    @Query("SELECT r FROM Reserva r LEFT JOIN FETCH r.libro WHERE r.usuario = :usuario ORDER BY r.fechaSolicitud DESC")
+    List<Reserva> findByUsuarioWithLibro(Usuario usuario);
+
+    // Solo ids para reconstruir las colas sin cargar entidades completas, en el orden de tomarSiguienteEnEspera
+    @Query("SELECT r.libro.id, r.id FROM Reserva r WHERE r.estado = :estado ORDER BY r.fechaSolicitud, r.id")
+    List<Object[]> findLibroIdAndIdByEstado(EstadoReserva estado);
+
+    @Query("SELECT r.id FROM Reserva r WHERE r.libro.id = :libroId AND r.estado = :estado ORDER BY r.fechaSolicitud, r.id")
+    List<Long> findIdsByLibroIdAndEstado(Long libroId, EstadoReserva estado);
+
+    // Siguiente en la lista de espera del libro; SKIP LOCKED evita que dos devoluciones simultáneas
+    // (en el mismo nodo o en otro) asignen la misma reserva o se esperen entre sí
+    @Query(value = "SELECT * FROM reservas WHERE libro_id = :libroId AND estado = 'EN_ESPERA' "
+            + "ORDER BY fecha_solicitud, id LIMIT 1 FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<Reserva> tomarSiguienteEnEspera(Long libroId);
+
+    @Query("SELECT COUNT(r) FROM Reserva r WHERE r.libro.id = :libroId AND r.estado = com.biblioteca.model.EstadoReserva.EN_ESPERA "
+            + "AND (r.fechaSolicitud < :fechaSolicitud OR (r.fechaSolicitud = :fechaSolicitud AND r.id < :id))")
+    long contarAnterioresEnEspera(Long libroId, LocalDateTime fechaSolicitud, Long id);
+}
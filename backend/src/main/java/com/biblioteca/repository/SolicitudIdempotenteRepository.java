@@ -0,0 +1,43 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.model.SolicitudIdempotente;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface SolicitudIdempotenteRepository extends JpaRepository<SolicitudIdempotente, String> {
+
+    // Reserva atómica de la clave entre nodos: 1 si se insertó, 0 si ya existía
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO solicitudes_idempotentes (clave, huella, creada, expira) "
+            + "VALUES (:clave, :huella, :ahora, :expira) ON CONFLICT (clave) DO NOTHING", nativeQuery = true)
+    int insertarSiNoExiste(String clave, String huella, LocalDateTime ahora, LocalDateTime expira);
+
+    // Reutiliza una clave vencida; solo un nodo gana la carrera
+    @Transactional
+    @Modifying
+    @Query("UPDATE SolicitudIdempotente s SET s.huella = :huella, s.creada = :ahora, s.expira = :expira, "
+            + "s.estadoHttp = null, s.tipoContenido = null, s.cuerpo = null "
+            + "WHERE s.clave = :clave AND s.expira < :ahora")
+    int reclamarVencida(String clave, String huella, LocalDateTime ahora, LocalDateTime expira);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE SolicitudIdempotente s SET s.estadoHttp = :estadoHttp, s.tipoContenido = :tipoContenido, "
+            + "s.cuerpo = :cuerpo, s.expira = :expira WHERE s.clave = :clave")
+    int completar(String clave, Integer estadoHttp, String tipoContenido, byte[] cuerpo, LocalDateTime expira);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SolicitudIdempotente s WHERE s.clave = :clave AND s.estadoHttp IS NULL")
+    int liberar(String clave);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SolicitudIdempotente s WHERE s.expira < :ahora")
+    int eliminarVencidas(LocalDateTime ahora);
+}
@@ -0,0 +1,34 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.model.TokenRenovacion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+public interface TokenRenovacionRepository extends JpaRepository<TokenRenovacion, Long> {
+
+    Optional<TokenRenovacion> findByHash(String hash);
+
+    // Solo una renovación concurrente con el mismo token gana: 1 si lo marcó, 0 si ya estaba usado o revocado
+    @Modifying
+    @Query("UPDATE TokenRenovacion t SET t.usado = :ahora WHERE t.id = :id AND t.usado IS NULL AND t.revocado = false")
+    int marcarUsado(Long id, LocalDateTime ahora);
+
+    @Modifying
+    @Query("UPDATE TokenRenovacion t SET t.revocado = true WHERE t.familia = :familia AND t.revocado = false")
+    int revocarFamilia(String familia);
+
+    @Modifying
+    @Query("UPDATE TokenRenovacion t SET t.revocado = true WHERE t.usuarioId IN :usuarioIds AND t.revocado = false")
+    int revocarUsuarios(Collection<Long> usuarioIds);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM TokenRenovacion t WHERE t.expira < :ahora")
+    int eliminarVencidos(LocalDateTime ahora);
+}
@@ -0,0 +1,34 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.model.TramoTarea;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface TramoTareaRepository extends JpaRepository<TramoTarea, Long> {
+
+    List<TramoTarea> findByEjecucionIdOrderById(Long ejecucionId);
+
+    @Query("SELECT DISTINCT t.ejecucionId FROM TramoTarea t WHERE t.hecho = false AND t.intentos < :intentosMaximos")
+    List<Long> findEjecucionesPendientes(int intentosMaximos);
+
+    // SKIP LOCKED: cada nodo toma un tramo distinto sin esperar a los que otros están procesando
+    @Query(value = "SELECT * FROM tareas_tramos WHERE ejecucion_id = :ejecucionId AND hecho = false "
+            + "AND intentos < :intentosMaximos ORDER BY id LIMIT 1 FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<TramoTarea> tomarLibre(Long ejecucionId, int intentosMaximos);
+
+    // En su propia transacción, después de que la del tramo se revirtió
+    @Transactional
+    @Modifying
+    @Query("UPDATE TramoTarea t SET t.intentos = t.intentos + 1, t.error = :error, t.nodo = :nodo WHERE t.id = :id")
+    int registrarFallo(Long id, String nodo, String error);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM TramoTarea t WHERE t.ejecucionId NOT IN (SELECT e.id FROM EjecucionTarea e)")
+    int eliminarHuerfanos();
+}
@@ -1,14 +1,40 @@
 package com.biblioteca.repository;
 
+import com.biblioteca.model.Rol;
 import com.biblioteca.model.Usuario;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
+public interface UsuarioRepository extends JpaRepository<Usuario, Long>, JpaSpecificationExecutor<Usuario> {
     Optional<Usuario> findByUsername(String username);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
-}
+    boolean existsByRol(Rol rol);
+
+    // Operaciones masivas (UsuarioService.aplicar): una sentencia por lote en lugar de un save por usuario.
+    // Un UPDATE JPQL no toca @Version por sí solo; se incrementa a mano para invalidar los ETag
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Usuario u SET u.bloqueado = :bloqueado, u.version = u.version + 1 WHERE u.id IN :ids")
+    int actualizarBloqueado(Collection<Long> ids, boolean bloqueado);
 
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Usuario u SET u.rol = :rol, u.version = u.version + 1 WHERE u.id IN :ids")
+    int actualizarRol(Collection<Long> ids, Rol rol);
 
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Usuario u WHERE u.id IN :ids")
+    int eliminarTodos(Collection<Long> ids);
+
+    // Usuarios con préstamos (activos o archivados) o reservas: sus filas los referencian y no se pueden borrar
+    @Query("SELECT u.id FROM Usuario u WHERE u.id IN :ids AND ("
+            + "EXISTS (SELECT 1 FROM Prestamo p WHERE p.usuario = u) "
+            + "OR EXISTS (SELECT 1 FROM PrestamoArchivado a WHERE a.usuario = u) "
+            + "OR EXISTS (SELECT 1 FROM Reserva r WHERE r.usuario = u))")
+    List<Long> findConHistorial(Collection<Long> ids);
+}
@@ -0,0 +1,131 @@
+package com.biblioteca.security;
+
+import com.biblioteca.exception.RespuestasError;
+import com.biblioteca.service.AlmacenIdempotencia;
+import com.biblioteca.service.AlmacenIdempotencia.RespuestaGuardada;
+import com.biblioteca.service.AlmacenIdempotencia.Resultado;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+// Cabecera Idempotency-Key en préstamos y pago de multas: la primera solicitud con una clave se procesa y
+// su respuesta se guarda; las repeticiones reciben esa misma respuesta sin volver a BibliotecaService.
+// Las claves son por usuario. Sin cabecera, las solicitudes pasan igual que antes.
+@Component
+public class IdempotenciaFilter extends OncePerRequestFilter {
+
+    static final String CABECERA = "Idempotency-Key";
+    private static final int LONGITUD_MAXIMA = 255;
+    private static final Pattern PRESTAR = Pattern.compile("/api/libros/\\d+/prestar");
+    private static final Pattern PAGAR_MULTA = Pattern.compile("/api/admin/prestamos/\\d+/pagar-multa");
+
+    private final AlmacenIdempotencia almacen;
+    private final RespuestasError respuestasError;
+
+    public IdempotenciaFilter(AlmacenIdempotencia almacen, RespuestasError respuestasError) {
+        this.almacen = almacen;
+        this.respuestasError = respuestasError;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (request.getHeader(CABECERA) == null) {
+            return true;
+        }
+        String ruta = request.getRequestURI().substring(request.getContextPath().length());
+        return !(("POST".equals(request.getMethod()) && PRESTAR.matcher(ruta).matches())
+                || ("PUT".equals(request.getMethod()) && PAGAR_MULTA.matcher(ruta).matches()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Authentication autenticacion = SecurityContextHolder.getContext().getAuthentication();
+        if (autenticacion == null || autenticacion instanceof AnonymousAuthenticationToken) {
+            // La autorización posterior responde 401
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String valor = request.getHeader(CABECERA).trim();
+        if (valor.isEmpty() || valor.length() > LONGITUD_MAXIMA) {
+            respuestasError.escribir(request, response, HttpStatus.BAD_REQUEST, "ARGUMENTO_INVALIDO",
+                    "La cabecera Idempotency-Key debe tener entre 1 y " + LONGITUD_MAXIMA + " caracteres");
+            return;
+        }
+        String clave = autenticacion.getName() + ":" + valor;
+
+        Resultado resultado = almacen.iniciar(clave, huella(request));
+        switch (resultado.tipo()) {
+            case HUELLA_DISTINTA -> respuestasError.escribir(request, response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    "IDEMPOTENCIA_CONFLICTO", "La clave Idempotency-Key ya se usó con otra solicitud");
+            case EN_CURSO -> {
+                response.setHeader("Retry-After", "1");
+                respuestasError.escribir(request, response, HttpStatus.CONFLICT, "SOLICITUD_EN_CURSO",
+                        "Una solicitud con la misma Idempotency-Key se está procesando");
+            }
+            case REPETIDA -> repetir(response, resultado.respuesta());
+            case NUEVA -> procesar(request, response, filterChain, clave);
+        }
+    }
+
+    private void procesar(HttpServletRequest request, HttpServletResponse response,
+                          FilterChain filterChain, String clave) throws ServletException, IOException {
+        ContentCachingResponseWrapper envoltura = new ContentCachingResponseWrapper(response);
+        boolean guardada = false;
+        try {
+            filterChain.doFilter(request, envoltura);
+            // Los 5xx no se guardan: el cliente puede reintentar con la misma clave
+            if (envoltura.getStatus() < 500) {
+                almacen.completar(clave, new RespuestaGuardada(
+                        envoltura.getStatus(), envoltura.getContentType(), envoltura.getContentAsByteArray()));
+                guardada = true;
+            }
+        } finally {
+            if (!guardada) {
+                almacen.liberar(clave);
+            }
+            envoltura.copyBodyToResponse();
+        }
+    }
+
+    private void repetir(HttpServletResponse response, RespuestaGuardada respuesta) throws IOException {
+        response.setStatus(respuesta.estadoHttp());
+        response.setHeader("Idempotent-Replayed", "true");
+        if (respuesta.tipoContenido() != null) {
+            response.setContentType(respuesta.tipoContenido());
+        }
+        if (respuesta.cuerpo() != null) {
+            response.setContentLength(respuesta.cuerpo().length);
+            response.getOutputStream().write(respuesta.cuerpo());
+        }
+    }
+
+    // Método y ruta identifican la operación: ambos endpoints no tienen cuerpo
+    private static String huella(HttpServletRequest request) {
+        String firma = request.getMethod() + " " + request.getRequestURI()
+                + (request.getQueryString() != null ? "?" + request.getQueryString() : "");
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(firma.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
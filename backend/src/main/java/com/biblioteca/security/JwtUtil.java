@@ -1,6 +1,7 @@
 package com.biblioteca.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -42,6 +43,15 @@ public class JwtUtil {
                 .getBody();
     }
 
+    // Claims de un token con firma válida y sin vencer; null en cualquier otro caso (un solo parseo)
+    public Claims validar(String token) {
+        try {
+            return extractAllClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     public String generateToken(String username, String rol) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + expirationMillis);
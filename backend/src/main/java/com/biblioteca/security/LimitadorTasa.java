@@ -0,0 +1,120 @@
+package com.biblioteca.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token bucket por clave en su forma GCRA: el estado de cada cubeta es un solo long (el instante teórico
+// en que quedaría llena), actualizado con CAS, sin bloqueos. Una cubeta cuyo instante ya pasó está llena
+// y es indistinguible de una nueva, así que se puede eliminar sin cambiar el resultado (barrido de inactivas).
+// Las claves se reparten en franjas con tope de tamaño; si una franja se llena de claves activas, las
+// claves nuevas comparten una cubeta de desbordamiento en lugar de crecer la memoria.
+public class LimitadorTasa {
+
+    private static final int FRANJAS = 16;
+
+    private final long intervaloNanos;
+    private final long toleranciaNanos;
+    private final int maxPorFranja;
+    private final ConcurrentHashMap<String, AtomicLong>[] franjas;
+    private final AtomicLong[] desbordamiento;
+
+    // porMinuto solicitudes por minuto con ráfaga de capacidad solicitudes
+    @SuppressWarnings("unchecked")
+    public LimitadorTasa(int porMinuto, int capacidad, int maxClaves) {
+        if (porMinuto <= 0 || capacidad <= 0) {
+            throw new IllegalArgumentException("El límite y la capacidad deben ser positivos");
+        }
+        this.intervaloNanos = 60_000_000_000L / porMinuto;
+        this.toleranciaNanos = intervaloNanos * (capacidad - 1);
+        this.maxPorFranja = Math.max(1, maxClaves / FRANJAS);
+        this.franjas = new ConcurrentHashMap[FRANJAS];
+        this.desbordamiento = new AtomicLong[FRANJAS];
+        long ahora = System.nanoTime();
+        for (int i = 0; i < FRANJAS; i++) {
+            franjas[i] = new ConcurrentHashMap<>();
+            desbordamiento[i] = new AtomicLong(ahora);
+        }
+    }
+
+    // Consume un token; devuelve 0 si se admite o los nanosegundos que faltan para que haya uno
+    public long consumir(String clave) {
+        return consumir(clave, System.nanoTime());
+    }
+
+    long consumir(String clave, long ahora) {
+        int hash = clave.hashCode();
+        int franja = (hash ^ (hash >>> 16)) & (FRANJAS - 1);
+        AtomicLong cubeta = franjas[franja].get(clave);
+        if (cubeta == null) {
+            cubeta = registrar(franja, clave, ahora);
+        }
+        while (true) {
+            long llena = cubeta.get();
+            long base = llena - ahora > 0 ? llena : ahora;
+            long espera = base - ahora - toleranciaNanos;
+            if (espera > 0) {
+                return espera;
+            }
+            if (cubeta.compareAndSet(llena, base + intervaloNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    // Devuelve un token consumido (la solicitud se rechazó por otro límite)
+    public void devolver(String clave) {
+        int hash = clave.hashCode();
+        int franja = (hash ^ (hash >>> 16)) & (FRANJAS - 1);
+        AtomicLong cubeta = franjas[franja].get(clave);
+        if (cubeta == null) {
+            // Sin cubeta propia: consumió de la de desbordamiento, o el barrido la eliminó porque ya estaba llena
+            if (franjas[franja].size() < maxPorFranja) {
+                return;
+            }
+            cubeta = desbordamiento[franja];
+        }
+        cubeta.addAndGet(-intervaloNanos);
+    }
+
+    private AtomicLong registrar(int franja, String clave, long ahora) {
+        ConcurrentHashMap<String, AtomicLong> mapa = franjas[franja];
+        if (mapa.size() >= maxPorFranja) {
+            barrer(mapa, ahora);
+            if (mapa.size() >= maxPorFranja) {
+                return desbordamiento[franja];
+            }
+        }
+        return mapa.computeIfAbsent(clave, c -> new AtomicLong(ahora));
+    }
+
+    // Elimina las cubetas llenas (inactivas); devuelve cuántas se eliminaron
+    public int barrer() {
+        long ahora = System.nanoTime();
+        int eliminadas = 0;
+        for (ConcurrentHashMap<String, AtomicLong> mapa : franjas) {
+            eliminadas += barrer(mapa, ahora);
+        }
+        return eliminadas;
+    }
+
+    private int barrer(ConcurrentHashMap<String, AtomicLong> mapa, long ahora) {
+        int eliminadas = 0;
+        for (Map.Entry<String, AtomicLong> entrada : mapa.entrySet()) {
+            // Un consumo concurrente sobre una cubeta recién eliminada puede perderse: a lo sumo admite
+            // una solicitud de más, a cambio de no bloquear
+            if (entrada.getValue().get() - ahora <= 0 && mapa.remove(entrada.getKey(), entrada.getValue())) {
+                eliminadas++;
+            }
+        }
+        return eliminadas;
+    }
+
+    public int claves() {
+        int total = 0;
+        for (ConcurrentHashMap<String, AtomicLong> mapa : franjas) {
+            total += mapa.size();
+        }
+        return total;
+    }
+}
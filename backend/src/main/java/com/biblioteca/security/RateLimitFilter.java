@@ -0,0 +1,121 @@
+package com.biblioteca.security;
+
+import com.biblioteca.exception.RespuestasError;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Limita login/registro, préstamos/reservas y subidas por IP y, si hay sesión, por usuario.
+// Va después de JwtAuthenticationFilter para conocer al usuario autenticado.
+// La IP es getRemoteAddr(): detrás del balanceador Tomcat la resuelve desde X-Forwarded-For solo si la
+// conexión llega de un proxy de confianza (server.forward-headers-strategy en application.properties).
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    enum Grupo { LOGIN, PRESTAMO, SUBIDA }
+
+    private final Map<Grupo, LimitadorTasa> porIp = new EnumMap<>(Grupo.class);
+    private final Map<Grupo, LimitadorTasa> porUsuario = new EnumMap<>(Grupo.class);
+    private final RespuestasError respuestasError;
+
+    // Límites en solicitudes por minuto, con ráfaga igual al mismo valor; 0 desactiva el límite
+    public RateLimitFilter(@Value("${biblioteca.limites.login.por-ip:20}") int loginPorIp,
+                           @Value("${biblioteca.limites.prestamo.por-ip:60}") int prestamoPorIp,
+                           @Value("${biblioteca.limites.prestamo.por-usuario:10}") int prestamoPorUsuario,
+                           @Value("${biblioteca.limites.subida.por-ip:30}") int subidaPorIp,
+                           @Value("${biblioteca.limites.subida.por-usuario:10}") int subidaPorUsuario,
+                           @Value("${biblioteca.limites.max-claves:100000}") int maxClaves,
+                           RespuestasError respuestasError) {
+        this.respuestasError = respuestasError;
+        agregar(porIp, Grupo.LOGIN, loginPorIp, maxClaves);
+        agregar(porIp, Grupo.PRESTAMO, prestamoPorIp, maxClaves);
+        agregar(porUsuario, Grupo.PRESTAMO, prestamoPorUsuario, maxClaves);
+        agregar(porIp, Grupo.SUBIDA, subidaPorIp, maxClaves);
+        agregar(porUsuario, Grupo.SUBIDA, subidaPorUsuario, maxClaves);
+    }
+
+    private static void agregar(Map<Grupo, LimitadorTasa> limites, Grupo grupo, int porMinuto, int maxClaves) {
+        if (porMinuto > 0) {
+            limites.put(grupo, new LimitadorTasa(porMinuto, porMinuto, maxClaves));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Grupo grupo = clasificar(request);
+        if (grupo == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // La solicitud cuenta en los dos límites solo si ambos la admiten: si la rechaza el del usuario se
+        // devuelve el token de la IP, para que un usuario agotado no gaste el cupo de los demás en su IP
+        String ip = request.getRemoteAddr();
+        LimitadorTasa limiteIp = porIp.get(grupo);
+        long espera = consumir(limiteIp, ip);
+        if (espera == 0) {
+            Authentication autenticacion = SecurityContextHolder.getContext().getAuthentication();
+            if (autenticacion != null && autenticacion.isAuthenticated()
+                    && !(autenticacion instanceof AnonymousAuthenticationToken)) {
+                espera = consumir(porUsuario.get(grupo), autenticacion.getName());
+                if (espera > 0 && limiteIp != null && ip != null) {
+                    limiteIp.devolver(ip);
+                }
+            }
+        }
+
+        if (espera > 0) {
+            long segundos = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(espera + 999_999_999L));
+            response.setHeader("Retry-After", String.valueOf(segundos));
+            respuestasError.escribir(request, response, HttpStatus.TOO_MANY_REQUESTS, "DEMASIADAS_SOLICITUDES",
+                    "Demasiadas solicitudes. Intenta de nuevo en " + segundos + " segundos.");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static long consumir(LimitadorTasa limitador, String clave) {
+        return limitador == null || clave == null ? 0 : limitador.consumir(clave);
+    }
+
+    static Grupo clasificar(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return null;
+        }
+        String ruta = request.getRequestURI().substring(request.getContextPath().length());
+        // Renovar y cerrar sesión no usan BCrypt y cada usuario renueva cada pocos minutos: no cuentan como login
+        if (ruta.startsWith("/api/auth/") && !ruta.equals("/api/auth/refresh") && !ruta.equals("/api/auth/logout")) {
+            return Grupo.LOGIN;
+        }
+        if (ruta.startsWith("/api/libros/") && (ruta.endsWith("/prestar") || ruta.endsWith("/reservar"))) {
+            return Grupo.PRESTAMO;
+        }
+        if (ruta.startsWith("/api/upload/")) {
+            return Grupo.SUBIDA;
+        }
+        return null;
+    }
+
+    // Las cubetas llenas no guardan información: se descartan para no acumular IPs de paso
+    @Scheduled(fixedDelayString = "${biblioteca.limites.barrido-ms:60000}")
+    public void barrerInactivas() {
+        porIp.values().forEach(LimitadorTasa::barrer);
+        porUsuario.values().forEach(LimitadorTasa::barrer);
+    }
+}
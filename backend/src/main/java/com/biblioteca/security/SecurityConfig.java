@@ -8,11 +8,13 @@ import org.springframework.security.authentication.dao.DaoAuthenticationProvider
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -25,11 +27,17 @@ import java.util.List;
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final RateLimitFilter rateLimitFilter;
+    private final IdempotenciaFilter idempotenciaFilter;
     private final CustomUserDetailsService userDetailsService;
 
     public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter,
+                          RateLimitFilter rateLimitFilter,
+                          IdempotenciaFilter idempotenciaFilter,
                           CustomUserDetailsService userDetailsService) {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.rateLimitFilter = rateLimitFilter;
+        this.idempotenciaFilter = idempotenciaFilter;
         this.userDetailsService = userDetailsService;
     }
 
@@ -39,6 +47,8 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                // Sin token válido (p. ej. vencido) se responde 401 para que el cliente renueve; 403 queda para falta de rol
+                .exceptionHandling(eh -> eh.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(
                                 "/api/auth/**",
@@ -51,15 +61,22 @@ public class SecurityConfig {
                         ).permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/libros/categorias").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/libros/mis-prestamos").authenticated()
+                        .requestMatchers(HttpMethod.GET, "/api/libros/mis-reservas").authenticated()
+                        .requestMatchers(HttpMethod.GET, "/api/stats").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/libros").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/libros/tendencias").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/libros/buscar").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/libros/{id}").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/libros/*/recomendaciones").permitAll()
                         .requestMatchers(HttpMethod.GET, "/uploads/**").permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/libros/*/prestar").authenticated()
                         .requestMatchers(HttpMethod.POST, "/api/upload/**").authenticated()
                         .anyRequest().authenticated()
                 )
                 .authenticationProvider(authenticationProvider())
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class)
+                .addFilterAfter(idempotenciaFilter, RateLimitFilter.class);
 
         return http.build();
     }
@@ -0,0 +1,32 @@
+package com.biblioteca.service;
+
+// Registro de claves Idempotency-Key con la respuesta original. Implementaciones: memoria (un nodo,
+// acotado y con TTL) y bd (compartido entre nodos), según biblioteca.idempotencia.modo.
+public interface AlmacenIdempotencia {
+
+    // Reserva la clave para una solicitud nueva; si ya existe indica si está en curso o su respuesta
+    Resultado iniciar(String clave, String huella);
+
+    void completar(String clave, RespuestaGuardada respuesta);
+
+    // Libera una clave en curso cuya solicitud falló, para permitir reintentos
+    void liberar(String clave);
+
+    int purgarVencidas();
+
+    enum Tipo { NUEVA, EN_CURSO, REPETIDA, HUELLA_DISTINTA }
+
+    record RespuestaGuardada(int estadoHttp, String tipoContenido, byte[] cuerpo) {
+    }
+
+    record Resultado(Tipo tipo, RespuestaGuardada respuesta) {
+
+        static final Resultado NUEVA = new Resultado(Tipo.NUEVA, null);
+        static final Resultado EN_CURSO = new Resultado(Tipo.EN_CURSO, null);
+        static final Resultado HUELLA_DISTINTA = new Resultado(Tipo.HUELLA_DISTINTA, null);
+
+        static Resultado repetida(RespuestaGuardada respuesta) {
+            return new Resultado(Tipo.REPETIDA, respuesta);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.SolicitudIdempotente;
+import com.biblioteca.repository.SolicitudIdempotenteRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+// Almacén compartido entre nodos sobre la tabla solicitudes_idempotentes. La reserva de la clave es un
+// INSERT ... ON CONFLICT DO NOTHING, así que dos nodos con la misma clave no procesan ambos la solicitud.
+@Service
+@ConditionalOnProperty(name = "biblioteca.idempotencia.modo", havingValue = "bd")
+public class AlmacenIdempotenciaBD implements AlmacenIdempotencia {
+
+    private static final long PLAZO_EN_CURSO_MINUTOS = 5;
+
+    private final SolicitudIdempotenteRepository repository;
+    private final long ttlHoras;
+
+    public AlmacenIdempotenciaBD(SolicitudIdempotenteRepository repository,
+                                 @Value("${biblioteca.idempotencia.ttl-horas:24}") long ttlHoras) {
+        this.repository = repository;
+        this.ttlHoras = ttlHoras;
+    }
+
+    @Override
+    public Resultado iniciar(String clave, String huella) {
+        // Dos vueltas cubren que la fila se borre o venza entre el INSERT y la lectura
+        for (int intento = 0; intento < 2; intento++) {
+            LocalDateTime ahora = LocalDateTime.now();
+            LocalDateTime expira = ahora.plusMinutes(PLAZO_EN_CURSO_MINUTOS);
+            if (repository.insertarSiNoExiste(clave, huella, ahora, expira) == 1) {
+                return Resultado.NUEVA;
+            }
+            Optional<SolicitudIdempotente> existente = repository.findById(clave);
+            if (existente.isEmpty()) {
+                continue;
+            }
+            SolicitudIdempotente solicitud = existente.get();
+            if (solicitud.getExpira().isBefore(ahora)) {
+                if (repository.reclamarVencida(clave, huella, ahora, expira) == 1) {
+                    return Resultado.NUEVA;
+                }
+                continue;
+            }
+            if (!solicitud.getHuella().equals(huella)) {
+                return Resultado.HUELLA_DISTINTA;
+            }
+            if (solicitud.getEstadoHttp() == null) {
+                return Resultado.EN_CURSO;
+            }
+            return Resultado.repetida(new RespuestaGuardada(
+                    solicitud.getEstadoHttp(), solicitud.getTipoContenido(), solicitud.getCuerpo()));
+        }
+        return Resultado.EN_CURSO;
+    }
+
+    @Override
+    public void completar(String clave, RespuestaGuardada respuesta) {
+        repository.completar(clave, respuesta.estadoHttp(), respuesta.tipoContenido(), respuesta.cuerpo(),
+                LocalDateTime.now().plusHours(ttlHoras));
+    }
+
+    @Override
+    public void liberar(String clave) {
+        repository.liberar(clave);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${biblioteca.idempotencia.purga-ms:300000}")
+    public int purgarVencidas() {
+        return repository.eliminarVencidas(LocalDateTime.now());
+    }
+}
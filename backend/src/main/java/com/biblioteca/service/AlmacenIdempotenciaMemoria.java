@@ -0,0 +1,91 @@
+package com.biblioteca.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Almacén en memoria para un solo nodo. Acotado a max-entradas: al llenarse se descarta la más antigua.
+// Las operaciones solo ocurren en préstamos y pagos, así que un monitor simple basta.
+@Service
+@ConditionalOnProperty(name = "biblioteca.idempotencia.modo", havingValue = "memoria", matchIfMissing = true)
+public class AlmacenIdempotenciaMemoria implements AlmacenIdempotencia {
+
+    // Plazo para reintentar una clave cuya solicitud quedó en curso (p. ej. el hilo murió)
+    private static final long PLAZO_EN_CURSO_MS = 5 * 60_000L;
+
+    private final long ttlMs;
+    private final Map<String, Entrada> entradas;
+
+    public AlmacenIdempotenciaMemoria(@Value("${biblioteca.idempotencia.ttl-horas:24}") long ttlHoras,
+                                      @Value("${biblioteca.idempotencia.max-entradas:100000}") int maxEntradas) {
+        this.ttlMs = ttlHoras * 3_600_000L;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> mayor) {
+                return size() > maxEntradas;
+            }
+        };
+    }
+
+    @Override
+    public synchronized Resultado iniciar(String clave, String huella) {
+        long ahora = System.currentTimeMillis();
+        Entrada entrada = entradas.get(clave);
+        if (entrada == null || entrada.expira <= ahora) {
+            entradas.remove(clave);
+            entradas.put(clave, new Entrada(huella, ahora + PLAZO_EN_CURSO_MS));
+            return Resultado.NUEVA;
+        }
+        if (!entrada.huella.equals(huella)) {
+            return Resultado.HUELLA_DISTINTA;
+        }
+        return entrada.respuesta == null ? Resultado.EN_CURSO : Resultado.repetida(entrada.respuesta);
+    }
+
+    @Override
+    public synchronized void completar(String clave, RespuestaGuardada respuesta) {
+        Entrada entrada = entradas.get(clave);
+        if (entrada != null) {
+            entrada.respuesta = respuesta;
+            entrada.expira = System.currentTimeMillis() + ttlMs;
+        }
+    }
+
+    @Override
+    public synchronized void liberar(String clave) {
+        Entrada entrada = entradas.get(clave);
+        if (entrada != null && entrada.respuesta == null) {
+            entradas.remove(clave);
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${biblioteca.idempotencia.purga-ms:300000}")
+    public synchronized int purgarVencidas() {
+        long ahora = System.currentTimeMillis();
+        int eliminadas = 0;
+        for (Iterator<Entrada> it = entradas.values().iterator(); it.hasNext(); ) {
+            if (it.next().expira <= ahora) {
+                it.remove();
+                eliminadas++;
+            }
+        }
+        return eliminadas;
+    }
+
+    private static final class Entrada {
+        final String huella;
+        long expira;
+        RespuestaGuardada respuesta;
+
+        Entrada(String huella, long expira) {
+            this.huella = huella;
+            this.expira = expira;
+        }
+    }
+}
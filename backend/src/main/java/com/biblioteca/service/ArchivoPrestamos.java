@@ -0,0 +1,132 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.Prestamo;
+import com.biblioteca.model.PrestamoArchivado;
+import com.biblioteca.model.Usuario;
+import com.biblioteca.repository.PrestamoArchivadoRepository;
+import com.biblioteca.repository.PrestamoRepository;
+import com.biblioteca.repository.UsuarioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Separa los préstamos en caliente (prestamos: activos y devueltos recientes) y frío (prestamos_archivo).
+// Un movedor programado pasa por bloques los devueltos hace más de biblioteca.archivo.dias días; cada bloque
+// es una sola sentencia (DELETE ... RETURNING dentro de un INSERT) en su propia transacción, con
+// SKIP LOCKED para no esperar filas tomadas por otra transacción ni por otro nodo.
+// El historial de usuario y el listado completo del administrador leen ambas tablas.
+@Service
+public class ArchivoPrestamos {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivoPrestamos.class);
+
+    // TendenciasService solo carga los últimos 31 días desde la tabla caliente
+    private static final int DIAS_MINIMOS = 31;
+
+    private static final String MOVER = "WITH lote AS ("
+            + "SELECT id FROM prestamos WHERE estado = 'DEVUELTO' AND fecha_devolucion < ? "
+            + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED), "
+            + "movidos AS (DELETE FROM prestamos p USING lote WHERE p.id = lote.id RETURNING p.*) "
+            + "INSERT INTO prestamos_archivo (id, usuario_id, libro_id, ejemplar_id, fecha_prestamo, fecha_limite, "
+            + "fecha_devolucion, estado, dias_retraso, valor_multa, archivado) "
+            + "SELECT id, usuario_id, libro_id, ejemplar_id, fecha_prestamo, fecha_limite, fecha_devolucion, "
+            + "estado, dias_retraso, valor_multa, ? FROM movidos";
+
+    private static final Comparator<Prestamo> MAS_RECIENTE_PRIMERO =
+            Comparator.comparing(Prestamo::getFechaPrestamo).reversed();
+
+    private final PrestamoRepository prestamoRepository;
+    private final PrestamoArchivadoRepository prestamoArchivadoRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int dias;
+    private final int bloque;
+
+    private final AtomicBoolean moviendo = new AtomicBoolean();
+
+    public ArchivoPrestamos(PrestamoRepository prestamoRepository,
+                            PrestamoArchivadoRepository prestamoArchivadoRepository,
+                            UsuarioRepository usuarioRepository,
+                            JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${biblioteca.archivo.dias:180}") int dias,
+                            @Value("${biblioteca.archivo.bloque:5000}") int bloque) {
+        this.prestamoRepository = prestamoRepository;
+        this.prestamoArchivadoRepository = prestamoArchivadoRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dias = Math.max(DIAS_MINIMOS, dias);
+        this.bloque = Math.max(1, bloque);
+    }
+
+    public Map<String, Object> archivar() {
+        if (!moviendo.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay un archivado de préstamos en curso");
+        }
+        try {
+            long inicio = System.nanoTime();
+            LocalDate hoy = LocalDate.now();
+            Date corte = Date.valueOf(hoy.minusDays(dias));
+            long movidos = 0;
+            int bloques = 0;
+            int ultimo;
+            do {
+                Integer filas = transactionTemplate.execute(estado ->
+                        jdbcTemplate.update(MOVER, corte, bloque, Date.valueOf(hoy)));
+                ultimo = filas != null ? filas : 0;
+                movidos += ultimo;
+                bloques++;
+            } while (ultimo == bloque);
+
+            Map<String, Object> resumen = new LinkedHashMap<>();
+            resumen.put("corte", corte.toLocalDate());
+            resumen.put("movidos", movidos);
+            resumen.put("bloques", bloques);
+            resumen.put("ms", (System.nanoTime() - inicio) / 1_000_000);
+            logger.info("Archivado de préstamos: {}", resumen);
+            return resumen;
+        } finally {
+            moviendo.set(false);
+        }
+    }
+
+    // Historial completo del usuario: activos y recientes de la tabla caliente más los archivados
+    @Transactional(readOnly = true)
+    public List<Prestamo> historialUsuario(String username) {
+        Usuario usuario = usuarioRepository.findByUsername(username)
+                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        return combinar(prestamoRepository.findByUsuarioWithRelations(usuario),
+                prestamoArchivadoRepository.findByUsuarioWithRelations(usuario));
+    }
+
+    @Transactional(readOnly = true)
+    public List<Prestamo> todos() {
+        return combinar(prestamoRepository.findAllWithRelations(), prestamoArchivadoRepository.findAllWithRelations());
+    }
+
+    private static List<Prestamo> combinar(List<Prestamo> calientes, List<PrestamoArchivado> archivados) {
+        List<Prestamo> prestamos = new ArrayList<>(calientes.size() + archivados.size());
+        prestamos.addAll(calientes);
+        for (PrestamoArchivado archivado : archivados) {
+            prestamos.add(archivado.aPrestamo());
+        }
+        prestamos.sort(MAS_RECIENTE_PRIMERO);
+        return prestamos;
+    }
+}
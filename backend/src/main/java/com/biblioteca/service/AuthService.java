@@ -22,15 +22,18 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private final JwtUtil jwtUtil;
+    private final TokensRenovacion tokensRenovacion;
 
     public AuthService(UsuarioRepository usuarioRepository,
                        PasswordEncoder passwordEncoder,
                        AuthenticationManager authenticationManager,
-                       JwtUtil jwtUtil) {
+                       JwtUtil jwtUtil,
+                       TokensRenovacion tokensRenovacion) {
         this.usuarioRepository = usuarioRepository;
         this.passwordEncoder = passwordEncoder;
         this.authenticationManager = authenticationManager;
         this.jwtUtil = jwtUtil;
+        this.tokensRenovacion = tokensRenovacion;
     }
 
     @Transactional
@@ -55,10 +58,7 @@ public class AuthService {
     @Transactional
     public Usuario crearPrimerAdmin(RegistroRequest request) {
         // Solo permite crear admin si no existe ningún admin en el sistema
-        boolean existeAdmin = usuarioRepository.findAll().stream()
-                .anyMatch(u -> u.getRol() == Rol.ADMIN);
-
-        if (existeAdmin) {
+        if (usuarioRepository.existsByRol(Rol.ADMIN)) {
             throw new IllegalArgumentException("Ya existe un administrador en el sistema");
         }
 
@@ -95,7 +95,20 @@ public class AuthService {
         );
 
         String token = jwtUtil.generateToken(usuario.getUsername(), usuario.getRol().name());
-        return new LoginResponse(token, usuario.getUsername(), usuario.getRol().name());
+        String refreshToken = tokensRenovacion.emitir(usuario.getId());
+        return new LoginResponse(token, refreshToken, usuario.getUsername(), usuario.getRol().name());
+    }
+
+    // Sin BCrypt: rota el token de renovación y emite un access token con el rol actual del usuario
+    public LoginResponse renovar(String refreshToken) throws AuthenticationException {
+        TokensRenovacion.Rotacion rotacion = tokensRenovacion.rotar(refreshToken);
+        Usuario usuario = rotacion.usuario();
+        String token = jwtUtil.generateToken(usuario.getUsername(), usuario.getRol().name());
+        return new LoginResponse(token, rotacion.token(), usuario.getUsername(), usuario.getRol().name());
+    }
+
+    public void cerrarSesion(String refreshToken) {
+        tokensRenovacion.revocar(refreshToken);
     }
 }
 
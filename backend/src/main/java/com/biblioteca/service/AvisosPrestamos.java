@@ -0,0 +1,240 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.TipoAviso;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Recordatorios de vencimiento y avisos de préstamos vencidos.
+// Cada ejecución hace una sola consulta por rango sobre el índice parcial de préstamos sin devolver, excluyendo
+// los avisos ya enviados, y agrupa por usuario (un correo por usuario con todos sus préstamos).
+// Los correos se envían por lotes con un número acotado de hilos. Antes de enviar, cada aviso se reclama
+// insertándolo en notificaciones_prestamo (ON CONFLICT DO NOTHING), así nunca sale dos veces aunque haya
+// ejecuciones simultáneas; si el envío falla el reclamo se borra y se reintenta en la próxima ejecución.
+@Service
+public class AvisosPrestamos {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvisosPrestamos.class);
+
+    private static final String CANDIDATOS = "SELECT p.id, p.usuario_id, u.email, u.nombre, l.titulo, p.fecha_limite, p.valor_multa "
+            + "FROM prestamos p JOIN usuarios u ON u.id = p.usuario_id JOIN libros l ON l.id = p.libro_id "
+            + "WHERE p.estado IN ('PRESTADO', 'MULTA') AND p.fecha_devolucion IS NULL AND p.fecha_limite <= ? "
+            + "AND NOT EXISTS (SELECT 1 FROM notificaciones_prestamo n WHERE n.prestamo_id = p.id "
+            + "AND n.fecha_limite = p.fecha_limite "
+            + "AND n.tipo = CASE WHEN p.fecha_limite < ? THEN 'VENCIDO' ELSE 'RECORDATORIO' END) "
+            + "ORDER BY p.usuario_id, p.fecha_limite";
+
+    private static final String RECLAMAR = "INSERT INTO notificaciones_prestamo (prestamo_id, usuario_id, tipo, fecha_limite, enviado) "
+            + "VALUES (?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+    private static final String LIBERAR = "DELETE FROM notificaciones_prestamo WHERE prestamo_id = ? AND tipo = ? AND fecha_limite = ?";
+
+    private record Aviso(long prestamoId, TipoAviso tipo, String titulo, LocalDate fechaLimite, Integer valorMulta) {
+    }
+
+    private record Destinatario(long usuarioId, String email, String nombre, List<Aviso> avisos) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EnviadorCorreo enviadorCorreo;
+    private final int diasAnticipacion;
+    private final int lote;
+    private final int hilos;
+    private final String plantilla;
+
+    private final AtomicBoolean enCurso = new AtomicBoolean();
+
+    public AvisosPrestamos(JdbcTemplate jdbcTemplate,
+                           EnviadorCorreo enviadorCorreo,
+                           @Value("${biblioteca.notificaciones.dias-anticipacion:2}") int diasAnticipacion,
+                           @Value("${biblioteca.notificaciones.lote:50}") int lote,
+                           @Value("${biblioteca.notificaciones.hilos:4}") int hilos) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enviadorCorreo = enviadorCorreo;
+        this.diasAnticipacion = diasAnticipacion;
+        this.lote = Math.max(1, lote);
+        this.hilos = Math.max(1, hilos);
+        this.plantilla = leerPlantilla("correos/aviso-prestamos.txt");
+    }
+
+    public Map<String, Object> ejecutar() {
+        if (!enCurso.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay un envío de avisos en curso");
+        }
+        try {
+            return ejecutarUnaVez(LocalDate.now());
+        } finally {
+            enCurso.set(false);
+        }
+    }
+
+    private Map<String, Object> ejecutarUnaVez(LocalDate hoy) {
+        long inicio = System.nanoTime();
+        List<Destinatario> destinatarios = buscarCandidatos(hoy);
+        int avisos = destinatarios.stream().mapToInt(d -> d.avisos().size()).sum();
+
+        LongAdder enviados = new LongAdder();
+        LongAdder fallidos = new LongAdder();
+        LongAdder omitidos = new LongAdder();
+        LocalDateTime ahora = LocalDateTime.now();
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int desde = 0; desde < destinatarios.size(); desde += lote) {
+                List<Destinatario> parte = destinatarios.subList(desde, Math.min(desde + lote, destinatarios.size()));
+                tareas.add(ejecutor.submit(() -> enviarLote(parte, ahora, enviados, fallidos, omitidos)));
+            }
+            for (Future<?> tarea : tareas) {
+                try {
+                    tarea.get();
+                } catch (ExecutionException e) {
+                    logger.warn("Falló un lote de avisos: {}", e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            ejecutor.shutdownNow();
+        }
+
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("usuarios", destinatarios.size());
+        resumen.put("avisos", avisos);
+        resumen.put("enviados", enviados.sum());
+        resumen.put("fallidos", fallidos.sum());
+        resumen.put("omitidos", omitidos.sum());
+        resumen.put("ms", (System.nanoTime() - inicio) / 1_000_000);
+        logger.info("Avisos de préstamos: {}", resumen);
+        return resumen;
+    }
+
+    // Una sola consulta; las filas llegan ordenadas por usuario, así que se agrupan al vuelo
+    private List<Destinatario> buscarCandidatos(LocalDate hoy) {
+        List<Destinatario> destinatarios = new ArrayList<>();
+        jdbcTemplate.query(CANDIDATOS, rs -> {
+            long usuarioId = rs.getLong("usuario_id");
+            Destinatario actual = destinatarios.isEmpty() ? null : destinatarios.get(destinatarios.size() - 1);
+            if (actual == null || actual.usuarioId() != usuarioId) {
+                actual = new Destinatario(usuarioId, rs.getString("email"), rs.getString("nombre"), new ArrayList<>());
+                destinatarios.add(actual);
+            }
+            LocalDate fechaLimite = rs.getDate("fecha_limite").toLocalDate();
+            int multa = rs.getInt("valor_multa");
+            actual.avisos().add(new Aviso(rs.getLong("id"),
+                    fechaLimite.isBefore(hoy) ? TipoAviso.VENCIDO : TipoAviso.RECORDATORIO,
+                    rs.getString("titulo"), fechaLimite, rs.wasNull() ? null : multa));
+        }, Date.valueOf(hoy.plusDays(diasAnticipacion)), Date.valueOf(hoy));
+        return destinatarios;
+    }
+
+    private void enviarLote(List<Destinatario> parte, LocalDateTime ahora,
+                            LongAdder enviados, LongAdder fallidos, LongAdder omitidos) {
+        List<Object[]> reclamos = new ArrayList<>();
+        for (Destinatario destinatario : parte) {
+            for (Aviso aviso : destinatario.avisos()) {
+                reclamos.add(new Object[]{aviso.prestamoId(), destinatario.usuarioId(), aviso.tipo().name(),
+                        Date.valueOf(aviso.fechaLimite()), ahora});
+            }
+        }
+        int[] filas = jdbcTemplate.batchUpdate(RECLAMAR, reclamos);
+
+        // Solo se avisa lo que esta ejecución logró reclamar; el resto ya lo envió otra
+        Map<Long, Destinatario> reclamados = new LinkedHashMap<>();
+        List<EnviadorCorreo.Correo> correos = new ArrayList<>();
+        int i = 0;
+        for (Destinatario destinatario : parte) {
+            List<Aviso> propios = new ArrayList<>(destinatario.avisos().size());
+            for (Aviso aviso : destinatario.avisos()) {
+                if (filas[i++] != 0) {
+                    propios.add(aviso);
+                } else {
+                    omitidos.increment();
+                }
+            }
+            if (!propios.isEmpty()) {
+                Destinatario reclamado = new Destinatario(destinatario.usuarioId(), destinatario.email(),
+                        destinatario.nombre(), propios);
+                reclamados.put(reclamado.usuarioId(), reclamado);
+                correos.add(redactar(reclamado));
+            }
+        }
+        if (correos.isEmpty()) {
+            return;
+        }
+
+        List<EnviadorCorreo.Correo> noEntregados;
+        try {
+            noEntregados = enviadorCorreo.enviar(correos);
+        } catch (RuntimeException e) {
+            logger.warn("No se pudo enviar un lote de {} correos: {}", correos.size(), e.getMessage());
+            noEntregados = correos;
+        }
+
+        List<Object[]> liberar = new ArrayList<>();
+        for (EnviadorCorreo.Correo correo : noEntregados) {
+            for (Aviso aviso : reclamados.get(correo.usuarioId()).avisos()) {
+                liberar.add(new Object[]{aviso.prestamoId(), aviso.tipo().name(), Date.valueOf(aviso.fechaLimite())});
+            }
+        }
+        if (!liberar.isEmpty()) {
+            jdbcTemplate.batchUpdate(LIBERAR, liberar);
+        }
+        enviados.add(correos.size() - noEntregados.size());
+        fallidos.add(noEntregados.size());
+    }
+
+    private EnviadorCorreo.Correo redactar(Destinatario destinatario) {
+        StringBuilder vencidos = new StringBuilder();
+        StringBuilder proximos = new StringBuilder();
+        for (Aviso aviso : destinatario.avisos()) {
+            if (aviso.tipo() == TipoAviso.VENCIDO) {
+                vencidos.append(" - ").append(aviso.titulo()).append(" (venció el ").append(aviso.fechaLimite());
+                if (aviso.valorMulta() != null && aviso.valorMulta() > 0) {
+                    vencidos.append(", multa actual $").append(aviso.valorMulta());
+                }
+                vencidos.append(")\n");
+            } else {
+                proximos.append(" - ").append(aviso.titulo()).append(" (vence el ").append(aviso.fechaLimite()).append(")\n");
+            }
+        }
+        StringBuilder detalle = new StringBuilder();
+        if (!vencidos.isEmpty()) {
+            detalle.append("Estos préstamos están vencidos, por favor devuélvelos lo antes posible:\n").append(vencidos).append('\n');
+        }
+        if (!proximos.isEmpty()) {
+            detalle.append("Estos préstamos vencen pronto:\n").append(proximos).append('\n');
+        }
+        String asunto = !vencidos.isEmpty() ? "Tienes préstamos vencidos" : "Tus préstamos vencen pronto";
+        String cuerpo = plantilla.replace("{nombre}", destinatario.nombre()).replace("{detalle}", detalle);
+        return new EnviadorCorreo.Correo(destinatario.usuarioId(), destinatario.email(), asunto, cuerpo);
+    }
+
+    private static String leerPlantilla(String ruta) {
+        try {
+            return new ClassPathResource(ruta).getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer la plantilla " + ruta, e);
+        }
+    }
+}
@@ -4,26 +4,55 @@ import com.biblioteca.model.*;
 import com.biblioteca.repository.LibroRepository;
 import com.biblioteca.repository.PrestamoRepository;
 import com.biblioteca.repository.UsuarioRepository;
+import com.biblioteca.util.ETags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class BibliotecaService {
 
+    private static final Logger logger = LoggerFactory.getLogger(BibliotecaService.class);
+
     private final LibroRepository libroRepository;
     private final PrestamoRepository prestamoRepository;
     private final UsuarioRepository usuarioRepository;
+    private final ReservaService reservaService;
+    private final EstadisticasService estadisticasService;
+    private final RecomendacionService recomendacionService;
+    private final TendenciasService tendenciasService;
+    private final DiarioPrestamos diarioPrestamos;
+    private final OutboxService outboxService;
+    private final InventarioEjemplares inventarioEjemplares;
+    private final PoliticaMultas politicaMultas;
 
     public BibliotecaService(LibroRepository libroRepository,
                              PrestamoRepository prestamoRepository,
-                             UsuarioRepository usuarioRepository) {
+                             UsuarioRepository usuarioRepository,
+                             ReservaService reservaService,
+                             EstadisticasService estadisticasService,
+                             RecomendacionService recomendacionService,
+                             TendenciasService tendenciasService,
+                             DiarioPrestamos diarioPrestamos,
+                             OutboxService outboxService,
+                             InventarioEjemplares inventarioEjemplares,
+                             PoliticaMultas politicaMultas) {
         this.libroRepository = libroRepository;
         this.prestamoRepository = prestamoRepository;
         this.usuarioRepository = usuarioRepository;
+        this.reservaService = reservaService;
+        this.estadisticasService = estadisticasService;
+        this.recomendacionService = recomendacionService;
+        this.tendenciasService = tendenciasService;
+        this.diarioPrestamos = diarioPrestamos;
+        this.outboxService = outboxService;
+        this.inventarioEjemplares = inventarioEjemplares;
+        this.politicaMultas = politicaMultas;
     }
 
     public List<Libro> listarLibros() {
@@ -35,30 +64,69 @@ public class BibliotecaService {
                 .orElseThrow(() -> new IllegalArgumentException("Libro no encontrado"));
     }
 
+    // Edición desde administración. El libro se lee con FOR UPDATE: los préstamos y devoluciones (UPDATE atómico
+    // sin versión) esperan a que termine, y la disponibilidad se deriva de la fila bloqueada en vez del formulario
+    @Transactional
+    public Libro actualizarLibro(Long id, Libro datos, String ifMatch) {
+        Libro existente = libroRepository.findByIdParaActualizar(id)
+                .orElseThrow(() -> new IllegalArgumentException("Libro no encontrado"));
+        ETags.comprobar(ifMatch, existente.getVersion());
+
+        int disponible = existente.getCantidadDisponible() + datos.getCantidadTotal() - existente.getCantidadTotal();
+        if (disponible < 0) {
+            throw new IllegalStateException("No se pueden quitar copias prestadas o apartadas: hay "
+                    + existente.getCantidadDisponible() + " disponible(s)");
+        }
+        existente.setTitulo(datos.getTitulo());
+        existente.setAutor(datos.getAutor());
+        existente.setDescripcion(datos.getDescripcion());
+        existente.setImagenUrl(datos.getImagenUrl());
+        existente.setCategoria(datos.getCategoria());
+        existente.setCantidadTotal(datos.getCantidadTotal());
+        existente.setCantidadDisponible(disponible);
+
+        // Crea o da de baja copias antes de guardar: no se pueden quitar copias que están prestadas
+        inventarioEjemplares.ajustar(existente);
+        Libro guardado = libroRepository.save(existente);
+        // Las unidades nuevas se reparten primero entre quienes esperan en la lista de reservas
+        return reservaService.asignarDisponibles(guardado);
+    }
+
     @Transactional
     public Prestamo prestarLibro(Long libroId, String username) {
         Usuario usuario = usuarioRepository.findByUsername(username)
                 .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
         Libro libro = obtenerLibro(libroId);
 
-        if (libro.getCantidadDisponible() <= 0) {
-            throw new IllegalStateException("No hay unidades disponibles");
+        // Si el usuario tiene un ejemplar apartado por reserva, ya está descontado del disponible
+        Optional<Reserva> reservaAsignada = reservaService.reservaAsignada(usuario, libro);
+        if (reservaAsignada.isPresent()) {
+            reservaService.completar(reservaAsignada.get());
+        } else {
+            // UPDATE atómico: no incrementa la versión, así que los préstamos simultáneos no chocan
+            if (!libroRepository.tomarDisponible(libro)) {
+                throw new IllegalStateException("No hay unidades disponibles. Puedes reservar el libro para entrar en la lista de espera");
+            }
+            estadisticasService.registrarLibro(libro);
         }
 
-        libro.setCantidadDisponible(libro.getCantidadDisponible() - 1);
-        libroRepository.save(libro);
-
         LocalDate hoy = LocalDate.now();
         Prestamo prestamo = new Prestamo();
         prestamo.setUsuario(usuario);
         prestamo.setLibro(libro);
+        prestamo.setEjemplar(inventarioEjemplares.asignar(libro));
         prestamo.setFechaPrestamo(hoy);
         prestamo.setFechaLimite(hoy.plusDays(7));
         prestamo.setEstado(EstadoPrestamo.PRESTADO);
         prestamo.setDiasRetraso(0);
         prestamo.setValorMulta(0);
 
-        return prestamoRepository.save(prestamo);
+        Prestamo guardado = prestamoRepository.save(prestamo);
+        estadisticasService.registrarPrestamo(guardado, null, 0);
+        recomendacionService.registrarPrestamo(usuario.getId(), libro.getId());
+        tendenciasService.registrarPrestamo(libro, hoy);
+        registrarEvento(guardado, TipoEventoPrestamo.PRESTADO, null);
+        return guardado;
     }
 
     @Transactional
@@ -70,35 +138,95 @@ public class BibliotecaService {
             return prestamo;
         }
 
+        EstadoPrestamo estadoAnterior = prestamo.getEstado();
+        int multaAnterior = valorMulta(prestamo);
         LocalDate hoy = LocalDate.now();
         prestamo.setFechaDevolucion(hoy);
 
-        if (hoy.isAfter(prestamo.getFechaLimite())) {
-            long dias = ChronoUnit.DAYS.between(prestamo.getFechaLimite(), hoy);
-            int diasRetraso = (int) dias;
-            prestamo.setDiasRetraso(diasRetraso);
-            prestamo.setValorMulta(diasRetraso * 5000);
-            prestamo.setEstado(EstadoPrestamo.MULTA);
-        } else {
-            prestamo.setEstado(EstadoPrestamo.DEVUELTO);
+        PoliticaMultas.Multa multa = politicaMultas.calcular(prestamo, hoy);
+        prestamo.setDiasRetraso(multa.dias());
+        prestamo.setValorMulta(multa.valor());
+        // Dentro de los días de gracia (o sin días hábiles de retraso) se devuelve sin multa
+        prestamo.setEstado(multa.valor() > 0 ? EstadoPrestamo.MULTA : EstadoPrestamo.DEVUELTO);
+
+        reservaService.liberarEjemplar(prestamo.getLibro());
+        inventarioEjemplares.devolver(prestamo.getEjemplar());
+
+        Prestamo guardado = prestamoRepository.save(prestamo);
+        estadisticasService.registrarPrestamo(guardado, estadoAnterior, multaAnterior);
+        registrarEvento(guardado, guardado.getEstado() == EstadoPrestamo.MULTA
+                ? TipoEventoPrestamo.DEVUELTO_CON_MULTA : TipoEventoPrestamo.DEVUELTO, estadoAnterior);
+        return guardado;
+    }
+
+    @Transactional
+    public Prestamo pagarMulta(Long prestamoId) {
+        Prestamo prestamo = prestamoRepository.findById(prestamoId)
+                .orElseThrow(() -> new IllegalArgumentException("Préstamo no encontrado"));
+
+        if (prestamo.getEstado() != EstadoPrestamo.MULTA) {
+            throw new IllegalStateException("Este préstamo no tiene multa pendiente");
         }
 
-        Libro libro = prestamo.getLibro();
-        libro.setCantidadDisponible(libro.getCantidadDisponible() + 1);
-        libroRepository.save(libro);
+        int multaAnterior = valorMulta(prestamo);
+        // Si ya se devolvió con retraso el ejemplar volvió al inventario en devolverLibro y su fecha de
+        // devolución es la real (la usan el archivo y los acumulados): no se pisa con la del pago
+        boolean sinDevolver = prestamo.getFechaDevolucion() == null;
+        prestamo.setEstado(EstadoPrestamo.DEVUELTO);
 
-        return prestamoRepository.save(prestamo);
+        if (sinDevolver) {
+            prestamo.setFechaDevolucion(LocalDate.now());
+            reservaService.liberarEjemplar(prestamo.getLibro());
+            inventarioEjemplares.devolver(prestamo.getEjemplar());
+        }
+
+        Prestamo guardado = prestamoRepository.save(prestamo);
+        estadisticasService.registrarPrestamo(guardado, EstadoPrestamo.MULTA, multaAnterior);
+        registrarEvento(guardado, TipoEventoPrestamo.MULTA_PAGADA, EstadoPrestamo.MULTA);
+        logger.info("Multa pagada: préstamo {}, valor {}", guardado.getId(), guardado.getValorMulta());
+        return guardado;
     }
 
-    public List<Prestamo> prestamosPorUsuario(String username) {
-        Usuario usuario = usuarioRepository.findByUsername(username)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
-        return prestamoRepository.findByUsuarioWithRelations(usuario);
+    // Recalcula con la política vigente la multa de los vencidos sin devolver con id en [desde, hasta]:
+    // los PRESTADO pasan a MULTA y los que ya tenían multa se actualizan al día "hoy". La tarea repartida
+    // MultasVencidas lo llama por tramos desde varios nodos
+    @Transactional
+    public int actualizarMultas(LocalDate hoy, long desde, long hasta) {
+        int actualizados = 0;
+
+        for (Prestamo prestamo : prestamoRepository.findVencidosSinDevolverEntre(hoy, desde, hasta)) {
+            PoliticaMultas.Multa multa = politicaMultas.calcular(prestamo, hoy);
+            EstadoPrestamo estadoAnterior = prestamo.getEstado();
+            int multaAnterior = valorMulta(prestamo);
+            if (multa.valor() == 0 || (estadoAnterior == EstadoPrestamo.MULTA && multa.valor() == multaAnterior)) {
+                continue;
+            }
+
+            prestamo.setDiasRetraso(multa.dias());
+            prestamo.setValorMulta(multa.valor());
+            prestamo.setEstado(EstadoPrestamo.MULTA);
+            prestamoRepository.save(prestamo);
+            estadisticasService.registrarPrestamo(prestamo, estadoAnterior, multaAnterior);
+            registrarEvento(prestamo, estadoAnterior == EstadoPrestamo.PRESTADO
+                    ? TipoEventoPrestamo.MULTA_POR_VENCIMIENTO : TipoEventoPrestamo.MULTA_RECALCULADA, estadoAnterior);
+            actualizados++;
+        }
+        return actualizados;
     }
 
     public List<Prestamo> prestamosConMulta() {
         return prestamoRepository.findByEstado(EstadoPrestamo.MULTA);
     }
+
+    // Cada transición queda en el diario (asíncrono) y en el outbox (misma transacción)
+    private void registrarEvento(Prestamo prestamo, TipoEventoPrestamo tipo, EstadoPrestamo anterior) {
+        diarioPrestamos.registrar(prestamo, tipo, anterior);
+        outboxService.publicar(prestamo, tipo);
+    }
+
+    private static int valorMulta(Prestamo prestamo) {
+        return prestamo.getValorMulta() != null ? prestamo.getValorMulta() : 0;
+    }
 }
 
 
@@ -0,0 +1,301 @@
+package com.biblioteca.service;
+
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Invalidación de cachés entre nodos sobre LISTEN/NOTIFY de Postgres. Los cambios se publican con pg_notify
+// dentro de la transacción que los escribe: Postgres solo entrega el aviso si confirma, y agrupa los avisos
+// idénticos de una misma transacción. Cada nodo escucha en una conexión propia (fuera del pool), junta lo
+// que llega durante una ventana corta y lo reparte a los ReceptorInvalidaciones. Tras una reconexión pudo
+// haber avisos perdidos, así que se invalida todo.
+@Service
+public class BusInvalidaciones {
+
+    private static final Logger logger = LoggerFactory.getLogger(BusInvalidaciones.class);
+
+    public enum Tipo { LIBRO, CATEGORIA, USUARIO, RESERVAS }
+
+    static final String CANAL = "biblioteca_invalidacion";
+    // NOTIFY admite payloads de hasta 8000 bytes; más ids que esto en un aviso se publican como "todos"
+    private static final int MAXIMO_PAYLOAD = 7000;
+    private static final int IDS_MAXIMOS = 1000;
+    private static final String TODOS = "*";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<ReceptorInvalidaciones> receptores;
+    private final boolean habilitado;
+    private final String url;
+    private final String usuario;
+    private final String clave;
+    private final long ventanaMs;
+
+    // Identifica a este proceso para descartar los avisos propios: sus cachés ya se actualizaron al confirmar
+    private final String nodo = UUID.randomUUID().toString().substring(0, 8);
+
+    private final AtomicLong recibidos = new AtomicLong();
+    private final AtomicLong repartos = new AtomicLong();
+    private final AtomicLong reconexiones = new AtomicLong();
+    private volatile boolean conectado;
+    private volatile boolean activo;
+    private volatile Thread hilo;
+    private volatile Connection conexion;
+
+    public BusInvalidaciones(JdbcTemplate jdbcTemplate,
+                             ObjectProvider<ReceptorInvalidaciones> receptores,
+                             @Value("${biblioteca.invalidacion.habilitada:true}") boolean habilitado,
+                             @Value("${spring.datasource.url}") String url,
+                             @Value("${spring.datasource.username}") String usuario,
+                             @Value("${spring.datasource.password}") String clave,
+                             @Value("${biblioteca.invalidacion.ventana-ms:200}") long ventanaMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.receptores = receptores;
+        this.habilitado = habilitado;
+        this.url = url;
+        this.usuario = usuario;
+        this.clave = clave;
+        this.ventanaMs = ventanaMs;
+    }
+
+    // Debe llamarse dentro de la transacción que hace el cambio (OyenteInvalidaciones, operaciones masivas)
+    public void publicar(Tipo tipo, Long id) {
+        if (habilitado && id != null) {
+            notificar(tipo + ":" + id);
+        }
+    }
+
+    public void publicar(Tipo tipo, Collection<Long> ids) {
+        if (!habilitado || ids.isEmpty()) {
+            return;
+        }
+        if (ids.size() > IDS_MAXIMOS) {
+            notificar(tipo + ":" + TODOS);
+            return;
+        }
+        StringBuilder payload = new StringBuilder();
+        for (Long id : ids) {
+            if (payload.length() > MAXIMO_PAYLOAD) {
+                notificar(tipo + ":" + payload);
+                payload.setLength(0);
+            }
+            if (payload.length() > 0) {
+                payload.append(',');
+            }
+            payload.append(id);
+        }
+        notificar(tipo + ":" + payload);
+    }
+
+    private void notificar(String aviso) {
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CANAL, nodo + ":" + aviso);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (!habilitado) {
+            logger.info("Bus de invalidación deshabilitado (biblioteca.invalidacion.habilitada=false)");
+            return;
+        }
+        activo = true;
+        hilo = new Thread(this::escuchar, "bus-invalidacion");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    @PreDestroy
+    public void detener() {
+        activo = false;
+        Thread actual = hilo;
+        if (actual != null) {
+            actual.interrupt();
+        }
+        cerrar();
+    }
+
+    public Map<String, Object> estado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("habilitado", habilitado);
+        estado.put("nodo", nodo);
+        estado.put("conectado", conectado);
+        estado.put("avisosRecibidos", recibidos.get());
+        estado.put("repartos", repartos.get());
+        estado.put("reconexiones", reconexiones.get());
+        return estado;
+    }
+
+    private void escuchar() {
+        long espera = 1000;
+        boolean primera = true;
+        while (activo) {
+            try {
+                conexion = DriverManager.getConnection(url, usuario, clave);
+                try (Statement sentencia = conexion.createStatement()) {
+                    sentencia.execute("LISTEN " + CANAL);
+                }
+                conectado = true;
+                espera = 1000;
+                logger.info("Bus de invalidación escuchando en {} (nodo {})", CANAL, nodo);
+                if (!primera) {
+                    // Lo que se publicó mientras no escuchábamos se perdió: se descarta todo lo cacheado
+                    reconexiones.incrementAndGet();
+                    repartir(null);
+                }
+                recibir(conexion.unwrap(PGConnection.class));
+            } catch (SQLException e) {
+                if (activo) {
+                    logger.warn("Bus de invalidación desconectado: {}. Reintento en {} ms", e.getMessage(), espera);
+                }
+            } catch (RuntimeException e) {
+                // Un fallo inesperado no debe terminar el hilo: se reconecta e invalida todo como tras una caída
+                if (activo) {
+                    logger.error("Error en el bus de invalidación. Reintento en {} ms", espera, e);
+                }
+            } finally {
+                conectado = false;
+                cerrar();
+            }
+            primera = false;
+            if (!dormir(espera)) {
+                return;
+            }
+            espera = Math.min(espera * 2, 30_000);
+        }
+    }
+
+    // Junta los avisos de una ventana desde el primero que llega y los reparte de una vez: ráfagas de
+    // cambios sobre el mismo libro terminan en una sola recarga
+    private void recibir(PGConnection pg) throws SQLException {
+        Map<Tipo, Set<Long>> pendientes = new EnumMap<>(Tipo.class);
+        long primero = 0;
+        long ultimaComprobacion = System.currentTimeMillis();
+        while (activo) {
+            long espera = pendientes.isEmpty() ? 1000 : Math.max(1, primero + ventanaMs - System.currentTimeMillis());
+            PGNotification[] avisos = pg.getNotifications((int) espera);
+            long ahora = System.currentTimeMillis();
+            if (avisos != null) {
+                for (PGNotification aviso : avisos) {
+                    try {
+                        if (acumular(aviso.getParameter(), pendientes) && primero == 0) {
+                            primero = ahora;
+                        }
+                    } catch (RuntimeException e) {
+                        // Un aviso mal formado se descarta sin perder los demás
+                        logger.warn("Aviso de invalidación descartado: {} ({})", aviso.getParameter(), e.toString());
+                    }
+                }
+            }
+            if (!pendientes.isEmpty() && ahora - primero >= ventanaMs) {
+                repartir(pendientes);
+                pendientes = new EnumMap<>(Tipo.class);
+                primero = 0;
+            }
+            // Una conexión caída sin RST no falla en getNotifications: se sondea cada tanto
+            if (ahora - ultimaComprobacion > 30_000) {
+                if (!conexion.isValid(5)) {
+                    throw new SQLException("la conexión dejó de responder");
+                }
+                ultimaComprobacion = ahora;
+            }
+        }
+    }
+
+    // Payload "nodo:TIPO:id,id,..." o "nodo:TIPO:*". Un null en el mapa significa todos los de ese tipo
+    private boolean acumular(String payload, Map<Tipo, Set<Long>> pendientes) {
+        String[] partes = payload.split(":", 3);
+        if (partes.length != 3 || partes[0].equals(nodo)) {
+            return false;
+        }
+        Tipo tipo;
+        try {
+            tipo = Tipo.valueOf(partes[1]);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Aviso de invalidación desconocido: {}", payload);
+            return false;
+        }
+        if (partes[2].equals(TODOS)) {
+            recibidos.incrementAndGet();
+            pendientes.put(tipo, null);
+            return true;
+        }
+        // Se leen todos los ids antes de tocar pendientes: si uno no es número el aviso entero se descarta
+        List<Long> leidos = new ArrayList<>();
+        for (String id : partes[2].split(",")) {
+            leidos.add(Long.parseLong(id.trim()));
+        }
+        recibidos.incrementAndGet();
+        if (pendientes.containsKey(tipo) && pendientes.get(tipo) == null) {
+            return true;
+        }
+        Set<Long> ids = pendientes.computeIfAbsent(tipo, t -> new HashSet<>());
+        ids.addAll(leidos);
+        if (ids.size() > IDS_MAXIMOS) {
+            pendientes.put(tipo, null);
+        }
+        return true;
+    }
+
+    // pendientes null: invalidación completa de todos los tipos
+    private void repartir(Map<Tipo, Set<Long>> pendientes) {
+        repartos.incrementAndGet();
+        for (Tipo tipo : Tipo.values()) {
+            if (pendientes != null && !pendientes.containsKey(tipo)) {
+                continue;
+            }
+            Set<Long> ids = pendientes != null ? pendientes.get(tipo) : null;
+            receptores.orderedStream().forEach(receptor -> {
+                try {
+                    receptor.invalidar(tipo, ids);
+                } catch (RuntimeException e) {
+                    logger.error("{} no pudo invalidar {} {}", receptor.getClass().getSimpleName(), tipo,
+                            ids != null ? ids : "(todos)", e);
+                }
+            });
+        }
+        logger.debug("Invalidación repartida: {}", pendientes != null ? pendientes : "completa");
+    }
+
+    private void cerrar() {
+        Connection actual = conexion;
+        conexion = null;
+        if (actual != null) {
+            try {
+                actual.close();
+            } catch (SQLException ignorada) {
+                // ya estaba rota
+            }
+        }
+    }
+
+    private boolean dormir(long ms) {
+        try {
+            Thread.sleep(ms);
+            return activo;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.biblioteca.service;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+// Días hábiles precalculados como sumas prefijas: acumulados[i] = días hábiles en [inicio, inicio + i).
+// Contar los hábiles de cualquier rango es una resta. Fuera de la ventana solo se descuentan los fines
+// de semana, con aritmética (los feriados fuera de la ventana no se conocen).
+public final class CalendarioHabil {
+
+    private final long inicio;
+    private final int[] acumulados;
+
+    public CalendarioHabil(LocalDate desde, LocalDate hasta, Set<LocalDate> feriados) {
+        this.inicio = desde.toEpochDay();
+        int dias = (int) (hasta.toEpochDay() - inicio + 1);
+        this.acumulados = new int[dias + 1];
+        for (int i = 0; i < dias; i++) {
+            long dia = inicio + i;
+            boolean habil = esEntreSemana(dia) && !feriados.contains(LocalDate.ofEpochDay(dia));
+            acumulados[i + 1] = acumulados[i] + (habil ? 1 : 0);
+        }
+    }
+
+    // Días hábiles en (desde, hasta]: el día límite no cuenta, el de devolución sí
+    public int habilesEntre(LocalDate desde, LocalDate hasta) {
+        return habilesEntre(desde.toEpochDay(), hasta.toEpochDay());
+    }
+
+    public int habilesEntre(long desde, long hasta) {
+        if (hasta <= desde) {
+            return 0;
+        }
+        return (int) (habilesAntesDe(hasta + 1) - habilesAntesDe(desde + 1));
+    }
+
+    // Hábiles en [inicio, dia), negativo si dia es anterior a la ventana
+    private long habilesAntesDe(long dia) {
+        long i = dia - inicio;
+        if (i < 0) {
+            return -(entreSemanaAntesDe(inicio) - entreSemanaAntesDe(dia));
+        }
+        int ultimo = acumulados.length - 1;
+        if (i > ultimo) {
+            return acumulados[ultimo] + entreSemanaAntesDe(dia) - entreSemanaAntesDe(inicio + ultimo);
+        }
+        return acumulados[(int) i];
+    }
+
+    // Lunes a viernes desde el lunes 1969-12-29 (día -3) hasta dia, sin incluirlo
+    private static long entreSemanaAntesDe(long dia) {
+        long desdeLunes = dia + 3;
+        return Math.floorDiv(desdeLunes, 7) * 5 + Math.min(Math.floorMod(desdeLunes, 7), 5);
+    }
+
+    private static boolean esEntreSemana(long dia) {
+        return Math.floorMod(dia + 3, 7) < 5;
+    }
+}
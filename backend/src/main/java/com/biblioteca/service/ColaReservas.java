@@ -0,0 +1,75 @@
+package com.biblioteca.service;
+
+import java.util.Arrays;
+
+// Cola FIFO de ids de reserva para un libro, sobre un buffer circular de long primitivos
+final class ColaReservas {
+
+    private long[] elementos = new long[4];
+    private int cabeza;
+    private int tamano;
+
+    // Una cola releída de la base puede ya tener la reserva cuyo commit aún no la había agregado
+    synchronized void agregar(long reservaId) {
+        if (posicion(reservaId) > 0) {
+            return;
+        }
+        asegurarCapacidad();
+        elementos[(cabeza + tamano) % elementos.length] = reservaId;
+        tamano++;
+    }
+
+    synchronized boolean eliminar(long reservaId) {
+        for (int i = 0; i < tamano; i++) {
+            if (elementos[(cabeza + i) % elementos.length] == reservaId) {
+                if (i == 0) {
+                    // Caso habitual: se asigna la cabeza
+                    cabeza = (cabeza + 1) % elementos.length;
+                    tamano--;
+                    return true;
+                }
+                for (int j = i; j < tamano - 1; j++) {
+                    elementos[(cabeza + j) % elementos.length] = elementos[(cabeza + j + 1) % elementos.length];
+                }
+                tamano--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Posición 1-based dentro de la cola, 0 si la reserva no está en espera
+    synchronized int posicion(long reservaId) {
+        for (int i = 0; i < tamano; i++) {
+            if (elementos[(cabeza + i) % elementos.length] == reservaId) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    synchronized int tamano() {
+        return tamano;
+    }
+
+    private void asegurarCapacidad() {
+        if (tamano < elementos.length) {
+            return;
+        }
+        long[] nuevos = new long[elementos.length * 2];
+        for (int i = 0; i < tamano; i++) {
+            nuevos[i] = elementos[(cabeza + i) % elementos.length];
+        }
+        elementos = nuevos;
+        cabeza = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long[] copia = new long[tamano];
+        for (int i = 0; i < tamano; i++) {
+            copia[i] = elementos[(cabeza + i) % elementos.length];
+        }
+        return Arrays.toString(copia);
+    }
+}
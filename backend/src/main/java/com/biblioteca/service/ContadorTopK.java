@@ -0,0 +1,92 @@
+package com.biblioteca.service;
+
+import com.biblioteca.util.LongIntHashMap;
+
+// Resumen Space-Saving (Metwally et al.): con capacidad m, cualquier libro con más de N/m préstamos
+// está garantizado en el resumen y su conteo sobreestima el real como mucho en su error registrado.
+// Un libro ausente tuvo como mucho minimo() préstamos, que a su vez es <= N/m; TendenciasService usa
+// ese dato para que las cotas sigan valiendo al sumar varios resúmenes. No es thread-safe.
+public class ContadorTopK {
+
+    private final long[] ids;
+    private final long[] conteos;
+    private final long[] errores;
+    private final LongIntHashMap posiciones;
+    private int tamano;
+
+    public ContadorTopK(int capacidad) {
+        ids = new long[capacidad];
+        conteos = new long[capacidad];
+        errores = new long[capacidad];
+        posiciones = new LongIntHashMap(capacidad);
+    }
+
+    public void sumar(long id, long cantidad) {
+        // Las posiciones se guardan +1 para distinguir "ausente" (0)
+        int posicion = posiciones.get(id) - 1;
+        if (posicion >= 0) {
+            conteos[posicion] += cantidad;
+            return;
+        }
+        if (tamano < ids.length) {
+            ids[tamano] = id;
+            conteos[tamano] = cantidad;
+            errores[tamano] = 0;
+            posiciones.put(id, ++tamano);
+            return;
+        }
+        // Reemplaza al mínimo y hereda su conteo como error máximo
+        int minimo = 0;
+        for (int i = 1; i < tamano; i++) {
+            if (conteos[i] < conteos[minimo]) {
+                minimo = i;
+            }
+        }
+        posiciones.remove(ids[minimo]);
+        long base = conteos[minimo];
+        ids[minimo] = id;
+        errores[minimo] = base;
+        conteos[minimo] = base + cantidad;
+        posiciones.put(id, minimo + 1);
+    }
+
+    // Vuelca los conteos estimados sobre un acumulador (para combinar ventanas)
+    public void acumularEn(LongIntHashMap acumulado) {
+        for (int i = 0; i < tamano; i++) {
+            acumulado.addTo(ids[i], (int) conteos[i]);
+        }
+    }
+
+    public void acumularErroresEn(LongIntHashMap acumulado) {
+        for (int i = 0; i < tamano; i++) {
+            acumulado.addTo(ids[i], (int) errores[i]);
+        }
+    }
+
+    // Cota del conteo real de cualquier libro que no está en el resumen: el menor conteo si el resumen se
+    // llenó (pudo haber reemplazos), 0 si no (entonces los conteos son exactos)
+    public long minimo() {
+        if (tamano < ids.length) {
+            return 0;
+        }
+        long minimo = conteos[0];
+        for (int i = 1; i < tamano; i++) {
+            minimo = Math.min(minimo, conteos[i]);
+        }
+        return minimo;
+    }
+
+    public long estimado(long id) {
+        int posicion = posiciones.get(id) - 1;
+        return posicion >= 0 ? conteos[posicion] : 0;
+    }
+
+    public long errorMaximo(long id) {
+        int posicion = posiciones.get(id) - 1;
+        return posicion >= 0 ? errores[posicion] : 0;
+    }
+
+    public int tamano() {
+        return tamano;
+    }
+}
@@ -0,0 +1,158 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.EstadoPrestamo;
+import com.biblioteca.model.EventoPrestamo;
+import com.biblioteca.model.Prestamo;
+import com.biblioteca.model.TipoEventoPrestamo;
+import com.biblioteca.repository.EventoPrestamoRepository;
+import com.biblioteca.util.Transacciones;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Diario de transiciones de préstamos. Los hilos de las solicitudes solo encolan (cola sin bloqueos,
+// después del commit) y un escritor programado inserta por lotes con JDBC; nunca esperan E/S de auditoría.
+//
+// Pérdida acotada: un evento confirmado puede perderse solo si
+//  - el proceso muere sin apagado ordenado: a lo sumo los eventos en cola, que nunca superan
+//    biblioteca.diario.capacidad y en régimen normal son los de un intervalo de escritura-ms;
+//  - la cola está llena (base de datos caída o lenta): el evento se descarta y se cuenta en "descartados".
+// Un lote que falla vuelve a la cola sin liberar su cupo, así que la cola no crece por reintentos.
+// En el apagado ordenado se vacía la cola antes de cerrar.
+@Service
+public class DiarioPrestamos {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiarioPrestamos.class);
+
+    private static final String INSERTAR = "INSERT INTO eventos_prestamo (prestamo_id, usuario_id, libro_id, tipo, "
+            + "estado_anterior, estado_nuevo, dias_retraso, valor_multa, actor, fecha) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EventoPrestamoRepository eventoPrestamoRepository;
+    private final int capacidad;
+    private final int lote;
+
+    private final ConcurrentLinkedQueue<EventoPrestamo> cola = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendientes = new AtomicInteger();
+    private final LongAdder escritos = new LongAdder();
+    private final LongAdder descartados = new LongAdder();
+
+    public DiarioPrestamos(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           EventoPrestamoRepository eventoPrestamoRepository,
+                           @Value("${biblioteca.diario.capacidad:100000}") int capacidad,
+                           @Value("${biblioteca.diario.lote:1000}") int lote) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventoPrestamoRepository = eventoPrestamoRepository;
+        this.capacidad = capacidad;
+        this.lote = lote;
+    }
+
+    public void registrar(Prestamo prestamo, TipoEventoPrestamo tipo, EstadoPrestamo anterior) {
+        EventoPrestamo evento = new EventoPrestamo(null, prestamo.getId(),
+                prestamo.getUsuario() != null ? prestamo.getUsuario().getId() : null,
+                prestamo.getLibro() != null ? prestamo.getLibro().getId() : null,
+                tipo, anterior, prestamo.getEstado(), prestamo.getDiasRetraso(), prestamo.getValorMulta(),
+                actorActual(), LocalDateTime.now());
+        Transacciones.despuesDeCommit(() -> encolar(evento));
+    }
+
+    private void encolar(EventoPrestamo evento) {
+        if (pendientes.incrementAndGet() > capacidad) {
+            pendientes.decrementAndGet();
+            descartados.increment();
+            return;
+        }
+        cola.offer(evento);
+    }
+
+    @Scheduled(fixedDelayString = "${biblioteca.diario.escritura-ms:200}")
+    public void escribir() {
+        while (escribirLote() == lote) {
+            // Sigue mientras haya lotes completos
+        }
+    }
+
+    // Un solo escritor a la vez: el programado, el apagado o una consulta de historial
+    private synchronized int escribirLote() {
+        List<EventoPrestamo> eventos = new ArrayList<>(Math.min(lote, pendientes.get() + 1));
+        EventoPrestamo evento;
+        while (eventos.size() < lote && (evento = cola.poll()) != null) {
+            eventos.add(evento);
+        }
+        if (eventos.isEmpty()) {
+            return 0;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(estado ->
+                    jdbcTemplate.batchUpdate(INSERTAR, eventos, eventos.size(), (ps, e) -> {
+                        ps.setLong(1, e.getPrestamoId());
+                        ps.setObject(2, e.getUsuarioId(), Types.BIGINT);
+                        ps.setObject(3, e.getLibroId(), Types.BIGINT);
+                        ps.setString(4, e.getTipo().name());
+                        ps.setString(5, e.getEstadoAnterior() != null ? e.getEstadoAnterior().name() : null);
+                        ps.setString(6, e.getEstadoNuevo().name());
+                        ps.setObject(7, e.getDiasRetraso(), Types.INTEGER);
+                        ps.setObject(8, e.getValorMulta(), Types.INTEGER);
+                        ps.setString(9, e.getActor());
+                        ps.setTimestamp(10, Timestamp.valueOf(e.getFecha()));
+                    }));
+        } catch (DataAccessException ex) {
+            // El lote vuelve a la cola conservando su cupo; el historial se ordena por fecha
+            eventos.forEach(cola::offer);
+            logger.warn("No se pudo escribir el diario de préstamos ({} eventos pendientes): {}",
+                    pendientes.get(), ex.getMessage());
+            return 0;
+        }
+        pendientes.addAndGet(-eventos.size());
+        escritos.add(eventos.size());
+        return eventos.size();
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        escribir();
+    }
+
+    // Línea de tiempo completa de un préstamo; se vacía la cola antes de leer para incluir lo más reciente
+    public List<EventoPrestamo> historial(Long prestamoId) {
+        escribir();
+        return eventoPrestamoRepository.findByPrestamoIdOrderByFechaAscIdAsc(prestamoId);
+    }
+
+    public Map<String, Long> estado() {
+        Map<String, Long> estado = new LinkedHashMap<>();
+        estado.put("pendientes", (long) pendientes.get());
+        estado.put("escritos", escritos.sum());
+        estado.put("descartados", descartados.sum());
+        estado.put("capacidad", (long) capacidad);
+        return estado;
+    }
+
+    private static String actorActual() {
+        Authentication autenticacion = SecurityContextHolder.getContext().getAuthentication();
+        return autenticacion != null && autenticacion.getName() != null ? autenticacion.getName() : "sistema";
+    }
+}
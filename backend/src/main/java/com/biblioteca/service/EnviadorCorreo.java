@@ -0,0 +1,13 @@
+package com.biblioteca.service;
+
+import java.util.List;
+
+// Envío de correos de avisos. Recibe un lote para que la implementación reutilice la conexión
+// y devuelve los correos que no se pudieron entregar (esos avisos se reintentan en la próxima ejecución).
+public interface EnviadorCorreo {
+
+    record Correo(Long usuarioId, String destinatario, String asunto, String cuerpo) {
+    }
+
+    List<Correo> enviar(List<Correo> correos);
+}
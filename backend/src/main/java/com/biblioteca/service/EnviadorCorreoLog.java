@@ -0,0 +1,25 @@
+package com.biblioteca.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+// Enviador por defecto (desarrollo): escribe los correos en el log en lugar de enviarlos
+@Service
+@ConditionalOnProperty(name = "biblioteca.notificaciones.enviador", havingValue = "log", matchIfMissing = true)
+public class EnviadorCorreoLog implements EnviadorCorreo {
+
+    private static final Logger logger = LoggerFactory.getLogger(EnviadorCorreoLog.class);
+
+    @Override
+    public List<Correo> enviar(List<Correo> correos) {
+        for (Correo correo : correos) {
+            logger.info("Correo para {} <{}>: {}\n{}", correo.usuarioId(), correo.destinatario(),
+                    correo.asunto(), correo.cuerpo());
+        }
+        return List.of();
+    }
+}
@@ -0,0 +1,72 @@
+package com.biblioteca.service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Envío por SMTP (spring.mail.*). JavaMailSender.send con varios mensajes usa una sola conexión por lote;
+// si el servidor rechaza algunos destinatarios solo esos se devuelven como fallidos.
+@Service
+@ConditionalOnProperty(name = "biblioteca.notificaciones.enviador", havingValue = "smtp")
+public class EnviadorCorreoSmtp implements EnviadorCorreo {
+
+    private final JavaMailSender mailSender;
+    private final String remitente;
+
+    public EnviadorCorreoSmtp(JavaMailSender mailSender,
+                              @Value("${biblioteca.notificaciones.remitente:biblioteca@localhost}") String remitente) {
+        this.mailSender = mailSender;
+        this.remitente = remitente;
+    }
+
+    @Override
+    public List<Correo> enviar(List<Correo> correos) {
+        Map<MimeMessage, Correo> mensajes = new IdentityHashMap<>();
+        List<Correo> fallidos = new ArrayList<>();
+        for (Correo correo : correos) {
+            try {
+                MimeMessage mensaje = mailSender.createMimeMessage();
+                MimeMessageHelper helper = new MimeMessageHelper(mensaje, StandardCharsets.UTF_8.name());
+                helper.setFrom(remitente);
+                helper.setTo(correo.destinatario());
+                helper.setSubject(correo.asunto());
+                helper.setText(correo.cuerpo());
+                mensajes.put(mensaje, correo);
+            } catch (MessagingException e) {
+                // Dirección inválida: no tiene sentido enviarlo al servidor
+                fallidos.add(correo);
+            }
+        }
+        if (mensajes.isEmpty()) {
+            return fallidos;
+        }
+        try {
+            mailSender.send(mensajes.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            for (Object mensaje : e.getFailedMessages().keySet()) {
+                Correo correo = mensajes.get(mensaje);
+                if (correo != null) {
+                    fallidos.add(correo);
+                }
+            }
+            if (e.getFailedMessages().isEmpty()) {
+                fallidos.addAll(mensajes.values());
+            }
+        } catch (MailException e) {
+            fallidos.addAll(mensajes.values());
+        }
+        return fallidos;
+    }
+}
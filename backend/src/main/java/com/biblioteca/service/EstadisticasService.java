@@ -0,0 +1,393 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.EstadisticasResponse;
+import com.biblioteca.model.EstadoPrestamo;
+import com.biblioteca.model.Libro;
+import com.biblioteca.model.Prestamo;
+import com.biblioteca.repository.LibroRepository;
+import com.biblioteca.repository.PrestamoArchivadoRepository;
+import com.biblioteca.repository.PrestamoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Contadores del catálogo y de préstamos mantenidos en memoria. Cada operación aplica su delta
+// al confirmar la transacción; una conciliación periódica los recalcula desde la base de datos
+// y corrige cualquier desviación (p. ej. cambios hechos fuera de la aplicación).
+// Mientras se concilia, los deltas que la foto de la base no incluye se aplican también al estado nuevo
+// (ver alConfirmar y conciliar), así el reemplazo no pierde los préstamos de esos segundos.
+@Service
+public class EstadisticasService implements ReceptorInvalidaciones {
+
+    private static final Logger logger = LoggerFactory.getLogger(EstadisticasService.class);
+
+    private static final long SIN_CATEGORIA = 0L;
+
+    enum Contador {
+        LIBROS("libros"),
+        LIBROS_DISPONIBLES("librosDisponibles"),
+        EJEMPLARES("ejemplares"),
+        EJEMPLARES_DISPONIBLES("ejemplaresDisponibles"),
+        PRESTAMOS("prestamos"),
+        PRESTADOS("prestados"),
+        CON_MULTA("conMulta"),
+        DEVUELTOS("devueltos"),
+        VALOR_MULTAS_PENDIENTES("valorMultasPendientes"),
+        VALOR_MULTAS_COBRADAS("valorMultasCobradas");
+
+        private final String clave;
+
+        Contador(String clave) {
+            this.clave = clave;
+        }
+    }
+
+    private static final Set<Contador> CONTADORES_LIBRO = EnumSet.complementOf(
+            EnumSet.of(Contador.LIBROS, Contador.LIBROS_DISPONIBLES));
+    private static final Set<Contador> CONTADORES_USUARIO = EnumSet.of(
+            Contador.PRESTAMOS, Contador.PRESTADOS, Contador.CON_MULTA, Contador.DEVUELTOS,
+            Contador.VALOR_MULTAS_PENDIENTES, Contador.VALOR_MULTAS_COBRADAS);
+
+    static final class Contadores {
+        private final LongAdder[] valores = new LongAdder[Contador.values().length];
+        private final Set<Contador> expuestos;
+
+        Contadores(Set<Contador> expuestos) {
+            this.expuestos = expuestos;
+            for (int i = 0; i < valores.length; i++) {
+                valores[i] = new LongAdder();
+            }
+        }
+
+        void sumar(Contador contador, long delta) {
+            if (delta != 0) {
+                valores[contador.ordinal()].add(delta);
+            }
+        }
+
+        long valor(Contador contador) {
+            return valores[contador.ordinal()].sum();
+        }
+
+        Map<String, Long> comoMapa() {
+            Map<String, Long> mapa = new LinkedHashMap<>();
+            for (Contador contador : expuestos) {
+                mapa.put(contador.clave, valor(contador));
+            }
+            return mapa;
+        }
+    }
+
+    private record EstadoLibro(long categoriaId, int total, int disponible) {
+    }
+
+    private static final class Estado {
+        final Contadores global = new Contadores(EnumSet.allOf(Contador.class));
+        final ConcurrentHashMap<Long, EstadoLibro> libros = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Long, Contadores> porLibro = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Long, Contadores> porCategoria = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Long, Contadores> porUsuario = new ConcurrentHashMap<>();
+        final LocalDateTime creado = LocalDateTime.now();
+
+        Contadores libro(long id) {
+            return porLibro.computeIfAbsent(id, k -> new Contadores(CONTADORES_LIBRO));
+        }
+
+        Contadores categoria(long id) {
+            return porCategoria.computeIfAbsent(id, k -> new Contadores(EnumSet.allOf(Contador.class)));
+        }
+
+        Contadores usuario(long id) {
+            return porUsuario.computeIfAbsent(id, k -> new Contadores(CONTADORES_USUARIO));
+        }
+    }
+
+    private final LibroRepository libroRepository;
+    private final PrestamoRepository prestamoRepository;
+    private final PrestamoArchivadoRepository prestamoArchivadoRepository;
+
+    // Estado en construcción y libros que cambiaron después de la foto; null fuera de la conciliación
+    private record Conciliacion(Estado estado, Set<Long> librosTocados) {
+    }
+
+    private volatile Estado estado = new Estado();
+    private volatile Conciliacion enCurso;
+    // Lectura: commits con deltas pendientes de aplicar. Escritura: la foto de conciliar y el reemplazo del estado
+    private final ReentrantReadWriteLock commits = new ReentrantReadWriteLock();
+
+    public EstadisticasService(LibroRepository libroRepository, PrestamoRepository prestamoRepository,
+                               PrestamoArchivadoRepository prestamoArchivadoRepository) {
+        this.libroRepository = libroRepository;
+        this.prestamoRepository = prestamoRepository;
+        this.prestamoArchivadoRepository = prestamoArchivadoRepository;
+    }
+
+    public void registrarLibro(Libro libro) {
+        long libroId = libro.getId();
+        EstadoLibro nuevo = new EstadoLibro(categoriaId(libro), libro.getCantidadTotal(), libro.getCantidadDisponible());
+        alConfirmar(() -> cambiarLibro(libroId, nuevo));
+    }
+
+    public void registrarLibroEliminado(Long libroId) {
+        alConfirmar(() -> cambiarLibro(libroId, null));
+    }
+
+    // Inventario de libros cambiado en otro nodo; sin ids se concilia todo desde la base (por eso la transacción)
+    @Override
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void invalidar(BusInvalidaciones.Tipo tipo, Set<Long> ids) {
+        if (tipo != BusInvalidaciones.Tipo.LIBRO) {
+            return;
+        }
+        if (ids == null) {
+            conciliar();
+            return;
+        }
+        Set<Long> ausentes = new HashSet<>(ids);
+        List<Libro> libros = libroRepository.findAllById(ids);
+        conBloqueoDeLectura(() -> {
+            for (Libro libro : libros) {
+                ausentes.remove(libro.getId());
+                cambiarLibro(libro.getId(),
+                        new EstadoLibro(categoriaId(libro), libro.getCantidadTotal(), libro.getCantidadDisponible()));
+            }
+            ausentes.forEach(id -> cambiarLibro(id, null));
+        });
+    }
+
+    // Registra un cambio de estado de un préstamo; anterior es null para préstamos nuevos
+    public void registrarPrestamo(Prestamo prestamo, EstadoPrestamo anterior, int valorMultaAnterior) {
+        long libroId = prestamo.getLibro().getId();
+        long categoriaId = categoriaId(prestamo.getLibro());
+        long usuarioId = prestamo.getUsuario().getId();
+        EstadoPrestamo nuevo = prestamo.getEstado();
+        int valorMulta = prestamo.getValorMulta() != null ? prestamo.getValorMulta() : 0;
+        if (anterior == nuevo && valorMultaAnterior == valorMulta) {
+            return;
+        }
+        alConfirmar(() -> {
+            sumarPrestamo(estado, libroId, categoriaId, usuarioId, anterior, nuevo, valorMultaAnterior, valorMulta);
+            Conciliacion conciliacion = enCurso;
+            if (conciliacion != null) {
+                sumarPrestamo(conciliacion.estado(), libroId, categoriaId, usuarioId, anterior, nuevo, valorMultaAnterior, valorMulta);
+            }
+        });
+    }
+
+    private void sumarPrestamo(Estado destino, long libroId, long categoriaId, long usuarioId, EstadoPrestamo anterior,
+                               EstadoPrestamo nuevo, int valorMultaAnterior, int valorMulta) {
+        Contadores[] ambitos = {destino.global, destino.categoria(categoriaId), destino.libro(libroId), destino.usuario(usuarioId)};
+        for (Contadores contadores : ambitos) {
+            if (anterior == null) {
+                contadores.sumar(Contador.PRESTAMOS, 1);
+            } else {
+                contadores.sumar(contadorDe(anterior), -1);
+                if (anterior == EstadoPrestamo.MULTA) {
+                    contadores.sumar(Contador.VALOR_MULTAS_PENDIENTES, -valorMultaAnterior);
+                }
+            }
+            contadores.sumar(contadorDe(nuevo), 1);
+            if (nuevo == EstadoPrestamo.MULTA) {
+                contadores.sumar(Contador.VALOR_MULTAS_PENDIENTES, valorMulta);
+            } else if (nuevo == EstadoPrestamo.DEVUELTO && anterior == EstadoPrestamo.MULTA) {
+                contadores.sumar(Contador.VALOR_MULTAS_COBRADAS, valorMulta);
+            }
+        }
+    }
+
+    public EstadisticasResponse consultar(Long libroId, Long categoriaId, Long usuarioId) {
+        Estado actual = estado;
+        EstadisticasResponse respuesta = new EstadisticasResponse();
+        respuesta.setGlobal(actual.global.comoMapa());
+        // Consultas de ids inexistentes no deben crear entradas nuevas
+        if (libroId != null) {
+            respuesta.setLibro(actual.porLibro.getOrDefault(libroId, new Contadores(CONTADORES_LIBRO)).comoMapa());
+        }
+        if (categoriaId != null) {
+            respuesta.setCategoria(actual.porCategoria.getOrDefault(categoriaId, new Contadores(EnumSet.allOf(Contador.class))).comoMapa());
+        }
+        if (usuarioId != null) {
+            respuesta.setUsuario(actual.porUsuario.getOrDefault(usuarioId, new Contadores(CONTADORES_USUARIO)).comoMapa());
+        }
+        respuesta.setUltimaConciliacion(actual.creado);
+        return respuesta;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${biblioteca.estadisticas.conciliacion-ms:600000}",
+            initialDelayString = "${biblioteca.estadisticas.conciliacion-ms:600000}")
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public synchronized void conciliar() {
+        Conciliacion conciliacion = new Conciliacion(new Estado(), ConcurrentHashMap.newKeySet());
+        Estado nuevo = conciliacion.estado();
+        List<Object[]> inventario;
+        // Con REPEATABLE READ la primera consulta fija la foto de toda la transacción. Se toma sin commits a
+        // medio aplicar: lo confirmado antes está en la foto; lo que se confirme después llega como delta
+        // a los dos estados. Bajo el bloqueo solo va un SELECT 1, así los préstamos no esperan el recorrido
+        // de libros
+        commits.writeLock().lock();
+        try {
+            libroRepository.fijarFoto();
+            enCurso = conciliacion;
+        } finally {
+            commits.writeLock().unlock();
+        }
+        inventario = libroRepository.findResumenInventario();
+        for (Object[] fila : inventario) {
+            long categoriaId = fila[1] != null ? (Long) fila[1] : SIN_CATEGORIA;
+            aplicarLibroDeFoto(conciliacion, (Long) fila[0], new EstadoLibro(categoriaId, (Integer) fila[2], (Integer) fila[3]));
+        }
+        // Los préstamos archivados siguen contando como devueltos
+        List<Object[]> resumen = new ArrayList<>(prestamoRepository.findResumenPorLibroUsuarioEstado());
+        resumen.addAll(prestamoArchivadoRepository.findResumenPorLibroUsuarioEstado());
+        for (Object[] fila : resumen) {
+            long libroId = (Long) fila[0];
+            long categoriaId = fila[1] != null ? (Long) fila[1] : SIN_CATEGORIA;
+            long usuarioId = (Long) fila[2];
+            EstadoPrestamo estadoPrestamo = (EstadoPrestamo) fila[3];
+            long cantidad = (Long) fila[4];
+            long valorMultas = ((Number) fila[5]).longValue();
+            Contadores[] ambitos = {nuevo.global, nuevo.categoria(categoriaId), nuevo.libro(libroId), nuevo.usuario(usuarioId)};
+            for (Contadores contadores : ambitos) {
+                contadores.sumar(Contador.PRESTAMOS, cantidad);
+                contadores.sumar(contadorDe(estadoPrestamo), cantidad);
+                if (estadoPrestamo == EstadoPrestamo.MULTA) {
+                    contadores.sumar(Contador.VALOR_MULTAS_PENDIENTES, valorMultas);
+                } else if (estadoPrestamo == EstadoPrestamo.DEVUELTO) {
+                    contadores.sumar(Contador.VALOR_MULTAS_COBRADAS, valorMultas);
+                }
+            }
+        }
+        Estado anterior;
+        commits.writeLock().lock();
+        try {
+            anterior = estado;
+            estado = nuevo;
+            enCurso = null;
+        } finally {
+            commits.writeLock().unlock();
+        }
+        logger.info("Estadísticas conciliadas: préstamos activos {} (antes {})",
+                activos(nuevo.global), activos(anterior.global));
+    }
+
+    // Aplica el cambio al confirmar la transacción. El bloqueo de lectura va de beforeCommit a afterCompletion:
+    // así ningún commit queda a medias cuando conciliar toma su foto o reemplaza el estado
+    private void alConfirmar(Runnable cambio) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            conBloqueoDeLectura(cambio);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean bloqueado;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commits.readLock().lock();
+                bloqueado = true;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (!bloqueado) {
+                    return;
+                }
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        cambio.run();
+                    }
+                } finally {
+                    commits.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    private void conBloqueoDeLectura(Runnable cambio) {
+        commits.readLock().lock();
+        try {
+            cambio.run();
+        } finally {
+            commits.readLock().unlock();
+        }
+    }
+
+    private void cambiarLibro(long libroId, EstadoLibro nuevo) {
+        aplicarLibro(estado, libroId, nuevo);
+        Conciliacion conciliacion = enCurso;
+        if (conciliacion != null) {
+            // La fila de la foto de este libro ya quedó vieja: no debe pisar este valor
+            conciliacion.librosTocados().add(libroId);
+            aplicarLibro(conciliacion.estado(), libroId, nuevo);
+        }
+    }
+
+    private void aplicarLibroDeFoto(Conciliacion conciliacion, long libroId, EstadoLibro deFoto) {
+        conciliacion.estado().libros.compute(libroId, (id, previo) -> {
+            if (conciliacion.librosTocados().contains(libroId)) {
+                return previo;
+            }
+            sumarLibro(conciliacion.estado(), libroId, deFoto, 1);
+            return deFoto;
+        });
+    }
+
+    private void aplicarLibro(Estado destino, long libroId, EstadoLibro nuevo) {
+        // compute serializa los cambios de un mismo libro para que los deltas sean consistentes
+        destino.libros.compute(libroId, (id, previo) -> {
+            if (previo != null) {
+                sumarLibro(destino, libroId, previo, -1);
+            }
+            if (nuevo != null) {
+                sumarLibro(destino, libroId, nuevo, 1);
+            }
+            return nuevo;
+        });
+    }
+
+    private void sumarLibro(Estado destino, long libroId, EstadoLibro libro, int signo) {
+        Contadores[] ambitos = {destino.global, destino.categoria(libro.categoriaId()), destino.libro(libroId)};
+        for (Contadores contadores : ambitos) {
+            contadores.sumar(Contador.LIBROS, signo);
+            contadores.sumar(Contador.LIBROS_DISPONIBLES, libro.disponible() > 0 ? signo : 0);
+            contadores.sumar(Contador.EJEMPLARES, (long) signo * libro.total());
+            contadores.sumar(Contador.EJEMPLARES_DISPONIBLES, (long) signo * libro.disponible());
+        }
+    }
+
+    private static long activos(Contadores contadores) {
+        return contadores.valor(Contador.PRESTADOS) + contadores.valor(Contador.CON_MULTA);
+    }
+
+    private static Contador contadorDe(EstadoPrestamo estadoPrestamo) {
+        return switch (estadoPrestamo) {
+            case PRESTADO -> Contador.PRESTADOS;
+            case MULTA -> Contador.CON_MULTA;
+            case DEVUELTO -> Contador.DEVUELTOS;
+        };
+    }
+
+    private static long categoriaId(Libro libro) {
+        return libro.getCategoria() != null && libro.getCategoria().getId() != null
+                ? libro.getCategoria().getId() : SIN_CATEGORIA;
+    }
+}
@@ -0,0 +1,445 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.CatalogoFacetado;
+import com.biblioteca.model.Libro;
+import com.biblioteca.repository.LibroRepository;
+import com.biblioteca.util.LongIntHashMap;
+import com.biblioteca.util.LongObjectHashMap;
+import com.biblioteca.util.Texto;
+import com.biblioteca.util.Transacciones;
+import com.biblioteca.util.Trigramas;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntConsumer;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// Índice de facetas del catálogo en memoria: cada libro recibe un ordinal denso y cada valor de faceta
+// (categoría, inicial del autor, disponibilidad) guarda el conjunto de ordinales en un bitmap comprimido.
+// Filtrar es intersecar bitmaps y contar una faceta es un andCardinality por valor, sin consultas ni
+// GROUP BY. El texto se indexa por trigramas (título y autor sin tildes): la búsqueda exacta solo revisa
+// los libros que tienen todos los trigramas de la consulta, y si no hay ninguno se pasa a la búsqueda
+// aproximada, que puntúa por trigramas en común y propone un "quizás quisiste decir". Se mantiene con
+// cada escritura de Libro (OyenteCambiosLibro) y se recarga periódicamente para recoger cambios de otros
+// nodos y compactar los ordinales de libros eliminados.
+@Service
+public class IndiceCatalogo implements ReceptorInvalidaciones {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndiceCatalogo.class);
+
+    private static final long SIN_CATEGORIA = 0L;
+    private static final String SIN_INICIAL = "#";
+    private static final RoaringBitmap VACIO = new RoaringBitmap();
+    private static final int MAX_APROXIMADOS = 1000;
+
+    // texto: título y autor normalizados, para el filtro de texto libre; trigramas: cuántos distintos tiene
+    private record Entrada(long id, long categoriaId, String inicial, boolean disponible, String texto, int trigramas) {
+
+        static Entrada de(long id, String titulo, String autor, Long categoriaId, int cantidadDisponible) {
+            String texto = Texto.normalizar(titulo) + " " + Texto.normalizar(autor);
+            return new Entrada(id, categoriaId == null ? SIN_CATEGORIA : categoriaId, inicialDe(autor),
+                    cantidadDisponible > 0, texto, Trigramas.de(texto).length);
+        }
+    }
+
+    // AUTO: exacta y, si no hay ningún libro que contenga el texto, aproximada
+    public enum Modo {
+        AUTO, EXACTO, APROXIMADO
+    }
+
+    // Valores nulos = sin filtrar por esa faceta
+    public record Filtro(String texto, Long categoriaId, String inicial, Boolean disponible, Modo modo) {
+    }
+
+    // Cada faceta se cuenta con los demás filtros aplicados pero no el propio, así cada valor indica
+    // cuántos libros quedarían al elegirlo. Solo se incluyen valores con al menos un libro.
+    // aproximado: los ids vienen de la búsqueda aproximada, del más parecido al menos parecido;
+    // sugerido: id del libro más parecido cuando la búsqueda exacta no encontró nada (null si no aplica)
+    public record Resultado(List<Long> ids, int total, Map<Long, Integer> categorias,
+                            Map<String, Integer> iniciales, int disponibles, int noDisponibles,
+                            boolean aproximado, Long sugerido) {
+    }
+
+    // cobertura: fracción de los trigramas de la consulta presentes en el libro (decide el umbral);
+    // similitud: trigramas en común sobre la unión, desempata a favor de textos más cortos
+    private record Candidato(int ordinal, double cobertura, double similitud) {
+    }
+
+    private static final Comparator<Candidato> MAS_PARECIDO_PRIMERO = Comparator
+            .comparingDouble(Candidato::cobertura).thenComparingDouble(Candidato::similitud).reversed();
+
+    private static final class Indice {
+        // id del libro -> ordinal + 1 (0 = ausente)
+        final LongIntHashMap ordinales = new LongIntHashMap();
+        final List<Entrada> entradas = new ArrayList<>();
+        final RoaringBitmap vivos = new RoaringBitmap();
+        final RoaringBitmap disponibles = new RoaringBitmap();
+        final LongObjectHashMap<RoaringBitmap> porCategoria = new LongObjectHashMap<>();
+        final Map<String, RoaringBitmap> porInicial = new TreeMap<>();
+        final LongObjectHashMap<RoaringBitmap> porTrigrama = new LongObjectHashMap<>();
+
+        void guardar(Entrada entrada) {
+            int ordinal = ordinales.get(entrada.id()) - 1;
+            if (ordinal >= 0) {
+                quitar(ordinal);
+            } else {
+                ordinal = entradas.size();
+                entradas.add(null);
+                ordinales.put(entrada.id(), ordinal + 1);
+            }
+            entradas.set(ordinal, entrada);
+            vivos.add(ordinal);
+            if (entrada.disponible()) {
+                disponibles.add(ordinal);
+            }
+            porCategoria.computeIfAbsent(entrada.categoriaId(), c -> new RoaringBitmap()).add(ordinal);
+            porInicial.computeIfAbsent(entrada.inicial(), i -> new RoaringBitmap()).add(ordinal);
+            for (long trigrama : Trigramas.de(entrada.texto())) {
+                porTrigrama.computeIfAbsent(trigrama, t -> new RoaringBitmap()).add(ordinal);
+            }
+        }
+
+        void eliminar(long id) {
+            int ordinal = ordinales.remove(id) - 1;
+            if (ordinal >= 0) {
+                quitar(ordinal);
+                entradas.set(ordinal, null);
+            }
+        }
+
+        private void quitar(int ordinal) {
+            Entrada anterior = entradas.get(ordinal);
+            vivos.remove(ordinal);
+            disponibles.remove(ordinal);
+            porCategoria.get(anterior.categoriaId()).remove(ordinal);
+            porInicial.get(anterior.inicial()).remove(ordinal);
+            for (long trigrama : Trigramas.de(anterior.texto())) {
+                porTrigrama.get(trigrama).remove(ordinal);
+            }
+        }
+    }
+
+    private final LibroRepository libroRepository;
+    private final double similitudMinima;
+    private final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+
+    private Indice indice = new Indice();
+    // Cambios llegados mientras se arma un índice nuevo; se vuelven a aplicar sobre él antes de publicarlo
+    private List<Consumer<Indice>> pendientes;
+
+    public IndiceCatalogo(LibroRepository libroRepository,
+                          @Value("${biblioteca.catalogo.similitud-minima:0.5}") double similitudMinima) {
+        this.libroRepository = libroRepository;
+        this.similitudMinima = similitudMinima;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${biblioteca.catalogo.recarga-ms:900000}",
+            initialDelayString = "${biblioteca.catalogo.recarga-ms:900000}")
+    public synchronized void recargar() {
+        long inicio = System.currentTimeMillis();
+        candado.writeLock().lock();
+        try {
+            pendientes = new ArrayList<>();
+        } finally {
+            candado.writeLock().unlock();
+        }
+        Indice nuevo = new Indice();
+        try {
+            for (Object[] fila : libroRepository.findResumenCatalogo()) {
+                nuevo.guardar(Entrada.de((Long) fila[0], (String) fila[1], (String) fila[2],
+                        (Long) fila[3], (Integer) fila[4]));
+            }
+        } catch (RuntimeException e) {
+            // Se conserva el índice actual, que siguió recibiendo los cambios
+            candado.writeLock().lock();
+            try {
+                pendientes = null;
+            } finally {
+                candado.writeLock().unlock();
+            }
+            throw e;
+        }
+        candado.writeLock().lock();
+        try {
+            pendientes.forEach(cambio -> cambio.accept(nuevo));
+            indice = nuevo;
+            pendientes = null;
+        } finally {
+            candado.writeLock().unlock();
+        }
+        logger.info("Índice de facetas cargado: {} libros en {} ms",
+                nuevo.vivos.getCardinality(), System.currentTimeMillis() - inicio);
+    }
+
+    // Llamados por OyenteCambiosLibro; el índice solo cambia si la transacción confirma
+    public void registrar(Libro libro) {
+        Entrada entrada = Entrada.de(libro.getId(), libro.getTitulo(), libro.getAutor(),
+                libro.getCategoria() != null ? libro.getCategoria().getId() : null, libro.getCantidadDisponible());
+        Transacciones.despuesDeCommit(() -> aplicar(i -> i.guardar(entrada)));
+    }
+
+    public void eliminar(Long libroId) {
+        long id = libroId;
+        Transacciones.despuesDeCommit(() -> aplicar(i -> i.eliminar(id)));
+    }
+
+    // Libros que cambiaron en otro nodo: se releen de la base; los que ya no están se quitan
+    @Override
+    public void invalidar(BusInvalidaciones.Tipo tipo, Set<Long> ids) {
+        if (tipo != BusInvalidaciones.Tipo.LIBRO) {
+            return;
+        }
+        if (ids == null) {
+            recargar();
+            return;
+        }
+        Set<Long> ausentes = new HashSet<>(ids);
+        for (Object[] fila : libroRepository.findResumenCatalogo(ids)) {
+            Entrada entrada = Entrada.de((Long) fila[0], (String) fila[1], (String) fila[2],
+                    (Long) fila[3], (Integer) fila[4]);
+            ausentes.remove((Long) fila[0]);
+            aplicar(i -> i.guardar(entrada));
+        }
+        for (Long id : ausentes) {
+            long libroId = id;
+            aplicar(i -> i.eliminar(libroId));
+        }
+    }
+
+    private void aplicar(Consumer<Indice> cambio) {
+        candado.writeLock().lock();
+        try {
+            cambio.accept(indice);
+            if (pendientes != null) {
+                pendientes.add(cambio);
+            }
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    public Resultado buscar(Filtro filtro, int desde, int limite) {
+        candado.readLock().lock();
+        try {
+            Indice i = indice;
+            String buscado = Texto.normalizar(filtro.texto());
+            Modo modo = filtro.modo() != null ? filtro.modo() : Modo.AUTO;
+            RoaringBitmap texto = null;
+            List<Candidato> aproximados = null;
+            Long sugerido = null;
+            if (!buscado.isEmpty()) {
+                if (modo != Modo.APROXIMADO) {
+                    texto = coincidenciasExactas(i, buscado);
+                }
+                if (modo == Modo.APROXIMADO || (modo == Modo.AUTO && texto.isEmpty())) {
+                    aproximados = similares(i, buscado);
+                    texto = new RoaringBitmap();
+                    for (Candidato candidato : aproximados) {
+                        texto.add(candidato.ordinal());
+                    }
+                    if (modo == Modo.AUTO && !aproximados.isEmpty()) {
+                        sugerido = i.entradas.get(aproximados.get(0).ordinal()).id();
+                    }
+                }
+            }
+            RoaringBitmap categoria = filtro.categoriaId() == null ? null
+                    : valorO(i.porCategoria.get(filtro.categoriaId()));
+            RoaringBitmap inicial = filtro.inicial() == null || filtro.inicial().isBlank() ? null
+                    : valorO(i.porInicial.get(inicialDe(filtro.inicial())));
+            RoaringBitmap disponibilidad = filtro.disponible() == null ? null
+                    : filtro.disponible() ? i.disponibles : RoaringBitmap.andNot(i.vivos, i.disponibles);
+
+            RoaringBitmap resultado = interseccion(i.vivos, texto, categoria, inicial, disponibilidad);
+
+            Map<Long, Integer> categorias = new TreeMap<>();
+            RoaringBitmap sinCategoria = interseccion(i.vivos, texto, inicial, disponibilidad);
+            i.porCategoria.forEach((id, bits) -> {
+                int cantidad = RoaringBitmap.andCardinality(sinCategoria, bits);
+                if (cantidad > 0) {
+                    categorias.put(id, cantidad);
+                }
+            });
+
+            Map<String, Integer> iniciales = new TreeMap<>();
+            RoaringBitmap sinInicial = interseccion(i.vivos, texto, categoria, disponibilidad);
+            i.porInicial.forEach((letra, bits) -> {
+                int cantidad = RoaringBitmap.andCardinality(sinInicial, bits);
+                if (cantidad > 0) {
+                    iniciales.put(letra, cantidad);
+                }
+            });
+
+            RoaringBitmap sinDisponibilidad = interseccion(i.vivos, texto, categoria, inicial);
+            int disponibles = RoaringBitmap.andCardinality(sinDisponibilidad, i.disponibles);
+            int noDisponibles = sinDisponibilidad.getCardinality() - disponibles;
+
+            int total = resultado.getCardinality();
+            List<Long> ids = new ArrayList<>();
+            if (aproximados == null) {
+                for (int k = Math.max(desde, 0); k < total && ids.size() < limite; k++) {
+                    ids.add(i.entradas.get(resultado.select(k)).id());
+                }
+            } else {
+                int saltar = Math.max(desde, 0);
+                for (Candidato candidato : aproximados) {
+                    if (ids.size() == limite) {
+                        break;
+                    }
+                    if (resultado.contains(candidato.ordinal()) && saltar-- <= 0) {
+                        ids.add(i.entradas.get(candidato.ordinal()).id());
+                    }
+                }
+            }
+            return new Resultado(ids, total, categorias, iniciales, disponibles, noDisponibles,
+                    aproximados != null, sugerido);
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    // Página de libros completos en el orden del índice (por id) junto con los conteos de facetas
+    public CatalogoFacetado pagina(Filtro filtro, int pagina, int tamano) {
+        Resultado resultado = buscar(filtro, pagina * tamano, tamano);
+        List<Long> buscar = new ArrayList<>(resultado.ids());
+        if (resultado.sugerido() != null) {
+            buscar.add(resultado.sugerido());
+        }
+        Map<Long, Libro> porId = new HashMap<>();
+        for (Libro libro : libroRepository.findAllById(buscar)) {
+            porId.put(libro.getId(), libro);
+        }
+        List<Libro> libros = new ArrayList<>();
+        for (Long id : resultado.ids()) {
+            Libro libro = porId.get(id);
+            if (libro != null) {
+                libros.add(libro);
+            }
+        }
+        return new CatalogoFacetado(libros, resultado.total(), resultado.categorias(),
+                resultado.iniciales(), resultado.disponibles(), resultado.noDisponibles(), resultado.aproximado(),
+                sugerencia(porId.get(resultado.sugerido()), filtro.texto()));
+    }
+
+    // Del libro más parecido se propone el título o el autor, el que mejor cubra lo buscado
+    private static String sugerencia(Libro libro, String texto) {
+        if (libro == null) {
+            return null;
+        }
+        long[] consulta = Trigramas.de(Texto.normalizar(texto));
+        double porTitulo = Trigramas.cobertura(consulta, Trigramas.de(Texto.normalizar(libro.getTitulo())));
+        double porAutor = Trigramas.cobertura(consulta, Trigramas.de(Texto.normalizar(libro.getAutor())));
+        return porAutor > porTitulo ? libro.getAutor() : libro.getTitulo();
+    }
+
+    // Libros cuyo texto contiene al buscado: se verifican solo los que tienen todos sus trigramas interiores
+    private static RoaringBitmap coincidenciasExactas(Indice i, String buscado) {
+        long[] requeridos = Trigramas.interiores(buscado);
+        RoaringBitmap candidatos = i.vivos;
+        if (requeridos.length > 0) {
+            RoaringBitmap[] listas = new RoaringBitmap[requeridos.length];
+            for (int k = 0; k < requeridos.length; k++) {
+                listas[k] = i.porTrigrama.get(requeridos[k]);
+                if (listas[k] == null) {
+                    return new RoaringBitmap();
+                }
+            }
+            candidatos = FastAggregation.and(listas);
+        }
+        RoaringBitmap coincidencias = new RoaringBitmap();
+        PeekableIntIterator it = candidatos.getIntIterator();
+        while (it.hasNext()) {
+            int ordinal = it.next();
+            if (i.entradas.get(ordinal).texto().contains(buscado)) {
+                coincidencias.add(ordinal);
+            }
+        }
+        return coincidencias;
+    }
+
+    // Los MAX_APROXIMADOS libros más parecidos con cobertura >= similitudMinima, del más parecido al menos.
+    // Un libro que comparte al menos "necesarios" de los n trigramas de la consulta tiene que aparecer en
+    // alguna de las n - necesarios + 1 listas más cortas, así que los candidatos salen de esas; los trigramas
+    // frecuentes (" de") solo suman en los candidatos, intersecando su lista con ellos antes de contar.
+    private List<Candidato> similares(Indice i, String buscado) {
+        long[] consulta = Trigramas.de(buscado);
+        if (consulta.length == 0) {
+            return List.of();
+        }
+        RoaringBitmap[] listas = new RoaringBitmap[consulta.length];
+        for (int k = 0; k < consulta.length; k++) {
+            listas[k] = valorO(i.porTrigrama.get(consulta[k]));
+        }
+        Arrays.sort(listas, Comparator.comparingInt(RoaringBitmap::getCardinality));
+        int necesarios = Math.max(1, (int) Math.ceil(similitudMinima * consulta.length));
+        RoaringBitmap candidatos = FastAggregation.or(Arrays.copyOf(listas, consulta.length - necesarios + 1));
+        short[] cuentas = new short[i.entradas.size()];
+        for (RoaringBitmap lista : listas) {
+            RoaringBitmap.and(lista, candidatos).forEach((IntConsumer) ordinal -> cuentas[ordinal]++);
+        }
+
+        PriorityQueue<Candidato> mejores = new PriorityQueue<>(MAS_PARECIDO_PRIMERO.reversed());
+        PeekableIntIterator it = candidatos.getIntIterator();
+        while (it.hasNext()) {
+            int ordinal = it.next();
+            int comunes = cuentas[ordinal];
+            if (comunes < necesarios) {
+                continue;
+            }
+            int trigramas = i.entradas.get(ordinal).trigramas();
+            Candidato candidato = new Candidato(ordinal, comunes / (double) consulta.length,
+                    comunes / (double) (consulta.length + trigramas - comunes));
+            if (mejores.size() < MAX_APROXIMADOS) {
+                mejores.add(candidato);
+            } else if (MAS_PARECIDO_PRIMERO.compare(candidato, mejores.peek()) < 0) {
+                mejores.poll();
+                mejores.add(candidato);
+            }
+        }
+        List<Candidato> ordenados = new ArrayList<>(mejores);
+        ordenados.sort(MAS_PARECIDO_PRIMERO);
+        return ordenados;
+    }
+
+    private static RoaringBitmap interseccion(RoaringBitmap base, RoaringBitmap... filtros) {
+        RoaringBitmap resultado = base.clone();
+        for (RoaringBitmap filtro : filtros) {
+            if (filtro != null) {
+                resultado.and(filtro);
+            }
+        }
+        return resultado;
+    }
+
+    private static RoaringBitmap valorO(RoaringBitmap bits) {
+        return bits != null ? bits : VACIO;
+    }
+
+    // Primera letra del autor sin tildes y en mayúscula; "#" si empieza por otra cosa
+    private static String inicialDe(String autor) {
+        String normalizado = Texto.normalizar(autor);
+        if (normalizado.isEmpty() || !Character.isLetter(normalizado.charAt(0))) {
+            return SIN_INICIAL;
+        }
+        return String.valueOf(Character.toUpperCase(normalizado.charAt(0)));
+    }
+}
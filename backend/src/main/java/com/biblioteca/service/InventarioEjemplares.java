@@ -0,0 +1,222 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.Ejemplar;
+import com.biblioteca.model.EstadoEjemplar;
+import com.biblioteca.model.Libro;
+import com.biblioteca.repository.EjemplarRepository;
+import com.biblioteca.repository.LibroRepository;
+import com.biblioteca.util.Transacciones;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Inventario por copia física. La tabla ejemplares es la fuente de verdad; en memoria se guarda un mapa
+// de bits por título para elegir en O(1) la primera copia libre al prestar. La elección se confirma con
+// un UPDATE condicional (DISPONIBLE -> PRESTADO), así que un mapa desactualizado (otro nodo, baja) solo
+// cuesta un reintento. Las cantidades de Libro siguen mandando sobre la disponibilidad y las reservas;
+// las copias indican cuál se entregó.
+@Service
+public class InventarioEjemplares implements ReceptorInvalidaciones {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventarioEjemplares.class);
+
+    // Crea las copias de los libros que todavía no tienen ninguna, una por unidad de cantidadTotal. El código
+    // es el mismo de codigoBarras(): lpad trunca, así que el ancho nunca baja del largo del número (como %06d)
+    private static final String MIGRAR_COPIAS = "INSERT INTO ejemplares (libro_id, numero, codigo_barras, estado, fecha_alta) "
+            + "SELECT l.id, g.n, 'LIB' || lpad(l.id::text, greatest(6, length(l.id::text)), '0') || '-' "
+            + "|| lpad((g.n + 1)::text, greatest(3, length((g.n + 1)::text)), '0'), 'DISPONIBLE', now() "
+            + "FROM libros l CROSS JOIN LATERAL generate_series(0, l.cantidad_total - 1) AS g(n) "
+            + "WHERE NOT EXISTS (SELECT 1 FROM ejemplares e WHERE e.libro_id = l.id)";
+
+    // Asocia los préstamos en curso sin copia a las copias libres de su libro, en orden
+    private static final String MIGRAR_PRESTAMOS = "WITH pendientes AS ("
+            + "SELECT p.id, p.libro_id, row_number() OVER (PARTITION BY p.libro_id ORDER BY p.id) AS n FROM prestamos p "
+            + "WHERE p.ejemplar_id IS NULL AND p.fecha_devolucion IS NULL AND p.estado IN ('PRESTADO', 'MULTA')), "
+            + "libres AS (SELECT e.id, e.libro_id, row_number() OVER (PARTITION BY e.libro_id ORDER BY e.numero) AS n "
+            + "FROM ejemplares e WHERE e.estado = 'DISPONIBLE' "
+            + "AND NOT EXISTS (SELECT 1 FROM prestamos q WHERE q.ejemplar_id = e.id AND q.fecha_devolucion IS NULL)) "
+            + "UPDATE prestamos p SET ejemplar_id = l.id FROM pendientes x JOIN libres l "
+            + "ON l.libro_id = x.libro_id AND l.n = x.n WHERE p.id = x.id";
+
+    private static final String MIGRAR_ESTADOS = "UPDATE ejemplares e SET estado = 'PRESTADO' WHERE e.estado = 'DISPONIBLE' "
+            + "AND EXISTS (SELECT 1 FROM prestamos p WHERE p.ejemplar_id = e.id AND p.fecha_devolucion IS NULL)";
+
+    private final EjemplarRepository ejemplarRepository;
+    private final LibroRepository libroRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentHashMap<Long, MapaEjemplares> mapas = new ConcurrentHashMap<>();
+
+    public InventarioEjemplares(EjemplarRepository ejemplarRepository,
+                                LibroRepository libroRepository,
+                                JdbcTemplate jdbcTemplate) {
+        this.ejemplarRepository = ejemplarRepository;
+        this.libroRepository = libroRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Migración idempotente de las cantidades a copias y carga de los mapas
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrarYCargar() {
+        int copias = jdbcTemplate.update(MIGRAR_COPIAS);
+        int prestamos = jdbcTemplate.update(MIGRAR_PRESTAMOS);
+        int prestadas = jdbcTemplate.update(MIGRAR_ESTADOS);
+        if (copias > 0 || prestamos > 0) {
+            logger.info("Inventario por ejemplar migrado: {} copia(s) creadas, {} préstamo(s) asociados, {} copia(s) prestadas",
+                    copias, prestamos, prestadas);
+        }
+        mapas.clear();
+        List<Object[]> filas = ejemplarRepository.findMapa();
+        for (Object[] fila : filas) {
+            mapas.computeIfAbsent((Long) fila[0], id -> new MapaEjemplares())
+                    .agregar((Integer) fila[1], (Long) fila[2], fila[3] == EstadoEjemplar.DISPONIBLE);
+        }
+        logger.info("Mapas de ejemplares cargados: {} copia(s) en {} libro(s)", filas.size(), mapas.size());
+    }
+
+    public static String codigoBarras(long libroId, int numero) {
+        return String.format(Locale.ROOT, "LIB%06d-%03d", libroId, numero + 1);
+    }
+
+    public static String normalizarCodigo(String codigo) {
+        return codigo == null ? "" : codigo.trim().toUpperCase(Locale.ROOT);
+    }
+
+    // Entrega la primera copia libre del libro dentro de la transacción del préstamo; nulo si no hay
+    // ninguna registrada (el préstamo sigue valiendo por las cantidades)
+    @Transactional
+    public Ejemplar asignar(Libro libro) {
+        Long libroId = libro.getId();
+        MapaEjemplares mapa = mapa(libroId);
+        for (int intento = 0; intento < 2; intento++) {
+            int numero;
+            while ((numero = mapa.tomar()) >= 0) {
+                Optional<Ejemplar> ejemplar = ejemplarRepository.findById(mapa.id(numero));
+                if (ejemplar.isPresent()
+                        && ejemplarRepository.cambiarEstado(ejemplar.get().getId(), EstadoEjemplar.DISPONIBLE, EstadoEjemplar.PRESTADO) == 1) {
+                    ejemplar.get().setEstado(EstadoEjemplar.PRESTADO);
+                    int tomado = numero;
+                    MapaEjemplares deLaCopia = mapa;
+                    Transacciones.siRevierte(() -> deLaCopia.liberar(tomado));
+                    return ejemplar.get();
+                }
+                // Prestada desde otro nodo o dada de baja: el bit queda apagado y se prueba la siguiente
+            }
+            if (intento == 0) {
+                mapa = recargar(libroId);
+            }
+        }
+        logger.warn("El libro {} tiene unidades disponibles pero ninguna copia libre registrada", libroId);
+        return null;
+    }
+
+    @Transactional
+    public void devolver(Ejemplar ejemplar) {
+        if (ejemplar == null) {
+            return;
+        }
+        if (ejemplarRepository.cambiarEstado(ejemplar.getId(), EstadoEjemplar.PRESTADO, EstadoEjemplar.DISPONIBLE) == 1) {
+            ejemplar.setEstado(EstadoEjemplar.DISPONIBLE);
+            long libroId = ejemplar.getLibro().getId();
+            int numero = ejemplar.getNumero();
+            Transacciones.despuesDeCommit(() -> mapa(libroId).liberar(numero));
+        }
+    }
+
+    // Iguala las copias vigentes a cantidadTotal: crea las que faltan o da de baja copias libres
+    @Transactional
+    public void ajustar(Libro libro) {
+        long vigentes = ejemplarRepository.countByLibroIdAndEstadoNot(libro.getId(), EstadoEjemplar.BAJA);
+        long diferencia = libro.getCantidadTotal() - vigentes;
+        if (diferencia > 0) {
+            crear(libro, (int) diferencia);
+        } else if (diferencia < 0) {
+            darDeBaja(libro, (int) -diferencia);
+        }
+    }
+
+    private void crear(Libro libro, int cantidad) {
+        int siguiente = ejemplarRepository.findMaxNumero(libro.getId()) + 1;
+        LocalDateTime ahora = LocalDateTime.now();
+        for (int i = 0; i < cantidad; i++) {
+            int numero = siguiente + i;
+            Ejemplar ejemplar = ejemplarRepository.save(new Ejemplar(null, libro, numero,
+                    codigoBarras(libro.getId(), numero), EstadoEjemplar.DISPONIBLE, ahora));
+            long id = ejemplar.getId();
+            Transacciones.despuesDeCommit(() -> mapa(libro.getId()).agregar(numero, id, true));
+        }
+    }
+
+    private void darDeBaja(Libro libro, int cantidad) {
+        List<Ejemplar> libres = ejemplarRepository.findByLibroIdAndEstadoOrderByNumeroDesc(libro.getId(), EstadoEjemplar.DISPONIBLE);
+        if (libres.size() < cantidad) {
+            throw new IllegalStateException("Solo se pueden dar de baja ejemplares que estén en la biblioteca: hay "
+                    + libres.size() + " libre(s) y se intentan quitar " + cantidad);
+        }
+        MapaEjemplares mapa = mapa(libro.getId());
+        for (Ejemplar ejemplar : libres.subList(0, cantidad)) {
+            ejemplar.setEstado(EstadoEjemplar.BAJA);
+            ejemplarRepository.save(ejemplar);
+            int numero = ejemplar.getNumero();
+            // Se apaga ya para que ningún préstamo concurrente la elija
+            mapa.ocupar(numero);
+            Transacciones.siRevierte(() -> mapa.liberar(numero));
+            Transacciones.despuesDeCommit(() -> mapa.quitar(numero));
+        }
+    }
+
+    // Borra el libro junto con sus copias (sin historial de préstamos, si no la clave foránea lo impide)
+    @Transactional
+    public void eliminarLibro(Long libroId) {
+        ejemplarRepository.deleteByLibroId(libroId);
+        libroRepository.deleteById(libroId);
+        Transacciones.despuesDeCommit(() -> mapas.remove(libroId));
+    }
+
+    public Optional<Ejemplar> buscarPorCodigo(String codigo) {
+        return ejemplarRepository.findByCodigoBarras(normalizarCodigo(codigo));
+    }
+
+    public List<Ejemplar> ejemplaresDe(Long libroId) {
+        return ejemplarRepository.findByLibroIdOrderByNumero(libroId);
+    }
+
+    // Un libro que cambió en otro nodo (préstamo, devolución, ajuste de copias) pudo mover sus copias: el mapa
+    // se descarta y se vuelve a leer la próxima vez que se use
+    @Override
+    public void invalidar(BusInvalidaciones.Tipo tipo, Set<Long> ids) {
+        if (tipo != BusInvalidaciones.Tipo.LIBRO) {
+            return;
+        }
+        if (ids == null) {
+            mapas.clear();
+        } else {
+            ids.forEach(mapas::remove);
+        }
+    }
+
+    private MapaEjemplares mapa(Long libroId) {
+        MapaEjemplares mapa = mapas.get(libroId);
+        return mapa != null ? mapa : recargar(libroId);
+    }
+
+    private MapaEjemplares recargar(Long libroId) {
+        MapaEjemplares mapa = new MapaEjemplares();
+        for (Object[] fila : ejemplarRepository.findMapaPorLibro(libroId)) {
+            mapa.agregar((Integer) fila[1], (Long) fila[2], fila[3] == EstadoEjemplar.DISPONIBLE);
+        }
+        mapas.put(libroId, mapa);
+        return mapa;
+    }
+}
@@ -0,0 +1,50 @@
+package com.biblioteca.service;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Disponibilidad de las copias de un título: bit n encendido = la copia número n está libre.
+// Tomar la primera libre es un nextSetBit sobre unas pocas palabras de 64 bits.
+final class MapaEjemplares {
+
+    private long[] ids = new long[4];
+    private final BitSet libres = new BitSet();
+
+    synchronized void agregar(int numero, long ejemplarId, boolean libre) {
+        if (numero >= ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(numero + 1, ids.length * 2));
+        }
+        ids[numero] = ejemplarId;
+        libres.set(numero, libre);
+    }
+
+    synchronized void quitar(int numero) {
+        if (numero < ids.length) {
+            ids[numero] = 0;
+            libres.clear(numero);
+        }
+    }
+
+    // Marca como ocupada y devuelve la primera copia libre, o -1 si no hay
+    synchronized int tomar() {
+        int numero = libres.nextSetBit(0);
+        if (numero >= 0) {
+            libres.clear(numero);
+        }
+        return numero;
+    }
+
+    synchronized void liberar(int numero) {
+        if (numero < ids.length && ids[numero] != 0) {
+            libres.set(numero);
+        }
+    }
+
+    synchronized void ocupar(int numero) {
+        libres.clear(numero);
+    }
+
+    synchronized long id(int numero) {
+        return numero < ids.length ? ids[numero] : 0;
+    }
+}
@@ -0,0 +1,123 @@
+package com.biblioteca.service;
+
+import com.biblioteca.util.LongIntHashMap;
+import com.biblioteca.util.LongObjectHashMap;
+
+// Matriz dispersa libro x libro: cuántos usuarios distintos prestaron ambos libros.
+// Guarda también el historial por usuario para actualizarse con cada préstamo nuevo.
+// No es thread-safe; RecomendacionService la protege con un candado de lectura/escritura.
+public class MatrizCoocurrencia {
+
+    private final LongObjectHashMap<LongIntHashMap> vecinos = new LongObjectHashMap<>();
+    private final LongObjectHashMap<LongIntHashMap> historiales = new LongObjectHashMap<>();
+    private final LongIntHashMap lectores = new LongIntHashMap();
+
+    // Devuelve false si el usuario ya había prestado el libro (no aporta coocurrencias nuevas)
+    public boolean registrar(long usuarioId, long libroId) {
+        LongIntHashMap historial = historiales.computeIfAbsent(usuarioId, id -> new LongIntHashMap(4));
+        if (historial.containsKey(libroId)) {
+            return false;
+        }
+        LongIntHashMap vecinosLibro = vecinos.computeIfAbsent(libroId, id -> new LongIntHashMap(4));
+        historial.forEach((otroLibro, ignorado) -> {
+            vecinosLibro.addTo(otroLibro, 1);
+            vecinos.computeIfAbsent(otroLibro, id -> new LongIntHashMap(4)).addTo(libroId, 1);
+        });
+        historial.put(libroId, 1);
+        lectores.addTo(libroId, 1);
+        return true;
+    }
+
+    // Combina una matriz construida sobre un conjunto disjunto de usuarios
+    public void combinar(MatrizCoocurrencia otra) {
+        otra.historiales.forEach(historiales::put);
+        otra.lectores.forEach(lectores::addTo);
+        otra.vecinos.forEach((libroId, otrosVecinos) -> {
+            LongIntHashMap propios = vecinos.computeIfAbsent(libroId, id -> new LongIntHashMap(otrosVecinos.size()));
+            otrosVecinos.forEach(propios::addTo);
+        });
+    }
+
+    public int coocurrencias(long libroA, long libroB) {
+        LongIntHashMap vecinosLibro = vecinos.get(libroA);
+        return vecinosLibro != null ? vecinosLibro.get(libroB) : 0;
+    }
+
+    public int libros() {
+        return vecinos.size();
+    }
+
+    // Top-K por similitud coseno (coocurrencias / sqrt(lectoresA * lectoresB)) con un montículo de tamaño K
+    public long[] similares(long libroId, int k) {
+        LongIntHashMap vecinosLibro = vecinos.get(libroId);
+        if (vecinosLibro == null || vecinosLibro.isEmpty() || k <= 0) {
+            return new long[0];
+        }
+        double lectoresLibro = lectores.get(libroId);
+        long[] ids = new long[k];
+        double[] puntajes = new double[k];
+        int[] tamano = {0};
+        vecinosLibro.forEach((otro, coocurrencias) -> {
+            double puntaje = coocurrencias / Math.sqrt(lectoresLibro * Math.max(1, lectores.get(otro)));
+            if (tamano[0] < k) {
+                ids[tamano[0]] = otro;
+                puntajes[tamano[0]] = puntaje;
+                subir(ids, puntajes, tamano[0]++);
+            } else if (puntaje > puntajes[0]) {
+                ids[0] = otro;
+                puntajes[0] = puntaje;
+                bajar(ids, puntajes, k);
+            }
+        });
+        // Extraer del montículo de menor a mayor y devolver en orden descendente
+        int n = tamano[0];
+        long[] resultado = new long[n];
+        for (int i = n - 1; i >= 0; i--) {
+            resultado[i] = ids[0];
+            ids[0] = ids[i];
+            puntajes[0] = puntajes[i];
+            bajar(ids, puntajes, i);
+        }
+        return resultado;
+    }
+
+    private static void subir(long[] ids, double[] puntajes, int i) {
+        while (i > 0) {
+            int padre = (i - 1) >>> 1;
+            if (puntajes[padre] <= puntajes[i]) {
+                return;
+            }
+            intercambiar(ids, puntajes, i, padre);
+            i = padre;
+        }
+    }
+
+    private static void bajar(long[] ids, double[] puntajes, int tamano) {
+        int i = 0;
+        while (true) {
+            int menor = i;
+            int izquierdo = 2 * i + 1;
+            int derecho = izquierdo + 1;
+            if (izquierdo < tamano && puntajes[izquierdo] < puntajes[menor]) {
+                menor = izquierdo;
+            }
+            if (derecho < tamano && puntajes[derecho] < puntajes[menor]) {
+                menor = derecho;
+            }
+            if (menor == i) {
+                return;
+            }
+            intercambiar(ids, puntajes, i, menor);
+            i = menor;
+        }
+    }
+
+    private static void intercambiar(long[] ids, double[] puntajes, int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double puntaje = puntajes[a];
+        puntajes[a] = puntajes[b];
+        puntajes[b] = puntaje;
+    }
+}
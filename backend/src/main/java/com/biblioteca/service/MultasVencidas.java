@@ -0,0 +1,55 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.EjecucionTarea;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+// Recalculo de multas repartido entre nodos: los vencidos sin devolver se cortan en rangos de ids con
+// biblioteca.multas.tramo préstamos cada uno (no por ids consecutivos, que tras archivar quedan con huecos)
+@Service
+public class MultasVencidas implements TareaRepartida {
+
+    public static final String NOMBRE = "multas";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BibliotecaService bibliotecaService;
+    private final int tramo;
+
+    public MultasVencidas(JdbcTemplate jdbcTemplate,
+                          BibliotecaService bibliotecaService,
+                          @Value("${biblioteca.multas.tramo:1000}") int tramo) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bibliotecaService = bibliotecaService;
+        this.tramo = Math.max(1, tramo);
+    }
+
+    @Override
+    public String nombre() {
+        return NOMBRE;
+    }
+
+    @Override
+    public List<long[]> planificar(EjecucionTarea ejecucion) {
+        return jdbcTemplate.query(
+                "SELECT MIN(id), MAX(id) FROM (SELECT id, (ROW_NUMBER() OVER (ORDER BY id) - 1) / ? AS grupo "
+                        + "FROM prestamos WHERE estado IN ('PRESTADO', 'MULTA') AND fecha_devolucion IS NULL "
+                        + "AND fecha_limite < ?) vencidos GROUP BY grupo ORDER BY grupo",
+                (fila, i) -> new long[]{fila.getLong(1), fila.getLong(2)},
+                tramo, Date.valueOf(hoy(ejecucion)));
+    }
+
+    @Override
+    public int procesar(EjecucionTarea ejecucion, long desde, long hasta) {
+        return bibliotecaService.actualizarMultas(hoy(ejecucion), desde, hasta);
+    }
+
+    // Todos los tramos usan el día en que se lanzó, aunque alguno se procese pasada la medianoche
+    private static LocalDate hoy(EjecucionTarea ejecucion) {
+        return ejecucion.getInicio().toLocalDate();
+    }
+}
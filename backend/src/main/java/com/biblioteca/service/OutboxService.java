@@ -0,0 +1,38 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.EventoOutbox;
+import com.biblioteca.model.Prestamo;
+import com.biblioteca.model.TipoEventoPrestamo;
+import com.biblioteca.repository.EventoOutboxRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Service
+public class OutboxService {
+
+    private final EventoOutboxRepository eventoOutboxRepository;
+
+    public OutboxService(EventoOutboxRepository eventoOutboxRepository) {
+        this.eventoOutboxRepository = eventoOutboxRepository;
+    }
+
+    // Un INSERT dentro de la transacción del cambio: si el cambio se revierte, el evento también
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publicar(Prestamo prestamo, TipoEventoPrestamo tipo) {
+        LocalDateTime ahora = LocalDateTime.now();
+        EventoOutbox evento = new EventoOutbox();
+        evento.setTipo(tipo);
+        evento.setPrestamoId(prestamo.getId());
+        evento.setUsuarioId(prestamo.getUsuario() != null ? prestamo.getUsuario().getId() : null);
+        evento.setLibroId(prestamo.getLibro() != null ? prestamo.getLibro().getId() : null);
+        evento.setEstado(prestamo.getEstado());
+        evento.setFechaLimite(prestamo.getFechaLimite());
+        evento.setValorMulta(prestamo.getValorMulta());
+        evento.setCreado(ahora);
+        evento.setDisponibleDesde(ahora);
+        eventoOutboxRepository.save(evento);
+    }
+}
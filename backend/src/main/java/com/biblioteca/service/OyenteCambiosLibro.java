@@ -0,0 +1,30 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.Libro;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+// Listener JPA de Libro: cualquier alta, cambio o baja llega al índice de facetas sin depender de que
+// cada punto que guarda libros lo avise. Hibernate lo crea a través del contenedor de Spring, por eso
+// puede recibir dependencias; el ObjectProvider evita resolverlas mientras se arma el EntityManagerFactory.
+public class OyenteCambiosLibro {
+
+    private final ObjectProvider<IndiceCatalogo> indiceCatalogo;
+
+    public OyenteCambiosLibro(ObjectProvider<IndiceCatalogo> indiceCatalogo) {
+        this.indiceCatalogo = indiceCatalogo;
+    }
+
+    @PostPersist
+    @PostUpdate
+    void guardado(Libro libro) {
+        indiceCatalogo.ifAvailable(indice -> indice.registrar(libro));
+    }
+
+    @PostRemove
+    void eliminado(Libro libro) {
+        indiceCatalogo.ifAvailable(indice -> indice.eliminar(libro.getId()));
+    }
+}
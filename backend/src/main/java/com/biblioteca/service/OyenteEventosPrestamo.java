@@ -0,0 +1,11 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.EventoOutbox;
+
+// Recibe los eventos del outbox. La entrega es al menos una vez (un evento puede repetirse si el relay
+// falla después de entregarlo), así que las implementaciones deben ser idempotentes. Si lanza una
+// excepción el evento se reintenta más tarde para todos los oyentes.
+public interface OyenteEventosPrestamo {
+
+    void alPublicar(EventoOutbox evento);
+}
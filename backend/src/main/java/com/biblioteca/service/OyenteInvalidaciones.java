@@ -0,0 +1,33 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.Categoria;
+import com.biblioteca.model.Libro;
+import com.biblioteca.model.Usuario;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+// Listener JPA de Libro, Categoria y Usuario: publica cada alta, cambio o baja en el bus de invalidación.
+// Corre durante el flush, dentro de la transacción, así que el NOTIFY solo sale si esta confirma.
+public class OyenteInvalidaciones {
+
+    private final ObjectProvider<BusInvalidaciones> bus;
+
+    public OyenteInvalidaciones(ObjectProvider<BusInvalidaciones> bus) {
+        this.bus = bus;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void cambiado(Object entidad) {
+        if (entidad instanceof Libro libro) {
+            bus.ifAvailable(b -> b.publicar(BusInvalidaciones.Tipo.LIBRO, libro.getId()));
+        } else if (entidad instanceof Categoria categoria) {
+            bus.ifAvailable(b -> b.publicar(BusInvalidaciones.Tipo.CATEGORIA, categoria.getId()));
+        } else if (entidad instanceof Usuario usuario) {
+            bus.ifAvailable(b -> b.publicar(BusInvalidaciones.Tipo.USUARIO, usuario.getId()));
+        }
+    }
+}
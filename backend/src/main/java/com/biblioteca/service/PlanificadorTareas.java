@@ -0,0 +1,239 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.EjecucionTarea;
+import com.biblioteca.model.EstadoEjecucion;
+import com.biblioteca.model.TramoTarea;
+import com.biblioteca.repository.ArriendoTareaRepository;
+import com.biblioteca.repository.EjecucionTareaRepository;
+import com.biblioteca.repository.TramoTareaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// Tareas programadas seguras con varios nodos.
+// - De un solo nodo (comoLider): un arriendo en tareas_arriendos elige al líder; si el nodo muere el arriendo
+//   vence en "maximo" y otro la puede tomar.
+// - Repartidas (lanzar): un nodo divide el trabajo en tramos y todos los nodos los toman con
+//   FOR UPDATE SKIP LOCKED (trabajar), de modo que N nodos terminan cerca de N veces antes.
+// Cada ejecución queda en tareas_ejecuciones con su nodo, duración y resultado.
+@Service
+public class PlanificadorTareas {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlanificadorTareas.class);
+
+    public static final int INTENTOS_MAXIMOS = 3;
+    // Lo que puede tardar en planificarse una tarea repartida antes de que otro nodo lo reintente
+    private static final Duration ARRIENDO_PLANIFICACION = Duration.ofMinutes(5);
+
+    private final ArriendoTareaRepository arriendoRepository;
+    private final EjecucionTareaRepository ejecucionRepository;
+    private final TramoTareaRepository tramoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, TareaRepartida> repartidas;
+
+    // pid@host: distingue a los nodos en el historial y en los arriendos
+    private final String nodo = ManagementFactory.getRuntimeMXBean().getName();
+
+    public PlanificadorTareas(ArriendoTareaRepository arriendoRepository,
+                              EjecucionTareaRepository ejecucionRepository,
+                              TramoTareaRepository tramoRepository,
+                              PlatformTransactionManager transactionManager,
+                              List<TareaRepartida> repartidas) {
+        this.arriendoRepository = arriendoRepository;
+        this.ejecucionRepository = ejecucionRepository;
+        this.tramoRepository = tramoRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.repartidas = repartidas.stream().collect(Collectors.toMap(TareaRepartida::nombre, Function.identity()));
+    }
+
+    public String nodo() {
+        return nodo;
+    }
+
+    // Ejecuta la tarea si este nodo obtiene el arriendo; vacío si otro la tiene. Al terminar el arriendo se
+    // mantiene hasta adquirido + minimo: el mismo cron disparado unos segundos después en otro nodo no la repite
+    public <T> Optional<T> comoLider(String tarea, Duration maximo, Duration minimo, Supplier<T> trabajo) {
+        if (arriendoRepository.adquirir(tarea, nodo, segundos(maximo)) == 0) {
+            logger.debug("Tarea {} omitida: otro nodo tiene el arriendo", tarea);
+            return Optional.empty();
+        }
+        try {
+            LocalDateTime inicio = LocalDateTime.now();
+            ejecucionRepository.marcarInterrumpidas(tarea, inicio);
+            EjecucionTarea ejecucion = ejecucionRepository.save(
+                    new EjecucionTarea(null, tarea, nodo, inicio, null, EstadoEjecucion.EN_CURSO, null, 0, null));
+            try {
+                T resultado = trabajo.get();
+                ejecucion.setEstado(EstadoEjecucion.COMPLETADA);
+                ejecucion.setProcesados(resultado instanceof Number numero ? numero.longValue() : null);
+                ejecucion.setDetalle(resumir(String.valueOf(resultado)));
+                return Optional.ofNullable(resultado);
+            } catch (RuntimeException e) {
+                ejecucion.setEstado(EstadoEjecucion.FALLIDA);
+                ejecucion.setDetalle(resumir(e.getMessage()));
+                throw e;
+            } finally {
+                ejecucion.setFin(LocalDateTime.now());
+                ejecucionRepository.save(ejecucion);
+            }
+        } finally {
+            arriendoRepository.liberar(tarea, nodo, segundos(minimo));
+        }
+    }
+
+    // Planifica una ejecución repartida y devuelve la que queda a cargo del trabajo: la nueva, la que ya estaba
+    // en curso o, si otro nodo la acaba de planificar (arriendo dentro de minimo), la última registrada
+    public EjecucionTarea lanzar(String tarea, Duration minimo) {
+        TareaRepartida definicion = repartidas.get(tarea);
+        if (definicion == null) {
+            throw new IllegalArgumentException("Tarea repartida desconocida: " + tarea);
+        }
+        Optional<EjecucionTarea> enCurso = enCurso(tarea);
+        if (enCurso.isPresent()) {
+            return enCurso.get();
+        }
+        if (arriendoRepository.adquirir(tarea, nodo, segundos(ARRIENDO_PLANIFICACION)) == 0) {
+            return ejecucionRepository.findFirstByTareaOrderByIdDesc(tarea)
+                    .orElseThrow(() -> new IllegalStateException("La tarea " + tarea + " se está planificando en otro nodo"));
+        }
+        try {
+            // Otro nodo pudo planificarla entre la consulta de arriba y el arriendo
+            enCurso = enCurso(tarea);
+            if (enCurso.isPresent()) {
+                return enCurso.get();
+            }
+            EjecucionTarea planificada = transactionTemplate.execute(estado -> {
+                LocalDateTime inicio = LocalDateTime.now();
+                EjecucionTarea ejecucion = ejecucionRepository.save(
+                        new EjecucionTarea(null, tarea, nodo, inicio, null, EstadoEjecucion.EN_CURSO, null, 0, null));
+                List<TramoTarea> tramos = new ArrayList<>();
+                for (long[] rango : definicion.planificar(ejecucion)) {
+                    tramos.add(new TramoTarea(null, ejecucion.getId(), rango[0], rango[1], false, 0, null, null, null, null, null));
+                }
+                tramoRepository.saveAll(tramos);
+                ejecucion.setTramos(tramos.size());
+                if (tramos.isEmpty()) {
+                    ejecucion.setEstado(EstadoEjecucion.COMPLETADA);
+                    ejecucion.setProcesados(0L);
+                    ejecucion.setFin(LocalDateTime.now());
+                }
+                return ejecucionRepository.save(ejecucion);
+            });
+            logger.info("Tarea {} planificada: ejecución {} con {} tramo(s)", tarea, planificada.getId(), planificada.getTramos());
+            return planificada;
+        } finally {
+            arriendoRepository.liberar(tarea, nodo, segundos(minimo));
+        }
+    }
+
+    // Si el nodo que procesó el último tramo murió antes de cerrarla, la ejecución quedaría EN_CURSO para siempre
+    private Optional<EjecucionTarea> enCurso(String tarea) {
+        return ejecucionRepository.findFirstByTareaAndEstadoOrderByIdDesc(tarea, EstadoEjecucion.EN_CURSO)
+                .filter(ejecucion -> ejecucionRepository.finalizar(ejecucion.getId(), INTENTOS_MAXIMOS, LocalDateTime.now()) == 0);
+    }
+
+    // Cada nodo busca tramos libres de cualquier ejecución repartida en curso
+    @Scheduled(fixedDelayString = "${biblioteca.tareas.sondeo-ms:2000}")
+    public void trabajar() {
+        for (Long ejecucionId : tramoRepository.findEjecucionesPendientes(INTENTOS_MAXIMOS)) {
+            trabajarEn(ejecucionId);
+        }
+    }
+
+    // Toma y procesa tramos de la ejecución hasta que no quede ninguno libre; devuelve cuántos hizo este nodo
+    public int trabajarEn(Long ejecucionId) {
+        EjecucionTarea ejecucion = ejecucionRepository.findById(ejecucionId).orElse(null);
+        if (ejecucion == null || ejecucion.getEstado() != EstadoEjecucion.EN_CURSO) {
+            return 0;
+        }
+        TareaRepartida definicion = repartidas.get(ejecucion.getTarea());
+        if (definicion == null) {
+            // Un nodo con otra versión la lanzó: que la hagan los que la conocen
+            return 0;
+        }
+        int hechos = 0;
+        while (true) {
+            Long[] tomado = new Long[1];
+            try {
+                Boolean procesado = transactionTemplate.execute(estado -> procesarSiguiente(ejecucion, definicion, tomado));
+                if (!Boolean.TRUE.equals(procesado)) {
+                    break;
+                }
+                hechos++;
+            } catch (RuntimeException e) {
+                if (tomado[0] == null) {
+                    throw e;
+                }
+                // La transacción del tramo se revirtió y lo liberó; tras INTENTOS_MAXIMOS ya no se vuelve a tomar
+                logger.warn("Tramo {} de la ejecución {} falló: {}", tomado[0], ejecucionId, e.getMessage());
+                tramoRepository.registrarFallo(tomado[0], nodo, resumir(e.getMessage()));
+            }
+        }
+        if (ejecucionRepository.finalizar(ejecucionId, INTENTOS_MAXIMOS, LocalDateTime.now()) == 1) {
+            EjecucionTarea cerrada = ejecucionRepository.findById(ejecucionId).orElseThrow();
+            logger.info("Tarea {} (ejecución {}) {}: {} procesado(s) en {} ms",
+                    cerrada.getTarea(), ejecucionId, cerrada.getEstado(), cerrada.getProcesados(), cerrada.getDuracionMs());
+        }
+        return hechos;
+    }
+
+    private boolean procesarSiguiente(EjecucionTarea ejecucion, TareaRepartida definicion, Long[] tomado) {
+        Optional<TramoTarea> libre = tramoRepository.tomarLibre(ejecucion.getId(), INTENTOS_MAXIMOS);
+        if (libre.isEmpty()) {
+            return false;
+        }
+        TramoTarea tramo = libre.get();
+        tomado[0] = tramo.getId();
+        tramo.setInicio(LocalDateTime.now());
+        tramo.setProcesados(definicion.procesar(ejecucion, tramo.getDesde(), tramo.getHasta()));
+        tramo.setHecho(true);
+        tramo.setNodo(nodo);
+        tramo.setError(null);
+        tramo.setFin(LocalDateTime.now());
+        tramoRepository.save(tramo);
+        return true;
+    }
+
+    // Espera a que la ejecución termine (la cierre este nodo u otro) o a que pase "maximo"
+    public EjecucionTareaRepository.Resultado esperar(Long ejecucionId, Duration maximo) {
+        long limite = System.currentTimeMillis() + maximo.toMillis();
+        while (true) {
+            EjecucionTareaRepository.Resultado resultado = ejecucionRepository.findResultadoById(ejecucionId)
+                    .orElseThrow(() -> new IllegalArgumentException("Ejecución no encontrada: " + ejecucionId));
+            if (resultado.getEstado() != EstadoEjecucion.EN_CURSO || System.currentTimeMillis() >= limite) {
+                return resultado;
+            }
+            try {
+                Thread.sleep(250);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return resultado;
+            }
+        }
+    }
+
+    private static double segundos(Duration duracion) {
+        return duracion.toMillis() / 1000.0;
+    }
+
+    private static String resumir(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        return texto.length() > 1000 ? texto.substring(0, 1000) : texto;
+    }
+}
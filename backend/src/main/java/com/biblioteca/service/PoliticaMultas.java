@@ -0,0 +1,193 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.Feriado;
+import com.biblioteca.model.PoliticaMulta;
+import com.biblioteca.model.Prestamo;
+import com.biblioteca.repository.CategoriaRepository;
+import com.biblioteca.repository.FeriadoRepository;
+import com.biblioteca.repository.PoliticaMultaRepository;
+import com.biblioteca.util.LongObjectHashMap;
+import com.biblioteca.util.Transacciones;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Motor de multas: valor por día, tope y días de gracia por categoría (o la regla general) sobre un
+// calendario de días hábiles precalculado. Las reglas y el calendario se arman en una instantánea
+// inmutable que se reemplaza al cambiar la configuración y periódicamente (otros nodos, cambio de año),
+// así que cada cálculo es una búsqueda en un mapa y una resta, sin consultas.
+@Service
+public class PoliticaMultas {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoliticaMultas.class);
+
+    private static final long SIN_CATEGORIA = 0L;
+    private static final int ANIOS_ATRAS = 10;
+    private static final int ANIOS_ADELANTE = 2;
+
+    public record Regla(int valorDia, int tope, int diasGracia, boolean soloHabiles) {
+    }
+
+    // dias: días de retraso según la regla (hábiles o corridos); valor: multa a cobrar
+    public record Multa(int dias, int valor) {
+    }
+
+    private record Reglas(Regla general, LongObjectHashMap<Regla> porCategoria, CalendarioHabil calendario) {
+    }
+
+    private static final Multa SIN_MULTA = new Multa(0, 0);
+
+    private final PoliticaMultaRepository politicaMultaRepository;
+    private final FeriadoRepository feriadoRepository;
+    private final CategoriaRepository categoriaRepository;
+    private final Regla reglaPorDefecto;
+
+    private volatile Reglas reglas;
+
+    public PoliticaMultas(PoliticaMultaRepository politicaMultaRepository,
+                          FeriadoRepository feriadoRepository,
+                          CategoriaRepository categoriaRepository,
+                          @Value("${biblioteca.multas.valor-dia:5000}") int valorDia,
+                          @Value("${biblioteca.multas.tope:0}") int tope,
+                          @Value("${biblioteca.multas.dias-gracia:0}") int diasGracia,
+                          @Value("${biblioteca.multas.solo-dias-habiles:true}") boolean soloHabiles) {
+        this.politicaMultaRepository = politicaMultaRepository;
+        this.feriadoRepository = feriadoRepository;
+        this.categoriaRepository = categoriaRepository;
+        this.reglaPorDefecto = new Regla(valorDia, tope, diasGracia, soloHabiles);
+        this.reglas = armar(List.of(), Set.of());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${biblioteca.multas.recarga-ms:300000}",
+            initialDelayString = "${biblioteca.multas.recarga-ms:300000}")
+    public void recargar() {
+        Set<LocalDate> feriados = new HashSet<>();
+        for (Feriado feriado : feriadoRepository.findAll()) {
+            feriados.add(feriado.getFecha());
+        }
+        List<PoliticaMulta> politicas = politicaMultaRepository.findAll();
+        reglas = armar(politicas, feriados);
+        logger.debug("Políticas de multa cargadas: {} regla(s), {} feriado(s)", politicas.size(), feriados.size());
+    }
+
+    private Reglas armar(List<PoliticaMulta> politicas, Set<LocalDate> feriados) {
+        Regla general = reglaPorDefecto;
+        LongObjectHashMap<Regla> porCategoria = new LongObjectHashMap<>();
+        for (PoliticaMulta politica : politicas) {
+            Regla regla = new Regla(politica.getValorDia(), politica.getTope(), politica.getDiasGracia(), politica.isSoloHabiles());
+            if (politica.getCategoriaId() == null) {
+                general = regla;
+            } else {
+                porCategoria.put(politica.getCategoriaId(), regla);
+            }
+        }
+        LocalDate hoy = LocalDate.now();
+        CalendarioHabil calendario = new CalendarioHabil(hoy.minusYears(ANIOS_ATRAS), hoy.plusYears(ANIOS_ADELANTE), feriados);
+        return new Reglas(general, porCategoria, calendario);
+    }
+
+    public Multa calcular(Prestamo prestamo, LocalDate hasta) {
+        long categoriaId = prestamo.getLibro().getCategoria() != null && prestamo.getLibro().getCategoria().getId() != null
+                ? prestamo.getLibro().getCategoria().getId() : SIN_CATEGORIA;
+        return calcular(categoriaId, prestamo.getFechaLimite().toEpochDay(), hasta.toEpochDay());
+    }
+
+    // Fechas como días epoch: el día límite no cuenta como retraso, el día "hasta" sí
+    public Multa calcular(long categoriaId, long fechaLimite, long hasta) {
+        if (hasta <= fechaLimite) {
+            return SIN_MULTA;
+        }
+        Reglas actuales = reglas;
+        Regla regla = actuales.porCategoria().get(categoriaId);
+        if (regla == null) {
+            regla = actuales.general();
+        }
+        int dias = regla.soloHabiles()
+                ? actuales.calendario().habilesEntre(fechaLimite, hasta)
+                : (int) (hasta - fechaLimite);
+        long cobrables = dias - regla.diasGracia();
+        if (cobrables <= 0) {
+            return new Multa(dias, 0);
+        }
+        long valor = cobrables * regla.valorDia();
+        if (regla.tope() > 0 && valor > regla.tope()) {
+            valor = regla.tope();
+        }
+        return new Multa(dias, (int) Math.min(valor, Integer.MAX_VALUE));
+    }
+
+    public List<PoliticaMulta> politicas() {
+        return politicaMultaRepository.findAll();
+    }
+
+    // Crea o reemplaza la regla de la categoría (o la general si categoriaId es nulo)
+    @Transactional
+    public PoliticaMulta guardarPolitica(PoliticaMulta datos) {
+        if (datos.getValorDia() < 0 || datos.getTope() < 0 || datos.getDiasGracia() < 0) {
+            throw new IllegalArgumentException("El valor por día, el tope y los días de gracia no pueden ser negativos");
+        }
+        Long categoriaId = datos.getCategoriaId();
+        if (categoriaId != null && !categoriaRepository.existsById(categoriaId)) {
+            throw new IllegalArgumentException("Categoría no encontrada con ID: " + categoriaId);
+        }
+        PoliticaMulta politica = (categoriaId == null
+                ? politicaMultaRepository.findByCategoriaIdIsNull()
+                : politicaMultaRepository.findByCategoriaId(categoriaId))
+                .orElseGet(PoliticaMulta::new);
+        politica.setCategoriaId(categoriaId);
+        politica.setValorDia(datos.getValorDia());
+        politica.setTope(datos.getTope());
+        politica.setDiasGracia(datos.getDiasGracia());
+        politica.setSoloHabiles(datos.isSoloHabiles());
+        PoliticaMulta guardada = politicaMultaRepository.save(politica);
+        Transacciones.despuesDeCommit(this::recargar);
+        return guardada;
+    }
+
+    @Transactional
+    public void eliminarPolitica(Long id) {
+        if (!politicaMultaRepository.existsById(id)) {
+            throw new IllegalArgumentException("Política de multa no encontrada");
+        }
+        politicaMultaRepository.deleteById(id);
+        Transacciones.despuesDeCommit(this::recargar);
+    }
+
+    public List<Feriado> feriados() {
+        return feriadoRepository.findAllByOrderByFechaAsc();
+    }
+
+    @Transactional
+    public Feriado agregarFeriado(Feriado feriado) {
+        if (feriado.getFecha() == null) {
+            throw new IllegalArgumentException("La fecha del feriado es obligatoria");
+        }
+        if (feriadoRepository.existsByFecha(feriado.getFecha())) {
+            throw new IllegalArgumentException("Ya existe un feriado el " + feriado.getFecha());
+        }
+        feriado.setId(null);
+        Feriado guardado = feriadoRepository.save(feriado);
+        Transacciones.despuesDeCommit(this::recargar);
+        return guardado;
+    }
+
+    @Transactional
+    public void eliminarFeriado(Long id) {
+        if (!feriadoRepository.existsById(id)) {
+            throw new IllegalArgumentException("Feriado no encontrado");
+        }
+        feriadoRepository.deleteById(id);
+        Transacciones.despuesDeCommit(this::recargar);
+    }
+}
@@ -0,0 +1,11 @@
+package com.biblioteca.service;
+
+import java.util.Set;
+
+// Caché en memoria que debe enterarse de los cambios confirmados en otros nodos (BusInvalidaciones).
+// ids es null cuando hay que descartar todo lo de ese tipo (p. ej. tras una reconexión del bus).
+// Se llama desde el hilo del bus, fuera de transacción; los tipos que no le interesan se ignoran.
+public interface ReceptorInvalidaciones {
+
+    void invalidar(BusInvalidaciones.Tipo tipo, Set<Long> ids);
+}
@@ -0,0 +1,195 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.Libro;
+import com.biblioteca.repository.LibroRepository;
+import com.biblioteca.repository.PrestamoRepository;
+import com.biblioteca.util.Transacciones;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// "Quienes leyeron esto también prestaron": similitud entre libros a partir de los préstamos.
+// La matriz se actualiza con cada préstamo confirmado y se reconstruye completa periódicamente.
+// La primera construcción corre en segundo plano al arrancar; hasta que termina recomendar devuelve vacío
+// (lista() es false) en lugar de retrasar el arranque del nodo.
+@Service
+public class RecomendacionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecomendacionService.class);
+
+    private final PrestamoRepository prestamoRepository;
+    private final LibroRepository libroRepository;
+    private final TransactionTemplate lectura;
+    private final int bloque;
+
+    private final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+    private final AtomicBoolean reconstruyendo = new AtomicBoolean(false);
+    // Préstamos recibidos mientras se reconstruye; se reaplican sobre la matriz nueva (registrar es idempotente)
+    private final ConcurrentLinkedQueue<long[]> pendientes = new ConcurrentLinkedQueue<>();
+
+    private MatrizCoocurrencia matriz = new MatrizCoocurrencia();
+    private volatile boolean lista;
+
+    public RecomendacionService(PrestamoRepository prestamoRepository,
+                                LibroRepository libroRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${biblioteca.recomendaciones.bloque:500000}") int bloque) {
+        this.prestamoRepository = prestamoRepository;
+        this.libroRepository = libroRepository;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.bloque = Math.max(1024, bloque);
+    }
+
+    // false mientras la primera reconstrucción no termina
+    public boolean lista() {
+        return lista;
+    }
+
+    public void registrarPrestamo(Long usuarioId, Long libroId) {
+        Transacciones.despuesDeCommit(() -> aplicar(usuarioId, libroId));
+    }
+
+    public List<Libro> recomendar(Long libroId, int limite) {
+        if (!lista) {
+            return List.of();
+        }
+        long[] ids;
+        candado.readLock().lock();
+        try {
+            ids = matriz.similares(libroId, limite);
+        } finally {
+            candado.readLock().unlock();
+        }
+        if (ids.length == 0) {
+            return List.of();
+        }
+        List<Long> orden = Arrays.stream(ids).boxed().toList();
+        Map<Long, Libro> libros = libroRepository.findAllById(orden).stream()
+                .collect(Collectors.toMap(Libro::getId, Function.identity()));
+        List<Libro> resultado = new ArrayList<>(ids.length);
+        for (Long id : orden) {
+            Libro libro = libros.get(id);
+            if (libro != null) {
+                resultado.add(libro);
+            }
+        }
+        return resultado;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruirAlIniciar() {
+        Thread hilo = new Thread(() -> {
+            try {
+                reconstruir();
+            } catch (RuntimeException e) {
+                logger.error("No se pudieron construir las recomendaciones al iniciar; se reintenta en la próxima reconstrucción", e);
+            }
+        }, "recomendaciones-inicio");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    @Scheduled(cron = "${biblioteca.recomendaciones.reconstruccion-cron:0 30 3 * * *}")
+    public void reconstruir() {
+        if (!reconstruyendo.compareAndSet(false, true)) {
+            logger.info("Ya hay una reconstrucción de recomendaciones en curso");
+            return;
+        }
+        long inicio = System.nanoTime();
+        boolean publicada = false;
+        try {
+            long[] total = new long[1];
+            MatrizCoocurrencia nueva = lectura.execute(estado -> construir(total));
+            long cantidad = total[0];
+
+            candado.writeLock().lock();
+            try {
+                long[] pendiente;
+                while ((pendiente = pendientes.poll()) != null) {
+                    nueva.registrar(pendiente[0], pendiente[1]);
+                }
+                matriz = nueva;
+                lista = true;
+                reconstruyendo.set(false);
+                publicada = true;
+            } finally {
+                candado.writeLock().unlock();
+            }
+            logger.info("Recomendaciones reconstruidas: {} pares, {} libros en {} ms",
+                    cantidad, nueva.libros(), (System.nanoTime() - inicio) / 1_000_000);
+        } finally {
+            if (!publicada) {
+                // Los préstamos pendientes ya se aplicaron a la matriz vigente
+                pendientes.clear();
+                reconstruyendo.set(false);
+            }
+        }
+    }
+
+    // Lee los pares (ordenados por usuario) en bloques de hasta "bloque" y construye cada bloque en paralelo.
+    // El corte se hace donde empieza el último usuario del bloque, así cada bloque tiene usuarios disjuntos y
+    // se combina sumando; en memoria solo está el bloque en curso además de la matriz
+    private MatrizCoocurrencia construir(long[] total) {
+        MatrizCoocurrencia nueva = new MatrizCoocurrencia();
+        long[] usuarios = new long[bloque];
+        long[] libros = new long[bloque];
+        int cantidad = 0;
+        try (Stream<Object[]> pares = prestamoRepository.streamParesUsuarioLibro()) {
+            for (Object[] par : (Iterable<Object[]>) pares::iterator) {
+                if (cantidad == usuarios.length) {
+                    int corte = cantidad - 1;
+                    while (corte > 0 && usuarios[corte - 1] == usuarios[cantidad - 1]) {
+                        corte--;
+                    }
+                    if (corte == 0) {
+                        // Un solo usuario con más préstamos distintos que el bloque
+                        usuarios = Arrays.copyOf(usuarios, cantidad * 2);
+                        libros = Arrays.copyOf(libros, cantidad * 2);
+                    } else {
+                        nueva.combinar(ForkJoinPool.commonPool().invoke(new ReconstruccionCoocurrencias(usuarios, libros, corte)));
+                        System.arraycopy(usuarios, corte, usuarios, 0, cantidad - corte);
+                        System.arraycopy(libros, corte, libros, 0, cantidad - corte);
+                        cantidad -= corte;
+                    }
+                }
+                usuarios[cantidad] = ((Number) par[0]).longValue();
+                libros[cantidad] = ((Number) par[1]).longValue();
+                cantidad++;
+                total[0]++;
+            }
+        }
+        nueva.combinar(ForkJoinPool.commonPool().invoke(new ReconstruccionCoocurrencias(usuarios, libros, cantidad)));
+        return nueva;
+    }
+
+    private void aplicar(long usuarioId, long libroId) {
+        candado.writeLock().lock();
+        try {
+            if (reconstruyendo.get()) {
+                pendientes.add(new long[]{usuarioId, libroId});
+            }
+            matriz.registrar(usuarioId, libroId);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.biblioteca.service;
+
+import java.util.concurrent.RecursiveTask;
+
+// Construye la matriz en paralelo sobre pares (usuario, libro) ordenados por usuario.
+// Cada rango se corta en un límite de usuario, así las submatrices tienen usuarios disjuntos
+// y se combinan sumando coocurrencias.
+public class ReconstruccionCoocurrencias extends RecursiveTask<MatrizCoocurrencia> {
+
+    private static final int UMBRAL = 50_000;
+
+    private final long[] usuarios;
+    private final long[] libros;
+    private final int desde;
+    private final int hasta;
+
+    public ReconstruccionCoocurrencias(long[] usuarios, long[] libros, int cantidad) {
+        this(usuarios, libros, 0, cantidad);
+    }
+
+    private ReconstruccionCoocurrencias(long[] usuarios, long[] libros, int desde, int hasta) {
+        this.usuarios = usuarios;
+        this.libros = libros;
+        this.desde = desde;
+        this.hasta = hasta;
+    }
+
+    @Override
+    protected MatrizCoocurrencia compute() {
+        if (hasta - desde > UMBRAL) {
+            int mitad = (desde + hasta) >>> 1;
+            while (mitad < hasta && usuarios[mitad] == usuarios[mitad - 1]) {
+                mitad++;
+            }
+            if (mitad < hasta) {
+                ReconstruccionCoocurrencias izquierda = new ReconstruccionCoocurrencias(usuarios, libros, desde, mitad);
+                ReconstruccionCoocurrencias derecha = new ReconstruccionCoocurrencias(usuarios, libros, mitad, hasta);
+                izquierda.fork();
+                MatrizCoocurrencia resultado = derecha.compute();
+                resultado.combinar(izquierda.join());
+                return resultado;
+            }
+        }
+        MatrizCoocurrencia matriz = new MatrizCoocurrencia();
+        for (int i = desde; i < hasta; i++) {
+            matriz.registrar(usuarios[i], libros[i]);
+        }
+        return matriz;
+    }
+}
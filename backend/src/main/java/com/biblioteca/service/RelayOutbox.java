@@ -0,0 +1,87 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.EventoOutbox;
+import com.biblioteca.repository.EventoOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Entrega los eventos del outbox a los oyentes locales. Cada lote se toma con FOR UPDATE SKIP LOCKED
+// dentro de una transacción, se entrega y se borra al confirmar; varios nodos pueden correr el relay a la vez.
+// Cada evento se entrega en un savepoint: si un oyente falla (también por un error de SQL, que en Postgres
+// aborta la transacción) solo se deshace lo suyo y queda con reintento exponencial (tope 1 hora).
+@Service
+public class RelayOutbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelayOutbox.class);
+    private static final long ESPERA_MAXIMA_SEGUNDOS = 3600;
+
+    private final EventoOutboxRepository eventoOutboxRepository;
+    private final List<OyenteEventosPrestamo> oyentes;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate porEvento;
+    private final int lote;
+
+    public RelayOutbox(EventoOutboxRepository eventoOutboxRepository,
+                       ObjectProvider<OyenteEventosPrestamo> oyentes,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${biblioteca.outbox.lote:200}") int lote) {
+        this.eventoOutboxRepository = eventoOutboxRepository;
+        // Puede no haber oyentes: los eventos se borran igual al despacharse
+        this.oyentes = oyentes.orderedStream().toList();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.porEvento = new TransactionTemplate(transactionManager);
+        this.porEvento.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        this.lote = lote;
+    }
+
+    @Scheduled(fixedDelayString = "${biblioteca.outbox.intervalo-ms:500}")
+    public void despachar() {
+        while (despacharLote() == lote) {
+            // Sigue mientras haya lotes completos
+        }
+    }
+
+    private int despacharLote() {
+        Integer procesados = transactionTemplate.execute(estado -> {
+            LocalDateTime ahora = LocalDateTime.now();
+            List<EventoOutbox> eventos = eventoOutboxRepository.bloquearPendientes(ahora, lote);
+            List<Long> entregados = new ArrayList<>(eventos.size());
+            for (EventoOutbox evento : eventos) {
+                try {
+                    porEvento.executeWithoutResult(savepoint -> {
+                        for (OyenteEventosPrestamo oyente : oyentes) {
+                            oyente.alPublicar(evento);
+                        }
+                    });
+                    entregados.add(evento.getId());
+                } catch (RuntimeException e) {
+                    // El savepoint ya se revirtió; el reintento se escribe aparte para no depender de la entidad
+                    int intentos = evento.getIntentos() + 1;
+                    String mensaje = String.valueOf(e.getMessage());
+                    eventoOutboxRepository.registrarFallo(evento.getId(), ahora.plusSeconds(espera(intentos)),
+                            mensaje.length() > 1000 ? mensaje.substring(0, 1000) : mensaje);
+                    logger.warn("Evento outbox {} ({}) falló, intento {}: {}",
+                            evento.getId(), evento.getTipo(), intentos, mensaje);
+                }
+            }
+            eventoOutboxRepository.deleteAllByIdInBatch(entregados);
+            return eventos.size();
+        });
+        return procesados != null ? procesados : 0;
+    }
+
+    private static long espera(int intentos) {
+        return Math.min(ESPERA_MAXIMA_SEGUNDOS, 1L << Math.min(intentos, 12));
+    }
+}
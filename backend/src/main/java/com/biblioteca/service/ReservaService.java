@@ -0,0 +1,243 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.EstadoReserva;
+import com.biblioteca.model.Libro;
+import com.biblioteca.model.Reserva;
+import com.biblioteca.model.Usuario;
+import com.biblioteca.repository.LibroRepository;
+import com.biblioteca.repository.ReservaRepository;
+import com.biblioteca.repository.UsuarioRepository;
+import com.biblioteca.util.Transacciones;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Lista de espera por libro. La tabla reservas es la fuente de verdad: el siguiente titular se toma de la
+// base con FOR UPDATE SKIP LOCKED, así una devolución en cualquier nodo asigna a quien espera aunque la
+// reserva se hiciera en otro. Las colas en memoria son solo una pista local para responder la posición
+// sin consultar: cada cambio en la lista de un libro se publica en el bus y los demás nodos descartan su
+// cola, que se vuelve a leer de la base la próxima vez. Si una reserva no está en la cola, la posición se
+// cuenta en la base.
+@Service
+public class ReservaService implements ReceptorInvalidaciones {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservaService.class);
+
+    private static final List<EstadoReserva> ESTADOS_ACTIVOS = List.of(EstadoReserva.EN_ESPERA, EstadoReserva.ASIGNADA);
+
+    private final ReservaRepository reservaRepository;
+    private final LibroRepository libroRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final EstadisticasService estadisticasService;
+    private final ObjectProvider<BusInvalidaciones> bus;
+    private final long horasRecogida;
+
+    private final ConcurrentHashMap<Long, ColaReservas> colas = new ConcurrentHashMap<>();
+
+    public ReservaService(ReservaRepository reservaRepository,
+                          LibroRepository libroRepository,
+                          UsuarioRepository usuarioRepository,
+                          EstadisticasService estadisticasService,
+                          ObjectProvider<BusInvalidaciones> bus,
+                          @Value("${biblioteca.reservas.horas-recogida:48}") long horasRecogida) {
+        this.reservaRepository = reservaRepository;
+        this.libroRepository = libroRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.estadisticasService = estadisticasService;
+        this.bus = bus;
+        this.horasRecogida = horasRecogida;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarColas() {
+        colas.clear();
+        List<Object[]> enEspera = reservaRepository.findLibroIdAndIdByEstado(EstadoReserva.EN_ESPERA);
+        for (Object[] fila : enEspera) {
+            colas.computeIfAbsent((Long) fila[0], id -> new ColaReservas()).agregar((Long) fila[1]);
+        }
+        logger.info("Colas de reserva cargadas: {} reserva(s) en espera en {} libro(s)", enEspera.size(), colas.size());
+    }
+
+    @Transactional
+    public Reserva reservar(Long libroId, String username) {
+        Usuario usuario = usuarioRepository.findByUsername(username)
+                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        // El bloqueo del libro serializa las reservas y préstamos del título entre nodos; el índice único
+        // parcial uk_reservas_activa_usuario_libro respalda la comprobación de abajo
+        Libro libro = libroRepository.findByIdParaActualizar(libroId)
+                .orElseThrow(() -> new IllegalArgumentException("Libro no encontrado"));
+
+        // Una sola reserva activa por usuario y libro: los reintentos devuelven la existente
+        Optional<Reserva> existente = reservaRepository.findFirstByUsuarioAndLibroAndEstadoIn(usuario, libro, ESTADOS_ACTIVOS);
+        if (existente.isPresent()) {
+            return conPosicion(existente.get());
+        }
+
+        if (libro.getCantidadDisponible() > 0) {
+            throw new IllegalStateException("El libro tiene unidades disponibles, puedes solicitar el préstamo directamente");
+        }
+
+        Reserva reserva = new Reserva();
+        reserva.setUsuario(usuario);
+        reserva.setLibro(libro);
+        reserva.setFechaSolicitud(LocalDateTime.now());
+        reserva.setEstado(EstadoReserva.EN_ESPERA);
+        Reserva guardada = reservaRepository.save(reserva);
+
+        cambioEnCola(libroId, cola -> cola.agregar(guardada.getId()));
+        guardada.setPosicion(posicionEnBase(guardada));
+        return guardada;
+    }
+
+    @Transactional
+    public Reserva cancelar(Long reservaId, String username) {
+        Reserva reserva = reservaRepository.findById(reservaId)
+                .orElseThrow(() -> new IllegalArgumentException("Reserva no encontrada"));
+        if (!reserva.getUsuario().getUsername().equals(username)) {
+            throw new IllegalArgumentException("Reserva no encontrada");
+        }
+
+        EstadoReserva estadoAnterior = reserva.getEstado();
+        if (estadoAnterior != EstadoReserva.EN_ESPERA && estadoAnterior != EstadoReserva.ASIGNADA) {
+            throw new IllegalStateException("La reserva ya no está activa");
+        }
+
+        reserva.setEstado(EstadoReserva.CANCELADA);
+        reservaRepository.save(reserva);
+
+        if (estadoAnterior == EstadoReserva.EN_ESPERA) {
+            cambioEnCola(reserva.getLibro().getId(), cola -> cola.eliminar(reservaId));
+        } else {
+            // El ejemplar apartado pasa al siguiente de la lista
+            liberarEjemplar(reserva.getLibro());
+        }
+        return reserva;
+    }
+
+    public List<Reserva> reservasPorUsuario(String username) {
+        Usuario usuario = usuarioRepository.findByUsername(username)
+                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        List<Reserva> reservas = reservaRepository.findByUsuarioWithLibro(usuario);
+        reservas.forEach(this::conPosicion);
+        return reservas;
+    }
+
+    public Optional<Reserva> reservaAsignada(Usuario usuario, Libro libro) {
+        return reservaRepository.findFirstByUsuarioAndLibroAndEstado(usuario, libro, EstadoReserva.ASIGNADA);
+    }
+
+    @Transactional
+    public void completar(Reserva reserva) {
+        reserva.setEstado(EstadoReserva.COMPLETADA);
+        reservaRepository.save(reserva);
+    }
+
+    // Un ejemplar vuelve al inventario: se aparta para el siguiente en espera con plazo de recogida,
+    // o se suma a la cantidad disponible si nadie espera
+    @Transactional
+    public void liberarEjemplar(Libro libro) {
+        if (asignarSiguiente(libro) == null) {
+            libroRepository.devolverDisponible(libro);
+            estadisticasService.registrarLibro(libro);
+        }
+    }
+
+    // Reparte unidades que aparecen sin devolución (p. ej. el admin aumenta la cantidad total)
+    @Transactional
+    public Libro asignarDisponibles(Libro libro) {
+        while (libro.getCantidadDisponible() > 0 && asignarSiguiente(libro) != null) {
+            libro.setCantidadDisponible(libro.getCantidadDisponible() - 1);
+        }
+        Libro guardado = libroRepository.save(libro);
+        estadisticasService.registrarLibro(guardado);
+        return guardado;
+    }
+
+    // Lo programa TareasProgramadas en un solo nodo a la vez
+    @Transactional
+    public int expirarReservas() {
+        List<Reserva> vencidas = reservaRepository.findByEstadoAndFechaLimiteRecogidaBefore(
+                EstadoReserva.ASIGNADA, LocalDateTime.now());
+        for (Reserva reserva : vencidas) {
+            reserva.setEstado(EstadoReserva.EXPIRADA);
+            reservaRepository.save(reserva);
+            liberarEjemplar(reserva.getLibro());
+        }
+        if (!vencidas.isEmpty()) {
+            logger.info("Reservas expiradas sin recoger: {}", vencidas.size());
+        }
+        return vencidas.size();
+    }
+
+    // La reserva en espera más antigua del libro; las que otro nodo tiene bloqueadas se saltan
+    private Reserva asignarSiguiente(Libro libro) {
+        Optional<Reserva> siguiente = reservaRepository.tomarSiguienteEnEspera(libro.getId());
+        if (siguiente.isEmpty()) {
+            return null;
+        }
+        Reserva reserva = siguiente.get();
+        LocalDateTime ahora = LocalDateTime.now();
+        reserva.setEstado(EstadoReserva.ASIGNADA);
+        reserva.setFechaAsignacion(ahora);
+        reserva.setFechaLimiteRecogida(ahora.plusHours(horasRecogida));
+        Reserva asignada = reservaRepository.save(reserva);
+
+        cambioEnCola(libro.getId(), cola -> cola.eliminar(asignada.getId()));
+        return asignada;
+    }
+
+    // Cambios de lista confirmados en otro nodo: la cola de este ya no sirve y se relee al pedir una posición
+    @Override
+    public void invalidar(BusInvalidaciones.Tipo tipo, Set<Long> ids) {
+        if (tipo != BusInvalidaciones.Tipo.RESERVAS) {
+            return;
+        }
+        if (ids == null) {
+            colas.clear();
+        } else {
+            ids.forEach(colas::remove);
+        }
+    }
+
+    // El NOTIFY sale con el commit; la cola local se actualiza después, solo si está cargada
+    private void cambioEnCola(Long libroId, Consumer<ColaReservas> cambio) {
+        bus.ifAvailable(b -> b.publicar(BusInvalidaciones.Tipo.RESERVAS, libroId));
+        Transacciones.despuesDeCommit(() -> colas.computeIfPresent(libroId, (id, cola) -> {
+            cambio.accept(cola);
+            return cola;
+        }));
+    }
+
+    private Reserva conPosicion(Reserva reserva) {
+        if (reserva.getEstado() == EstadoReserva.EN_ESPERA) {
+            // computeIfAbsent: una invalidación que llega durante la lectura espera y descarta el resultado
+            ColaReservas cola = colas.computeIfAbsent(reserva.getLibro().getId(), this::leerCola);
+            int posicion = cola.posicion(reserva.getId());
+            reserva.setPosicion(posicion > 0 ? posicion : posicionEnBase(reserva));
+        }
+        return reserva;
+    }
+
+    private ColaReservas leerCola(Long libroId) {
+        ColaReservas cola = new ColaReservas();
+        reservaRepository.findIdsByLibroIdAndEstado(libroId, EstadoReserva.EN_ESPERA).forEach(cola::agregar);
+        return cola;
+    }
+
+    private int posicionEnBase(Reserva reserva) {
+        return (int) reservaRepository.contarAnterioresEnEspera(
+                reserva.getLibro().getId(), reserva.getFechaSolicitud(), reserva.getId()) + 1;
+    }
+}
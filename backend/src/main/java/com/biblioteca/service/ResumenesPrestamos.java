@@ -0,0 +1,216 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.ReporteCategoria;
+import com.biblioteca.dto.ReporteDia;
+import com.biblioteca.dto.ReporteMes;
+import com.biblioteca.model.EventoOutbox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Agregados diarios (fecha x categoría x tipo de evento) para los reportes de gestión.
+// Mantenimiento incremental: como oyente del outbox hace un upsert por evento dentro de la misma
+// transacción en la que el relay borra el evento, así que cada evento suma una sola vez. Va último
+// entre los oyentes para no sumar un evento que otro oyente haga reintentar.
+// Reconstrucción: por meses en paralelo desde el diario de eventos (y, para préstamos anteriores al
+// diario, desde las fechas de los propios préstamos); cada mes borra e inserta en su propia transacción.
+// Solo se reconstruye hasta ayer: el día en curso lo sigue sumando el outbox (un evento de días anteriores
+// que siguiera en el outbox al reconstruir se sumaría dos veces; el relay los despacha en milisegundos).
+@Service
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class ResumenesPrestamos implements OyenteEventosPrestamo {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResumenesPrestamos.class);
+
+    private static final String SUMAR = "INSERT INTO resumen_diario_prestamos (fecha, categoria_id, tipo, cantidad, valor_multas) "
+            + "VALUES (?, COALESCE((SELECT categoria_id FROM libros WHERE id = ?), 0), ?, 1, ?) "
+            + "ON CONFLICT (fecha, categoria_id, tipo) DO UPDATE SET "
+            + "cantidad = resumen_diario_prestamos.cantidad + 1, "
+            + "valor_multas = resumen_diario_prestamos.valor_multas + EXCLUDED.valor_multas";
+
+    private static final String BORRAR_RANGO = "DELETE FROM resumen_diario_prestamos WHERE fecha >= ? AND fecha < ?";
+
+    // Préstamos sin ningún evento en el diario: PRESTADO en fecha_prestamo y el cierre en fecha_devolucion
+    private static final String SIN_DIARIO = "todos AS (SELECT id, libro_id, fecha_prestamo, fecha_devolucion, estado, valor_multa FROM prestamos "
+            + "UNION ALL SELECT id, libro_id, fecha_prestamo, fecha_devolucion, estado, valor_multa FROM prestamos_archivo), "
+            + "sin_diario AS (SELECT t.* FROM todos t WHERE NOT EXISTS (SELECT 1 FROM eventos_prestamo ev WHERE ev.prestamo_id = t.id))";
+
+    private static final String RECONSTRUIR_RANGO = "WITH " + SIN_DIARIO + " "
+            + "INSERT INTO resumen_diario_prestamos (fecha, categoria_id, tipo, cantidad, valor_multas) "
+            + "SELECT e.fecha, COALESCE(l.categoria_id, 0), e.tipo, COUNT(*), COALESCE(SUM(e.valor), 0) FROM ("
+            + "  SELECT CAST(ev.fecha AS date) AS fecha, ev.libro_id, ev.tipo, COALESCE(ev.valor_multa, 0) AS valor "
+            + "  FROM eventos_prestamo ev WHERE ev.fecha >= ? AND ev.fecha < ? "
+            + "  UNION ALL SELECT s.fecha_prestamo, s.libro_id, 'PRESTADO', 0 FROM sin_diario s "
+            + "  WHERE s.fecha_prestamo >= ? AND s.fecha_prestamo < ? "
+            + "  UNION ALL SELECT s.fecha_devolucion, s.libro_id, "
+            + "  CASE WHEN s.estado = 'MULTA' THEN 'DEVUELTO_CON_MULTA' WHEN COALESCE(s.valor_multa, 0) > 0 THEN 'MULTA_PAGADA' ELSE 'DEVUELTO' END, "
+            + "  COALESCE(s.valor_multa, 0) FROM sin_diario s "
+            + "  WHERE s.fecha_devolucion >= ? AND s.fecha_devolucion < ?"
+            + ") e LEFT JOIN libros l ON l.id = e.libro_id "
+            + "GROUP BY e.fecha, COALESCE(l.categoria_id, 0), e.tipo";
+
+    private static final String PRIMERA_FECHA = "SELECT LEAST((SELECT MIN(fecha_prestamo) FROM prestamos), "
+            + "(SELECT MIN(fecha_prestamo) FROM prestamos_archivo), (SELECT CAST(MIN(fecha) AS date) FROM eventos_prestamo))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DiarioPrestamos diarioPrestamos;
+    private final int hilos;
+
+    private final AtomicBoolean reconstruyendo = new AtomicBoolean();
+
+    public ResumenesPrestamos(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              DiarioPrestamos diarioPrestamos,
+                              @Value("${biblioteca.reportes.hilos-reconstruccion:4}") int hilos) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.diarioPrestamos = diarioPrestamos;
+        this.hilos = Math.max(1, hilos);
+    }
+
+    @Override
+    public void alPublicar(EventoOutbox evento) {
+        jdbcTemplate.update(SUMAR, Date.valueOf(evento.getCreado().toLocalDate()), evento.getLibroId(),
+                evento.getTipo().name(), evento.getValorMulta() != null ? evento.getValorMulta() : 0);
+    }
+
+    // Reconstruye [desde, hasta) acotado a ayer; sin desde, desde el primer préstamo registrado
+    public Map<String, Object> reconstruir(LocalDate desde, LocalDate hasta) {
+        if (!reconstruyendo.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una reconstrucción de reportes en curso");
+        }
+        try {
+            long inicio = System.nanoTime();
+            // El diario debe estar completo antes de leerlo
+            diarioPrestamos.escribir();
+            LocalDate hoy = LocalDate.now();
+            LocalDate fin = hasta == null || hasta.isAfter(hoy) ? hoy : hasta;
+            LocalDate comienzo = desde != null ? desde : jdbcTemplate.queryForObject(PRIMERA_FECHA, LocalDate.class);
+            if (comienzo == null || !comienzo.isBefore(fin)) {
+                return Map.of("meses", 0, "filas", 0);
+            }
+
+            List<LocalDate[]> meses = new ArrayList<>();
+            for (LocalDate mes = comienzo; mes.isBefore(fin); mes = mes.withDayOfMonth(1).plusMonths(1)) {
+                LocalDate siguiente = mes.withDayOfMonth(1).plusMonths(1);
+                meses.add(new LocalDate[]{mes, siguiente.isAfter(fin) ? fin : siguiente});
+            }
+
+            long filas = 0;
+            ExecutorService ejecutor = Executors.newFixedThreadPool(Math.min(hilos, meses.size()));
+            try {
+                List<Future<Integer>> tareas = new ArrayList<>(meses.size());
+                for (LocalDate[] rango : meses) {
+                    tareas.add(ejecutor.submit(() -> reconstruirRango(rango[0], rango[1])));
+                }
+                for (Future<Integer> tarea : tareas) {
+                    filas += tarea.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Reconstrucción de reportes interrumpida");
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Falló la reconstrucción de reportes: " + e.getCause().getMessage(), e.getCause());
+            } finally {
+                ejecutor.shutdownNow();
+            }
+
+            Map<String, Object> resumen = new LinkedHashMap<>();
+            resumen.put("desde", comienzo);
+            resumen.put("hasta", fin);
+            resumen.put("meses", meses.size());
+            resumen.put("filas", filas);
+            resumen.put("ms", (System.nanoTime() - inicio) / 1_000_000);
+            logger.info("Reportes reconstruidos: {}", resumen);
+            return resumen;
+        } finally {
+            reconstruyendo.set(false);
+        }
+    }
+
+    private int reconstruirRango(LocalDate desde, LocalDate hasta) {
+        Integer filas = transactionTemplate.execute(estado -> {
+            Date d = Date.valueOf(desde);
+            Date h = Date.valueOf(hasta);
+            jdbcTemplate.update(BORRAR_RANGO, d, h);
+            return jdbcTemplate.update(RECONSTRUIR_RANGO, Timestamp.valueOf(desde.atStartOfDay()),
+                    Timestamp.valueOf(hasta.atStartOfDay()), d, h, d, h);
+        });
+        return filas != null ? filas : 0;
+    }
+
+    // Préstamos y devoluciones por día en [desde, hasta], opcionalmente de una categoría
+    public List<ReporteDia> prestamosPorDia(LocalDate desde, LocalDate hasta, Long categoriaId) {
+        validarRango(desde, hasta);
+        String sql = "SELECT fecha, "
+                + "SUM(CASE WHEN tipo = 'PRESTADO' THEN cantidad ELSE 0 END), "
+                + "SUM(CASE WHEN tipo IN ('DEVUELTO', 'DEVUELTO_CON_MULTA') THEN cantidad ELSE 0 END), "
+                + "SUM(CASE WHEN tipo = 'DEVUELTO_CON_MULTA' THEN cantidad ELSE 0 END) "
+                + "FROM resumen_diario_prestamos WHERE fecha BETWEEN ? AND ? "
+                + (categoriaId != null ? "AND categoria_id = ? " : "")
+                + "GROUP BY fecha ORDER BY fecha";
+        Object[] parametros = categoriaId != null
+                ? new Object[]{Date.valueOf(desde), Date.valueOf(hasta), categoriaId}
+                : new Object[]{Date.valueOf(desde), Date.valueOf(hasta)};
+        return jdbcTemplate.query(sql, (rs, i) -> new ReporteDia(rs.getDate(1).toLocalDate(),
+                rs.getLong(2), rs.getLong(3), rs.getLong(4)), parametros);
+    }
+
+    public List<ReporteMes> multasPorMes(LocalDate desde, LocalDate hasta) {
+        validarRango(desde, hasta);
+        String sql = "SELECT CAST(date_trunc('month', fecha) AS date) AS mes, "
+                + "SUM(CASE WHEN tipo = 'MULTA_PAGADA' THEN cantidad ELSE 0 END), "
+                + "SUM(CASE WHEN tipo = 'MULTA_PAGADA' THEN valor_multas ELSE 0 END), "
+                + "SUM(CASE WHEN tipo = 'DEVUELTO_CON_MULTA' THEN cantidad ELSE 0 END), "
+                + "SUM(CASE WHEN tipo = 'MULTA_POR_VENCIMIENTO' THEN cantidad ELSE 0 END) "
+                + "FROM resumen_diario_prestamos WHERE fecha BETWEEN ? AND ? GROUP BY mes ORDER BY mes";
+        return jdbcTemplate.query(sql, (rs, i) -> new ReporteMes(rs.getDate(1).toLocalDate(),
+                rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5)), Date.valueOf(desde), Date.valueOf(hasta));
+    }
+
+    public List<ReporteCategoria> utilizacionPorCategoria(LocalDate desde, LocalDate hasta) {
+        validarRango(desde, hasta);
+        String sql = "WITH r AS (SELECT categoria_id, "
+                + "SUM(CASE WHEN tipo = 'PRESTADO' THEN cantidad ELSE 0 END) AS prestamos, "
+                + "SUM(CASE WHEN tipo IN ('DEVUELTO', 'DEVUELTO_CON_MULTA') THEN cantidad ELSE 0 END) AS devoluciones, "
+                + "SUM(CASE WHEN tipo = 'MULTA_PAGADA' THEN valor_multas ELSE 0 END) AS cobrado "
+                + "FROM resumen_diario_prestamos WHERE fecha BETWEEN ? AND ? GROUP BY categoria_id), "
+                + "u AS (SELECT COALESCE(categoria_id, 0) AS categoria_id, SUM(cantidad_total) AS unidades FROM libros "
+                + "GROUP BY COALESCE(categoria_id, 0)) "
+                + "SELECT r.categoria_id, COALESCE(c.nombre, 'Sin categoría'), r.prestamos, r.devoluciones, r.cobrado, "
+                + "COALESCE(u.unidades, 0) FROM r LEFT JOIN u ON u.categoria_id = r.categoria_id "
+                + "LEFT JOIN categorias c ON c.id = r.categoria_id ORDER BY r.prestamos DESC";
+        return jdbcTemplate.query(sql, (rs, i) -> {
+            long prestamos = rs.getLong(3);
+            long unidades = rs.getLong(6);
+            return new ReporteCategoria(rs.getLong(1), rs.getString(2), prestamos, rs.getLong(4), rs.getLong(5),
+                    unidades, unidades > 0 ? (double) prestamos / unidades : 0);
+        }, Date.valueOf(desde), Date.valueOf(hasta));
+    }
+
+    private static void validarRango(LocalDate desde, LocalDate hasta) {
+        if (desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("La fecha inicial no puede ser posterior a la final");
+        }
+    }
+}
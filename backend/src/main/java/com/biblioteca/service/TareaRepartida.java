@@ -0,0 +1,17 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.EjecucionTarea;
+
+import java.util.List;
+
+// Tarea que se reparte entre los nodos (PlanificadorTareas.lanzar). planificar corre una vez, en el nodo que
+// la lanza, y divide el trabajo en rangos de ids [desde, hasta]; procesar corre en cualquier nodo, dentro de
+// la transacción que tomó el tramo, así que si falla no deja nada a medias.
+public interface TareaRepartida {
+
+    String nombre();
+
+    List<long[]> planificar(EjecucionTarea ejecucion);
+
+    int procesar(EjecucionTarea ejecucion, long desde, long hasta);
+}
@@ -0,0 +1,121 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.EjecucionTarea;
+import com.biblioteca.model.EstadoEjecucion;
+import com.biblioteca.repository.EjecucionTareaRepository;
+import com.biblioteca.repository.TramoTareaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+// Calendario de las tareas que no deben correr en todos los nodos a la vez. Los crons se disparan en cada
+// nodo; PlanificadorTareas decide quién ejecuta. Las purgas de tokens e idempotencia siguen locales:
+// borrar lo vencido desde varios nodos no pisa nada.
+@Service
+public class TareasProgramadas {
+
+    private static final Logger logger = LoggerFactory.getLogger(TareasProgramadas.class);
+
+    public static final String AVISOS = "avisos";
+    public static final String ARCHIVO = "archivo-prestamos";
+    public static final String RESERVAS = "reservas-expiradas";
+
+    // Mientras se ejecuta, otro nodo no la retoma hasta que venza MAXIMO (nodo caído). Al terminar se
+    // conserva MINIMO para que el mismo cron, disparado con segundos de diferencia en otro nodo, no la repita
+    private static final Duration MAXIMO_AVISOS = Duration.ofHours(1);
+    private static final Duration MAXIMO_ARCHIVO = Duration.ofHours(2);
+    private static final Duration MAXIMO_RESERVAS = Duration.ofMinutes(5);
+    private static final Duration MINIMO_DIARIAS = Duration.ofMinutes(10);
+    private static final Duration MINIMO_RESERVAS = Duration.ofSeconds(30);
+
+    private final PlanificadorTareas planificador;
+    private final AvisosPrestamos avisosPrestamos;
+    private final ArchivoPrestamos archivoPrestamos;
+    private final ReservaService reservaService;
+    private final EjecucionTareaRepository ejecucionRepository;
+    private final TramoTareaRepository tramoRepository;
+    private final int historialDias;
+    private final long esperaMultasMs;
+
+    public TareasProgramadas(PlanificadorTareas planificador,
+                             AvisosPrestamos avisosPrestamos,
+                             ArchivoPrestamos archivoPrestamos,
+                             ReservaService reservaService,
+                             EjecucionTareaRepository ejecucionRepository,
+                             TramoTareaRepository tramoRepository,
+                             @Value("${biblioteca.tareas.historial-dias:30}") int historialDias,
+                             @Value("${biblioteca.tareas.espera-multas-ms:120000}") long esperaMultasMs) {
+        this.planificador = planificador;
+        this.avisosPrestamos = avisosPrestamos;
+        this.archivoPrestamos = archivoPrestamos;
+        this.reservaService = reservaService;
+        this.ejecucionRepository = ejecucionRepository;
+        this.tramoRepository = tramoRepository;
+        this.historialDias = Math.max(1, historialDias);
+        this.esperaMultasMs = esperaMultasMs;
+    }
+
+    @Scheduled(cron = "${biblioteca.multas.cron:0 15 0 * * *}")
+    public void multasProgramadas() {
+        programada(MultasVencidas.NOMBRE, () -> planificador.lanzar(MultasVencidas.NOMBRE, MINIMO_DIARIAS));
+    }
+
+    @Scheduled(cron = "${biblioteca.notificaciones.cron:0 0 8 * * *}")
+    public void avisosProgramados() {
+        programada(AVISOS, () -> planificador.comoLider(AVISOS, MAXIMO_AVISOS, MINIMO_DIARIAS, avisosPrestamos::ejecutar));
+    }
+
+    @Scheduled(cron = "${biblioteca.archivo.cron:0 0 4 * * *}")
+    public void archivoProgramado() {
+        programada(ARCHIVO, () -> planificador.comoLider(ARCHIVO, MAXIMO_ARCHIVO, MINIMO_DIARIAS, archivoPrestamos::archivar));
+    }
+
+    @Scheduled(fixedDelayString = "${biblioteca.reservas.revision-ms:60000}")
+    public void reservasProgramadas() {
+        programada(RESERVAS, () -> planificador.comoLider(RESERVAS, MAXIMO_RESERVAS, MINIMO_RESERVAS, reservaService::expirarReservas));
+    }
+
+    @Scheduled(cron = "${biblioteca.tareas.purga-cron:0 45 3 * * *}")
+    public void purgarHistorial() {
+        int ejecuciones = ejecucionRepository.eliminarAnteriores(LocalDateTime.now().minusDays(historialDias));
+        int tramos = tramoRepository.eliminarHuerfanos();
+        if (ejecuciones > 0) {
+            logger.info("Historial de tareas purgado: {} ejecución(es), {} tramo(s)", ejecuciones, tramos);
+        }
+    }
+
+    // Ejecución manual (AdminController). Sin mínimo: se puede repetir en cuanto termina
+    public Map<String, Object> enviarAvisos() {
+        return planificador.comoLider(AVISOS, MAXIMO_AVISOS, Duration.ZERO, avisosPrestamos::ejecutar)
+                .orElseThrow(() -> new IllegalStateException("Otro nodo está enviando los avisos"));
+    }
+
+    public Map<String, Object> archivarPrestamos() {
+        return planificador.comoLider(ARCHIVO, MAXIMO_ARCHIVO, Duration.ZERO, archivoPrestamos::archivar)
+                .orElseThrow(() -> new IllegalStateException("Otro nodo está archivando préstamos"));
+    }
+
+    // Lanza el recalculo de multas (o se suma al que ya está en curso), trabaja tramos en este nodo junto con
+    // los demás y espera el resultado hasta biblioteca.tareas.espera-multas-ms
+    public EjecucionTareaRepository.Resultado actualizarMultas() {
+        EjecucionTarea ejecucion = planificador.lanzar(MultasVencidas.NOMBRE, Duration.ZERO);
+        if (ejecucion.getEstado() == EstadoEjecucion.EN_CURSO) {
+            planificador.trabajarEn(ejecucion.getId());
+        }
+        return planificador.esperar(ejecucion.getId(), Duration.ofMillis(esperaMultasMs));
+    }
+
+    private void programada(String tarea, Runnable ejecucion) {
+        try {
+            ejecucion.run();
+        } catch (RuntimeException e) {
+            logger.error("La tarea programada {} falló", tarea, e);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.LibroTendencia;
+import com.biblioteca.model.Libro;
+import com.biblioteca.repository.CategoriaRepository;
+import com.biblioteca.repository.LibroRepository;
+import com.biblioteca.repository.PrestamoRepository;
+import com.biblioteca.util.LongIntHashMap;
+import com.biblioteca.util.Transacciones;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Libros más prestados de la semana o del mes, sin GROUP BY sobre la tabla prestamos.
+// Cada día tiene su cubeta con un resumen Space-Saving global y uno por categoría; una ventana
+// suma las cubetas de sus días. Los rankings calculados se guardan unos segundos.
+// Cotas de la suma (m = capacidad, N = préstamos de la ventana): si un libro falta en el resumen de un día
+// se le suma el mínimo de ese resumen, que acota lo que pudo tener ese día. Así conteo >= real >=
+// conteo - errorMaximo, errorMaximo <= N/m, y todo libro con más de N/m préstamos en la ventana aparece.
+@Service
+public class TendenciasService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TendenciasService.class);
+
+    private static final int DIAS_RETENIDOS = 31;
+    private static final long SIN_CATEGORIA = 0L;
+    // Se calcula y guarda el ranking de este tamaño; cada consulta toma sus primeros "limite"
+    public static final int LIMITE_MAXIMO = 100;
+
+    public enum Periodo {
+        SEMANA(7),
+        MES(30);
+
+        private final int dias;
+
+        Periodo(int dias) {
+            this.dias = dias;
+        }
+    }
+
+    private static final class Cubeta {
+        final long dia;
+        final ContadorTopK global;
+        final Map<Long, ContadorTopK> porCategoria = new ConcurrentHashMap<>();
+
+        Cubeta(long dia, int capacidad) {
+            this.dia = dia;
+            this.global = new ContadorTopK(capacidad);
+        }
+    }
+
+    private record Ranking(long calculadoEn, List<long[]> entradas) {
+    }
+
+    private final PrestamoRepository prestamoRepository;
+    private final LibroRepository libroRepository;
+    private final CategoriaRepository categoriaRepository;
+    private final int capacidadResumen;
+    private final long vigenciaCacheMs;
+
+    // Se reemplazan bajo el monitor del servicio (cubeta()); calcular las lee sin tomarlo
+    private final AtomicReferenceArray<Cubeta> cubetas = new AtomicReferenceArray<>(DIAS_RETENIDOS);
+    // Una entrada por periodo y categoría existente: las categorías desconocidas se rechazan antes de calcular
+    private final ConcurrentHashMap<String, Ranking> cache = new ConcurrentHashMap<>();
+
+    public TendenciasService(PrestamoRepository prestamoRepository,
+                             LibroRepository libroRepository,
+                             CategoriaRepository categoriaRepository,
+                             @Value("${biblioteca.tendencias.capacidad-resumen:512}") int capacidadResumen,
+                             @Value("${biblioteca.tendencias.cache-ms:60000}") long vigenciaCacheMs) {
+        this.prestamoRepository = prestamoRepository;
+        this.libroRepository = libroRepository;
+        this.categoriaRepository = categoriaRepository;
+        this.capacidadResumen = capacidadResumen;
+        this.vigenciaCacheMs = vigenciaCacheMs;
+    }
+
+    // Carga los últimos días agregados por libro y fecha (rango acotado sobre el índice de fechaPrestamo)
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        LocalDate desde = LocalDate.now().minusDays(DIAS_RETENIDOS - 1);
+        List<Object[]> filas = prestamoRepository.findConteoPorLibroYFechaDesde(desde);
+        for (Object[] fila : filas) {
+            Long categoriaId = (Long) fila[1];
+            sumar((Long) fila[0], categoriaId != null ? categoriaId : SIN_CATEGORIA,
+                    ((LocalDate) fila[2]).toEpochDay(), (Long) fila[3]);
+        }
+        logger.info("Tendencias cargadas desde {}: {} grupo(s) libro/día", desde, filas.size());
+    }
+
+    public void registrarPrestamo(Libro libro, LocalDate fecha) {
+        long libroId = libro.getId();
+        long categoriaId = libro.getCategoria() != null && libro.getCategoria().getId() != null
+                ? libro.getCategoria().getId() : SIN_CATEGORIA;
+        long dia = fecha.toEpochDay();
+        Transacciones.despuesDeCommit(() -> sumar(libroId, categoriaId, dia, 1));
+    }
+
+    public List<LibroTendencia> masPrestados(Periodo periodo, Long categoriaId, int limite) {
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + LIMITE_MAXIMO);
+        }
+        String clave = periodo + ":" + categoriaId;
+        long ahora = System.currentTimeMillis();
+        Ranking ranking = cache.get(clave);
+        if (ranking == null || ahora - ranking.calculadoEn() > vigenciaCacheMs) {
+            if (ranking == null && categoriaId != null && !categoriaRepository.existsById(categoriaId)) {
+                throw new IllegalArgumentException("Categoría no encontrada");
+            }
+            ranking = new Ranking(ahora, calcular(periodo, categoriaId, LIMITE_MAXIMO));
+            cache.put(clave, ranking);
+        }
+
+        List<long[]> entradas = ranking.entradas().subList(0, Math.min(limite, ranking.entradas().size()));
+        List<Long> ids = entradas.stream().map(e -> e[0]).toList();
+        Map<Long, Libro> libros = libroRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Libro::getId, Function.identity()));
+        List<LibroTendencia> resultado = new ArrayList<>();
+        for (long[] entrada : entradas) {
+            Libro libro = libros.get(entrada[0]);
+            if (libro != null) {
+                resultado.add(new LibroTendencia(libro, entrada[1], entrada[2]));
+            }
+        }
+        return resultado;
+    }
+
+    private List<long[]> calcular(Periodo periodo, Long categoriaId, int limite) {
+        long hoy = LocalDate.now().toEpochDay();
+        LongIntHashMap acumulado = new LongIntHashMap(capacidadResumen * 2);
+        LongIntHashMap errores = new LongIntHashMap(capacidadResumen * 2);
+        // Libros de cada resumen lleno (mínimo > 0) y ese mínimo, para sumarlo a los libros que le faltan
+        List<LongIntHashMap> presentes = new ArrayList<>();
+        List<Long> minimos = new ArrayList<>();
+        for (long dia = hoy - periodo.dias + 1; dia <= hoy; dia++) {
+            Cubeta cubeta = cubetas.get((int) (dia % DIAS_RETENIDOS));
+            if (cubeta == null || cubeta.dia != dia) {
+                continue;
+            }
+            synchronized (cubeta) {
+                ContadorTopK resumen = categoriaId == null ? cubeta.global : cubeta.porCategoria.get(categoriaId);
+                if (resumen != null) {
+                    resumen.acumularEn(acumulado);
+                    resumen.acumularErroresEn(errores);
+                    long minimo = resumen.minimo();
+                    if (minimo > 0) {
+                        LongIntHashMap libros = new LongIntHashMap(resumen.tamano() * 2);
+                        resumen.acumularEn(libros);
+                        presentes.add(libros);
+                        minimos.add(minimo);
+                    }
+                }
+            }
+        }
+        if (!presentes.isEmpty()) {
+            List<Long> candidatos = new ArrayList<>(acumulado.size());
+            acumulado.forEach((libroId, conteo) -> candidatos.add(libroId));
+            for (int i = 0; i < presentes.size(); i++) {
+                int minimo = minimos.get(i).intValue();
+                for (long libroId : candidatos) {
+                    if (!presentes.get(i).containsKey(libroId)) {
+                        acumulado.addTo(libroId, minimo);
+                        errores.addTo(libroId, minimo);
+                    }
+                }
+            }
+        }
+
+        List<long[]> entradas = new ArrayList<>(acumulado.size());
+        acumulado.forEach((libroId, conteo) -> entradas.add(new long[]{libroId, conteo, errores.get(libroId)}));
+        entradas.sort(Comparator.comparingLong((long[] e) -> e[1]).reversed());
+        return entradas.size() > limite ? new ArrayList<>(entradas.subList(0, limite)) : entradas;
+    }
+
+    private void sumar(long libroId, long categoriaId, long dia, long cantidad) {
+        Cubeta cubeta = cubeta(dia);
+        if (cubeta == null) {
+            return;
+        }
+        synchronized (cubeta) {
+            cubeta.global.sumar(libroId, cantidad);
+            cubeta.porCategoria.computeIfAbsent(categoriaId, id -> new ContadorTopK(capacidadResumen))
+                    .sumar(libroId, cantidad);
+        }
+    }
+
+    // Devuelve la cubeta del día, reciclando la del mismo índice si pertenece a un día anterior
+    private synchronized Cubeta cubeta(long dia) {
+        if (dia <= LocalDate.now().toEpochDay() - DIAS_RETENIDOS) {
+            return null;
+        }
+        int indice = (int) (dia % DIAS_RETENIDOS);
+        Cubeta actual = cubetas.get(indice);
+        if (actual == null || actual.dia < dia) {
+            actual = new Cubeta(dia, capacidadResumen);
+            cubetas.set(indice, actual);
+        } else if (actual.dia > dia) {
+            return null;
+        }
+        return actual;
+    }
+}
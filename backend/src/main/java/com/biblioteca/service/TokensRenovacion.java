@@ -0,0 +1,134 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.TokenRenovacion;
+import com.biblioteca.model.Usuario;
+import com.biblioteca.repository.TokenRenovacionRepository;
+import com.biblioteca.repository.UsuarioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+// Tokens de renovación rotativos. El access token dura minutos y se valida solo con su firma; para seguir
+// conectado el cliente cambia el token de renovación por un par nuevo, con una búsqueda por hash en vez
+// de BCrypt. Bloquear o eliminar un usuario revoca sus tokens, así que pierde el acceso en cuanto vence
+// el access token que tenga.
+@Service
+public class TokensRenovacion {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokensRenovacion.class);
+    private static final SecureRandom ALEATORIO = new SecureRandom();
+
+    public record Rotacion(Usuario usuario, String token) {
+    }
+
+    private final TokenRenovacionRepository repository;
+    private final UsuarioRepository usuarioRepository;
+    private final int diasVigencia;
+
+    public TokensRenovacion(TokenRenovacionRepository repository,
+                            UsuarioRepository usuarioRepository,
+                            @Value("${biblioteca.jwt.renovacion-dias:14}") int diasVigencia) {
+        this.repository = repository;
+        this.usuarioRepository = usuarioRepository;
+        this.diasVigencia = diasVigencia;
+    }
+
+    // Abre una familia nueva (un login)
+    @Transactional
+    public String emitir(Long usuarioId) {
+        return emitir(usuarioId, UUID.randomUUID().toString());
+    }
+
+    // Las revocaciones por reuso o bloqueo deben confirmarse aunque la renovación falle
+    @Transactional(noRollbackFor = AuthenticationException.class)
+    public Rotacion rotar(String token) {
+        TokenRenovacion actual = buscar(token);
+        LocalDateTime ahora = LocalDateTime.now();
+        if (actual.isRevocado() || actual.getUsado() != null || repository.marcarUsado(actual.getId(), ahora) == 0) {
+            int revocados = repository.revocarFamilia(actual.getFamilia());
+            if (!actual.isRevocado()) {
+                logger.warn("Token de renovación reutilizado (usuario {}): se revocan {} tokens de la sesión",
+                        actual.getUsuarioId(), revocados);
+            }
+            throw new BadCredentialsException("Token de renovación ya utilizado o revocado");
+        }
+        if (actual.getExpira().isBefore(ahora)) {
+            throw new BadCredentialsException("Token de renovación vencido");
+        }
+        Usuario usuario = usuarioRepository.findById(actual.getUsuarioId())
+                .orElseThrow(() -> new BadCredentialsException("Usuario no encontrado"));
+        if (usuario.isBloqueado()) {
+            repository.revocarUsuarios(List.of(usuario.getId()));
+            throw new DisabledException("Usuario bloqueado");
+        }
+        return new Rotacion(usuario, emitir(usuario.getId(), actual.getFamilia()));
+    }
+
+    // Cierre de sesión: revoca la familia del token presentado; un token desconocido se ignora
+    @Transactional
+    public void revocar(String token) {
+        if (token == null || token.isBlank()) {
+            return;
+        }
+        repository.findByHash(hash(token)).ifPresent(t -> repository.revocarFamilia(t.getFamilia()));
+    }
+
+    @Transactional
+    public int revocarUsuarios(Collection<Long> usuarioIds) {
+        if (usuarioIds.isEmpty()) {
+            return 0;
+        }
+        return repository.revocarUsuarios(usuarioIds);
+    }
+
+    // Los usados se conservan hasta vencer para poder detectar su reuso
+    @Scheduled(fixedDelayString = "${biblioteca.jwt.purga-ms:3600000}")
+    public int purgarVencidos() {
+        return repository.eliminarVencidos(LocalDateTime.now());
+    }
+
+    private String emitir(Long usuarioId, String familia) {
+        byte[] bytes = new byte[32];
+        ALEATORIO.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        LocalDateTime ahora = LocalDateTime.now();
+        repository.save(new TokenRenovacion(null, hash(token), usuarioId, familia, ahora,
+                ahora.plusDays(diasVigencia), null, false));
+        return token;
+    }
+
+    private TokenRenovacion buscar(String token) {
+        if (token == null || token.isBlank()) {
+            throw new BadCredentialsException("Token de renovación requerido");
+        }
+        return repository.findByHash(hash(token))
+                .orElseThrow(() -> new BadCredentialsException("Token de renovación inválido"));
+    }
+
+    // El token tiene 256 bits aleatorios: un SHA-256 sin sal basta y permite buscarlo por índice
+    private static String hash(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.OperacionUsuarios;
+import com.biblioteca.dto.PaginaUsuarios;
+import com.biblioteca.dto.ResultadoOperacionUsuarios;
+import com.biblioteca.dto.ResultadoOperacionUsuarios.Detalle;
+import com.biblioteca.dto.ResultadoOperacionUsuarios.Estado;
+import com.biblioteca.model.Rol;
+import com.biblioteca.model.Usuario;
+import com.biblioteca.repository.UsuarioRepository;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class UsuarioService {
+
+    public static final int LIMITE_MAXIMO = 200;
+    // Tope de usuarios por operación masiva; también mantiene la lista IN muy por debajo del límite de parámetros
+    public static final int LOTE_MAXIMO = 5000;
+
+    private final UsuarioRepository usuarioRepository;
+    private final TokensRenovacion tokensRenovacion;
+    private final BusInvalidaciones busInvalidaciones;
+
+    public UsuarioService(UsuarioRepository usuarioRepository, TokensRenovacion tokensRenovacion,
+                          BusInvalidaciones busInvalidaciones) {
+        this.usuarioRepository = usuarioRepository;
+        this.tokensRenovacion = tokensRenovacion;
+        this.busInvalidaciones = busInvalidaciones;
+    }
+
+    // Directorio paginado por keyset sobre username: cada página es "username > despuesDe ORDER BY username
+    // LIMIT n", así que la página 1000 cuesta lo mismo que la primera. q busca por prefijo, sin distinguir
+    // mayúsculas, en username, nombre, apellido y email (índices lower(...) text_pattern_ops de schema.sql).
+    @Transactional(readOnly = true)
+    public PaginaUsuarios buscar(String q, Rol rol, Boolean bloqueado, String despuesDe, int limite) {
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + LIMITE_MAXIMO);
+        }
+
+        Specification<Usuario> filtro = filtro(q, rol, bloqueado);
+        if (despuesDe != null && !despuesDe.isEmpty()) {
+            filtro = filtro.and((root, query, cb) -> cb.greaterThan(root.get("username"), despuesDe));
+        }
+
+        // Se pide uno de más para saber si hay página siguiente sin un COUNT
+        List<Usuario> usuarios = usuarioRepository.findBy(filtro, consulta -> consulta
+                .sortBy(Sort.by("username"))
+                .limit(limite + 1)
+                .all());
+        String siguiente = null;
+        if (usuarios.size() > limite) {
+            usuarios = usuarios.subList(0, limite);
+            siguiente = usuarios.get(limite - 1).getUsername();
+        }
+        usuarios.forEach(u -> u.setPassword(null));
+        return new PaginaUsuarios(usuarios, siguiente);
+    }
+
+    // Bloqueo, desbloqueo, cambio de rol o borrado de muchos usuarios en una sola transacción: una lectura para
+    // clasificar a cada destinatario, una sentencia UPDATE/DELETE ... WHERE id IN (...) para los que cambian y una
+    // revocación conjunta de sesiones. Si algo falla no se aplica nada.
+    @Transactional
+    public ResultadoOperacionUsuarios aplicar(OperacionUsuarios operacion, String adminActual) {
+        OperacionUsuarios.Accion accion = operacion.getAccion();
+        if (accion == null) {
+            throw new IllegalArgumentException("La acción es obligatoria");
+        }
+        if (accion == OperacionUsuarios.Accion.CAMBIAR_ROL && operacion.getNuevoRol() == null) {
+            throw new IllegalArgumentException("Indica el nuevo rol");
+        }
+
+        List<Long> ids;
+        Map<Long, Usuario> usuarios;
+        if (operacion.getIds() != null && !operacion.getIds().isEmpty()) {
+            if (operacion.getIds().contains(null)) {
+                throw new IllegalArgumentException("La lista de ids contiene valores nulos");
+            }
+            ids = new ArrayList<>(new LinkedHashSet<>(operacion.getIds()));
+            if (ids.size() > LOTE_MAXIMO) {
+                throw new IllegalArgumentException("Como máximo " + LOTE_MAXIMO + " usuarios por operación");
+            }
+            usuarios = usuarioRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Usuario::getId, Function.identity()));
+        } else {
+            boolean sinCriterio = (operacion.getQ() == null || operacion.getQ().isBlank())
+                    && operacion.getRol() == null && operacion.getBloqueado() == null;
+            if (sinCriterio) {
+                throw new IllegalArgumentException("Indica una lista de ids o al menos un criterio de filtro");
+            }
+            List<Usuario> encontrados = usuarioRepository.findBy(
+                    filtro(operacion.getQ(), operacion.getRol(), operacion.getBloqueado()),
+                    consulta -> consulta.sortBy(Sort.by("id")).limit(LOTE_MAXIMO + 1).all());
+            if (encontrados.size() > LOTE_MAXIMO) {
+                throw new IllegalArgumentException("El filtro abarca más de " + LOTE_MAXIMO + " usuarios; acótalo");
+            }
+            ids = encontrados.stream().map(Usuario::getId).toList();
+            usuarios = encontrados.stream().collect(Collectors.toMap(Usuario::getId, Function.identity()));
+        }
+
+        Set<Long> conHistorial = accion == OperacionUsuarios.Accion.ELIMINAR && !usuarios.isEmpty()
+                ? new HashSet<>(usuarioRepository.findConHistorial(usuarios.keySet()))
+                : Set.of();
+
+        List<Detalle> resultados = new ArrayList<>(ids.size());
+        List<Long> aAplicar = new ArrayList<>();
+        int sinCambios = 0, omitidos = 0, noEncontrados = 0;
+        for (Long id : ids) {
+            Usuario usuario = usuarios.get(id);
+            if (usuario == null) {
+                resultados.add(new Detalle(id, null, Estado.NO_ENCONTRADO, null));
+                noEncontrados++;
+                continue;
+            }
+            String motivo = null;
+            boolean igual = false;
+            // El administrador que opera nunca se incluye: no puede bloquearse, degradarse ni borrarse a sí mismo
+            if (usuario.getUsername().equals(adminActual)) {
+                motivo = "Es el usuario que realiza la operación";
+            } else {
+                switch (accion) {
+                    case BLOQUEAR -> igual = usuario.isBloqueado();
+                    case DESBLOQUEAR -> igual = !usuario.isBloqueado();
+                    case CAMBIAR_ROL -> igual = usuario.getRol() == operacion.getNuevoRol();
+                    case ELIMINAR -> {
+                        if (conHistorial.contains(id)) {
+                            motivo = "Tiene préstamos o reservas registrados";
+                        }
+                    }
+                }
+            }
+            if (motivo != null) {
+                resultados.add(new Detalle(id, usuario.getUsername(), Estado.OMITIDO, motivo));
+                omitidos++;
+            } else if (igual) {
+                resultados.add(new Detalle(id, usuario.getUsername(), Estado.SIN_CAMBIOS, null));
+                sinCambios++;
+            } else {
+                resultados.add(new Detalle(id, usuario.getUsername(), Estado.APLICADO, null));
+                aAplicar.add(id);
+            }
+        }
+
+        int sesionesRevocadas = 0;
+        if (!aAplicar.isEmpty()) {
+            int afectados = switch (accion) {
+                case BLOQUEAR -> usuarioRepository.actualizarBloqueado(aAplicar, true);
+                case DESBLOQUEAR -> usuarioRepository.actualizarBloqueado(aAplicar, false);
+                case CAMBIAR_ROL -> usuarioRepository.actualizarRol(aAplicar, operacion.getNuevoRol());
+                case ELIMINAR -> usuarioRepository.eliminarTodos(aAplicar);
+            };
+            // Alguien borró usuarios entre la lectura y la escritura: el detalle ya no sería fiel, se revierte todo
+            if (afectados != aAplicar.size()) {
+                throw new IllegalStateException("Los usuarios cambiaron durante la operación; vuelve a intentarlo");
+            }
+            // Las sentencias masivas no pasan por los listeners JPA: se avisa a los otros nodos a mano
+            busInvalidaciones.publicar(BusInvalidaciones.Tipo.USUARIO, aAplicar);
+            // Los bloqueados y borrados no podrán renovar su access token. Un cambio de rol no necesita revocación:
+            // la siguiente renovación ya emite el token con el rol nuevo
+            if (accion == OperacionUsuarios.Accion.BLOQUEAR || accion == OperacionUsuarios.Accion.ELIMINAR) {
+                sesionesRevocadas = tokensRenovacion.revocarUsuarios(aAplicar);
+            }
+        }
+        return new ResultadoOperacionUsuarios(aAplicar.size(), sinCambios, omitidos, noEncontrados,
+                sesionesRevocadas, resultados);
+    }
+
+    private static Specification<Usuario> filtro(String q, Rol rol, Boolean bloqueado) {
+        Specification<Usuario> filtro = Specification.where(null);
+        if (q != null && !q.isBlank()) {
+            filtro = filtro.and(conPrefijo(q.trim().toLowerCase(Locale.ROOT)));
+        }
+        if (rol != null) {
+            filtro = filtro.and((root, query, cb) -> cb.equal(root.get("rol"), rol));
+        }
+        if (bloqueado != null) {
+            filtro = filtro.and((root, query, cb) -> cb.equal(root.get("bloqueado"), bloqueado));
+        }
+        return filtro;
+    }
+
+    private static Specification<Usuario> conPrefijo(String prefijo) {
+        String patron = prefijo.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (root, query, cb) -> cb.or(
+                cb.like(cb.lower(root.get("username")), patron, '\\'),
+                cb.like(cb.lower(root.get("nombre")), patron, '\\'),
+                cb.like(cb.lower(root.get("apellido")), patron, '\\'),
+                cb.like(cb.lower(root.get("email")), patron, '\\'));
+    }
+}
@@ -0,0 +1,40 @@
+package com.biblioteca.util;
+
+import com.biblioteca.exception.PrecondicionFallidaException;
+
+// ETags fuertes a partir de la columna @Version de Libro, Categoria y Usuario
+public final class ETags {
+
+    private ETags() {
+    }
+
+    public static String de(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // Libro: los préstamos cambian la disponibilidad sin tocar la versión, y el GET no debe revalidarse con
+    // stock viejo. En If-Match solo cuenta la versión: la disponibilidad no se edita desde el formulario
+    public static String de(long version, int disponible) {
+        return "\"" + version + "-" + disponible + "\"";
+    }
+
+    // Sin If-Match no hay precondición (clientes antiguos siguen funcionando). "*" acepta cualquier versión.
+    // Comparación fuerte: un ETag débil (W/"...") nunca coincide
+    public static void comprobar(String ifMatch, long version) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return;
+        }
+        String actual = de(version);
+        for (String etiqueta : ifMatch.split(",")) {
+            String e = etiqueta.trim();
+            int guion = e.indexOf('-');
+            if (guion > 0 && e.endsWith("\"")) {
+                e = e.substring(0, guion) + "\"";
+            }
+            if (e.equals("*") || e.equals(actual)) {
+                return;
+            }
+        }
+        throw new PrecondicionFallidaException("El recurso fue modificado por otra persona; recárgalo antes de guardar");
+    }
+}
@@ -0,0 +1,207 @@
+package com.biblioteca.util;
+
+import java.util.Arrays;
+
+// Mapa long -> int con direccionamiento abierto (sondeo lineal) sobre arreglos primitivos.
+// Evita el boxing y los nodos de HashMap; la clave 0 se guarda aparte. No es thread-safe.
+public class LongIntHashMap {
+
+    private static final float FACTOR_CARGA = 0.6f;
+
+    private long[] claves;
+    private int[] valores;
+    private int tamano;
+    private int umbral;
+    private boolean tieneCero;
+    private int valorCero;
+
+    public LongIntHashMap() {
+        this(8);
+    }
+
+    public LongIntHashMap(int capacidadInicial) {
+        int capacidad = Integer.highestOneBit(Math.max(4, (int) (capacidadInicial / FACTOR_CARGA)) * 2 - 1);
+        claves = new long[capacidad];
+        valores = new int[capacidad];
+        umbral = (int) (capacidad * FACTOR_CARGA);
+    }
+
+    public int get(long clave) {
+        if (clave == 0) {
+            return tieneCero ? valorCero : 0;
+        }
+        int mascara = claves.length - 1;
+        for (int i = indice(clave, mascara); ; i = (i + 1) & mascara) {
+            long actual = claves[i];
+            if (actual == clave) {
+                return valores[i];
+            }
+            if (actual == 0) {
+                return 0;
+            }
+        }
+    }
+
+    public boolean containsKey(long clave) {
+        if (clave == 0) {
+            return tieneCero;
+        }
+        int mascara = claves.length - 1;
+        for (int i = indice(clave, mascara); ; i = (i + 1) & mascara) {
+            long actual = claves[i];
+            if (actual == clave) {
+                return true;
+            }
+            if (actual == 0) {
+                return false;
+            }
+        }
+    }
+
+    public void put(long clave, int valor) {
+        if (clave == 0) {
+            if (!tieneCero) {
+                tieneCero = true;
+                tamano++;
+            }
+            valorCero = valor;
+            return;
+        }
+        int mascara = claves.length - 1;
+        for (int i = indice(clave, mascara); ; i = (i + 1) & mascara) {
+            long actual = claves[i];
+            if (actual == clave) {
+                valores[i] = valor;
+                return;
+            }
+            if (actual == 0) {
+                claves[i] = clave;
+                valores[i] = valor;
+                if (++tamano > umbral) {
+                    crecer();
+                }
+                return;
+            }
+        }
+    }
+
+    // Suma delta al valor de la clave (0 si no existía) y devuelve el nuevo valor
+    public int addTo(long clave, int delta) {
+        if (clave == 0) {
+            if (!tieneCero) {
+                tieneCero = true;
+                tamano++;
+            }
+            valorCero += delta;
+            return valorCero;
+        }
+        int mascara = claves.length - 1;
+        for (int i = indice(clave, mascara); ; i = (i + 1) & mascara) {
+            long actual = claves[i];
+            if (actual == clave) {
+                valores[i] += delta;
+                return valores[i];
+            }
+            if (actual == 0) {
+                claves[i] = clave;
+                valores[i] = delta;
+                if (++tamano > umbral) {
+                    crecer();
+                }
+                return delta;
+            }
+        }
+    }
+
+    // Elimina la clave desplazando hacia atrás las siguientes de su racha de sondeo (sin lápidas)
+    public int remove(long clave) {
+        if (clave == 0) {
+            if (!tieneCero) {
+                return 0;
+            }
+            int valor = valorCero;
+            tieneCero = false;
+            valorCero = 0;
+            tamano--;
+            return valor;
+        }
+        int mascara = claves.length - 1;
+        int i = indice(clave, mascara);
+        while (claves[i] != clave) {
+            if (claves[i] == 0) {
+                return 0;
+            }
+            i = (i + 1) & mascara;
+        }
+        int valor = valores[i];
+        int hueco = i;
+        for (int j = (i + 1) & mascara; claves[j] != 0; j = (j + 1) & mascara) {
+            int ideal = indice(claves[j], mascara);
+            boolean puedeMoverse = j > hueco ? (ideal <= hueco || ideal > j) : (ideal <= hueco && ideal > j);
+            if (puedeMoverse) {
+                claves[hueco] = claves[j];
+                valores[hueco] = valores[j];
+                hueco = j;
+            }
+        }
+        claves[hueco] = 0;
+        tamano--;
+        return valor;
+    }
+
+    public int size() {
+        return tamano;
+    }
+
+    public boolean isEmpty() {
+        return tamano == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(claves, 0);
+        tieneCero = false;
+        valorCero = 0;
+        tamano = 0;
+    }
+
+    public void forEach(Consumidor consumidor) {
+        if (tieneCero) {
+            consumidor.aceptar(0, valorCero);
+        }
+        for (int i = 0; i < claves.length; i++) {
+            if (claves[i] != 0) {
+                consumidor.aceptar(claves[i], valores[i]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Consumidor {
+        void aceptar(long clave, int valor);
+    }
+
+    private void crecer() {
+        long[] clavesAnteriores = claves;
+        int[] valoresAnteriores = valores;
+        claves = new long[clavesAnteriores.length * 2];
+        valores = new int[valoresAnteriores.length * 2];
+        umbral = (int) (claves.length * FACTOR_CARGA);
+        int mascara = claves.length - 1;
+        for (int j = 0; j < clavesAnteriores.length; j++) {
+            long clave = clavesAnteriores[j];
+            if (clave != 0) {
+                int i = indice(clave, mascara);
+                while (claves[i] != 0) {
+                    i = (i + 1) & mascara;
+                }
+                claves[i] = clave;
+                valores[i] = valoresAnteriores[j];
+            }
+        }
+    }
+
+    private static int indice(long clave, int mascara) {
+        long h = clave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mascara;
+    }
+}
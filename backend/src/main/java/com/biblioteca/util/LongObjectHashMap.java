@@ -0,0 +1,132 @@
+package com.biblioteca.util;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+// Mapa long -> objeto con direccionamiento abierto; mismas reglas que LongIntHashMap. No es thread-safe.
+public class LongObjectHashMap<V> {
+
+    private static final float FACTOR_CARGA = 0.6f;
+
+    private long[] claves;
+    private Object[] valores;
+    private int tamano;
+    private int umbral;
+    private V valorCero;
+
+    public LongObjectHashMap() {
+        this(8);
+    }
+
+    public LongObjectHashMap(int capacidadInicial) {
+        int capacidad = Integer.highestOneBit(Math.max(4, (int) (capacidadInicial / FACTOR_CARGA)) * 2 - 1);
+        claves = new long[capacidad];
+        valores = new Object[capacidad];
+        umbral = (int) (capacidad * FACTOR_CARGA);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long clave) {
+        if (clave == 0) {
+            return valorCero;
+        }
+        int mascara = claves.length - 1;
+        for (int i = indice(clave, mascara); ; i = (i + 1) & mascara) {
+            long actual = claves[i];
+            if (actual == clave) {
+                return (V) valores[i];
+            }
+            if (actual == 0) {
+                return null;
+            }
+        }
+    }
+
+    public V computeIfAbsent(long clave, LongFunction<V> crear) {
+        V actual = get(clave);
+        if (actual == null) {
+            actual = crear.apply(clave);
+            put(clave, actual);
+        }
+        return actual;
+    }
+
+    public void put(long clave, V valor) {
+        if (clave == 0) {
+            if (valorCero == null) {
+                tamano++;
+            }
+            valorCero = valor;
+            return;
+        }
+        int mascara = claves.length - 1;
+        for (int i = indice(clave, mascara); ; i = (i + 1) & mascara) {
+            long actual = claves[i];
+            if (actual == clave) {
+                valores[i] = valor;
+                return;
+            }
+            if (actual == 0) {
+                claves[i] = clave;
+                valores[i] = valor;
+                if (++tamano > umbral) {
+                    crecer();
+                }
+                return;
+            }
+        }
+    }
+
+    public int size() {
+        return tamano;
+    }
+
+    public void clear() {
+        Arrays.fill(claves, 0);
+        Arrays.fill(valores, null);
+        valorCero = null;
+        tamano = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumidor<V> consumidor) {
+        if (valorCero != null) {
+            consumidor.aceptar(0, valorCero);
+        }
+        for (int i = 0; i < claves.length; i++) {
+            if (claves[i] != 0) {
+                consumidor.aceptar(claves[i], (V) valores[i]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Consumidor<V> {
+        void aceptar(long clave, V valor);
+    }
+
+    private void crecer() {
+        long[] clavesAnteriores = claves;
+        Object[] valoresAnteriores = valores;
+        claves = new long[clavesAnteriores.length * 2];
+        valores = new Object[valoresAnteriores.length * 2];
+        umbral = (int) (claves.length * FACTOR_CARGA);
+        int mascara = claves.length - 1;
+        for (int j = 0; j < clavesAnteriores.length; j++) {
+            long clave = clavesAnteriores[j];
+            if (clave != 0) {
+                int i = indice(clave, mascara);
+                while (claves[i] != 0) {
+                    i = (i + 1) & mascara;
+                }
+                claves[i] = clave;
+                valores[i] = valoresAnteriores[j];
+            }
+        }
+    }
+
+    private static int indice(long clave, int mascara) {
+        long h = clave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mascara;
+    }
+}
@@ -0,0 +1,22 @@
+package com.biblioteca.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+public final class Texto {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+
+    private Texto() {
+    }
+
+    // Minúsculas y sin tildes ni diéresis ("Gabriel García Márquez" -> "gabriel garcia marquez")
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String descompuesto = Normalizer.normalize(texto.trim(), Normalizer.Form.NFD);
+        return MARCAS.matcher(descompuesto).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
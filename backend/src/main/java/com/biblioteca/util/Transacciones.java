@@ -0,0 +1,39 @@
+package com.biblioteca.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class Transacciones {
+
+    private Transacciones() {
+    }
+
+    // Ejecuta la acción cuando la transacción actual confirme; sin transacción activa se ejecuta de inmediato
+    public static void despuesDeCommit(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+
+    // Ejecuta la acción solo si la transacción actual se revierte
+    public static void siRevierte(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    accion.run();
+                }
+            }
+        });
+    }
+}
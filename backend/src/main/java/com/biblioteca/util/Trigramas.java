@@ -0,0 +1,81 @@
+package com.biblioteca.util;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+// Trigramas al estilo de pg_trgm sobre texto ya normalizado (ver Texto.normalizar): cada palabra se
+// rellena con dos espacios delante y uno detrás, y cada trigrama se empaqueta en un long (3 chars de 16 bits).
+public final class Trigramas {
+
+    private static final Pattern SEPARADOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private Trigramas() {
+    }
+
+    // Trigramas distintos del texto, ordenados
+    public static long[] de(String texto) {
+        long[] trigramas = new long[Math.max(texto.length() + 8, 16)];
+        int cantidad = 0;
+        for (String palabra : SEPARADOR.split(texto)) {
+            if (palabra.isEmpty()) {
+                continue;
+            }
+            String rellena = "  " + palabra + " ";
+            for (int i = 0; i + 3 <= rellena.length(); i++) {
+                if (cantidad == trigramas.length) {
+                    trigramas = Arrays.copyOf(trigramas, cantidad * 2);
+                }
+                trigramas[cantidad++] = codigo(rellena, i);
+            }
+        }
+        return distintos(trigramas, cantidad);
+    }
+
+    // Trigramas sin relleno de las palabras de 3 o más letras: los que debe tener cualquier texto que
+    // contenga al buscado como subcadena
+    public static long[] interiores(String texto) {
+        long[] trigramas = new long[Math.max(texto.length(), 16)];
+        int cantidad = 0;
+        for (String palabra : SEPARADOR.split(texto)) {
+            for (int i = 0; i + 3 <= palabra.length(); i++) {
+                trigramas[cantidad++] = codigo(palabra, i);
+            }
+        }
+        return distintos(trigramas, cantidad);
+    }
+
+    // Fracción de los trigramas de la consulta (ordenados) que también están en el texto (ordenados)
+    public static double cobertura(long[] consulta, long[] texto) {
+        if (consulta.length == 0) {
+            return 0;
+        }
+        int comunes = 0;
+        for (int i = 0, j = 0; i < consulta.length && j < texto.length; ) {
+            if (consulta[i] == texto[j]) {
+                comunes++;
+                i++;
+                j++;
+            } else if (consulta[i] < texto[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return comunes / (double) consulta.length;
+    }
+
+    private static long codigo(String texto, int i) {
+        return ((long) texto.charAt(i) << 32) | ((long) texto.charAt(i + 1) << 16) | texto.charAt(i + 2);
+    }
+
+    private static long[] distintos(long[] trigramas, int cantidad) {
+        Arrays.sort(trigramas, 0, cantidad);
+        int unicos = 0;
+        for (int i = 0; i < cantidad; i++) {
+            if (unicos == 0 || trigramas[unicos - 1] != trigramas[i]) {
+                trigramas[unicos++] = trigramas[i];
+            }
+        }
+        return Arrays.copyOf(trigramas, unicos);
+    }
+}
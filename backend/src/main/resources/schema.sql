@@ -0,0 +1,25 @@
+-- Índices que JPA no puede declarar. Se ejecuta en cada arranque después de que Hibernate
+-- actualiza el esquema (spring.jpa.defer-datasource-initialization=true), por eso IF NOT EXISTS.
+
+-- Búsqueda por prefijo sin distinguir mayúsculas en el directorio de usuarios (UsuarioService.buscar)
+CREATE INDEX IF NOT EXISTS idx_usuarios_username_prefijo ON usuarios (lower(username) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_usuarios_nombre_prefijo ON usuarios (lower(nombre) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_usuarios_apellido_prefijo ON usuarios (lower(apellido) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_usuarios_email_prefijo ON usuarios (lower(email) text_pattern_ops);
+
+-- Préstamos sin devolver por fecha límite (AvisosPrestamos): índice parcial, no crece con el histórico devuelto.
+-- Una devolución con retraso queda en MULTA con fecha_devolucion, por eso el predicado la excluye. Reemplaza a
+-- idx_prestamos_activos_fecha_limite, que no la excluía (IF NOT EXISTS no cambiaría su predicado)
+DROP INDEX IF EXISTS idx_prestamos_activos_fecha_limite;
+CREATE INDEX IF NOT EXISTS idx_prestamos_sin_devolver_fecha_limite ON prestamos (fecha_limite, usuario_id)
+    WHERE estado IN ('PRESTADO', 'MULTA') AND fecha_devolucion IS NULL;
+
+-- Una sola reserva activa por usuario y libro (ReservaService.reservar). Antes de crear el índice se
+-- cancelan los duplicados que pudieran existir, conservando la reserva más antigua
+UPDATE reservas r SET estado = 'CANCELADA'
+    WHERE r.estado IN ('EN_ESPERA', 'ASIGNADA')
+      AND EXISTS (SELECT 1 FROM reservas o
+                  WHERE o.usuario_id = r.usuario_id AND o.libro_id = r.libro_id
+                    AND o.estado IN ('EN_ESPERA', 'ASIGNADA') AND o.id < r.id);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_reservas_activa_usuario_libro ON reservas (usuario_id, libro_id)
+    WHERE estado IN ('EN_ESPERA', 'ASIGNADA');
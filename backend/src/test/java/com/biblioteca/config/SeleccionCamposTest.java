@@ -0,0 +1,204 @@
+package com.biblioteca.config;
+
+import com.biblioteca.controller.AdminController;
+import com.biblioteca.controller.LibroController;
+import com.biblioteca.exception.GlobalExceptionHandler;
+import com.biblioteca.model.Categoria;
+import com.biblioteca.model.EstadoPrestamo;
+import com.biblioteca.model.Libro;
+import com.biblioteca.model.Prestamo;
+import com.biblioteca.model.Rol;
+import com.biblioteca.model.Usuario;
+import com.biblioteca.repository.CategoriaRepository;
+import com.biblioteca.service.ArchivoPrestamos;
+import com.biblioteca.service.BibliotecaService;
+import com.biblioteca.service.IndiceCatalogo;
+import com.biblioteca.service.RecomendacionService;
+import com.biblioteca.service.ReservaService;
+import com.biblioteca.service.TendenciasService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// LibroController real (servicios simulados) con los mismos conversores que la aplicación: JSON y CBOR
+// sobre ObjectMappers con los filtros por defecto de JacksonConfig
+class SeleccionCamposTest {
+
+    private static final List<Class<?>> CONTROLADORES = List.of(LibroController.class, AdminController.class);
+
+    private ObjectMapper json;
+    private ObjectMapper cbor;
+    private SeleccionCampos seleccionCampos;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void preparar() {
+        json = Jackson2ObjectMapperBuilder.json().filters(new SimpleFilterProvider().setFailOnUnknownId(false)).build();
+        cbor = Jackson2ObjectMapperBuilder.json().filters(new SimpleFilterProvider().setFailOnUnknownId(false))
+                .factory(new CBORFactory()).build();
+
+        BibliotecaService bibliotecaService = mock(BibliotecaService.class);
+        ArchivoPrestamos archivoPrestamos = mock(ArchivoPrestamos.class);
+        Libro libro = libro();
+        when(bibliotecaService.listarLibros()).thenReturn(List.of(libro));
+        when(archivoPrestamos.historialUsuario("ana")).thenReturn(new ArrayList<>(List.of(prestamo(libro))));
+
+        LibroController controlador = new LibroController(bibliotecaService, mock(CategoriaRepository.class),
+                mock(ReservaService.class), mock(RecomendacionService.class), mock(TendenciasService.class),
+                archivoPrestamos, mock(IndiceCatalogo.class));
+        seleccionCampos = new SeleccionCampos(json);
+        mockMvc = MockMvcBuilders.standaloneSetup(controlador)
+                .setControllerAdvice(seleccionCampos, new GlobalExceptionHandler())
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(json),
+                        new MappingJackson2CborHttpMessageConverter(cbor))
+                .build();
+    }
+
+    @Test
+    void sinParametrosLaRespuestaSaleCompleta() throws Exception {
+        mockMvc.perform(get("/api/libros"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].descripcion").value("Novela"))
+                .andExpect(jsonPath("$[0].categoria.nombre").value("Narrativa"));
+    }
+
+    @Test
+    void unCampoOTipoDesconocidoEsUn400() throws Exception {
+        mockMvc.perform(get("/api/libros").param("fields", "titulo,isbn"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("ARGUMENTO_INVALIDO"))
+                .andExpect(jsonPath("$.message").value(containsString("'isbn' no es un campo de libro")));
+        mockMvc.perform(get("/api/libros").param("fields", "editorial.nombre"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(containsString("tipo desconocido 'editorial'")));
+        // titulo es un campo, no una relación
+        mockMvc.perform(get("/api/libros").param("include", "titulo"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void fieldsEligeCamposDelElementoYDeLosTiposAnidados() throws Exception {
+        String cuerpo = mockMvc.perform(get("/api/libros/mis-prestamos").principal(autenticado())
+                        .param("fields", "estado,libro,libro.titulo"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<Map<String, Object>> prestamos = json.readValue(cuerpo, new TypeReference<>() {
+        });
+        // El id va siempre; las relaciones no nombradas (usuario, ejemplar) se omiten
+        assertThat(prestamos.get(0)).containsOnlyKeys("id", "estado", "libro");
+        assertThat((Map<String, Object>) prestamos.get(0).get("libro")).containsOnlyKeys("id", "titulo");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void includeMantieneLosAtributosYSoloLasRelacionesNombradas() throws Exception {
+        String cuerpo = mockMvc.perform(get("/api/libros/mis-prestamos").principal(autenticado())
+                        .param("include", "libro"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        Map<String, Object> prestamo = json.<List<Map<String, Object>>>readValue(cuerpo, new TypeReference<>() {
+        }).get(0);
+        assertThat(prestamo).containsKeys("id", "fechaPrestamo", "fechaLimite", "estado", "valorMulta", "libro")
+                .doesNotContainKeys("usuario", "ejemplar");
+        // libro.categoria no se nombró: también se omite
+        assertThat((Map<String, Object>) prestamo.get("libro")).containsKeys("titulo", "autor").doesNotContainKey("categoria");
+
+        mockMvc.perform(get("/api/libros/mis-prestamos").principal(autenticado())
+                        .param("include", "libro,libro.categoria"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].libro.categoria.nombre").value("Narrativa"))
+                .andExpect(jsonPath("$[0].usuario").doesNotExist());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void enCborSeAplicaLaMismaSeleccion() throws Exception {
+        byte[] cuerpo = mockMvc.perform(get("/api/libros").accept(MediaType.APPLICATION_CBOR)
+                        .param("fields", "titulo,categoria,categoria.nombre"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<Map<String, Object>> libros = cbor.readValue(cuerpo, new TypeReference<>() {
+        });
+        assertThat(libros.get(0)).containsOnlyKeys("id", "titulo", "categoria");
+        assertThat((Map<String, Object>) libros.get(0).get("categoria")).containsOnlyKeys("id", "nombre");
+    }
+
+    // Los ejemplos de @CamposSeleccionables aparecen en Swagger: deben ser válidos para el tipo de cada endpoint
+    @Test
+    void losEjemplosDocumentadosSonValidos() {
+        int documentados = 0;
+        for (Class<?> controlador : CONTROLADORES) {
+            for (Method metodo : controlador.getDeclaredMethods()) {
+                CamposSeleccionables campos = metodo.getAnnotation(CamposSeleccionables.class);
+                if (campos == null) {
+                    continue;
+                }
+                documentados++;
+                MockHttpServletRequest peticion = new MockHttpServletRequest();
+                peticion.addParameter("fields", campos.fields());
+                if (!campos.include().isEmpty()) {
+                    peticion.addParameter("include", campos.include());
+                }
+                assertThatCode(() -> seleccionCampos.beforeBodyWriteInternal(new MappingJacksonValue(List.of()),
+                        MediaType.APPLICATION_JSON, new MethodParameter(metodo, -1), new ServletServerHttpRequest(peticion),
+                        new ServletServerHttpResponse(new MockHttpServletResponse())))
+                        .as("%s.%s", controlador.getSimpleName(), metodo.getName())
+                        .doesNotThrowAnyException();
+            }
+        }
+        assertThat(documentados).isEqualTo(7);
+    }
+
+    private static UsernamePasswordAuthenticationToken autenticado() {
+        return new UsernamePasswordAuthenticationToken("ana", null, List.of());
+    }
+
+    private static Libro libro() {
+        Categoria categoria = new Categoria();
+        categoria.setId(3L);
+        categoria.setNombre("Narrativa");
+        return new Libro(1L, "Rayuela", "Julio Cortázar", "Novela", null, 2, 1, categoria, 0);
+    }
+
+    private static Prestamo prestamo(Libro libro) {
+        Usuario usuario = new Usuario(5L, "ana", null, "Ana", "Pérez", "ana@prueba.local", Rol.USUARIO, false, 0);
+        LocalDate hoy = LocalDate.now();
+        return new Prestamo(9L, usuario, libro, null, hoy.minusDays(3), hoy.plusDays(4), null,
+                EstadoPrestamo.PRESTADO, 0, 0);
+    }
+}
@@ -0,0 +1,118 @@
+package com.biblioteca.integracion;
+
+import com.biblioteca.model.SolicitudIdempotente;
+import com.biblioteca.repository.SolicitudIdempotenteRepository;
+import com.biblioteca.service.AlmacenIdempotencia;
+import com.biblioteca.service.AlmacenIdempotencia.RespuestaGuardada;
+import com.biblioteca.service.AlmacenIdempotencia.Tipo;
+import com.biblioteca.service.AlmacenIdempotenciaBD;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// La aplicación arranca en modo memoria; el almacén en base se construye sobre el repositorio real para
+// probar el INSERT ... ON CONFLICT y la recuperación de claves vencidas en PostgreSQL
+@SpringBootTest
+class AlmacenIdempotenciaBDTest extends BaseDatosPostgres {
+
+    private static final RespuestaGuardada OK = new RespuestaGuardada(200, "application/json", "{\"id\":1}".getBytes());
+
+    @Autowired
+    private SolicitudIdempotenteRepository repository;
+
+    private AlmacenIdempotencia almacen;
+    private String prefijo;
+
+    @BeforeEach
+    void preparar() {
+        almacen = new AlmacenIdempotenciaBD(repository, 24);
+        prefijo = "ana-" + System.nanoTime() + ":";
+    }
+
+    @Test
+    void guardaLaRespuestaYDistingueLaHuella() {
+        String clave = prefijo + "1";
+        assertThat(almacen.iniciar(clave, "h1").tipo()).isEqualTo(Tipo.NUEVA);
+        assertThat(almacen.iniciar(clave, "h1").tipo()).isEqualTo(Tipo.EN_CURSO);
+        assertThat(almacen.iniciar(clave, "h2").tipo()).isEqualTo(Tipo.HUELLA_DISTINTA);
+
+        almacen.completar(clave, OK);
+
+        AlmacenIdempotencia.Resultado repetida = almacen.iniciar(clave, "h1");
+        assertThat(repetida.tipo()).isEqualTo(Tipo.REPETIDA);
+        assertThat(repetida.respuesta().estadoHttp()).isEqualTo(200);
+        assertThat(repetida.respuesta().tipoContenido()).isEqualTo("application/json");
+        assertThat(repetida.respuesta().cuerpo()).isEqualTo(OK.cuerpo());
+    }
+
+    @Test
+    void liberarSoloQuitaClavesEnCurso() {
+        almacen.iniciar(prefijo + "1", "h1");
+        almacen.iniciar(prefijo + "2", "h2");
+        almacen.completar(prefijo + "2", OK);
+
+        almacen.liberar(prefijo + "1");
+        almacen.liberar(prefijo + "2");
+
+        assertThat(almacen.iniciar(prefijo + "1", "h1").tipo()).isEqualTo(Tipo.NUEVA);
+        assertThat(almacen.iniciar(prefijo + "2", "h2").tipo()).isEqualTo(Tipo.REPETIDA);
+    }
+
+    @Test
+    void unaClaveVencidaSeReutilizaYSePurga() {
+        String reutilizada = prefijo + "1";
+        String purgada = prefijo + "2";
+        for (String clave : List.of(reutilizada, purgada)) {
+            almacen.iniciar(clave, "h1");
+            almacen.completar(clave, OK);
+            vencer(clave);
+        }
+
+        assertThat(almacen.iniciar(reutilizada, "otra").tipo()).isEqualTo(Tipo.NUEVA);
+        assertThat(repository.findById(reutilizada).orElseThrow().getEstadoHttp()).isNull();
+
+        assertThat(almacen.purgarVencidas()).isGreaterThanOrEqualTo(1);
+        assertThat(repository.findById(purgada)).isEmpty();
+        assertThat(repository.findById(reutilizada)).isPresent();
+    }
+
+    @Test
+    void soloUnNodoReservaLaMismaClave() throws Exception {
+        String clave = prefijo + "carrera";
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        List<Callable<Tipo>> intentos = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            // Cada hilo hace de un nodo con su propio almacén
+            AlmacenIdempotencia nodo = new AlmacenIdempotenciaBD(repository, 24);
+            intentos.add(() -> nodo.iniciar(clave, "h1").tipo());
+        }
+        List<Tipo> tipos = new ArrayList<>();
+        try {
+            for (Future<Tipo> tipo : hilos.invokeAll(intentos)) {
+                tipos.add(tipo.get());
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        assertThat(tipos).containsOnlyOnce(Tipo.NUEVA);
+        assertThat(tipos).filteredOn(t -> t != Tipo.NUEVA).containsOnly(Tipo.EN_CURSO);
+    }
+
+    private void vencer(String clave) {
+        SolicitudIdempotente solicitud = repository.findById(clave).orElseThrow();
+        solicitud.setExpira(LocalDateTime.now().minusMinutes(1));
+        repository.save(solicitud);
+    }
+}
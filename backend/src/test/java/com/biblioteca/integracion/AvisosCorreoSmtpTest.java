@@ -0,0 +1,127 @@
+package com.biblioteca.integracion;
+
+import com.biblioteca.model.EstadoPrestamo;
+import com.biblioteca.model.Libro;
+import com.biblioteca.model.Prestamo;
+import com.biblioteca.model.Rol;
+import com.biblioteca.model.Usuario;
+import com.biblioteca.repository.LibroRepository;
+import com.biblioteca.repository.PrestamoRepository;
+import com.biblioteca.repository.UsuarioRepository;
+import com.biblioteca.service.AvisosPrestamos;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.Message;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Avisos agrupados enviados por EnviadorCorreoSmtp a un servidor SMTP de prueba (GreenMail)
+@SpringBootTest(properties = {
+        "biblioteca.notificaciones.enviador=smtp",
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025"
+})
+class AvisosCorreoSmtpTest extends BaseDatosPostgres {
+
+    @RegisterExtension
+    static final GreenMailExtension SMTP = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private AvisosPrestamos avisosPrestamos;
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+    @Autowired
+    private LibroRepository libroRepository;
+    @Autowired
+    private PrestamoRepository prestamoRepository;
+
+    @Test
+    void unCorreoPorUsuarioConSusPrestamosSinDevolverYSinRepetirlo() throws Exception {
+        LocalDate hoy = LocalDate.now();
+        Usuario ana = usuario("Ana");
+        Usuario luis = usuario("Luis");
+        Usuario sinAvisos = usuario("Marta");
+        prestamo(ana, "Rayuela", hoy.minusDays(3), EstadoPrestamo.MULTA, 15000);
+        prestamo(ana, "Ficciones", hoy.plusDays(1), EstadoPrestamo.PRESTADO, null);
+        prestamo(luis, "El túnel", hoy.plusDays(2), EstadoPrestamo.PRESTADO, null);
+        prestamo(sinAvisos, "Aura", hoy.plusDays(10), EstadoPrestamo.PRESTADO, null);
+        // Devuelto con retraso: queda en MULTA hasta que se pague, pero ya no hay nada que devolver
+        prestamo(sinAvisos, "Pedro Páramo", hoy.minusDays(5), hoy.minusDays(1), EstadoPrestamo.MULTA, 20000);
+        prestamo(ana, "Rulfo completo", hoy.minusDays(4), hoy.minusDays(2), EstadoPrestamo.MULTA, 10000);
+        Set<String> propios = Set.of(ana.getEmail(), luis.getEmail(), sinAvisos.getEmail());
+
+        avisosPrestamos.ejecutar();
+
+        List<MimeMessage> recibidos = paraPropios(propios);
+        assertThat(recibidos).extracting(AvisosCorreoSmtpTest::destinatario)
+                .containsExactlyInAnyOrder(ana.getEmail(), luis.getEmail());
+
+        MimeMessage paraAna = porDestinatario(recibidos, ana.getEmail());
+        assertThat(paraAna.getFrom()[0].toString()).isEqualTo("biblioteca@inkverse.local");
+        assertThat(paraAna.getSubject()).isEqualTo("Tienes préstamos vencidos");
+        assertThat((String) paraAna.getContent())
+                .startsWith("Hola Ana,")
+                .contains("Estos préstamos están vencidos")
+                .contains(" - Rayuela (venció el " + hoy.minusDays(3) + ", multa actual $15000)")
+                .contains("Estos préstamos vencen pronto:")
+                .contains(" - Ficciones (vence el " + hoy.plusDays(1) + ")")
+                .contains("Biblioteca InkVerse")
+                .doesNotContain("Rulfo completo");
+
+        MimeMessage paraLuis = porDestinatario(recibidos, luis.getEmail());
+        assertThat(paraLuis.getSubject()).isEqualTo("Tus préstamos vencen pronto");
+        assertThat((String) paraLuis.getContent())
+                .startsWith("Hola Luis,")
+                .contains(" - El túnel (vence el " + hoy.plusDays(2) + ")")
+                .doesNotContain("vencidos");
+
+        // Los avisos quedaron registrados: otra ejecución no los vuelve a enviar
+        avisosPrestamos.ejecutar();
+        assertThat(paraPropios(propios)).hasSize(2);
+    }
+
+    private List<MimeMessage> paraPropios(Set<String> propios) {
+        return Arrays.stream(SMTP.getReceivedMessages())
+                .filter(mensaje -> propios.contains(destinatario(mensaje)))
+                .toList();
+    }
+
+    private static MimeMessage porDestinatario(List<MimeMessage> mensajes, String email) {
+        return mensajes.stream().filter(mensaje -> destinatario(mensaje).equals(email)).findFirst().orElseThrow();
+    }
+
+    private static String destinatario(MimeMessage mensaje) {
+        try {
+            return mensaje.getRecipients(Message.RecipientType.TO)[0].toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Usuario usuario(String nombre) {
+        String username = nombre.toLowerCase() + "-" + System.nanoTime();
+        return usuarioRepository.save(new Usuario(null, username, "x", nombre, "Apellido",
+                username + "@prueba.local", Rol.USUARIO, false, 0));
+    }
+
+    private void prestamo(Usuario usuario, String titulo, LocalDate fechaLimite, EstadoPrestamo estado, Integer multa) {
+        prestamo(usuario, titulo, fechaLimite, null, estado, multa);
+    }
+
+    private void prestamo(Usuario usuario, String titulo, LocalDate fechaLimite, LocalDate fechaDevolucion,
+                          EstadoPrestamo estado, Integer multa) {
+        Libro libro = libroRepository.save(new Libro(null, titulo, "Autor", null, null, 1, 0, null, 0));
+        prestamoRepository.save(new Prestamo(null, usuario, libro, null, fechaLimite.minusDays(14), fechaLimite,
+                fechaDevolucion, estado, null, multa));
+    }
+}
@@ -0,0 +1,26 @@
+package com.biblioteca.integracion;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+// PostgreSQL real para lo que H2 no reproduce: FOR UPDATE SKIP LOCKED, índices parciales, LISTEN/NOTIFY.
+// Un contenedor por clase de prueba; las propiedades de la aplicación apuntan a él
+@Testcontainers
+abstract class BaseDatosPostgres {
+
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    static {
+        POSTGRES.start();
+    }
+
+    @DynamicPropertySource
+    static void baseDeDatos(DynamicPropertyRegistry registro) {
+        registro.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registro.add("spring.datasource.username", POSTGRES::getUsername);
+        registro.add("spring.datasource.password", POSTGRES::getPassword);
+        registro.add("spring.jpa.show-sql", () -> "false");
+    }
+}
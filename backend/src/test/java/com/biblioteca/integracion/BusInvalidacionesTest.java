@@ -0,0 +1,125 @@
+package com.biblioteca.integracion;
+
+import com.biblioteca.service.BusInvalidaciones;
+import com.biblioteca.service.ReceptorInvalidaciones;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Dos nodos sobre el mismo Postgres, cada uno con su bus y su receptor. Sin contexto de Spring: el bus
+// solo necesita la base, así que se arma a mano como lo haría el contenedor
+class BusInvalidacionesTest extends BaseDatosPostgres {
+
+    private static final String CANAL = "biblioteca_invalidacion";
+
+    private record Invalidacion(BusInvalidaciones.Tipo tipo, Set<Long> ids) {
+    }
+
+    private JdbcTemplate jdbcTemplate;
+    private BusInvalidaciones nodoA;
+    private BusInvalidaciones nodoB;
+    private final List<Invalidacion> enA = new CopyOnWriteArrayList<>();
+    private final List<Invalidacion> enB = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void preparar() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+        nodoA = nodo(enA);
+        nodoB = nodo(enB);
+        await().atMost(Duration.ofSeconds(10)).until(() -> conectado(nodoA) && conectado(nodoB));
+    }
+
+    @AfterEach
+    void detener() {
+        nodoA.detener();
+        nodoB.detener();
+    }
+
+    @Test
+    void loPublicadoEnUnNodoLlegaAlOtroYNoAlPropio() {
+        nodoA.publicar(BusInvalidaciones.Tipo.LIBRO, 7L);
+        nodoA.publicar(BusInvalidaciones.Tipo.LIBRO, List.of(8L, 9L));
+        nodoA.publicar(BusInvalidaciones.Tipo.USUARIO, 3L);
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            assertThat(idsDe(enB, BusInvalidaciones.Tipo.LIBRO)).containsExactlyInAnyOrder(7L, 8L, 9L);
+            assertThat(idsDe(enB, BusInvalidaciones.Tipo.USUARIO)).containsExactly(3L);
+        });
+        assertThat(enA).isEmpty();
+    }
+
+    @Test
+    void unAvisoMalFormadoSeDescartaYElBusSigueEscuchando() {
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CANAL, "otro:LIBRO:12,abc");
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CANAL, "otro:LIBRO:");
+        nodoA.publicar(BusInvalidaciones.Tipo.CATEGORIA, 4L);
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(idsDe(enB, BusInvalidaciones.Tipo.CATEGORIA)).containsExactly(4L));
+        // El aviso con un id inválido no deja a medias el 12
+        assertThat(idsDe(enB, BusInvalidaciones.Tipo.LIBRO)).isEmpty();
+        assertThat(nodoB.estado()).containsEntry("conectado", true);
+
+        nodoA.publicar(BusInvalidaciones.Tipo.LIBRO, 5L);
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(idsDe(enB, BusInvalidaciones.Tipo.LIBRO)).containsExactly(5L));
+    }
+
+    @Test
+    void trasPerderLaConexionSeReconectaEInvalidaTodo() {
+        // Cierra desde el servidor las conexiones que escuchan el canal, como un corte de red
+        jdbcTemplate.queryForList("SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE query = ?",
+                "LISTEN " + CANAL);
+
+        await().atMost(Duration.ofSeconds(15)).untilAsserted(() -> {
+            assertThat(nodoB.estado()).containsEntry("reconexiones", 1L).containsEntry("conectado", true);
+            assertThat(enB).contains(
+                    new Invalidacion(BusInvalidaciones.Tipo.LIBRO, null),
+                    new Invalidacion(BusInvalidaciones.Tipo.CATEGORIA, null),
+                    new Invalidacion(BusInvalidaciones.Tipo.USUARIO, null));
+        });
+
+        // Y vuelve a recibir avisos sueltos
+        enB.clear();
+        nodoA.publicar(BusInvalidaciones.Tipo.LIBRO, 11L);
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(idsDe(enB, BusInvalidaciones.Tipo.LIBRO)).containsExactly(11L));
+    }
+
+    @SuppressWarnings("unchecked")
+    private BusInvalidaciones nodo(List<Invalidacion> recibidas) {
+        ReceptorInvalidaciones receptor = (tipo, ids) -> recibidas.add(new Invalidacion(tipo, ids));
+        ObjectProvider<ReceptorInvalidaciones> receptores = mock(ObjectProvider.class);
+        when(receptores.orderedStream()).thenAnswer(i -> Stream.of(receptor));
+        BusInvalidaciones bus = new BusInvalidaciones(jdbcTemplate, receptores, true,
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword(), 50);
+        bus.iniciar();
+        return bus;
+    }
+
+    private static boolean conectado(BusInvalidaciones bus) {
+        return Boolean.TRUE.equals(bus.estado().get("conectado"));
+    }
+
+    private static List<Long> idsDe(List<Invalidacion> recibidas, BusInvalidaciones.Tipo tipo) {
+        return recibidas.stream()
+                .filter(invalidacion -> invalidacion.tipo() == tipo && invalidacion.ids() != null)
+                .flatMap(invalidacion -> invalidacion.ids().stream())
+                .toList();
+    }
+}
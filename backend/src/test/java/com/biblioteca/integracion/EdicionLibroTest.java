@@ -0,0 +1,100 @@
+package com.biblioteca.integracion;
+
+import com.biblioteca.controller.AdminController;
+import com.biblioteca.exception.PrecondicionFallidaException;
+import com.biblioteca.model.Libro;
+import com.biblioteca.model.Rol;
+import com.biblioteca.model.Usuario;
+import com.biblioteca.repository.LibroRepository;
+import com.biblioteca.repository.UsuarioRepository;
+import com.biblioteca.service.BibliotecaService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Un administrador abre el formulario del libro (GET), alguien se lleva un ejemplar y luego se guarda (PUT)
+// con el ETag leído: el préstamo no se pierde aunque el cuerpo traiga la disponibilidad vieja
+@SpringBootTest
+class EdicionLibroTest extends BaseDatosPostgres {
+
+    @Autowired
+    private AdminController adminController;
+    @Autowired
+    private BibliotecaService bibliotecaService;
+    @Autowired
+    private LibroRepository libroRepository;
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @BeforeEach
+    void comoAdministrador() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "admin", null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+    }
+
+    @AfterEach
+    void limpiar() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void unPrestamoEntreElGetYElPutNoSePierde() {
+        Libro creado = adminController.crearLibro(new Libro(null, "Pedro Páramo", "Juan Rulfo", null, null, 3, 0, null, 0))
+                .getBody();
+        ResponseEntity<Libro> leido = adminController.obtenerLibro(creado.getId());
+        String etag = leido.getHeaders().getETag();
+        Libro formulario = leido.getBody();
+        assertThat(formulario.getCantidadDisponible()).isEqualTo(3);
+
+        bibliotecaService.prestarLibro(creado.getId(), usuario().getUsername());
+        // El GET ya no se revalida con el ETag viejo: la disponibilidad cambió
+        assertThat(adminController.obtenerLibro(creado.getId()).getHeaders().getETag()).isNotEqualTo(etag);
+
+        formulario.setTitulo("Pedro Páramo (edición conmemorativa)");
+        formulario.setCantidadTotal(4);
+        Libro guardado = adminController.actualizarLibro(creado.getId(), formulario, etag).getBody();
+
+        // 3 - 1 prestado + 1 copia nueva; los 3 del formulario se ignoran
+        assertThat(guardado.getCantidadDisponible()).isEqualTo(3);
+        Libro enBase = libroRepository.findById(creado.getId()).orElseThrow();
+        assertThat(enBase.getTitulo()).isEqualTo("Pedro Páramo (edición conmemorativa)");
+        assertThat(enBase.getCantidadTotal()).isEqualTo(4);
+        assertThat(enBase.getCantidadDisponible()).isEqualTo(3);
+
+        // La edición sí cambió la versión: el mismo ETag ya no sirve para otra escritura
+        assertThatThrownBy(() -> adminController.actualizarLibro(creado.getId(), formulario, etag))
+                .isInstanceOf(PrecondicionFallidaException.class);
+    }
+
+    @Test
+    void noSePuedenQuitarCopiasQueEstanPrestadas() {
+        Libro creado = adminController.crearLibro(new Libro(null, "Aura", "Carlos Fuentes", null, null, 1, 0, null, 0))
+                .getBody();
+        Libro formulario = adminController.obtenerLibro(creado.getId()).getBody();
+        bibliotecaService.prestarLibro(creado.getId(), usuario().getUsername());
+
+        formulario.setCantidadTotal(0);
+        assertThatThrownBy(() -> adminController.actualizarLibro(creado.getId(), formulario, null))
+                .isInstanceOf(IllegalStateException.class);
+        Libro enBase = libroRepository.findById(creado.getId()).orElseThrow();
+        assertThat(enBase.getCantidadTotal()).isEqualTo(1);
+        assertThat(enBase.getCantidadDisponible()).isZero();
+    }
+
+    private Usuario usuario() {
+        String username = "lector-" + System.nanoTime();
+        return usuarioRepository.save(new Usuario(null, username, "x", "Nombre", "Apellido",
+                username + "@prueba.local", Rol.USUARIO, false, 0));
+    }
+}
@@ -0,0 +1,54 @@
+package com.biblioteca.integracion;
+
+import com.biblioteca.service.InventarioEjemplares;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Los códigos que genera la migración en SQL deben ser los mismos que codigoBarras() en Java, también
+// cuando el id o el número de copia no caben en el ancho mínimo
+@SpringBootTest
+class MigracionEjemplaresTest extends BaseDatosPostgres {
+
+    @Autowired
+    private InventarioEjemplares inventarioEjemplares;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void laMigracionGeneraLosMismosCodigosQueCodigoBarras() {
+        libroSinCopias(4_321L, 2);
+        libroSinCopias(1_234_567L, 1_001);
+
+        inventarioEjemplares.migrarYCargar();
+
+        for (long libroId : List.of(4_321L, 1_234_567L)) {
+            List<Map<String, Object>> copias = jdbcTemplate.queryForList(
+                    "SELECT numero, codigo_barras FROM ejemplares WHERE libro_id = ? ORDER BY numero", libroId);
+            assertThat(copias).isNotEmpty();
+            for (Map<String, Object> copia : copias) {
+                int numero = ((Number) copia.get("numero")).intValue();
+                assertThat(copia.get("codigo_barras")).as("libro %d, copia %d", libroId, numero)
+                        .isEqualTo(InventarioEjemplares.codigoBarras(libroId, numero));
+            }
+        }
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT codigo_barras FROM ejemplares WHERE libro_id = ? AND numero = 1000", String.class, 1_234_567L))
+                .isEqualTo("LIB1234567-1001");
+        // Sin truncar no hay códigos repetidos
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(DISTINCT codigo_barras) FROM ejemplares WHERE libro_id = ?", Integer.class, 1_234_567L))
+                .isEqualTo(1_001);
+    }
+
+    private void libroSinCopias(long id, int copias) {
+        jdbcTemplate.update("INSERT INTO libros (id, titulo, autor, cantidad_total, cantidad_disponible, version) "
+                + "VALUES (?, ?, 'Autor', ?, ?, 0)", id, "Libro " + id, copias, copias);
+    }
+}
@@ -0,0 +1,94 @@
+package com.biblioteca.integracion;
+
+import com.biblioteca.model.Libro;
+import com.biblioteca.model.Prestamo;
+import com.biblioteca.model.Rol;
+import com.biblioteca.model.Usuario;
+import com.biblioteca.repository.LibroRepository;
+import com.biblioteca.repository.UsuarioRepository;
+import com.biblioteca.service.BibliotecaService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Préstamos y devoluciones simultáneos del mismo título: la disponibilidad cambia con un UPDATE atómico,
+// así que nadie recibe un conflicto de versión y la versión del libro no cambia
+@SpringBootTest
+class PrestamoConcurrenciaTest extends BaseDatosPostgres {
+
+    private static final int EJEMPLARES = 5;
+    private static final int LECTORES = 24;
+
+    @Autowired
+    private BibliotecaService bibliotecaService;
+    @Autowired
+    private LibroRepository libroRepository;
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Test
+    void prestamosSimultaneosEntreganCadaEjemplarUnaVezSinTocarLaVersion() throws Exception {
+        Libro libro = libroRepository.save(new Libro(null, "Los detectives salvajes", "Roberto Bolaño", null, null,
+                EJEMPLARES, EJEMPLARES, null, 0));
+        long version = libro.getVersion();
+        List<String> lectores = new ArrayList<>();
+        for (int i = 0; i < LECTORES; i++) {
+            lectores.add(usuario("lector" + i).getUsername());
+        }
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(LECTORES);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<Prestamo>> futuros = new ArrayList<>();
+        try {
+            for (String lector : lectores) {
+                futuros.add(ejecutor.submit(() -> {
+                    salida.await();
+                    return bibliotecaService.prestarLibro(libro.getId(), lector);
+                }));
+            }
+            salida.countDown();
+            List<Prestamo> prestamos = new ArrayList<>();
+            List<Throwable> rechazos = new ArrayList<>();
+            for (Future<Prestamo> futuro : futuros) {
+                try {
+                    prestamos.add(futuro.get(1, TimeUnit.MINUTES));
+                } catch (ExecutionException e) {
+                    rechazos.add(e.getCause());
+                }
+            }
+
+            assertThat(prestamos).hasSize(EJEMPLARES);
+            // Sin unidades, no un conflicto de bloqueo optimista
+            assertThat(rechazos).hasSize(LECTORES - EJEMPLARES).allMatch(IllegalStateException.class::isInstance);
+            Libro prestado = libroRepository.findById(libro.getId()).orElseThrow();
+            assertThat(prestado.getCantidadDisponible()).isZero();
+            assertThat(prestado.getVersion()).isEqualTo(version);
+
+            for (Prestamo prestamo : prestamos) {
+                bibliotecaService.devolverLibro(prestamo.getId());
+            }
+            Libro devuelto = libroRepository.findById(libro.getId()).orElseThrow();
+            assertThat(devuelto.getCantidadDisponible()).isEqualTo(EJEMPLARES);
+            assertThat(devuelto.getVersion()).isEqualTo(version);
+        } finally {
+            ejecutor.shutdownNow();
+        }
+    }
+
+    private Usuario usuario(String prefijo) {
+        String username = prefijo + "-" + System.nanoTime();
+        return usuarioRepository.save(new Usuario(null, username, "x", "Nombre", "Apellido",
+                username + "@prueba.local", Rol.USUARIO, false, 0));
+    }
+}
@@ -0,0 +1,78 @@
+package com.biblioteca.integracion;
+
+import com.biblioteca.model.EstadoPrestamo;
+import com.biblioteca.model.EventoOutbox;
+import com.biblioteca.model.TipoEventoPrestamo;
+import com.biblioteca.repository.EventoOutboxRepository;
+import com.biblioteca.service.OyenteEventosPrestamo;
+import com.biblioteca.service.RelayOutbox;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Un error de SQL en un oyente aborta la transacción en Postgres; con el savepoint por evento el resto
+// del lote se entrega igual y el que falló queda con su reintento
+@SpringBootTest(properties = "biblioteca.outbox.intervalo-ms=3600000")
+class RelayOutboxPostgresTest extends BaseDatosPostgres {
+
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void unErrorDeSqlEnUnEventoNoRevierteElLote() {
+        long base = System.nanoTime();
+        List<EventoOutbox> eventos = new ArrayList<>();
+        for (long i = 0; i < 3; i++) {
+            eventos.add(eventoOutboxRepository.save(evento(base + i)));
+        }
+        long fallido = base + 1;
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS relay_prueba (prestamo_id BIGINT)");
+        List<Long> escritos = new ArrayList<>();
+        OyenteEventosPrestamo oyente = evento -> {
+            if (evento.getPrestamoId() == fallido) {
+                jdbcTemplate.update("INSERT INTO tabla_que_no_existe VALUES (1)");
+            }
+            jdbcTemplate.update("INSERT INTO relay_prueba VALUES (?)", evento.getPrestamoId());
+            escritos.add(evento.getPrestamoId());
+        };
+        ObjectProvider<OyenteEventosPrestamo> oyentes = mock(ObjectProvider.class);
+        when(oyentes.orderedStream()).thenReturn(Stream.of(oyente));
+
+        new RelayOutbox(eventoOutboxRepository, oyentes, transactionManager, 200).despachar();
+
+        // Puede haber eventos de otras pruebas en la tabla: solo cuentan los de esta
+        assertThat(escritos).filteredOn(id -> id >= base && id <= base + 2).containsExactly(base, base + 2);
+        assertThat(jdbcTemplate.queryForList("SELECT prestamo_id FROM relay_prueba WHERE prestamo_id BETWEEN ? AND ?",
+                Long.class, base, base + 2)).containsExactlyInAnyOrder(base, base + 2);
+        List<EventoOutbox> pendientes = eventoOutboxRepository.findAllById(eventos.stream().map(EventoOutbox::getId).toList());
+        assertThat(pendientes).singleElement().satisfies(evento -> {
+            assertThat(evento.getPrestamoId()).isEqualTo(fallido);
+            assertThat(evento.getIntentos()).isEqualTo(1);
+            assertThat(evento.getDisponibleDesde()).isAfter(LocalDateTime.now());
+            assertThat(evento.getUltimoError()).contains("tabla_que_no_existe");
+        });
+    }
+
+    private static EventoOutbox evento(long prestamoId) {
+        LocalDateTime creado = LocalDateTime.now().minusMinutes(1);
+        return new EventoOutbox(null, TipoEventoPrestamo.PRESTADO, prestamoId, null, null, EstadoPrestamo.PRESTADO,
+                null, null, creado, creado, 0, null);
+    }
+}
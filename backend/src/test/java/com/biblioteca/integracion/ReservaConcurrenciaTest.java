@@ -0,0 +1,150 @@
+package com.biblioteca.integracion;
+
+import com.biblioteca.model.EstadoReserva;
+import com.biblioteca.model.Libro;
+import com.biblioteca.model.Reserva;
+import com.biblioteca.model.Rol;
+import com.biblioteca.model.Usuario;
+import com.biblioteca.repository.LibroRepository;
+import com.biblioteca.repository.ReservaRepository;
+import com.biblioteca.repository.UsuarioRepository;
+import com.biblioteca.service.BusInvalidaciones;
+import com.biblioteca.service.EstadisticasService;
+import com.biblioteca.service.ReservaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class ReservaConcurrenciaTest extends BaseDatosPostgres {
+
+    private static final int TITULARES = 2_000;
+
+    @Autowired
+    private ReservaService reservaService;
+    @Autowired
+    private ReservaRepository reservaRepository;
+    @Autowired
+    private LibroRepository libroRepository;
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+    @Autowired
+    private EstadisticasService estadisticasService;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ObjectProvider<BusInvalidaciones> bus;
+
+    private Libro libro;
+
+    @BeforeEach
+    void preparar() {
+        libro = libroRepository.save(new Libro(null, "Pedro Páramo " + System.nanoTime(), "Juan Rulfo", null, null, 1, 0, null, 0));
+    }
+
+    @Test
+    void reservasSimultaneasDelMismoUsuarioDejanUnaSolaActiva() throws Exception {
+        Usuario usuario = usuario("simultaneo");
+        List<Callable<Reserva>> intentos = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            intentos.add(() -> reservaService.reservar(libro.getId(), usuario.getUsername()));
+        }
+
+        List<Reserva> resultado = enParalelo(16, intentos);
+
+        assertThat(resultado).extracting(Reserva::getId).containsOnly(resultado.get(0).getId());
+        assertThat(reservaRepository.findByUsuarioWithLibro(usuario)).hasSize(1);
+    }
+
+    @Test
+    void elIndiceUnicoRechazaUnaSegundaReservaActiva() {
+        Usuario usuario = usuario("duplicado");
+        reservaService.reservar(libro.getId(), usuario.getUsername());
+
+        Reserva segunda = new Reserva(null, usuario, libro, java.time.LocalDateTime.now(), null, null, EstadoReserva.EN_ESPERA, null);
+        assertThatThrownBy(() -> reservaRepository.saveAndFlush(segunda)).isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    // Miles de titulares en un título; las devoluciones llegan a la vez por este nodo y por otro que no
+    // tiene ninguna reserva en su cola en memoria. Cada titular recibe un ejemplar y ninguno sobra
+    @Test
+    void devolucionesConcurrentesEnDosNodosAsignanCadaReservaUnaVez() throws Exception {
+        List<Callable<Reserva>> reservas = new ArrayList<>();
+        for (int i = 0; i < TITULARES; i++) {
+            String username = usuario("titular" + i).getUsername();
+            reservas.add(() -> reservaService.reservar(libro.getId(), username));
+        }
+        enParalelo(16, reservas);
+
+        ReservaService otroNodo = new ReservaService(reservaRepository, libroRepository, usuarioRepository, estadisticasService,
+                bus, 48);
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        List<Callable<Reserva>> devoluciones = new ArrayList<>();
+        for (int i = 0; i < TITULARES; i++) {
+            boolean local = i % 2 == 0;
+            devoluciones.add(() -> {
+                Libro devuelto = libroRepository.findById(libro.getId()).orElseThrow();
+                if (local) {
+                    reservaService.liberarEjemplar(devuelto);
+                } else {
+                    transaccion.executeWithoutResult(estado -> otroNodo.liberarEjemplar(devuelto));
+                }
+                return null;
+            });
+        }
+        enParalelo(16, devoluciones);
+
+        List<Object[]> enEspera = reservaRepository.findLibroIdAndIdByEstado(EstadoReserva.EN_ESPERA);
+        assertThat(enEspera).noneMatch(fila -> fila[0].equals(libro.getId()));
+        long asignadas = reservaRepository.findAll().stream()
+                .filter(r -> r.getLibro().getId().equals(libro.getId()) && r.getEstado() == EstadoReserva.ASIGNADA)
+                .count();
+        assertThat(asignadas).isEqualTo(TITULARES);
+        assertThat(libroRepository.findById(libro.getId()).orElseThrow().getCantidadDisponible()).isZero();
+    }
+
+    private Usuario usuario(String prefijo) {
+        String username = prefijo + "-" + System.nanoTime();
+        return usuarioRepository.save(new Usuario(null, username, "x", "Nombre", "Apellido",
+                username + "@prueba.local", Rol.USUARIO, false, 0));
+    }
+
+    private static <T> List<T> enParalelo(int hilos, List<Callable<T>> tareas) throws Exception {
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        try {
+            List<Future<T>> futuros = new ArrayList<>();
+            for (Callable<T> tarea : tareas) {
+                futuros.add(ejecutor.submit(() -> {
+                    salida.await();
+                    return tarea.call();
+                }));
+            }
+            salida.countDown();
+            List<T> resultados = new ArrayList<>();
+            for (Future<T> futuro : futuros) {
+                resultados.add(futuro.get(2, TimeUnit.MINUTES));
+            }
+            return resultados;
+        } finally {
+            ejecutor.shutdownNow();
+        }
+    }
+}
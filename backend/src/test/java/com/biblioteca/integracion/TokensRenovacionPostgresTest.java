@@ -0,0 +1,113 @@
+package com.biblioteca.integracion;
+
+import com.biblioteca.model.Rol;
+import com.biblioteca.model.TokenRenovacion;
+import com.biblioteca.model.Usuario;
+import com.biblioteca.repository.TokenRenovacionRepository;
+import com.biblioteca.repository.UsuarioRepository;
+import com.biblioteca.service.TokensRenovacion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// rotar lanza la excepción después de revocar: con noRollbackFor la revocación queda confirmada y el
+// atacante no puede seguir la cadena con el token que ya había obtenido
+@SpringBootTest
+class TokensRenovacionPostgresTest extends BaseDatosPostgres {
+
+    @Autowired
+    private TokensRenovacion tokensRenovacion;
+    @Autowired
+    private TokenRenovacionRepository tokenRenovacionRepository;
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    private Usuario usuario;
+
+    @BeforeEach
+    void preparar() {
+        String username = "sesion-" + System.nanoTime();
+        usuario = usuarioRepository.save(new Usuario(null, username, "x", "Nombre", "Apellido",
+                username + "@prueba.local", Rol.USUARIO, false, 0));
+    }
+
+    @Test
+    void laRevocacionPorReusoSobreviveALaExcepcion() {
+        String copiado = tokensRenovacion.emitir(usuario.getId());
+        String vigente = tokensRenovacion.rotar(copiado).token();
+
+        assertThatThrownBy(() -> tokensRenovacion.rotar(copiado)).isInstanceOf(BadCredentialsException.class);
+
+        // Transacción nueva: si rotar hubiera hecho rollback, el token vigente seguiría sin revocar
+        assertThat(tokensDelUsuario()).hasSize(2).allMatch(TokenRenovacion::isRevocado);
+        assertThatThrownBy(() -> tokensRenovacion.rotar(vigente)).isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void bloquearAlUsuarioRevocaSusSesionesAunqueLuegoSeDesbloquee() {
+        String token = tokensRenovacion.emitir(usuario.getId());
+        String otraSesion = tokensRenovacion.emitir(usuario.getId());
+        usuario.setBloqueado(true);
+        usuario = usuarioRepository.save(usuario);
+
+        assertThatThrownBy(() -> tokensRenovacion.rotar(token)).isInstanceOf(DisabledException.class);
+
+        usuario.setBloqueado(false);
+        usuarioRepository.save(usuario);
+        assertThat(tokensDelUsuario()).allMatch(TokenRenovacion::isRevocado);
+        assertThatThrownBy(() -> tokensRenovacion.rotar(otraSesion)).isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void rotacionesSimultaneasDelMismoTokenTienenUnSoloGanador() throws Exception {
+        String token = tokensRenovacion.emitir(usuario.getId());
+        int hilos = 8;
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        List<Future<TokensRenovacion.Rotacion>> rotaciones = new ArrayList<>();
+        try {
+            for (int i = 0; i < hilos; i++) {
+                rotaciones.add(ejecutor.submit(() -> {
+                    salida.await();
+                    return tokensRenovacion.rotar(token);
+                }));
+            }
+            salida.countDown();
+            int ganadores = 0;
+            for (Future<TokensRenovacion.Rotacion> rotacion : rotaciones) {
+                try {
+                    rotacion.get(30, TimeUnit.SECONDS);
+                    ganadores++;
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(BadCredentialsException.class);
+                }
+            }
+            assertThat(ganadores).isEqualTo(1);
+        } finally {
+            ejecutor.shutdownNow();
+        }
+        // Los perdedores lo trataron como reuso: la familia entera, incluido el token del ganador, queda revocada
+        assertThat(tokensDelUsuario()).hasSize(2).allMatch(TokenRenovacion::isRevocado);
+    }
+
+    private List<TokenRenovacion> tokensDelUsuario() {
+        return tokenRenovacionRepository.findAll().stream()
+                .filter(t -> t.getUsuarioId().equals(usuario.getId()))
+                .toList();
+    }
+}
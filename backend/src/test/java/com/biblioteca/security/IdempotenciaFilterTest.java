@@ -0,0 +1,201 @@
+package com.biblioteca.security;
+
+import com.biblioteca.controller.LibroController;
+import com.biblioteca.exception.GlobalExceptionHandler;
+import com.biblioteca.model.EstadoPrestamo;
+import com.biblioteca.model.Libro;
+import com.biblioteca.model.Prestamo;
+import com.biblioteca.repository.CategoriaRepository;
+import com.biblioteca.service.AlmacenIdempotenciaMemoria;
+import com.biblioteca.service.ArchivoPrestamos;
+import com.biblioteca.service.BibliotecaService;
+import com.biblioteca.service.IndiceCatalogo;
+import com.biblioteca.service.RecomendacionService;
+import com.biblioteca.service.ReservaService;
+import com.biblioteca.service.TendenciasService;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// LibroController real delante de un BibliotecaService simulado: las repeticiones no deben llegar a él
+class IdempotenciaFilterTest {
+
+    private static final UsernamePasswordAuthenticationToken ANA = new UsernamePasswordAuthenticationToken(
+            "ana", null, List.of(new SimpleGrantedAuthority("ROLE_USUARIO")));
+
+    private BibliotecaService bibliotecaService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void preparar() {
+        bibliotecaService = mock(BibliotecaService.class);
+        when(bibliotecaService.prestarLibro(anyLong(), anyString()))
+                .thenAnswer(i -> prestamo(i.getArgument(0)));
+        LibroController controlador = new LibroController(bibliotecaService, mock(CategoriaRepository.class),
+                mock(ReservaService.class), mock(RecomendacionService.class), mock(TendenciasService.class),
+                mock(ArchivoPrestamos.class), mock(IndiceCatalogo.class));
+        IdempotenciaFilter filtro = new IdempotenciaFilter(new AlmacenIdempotenciaMemoria(24, 100),
+                RateLimitFilterTest.respuestasError());
+        mockMvc = MockMvcBuilders.standaloneSetup(controlador)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json()
+                        .filters(new SimpleFilterProvider().setFailOnUnknownId(false)).build()))
+                .addFilters(filtro)
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(ANA);
+    }
+
+    @AfterEach
+    void limpiar() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void laRepeticionDevuelveLaRespuestaGuardadaSinVolverAlServicio() throws Exception {
+        MockHttpServletResponse original = prestar(1, "clave-1").andExpect(status().isOk())
+                .andReturn().getResponse();
+
+        MockHttpServletResponse repetida = prestar(1, "clave-1")
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andReturn().getResponse();
+
+        assertThat(repetida.getContentType()).isEqualTo(original.getContentType());
+        assertThat(repetida.getContentAsByteArray()).isEqualTo(original.getContentAsByteArray());
+        verify(bibliotecaService, times(1)).prestarLibro(1L, "ana");
+    }
+
+    @Test
+    void laRespuestaDeErrorTambienSeRepite() throws Exception {
+        when(bibliotecaService.prestarLibro(2L, "ana")).thenThrow(new IllegalStateException("Libro no disponible"));
+
+        prestar(2, "clave-2").andExpect(status().isBadRequest());
+        prestar(2, "clave-2")
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.message").value("Libro no disponible"));
+
+        verify(bibliotecaService, times(1)).prestarLibro(2L, "ana");
+    }
+
+    @Test
+    void laMismaClaveEnOtraSolicitudSeRechaza() throws Exception {
+        prestar(1, "clave-1").andExpect(status().isOk());
+
+        prestar(2, "clave-1")
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.error").value("IDEMPOTENCIA_CONFLICTO"));
+
+        verify(bibliotecaService, times(0)).prestarLibro(2L, "ana");
+    }
+
+    @Test
+    void lasClavesSonPorUsuario() throws Exception {
+        prestar(1, "clave-1").andExpect(status().isOk());
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "luis", null, List.of(new SimpleGrantedAuthority("ROLE_USUARIO"))));
+
+        mockMvc.perform(post("/api/libros/2/prestar").header(IdempotenciaFilter.CABECERA, "clave-1")
+                        .principal(SecurityContextHolder.getContext().getAuthentication()))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+    }
+
+    @Test
+    void unaSolicitudEnCursoDevuelve409ConRetryAfter() throws Exception {
+        CountDownLatch dentro = new CountDownLatch(1);
+        CountDownLatch seguir = new CountDownLatch(1);
+        when(bibliotecaService.prestarLibro(3L, "ana")).thenAnswer(i -> {
+            dentro.countDown();
+            seguir.await(5, TimeUnit.SECONDS);
+            return prestamo(3L);
+        });
+
+        CompletableFuture<Integer> primera = CompletableFuture.supplyAsync(() -> {
+            SecurityContextHolder.getContext().setAuthentication(ANA);
+            try {
+                return prestar(3, "clave-3").andReturn().getResponse().getStatus();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        });
+        assertThat(dentro.await(5, TimeUnit.SECONDS)).isTrue();
+
+        prestar(3, "clave-3")
+                .andExpect(status().isConflict())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.error").value("SOLICITUD_EN_CURSO"));
+
+        seguir.countDown();
+        assertThat(primera.get(5, TimeUnit.SECONDS)).isEqualTo(200);
+        verify(bibliotecaService, times(1)).prestarLibro(3L, "ana");
+    }
+
+    @Test
+    void un5xxLiberaLaClaveParaReintentar() throws Exception {
+        when(bibliotecaService.prestarLibro(4L, "ana"))
+                .thenThrow(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE))
+                .thenAnswer(i -> prestamo(4L));
+
+        prestar(4, "clave-4").andExpect(status().isServiceUnavailable());
+        prestar(4, "clave-4")
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+
+        verify(bibliotecaService, times(2)).prestarLibro(4L, "ana");
+    }
+
+    @Test
+    void unaClaveVaciaOLargaEsUn400() throws Exception {
+        prestar(1, " ").andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("ARGUMENTO_INVALIDO"));
+        prestar(1, "x".repeat(256)).andExpect(status().isBadRequest());
+
+        verify(bibliotecaService, times(0)).prestarLibro(anyLong(), anyString());
+    }
+
+    private ResultActions prestar(long libroId, String clave) throws Exception {
+        return mockMvc.perform(post("/api/libros/{id}/prestar", libroId)
+                .header(IdempotenciaFilter.CABECERA, clave)
+                .principal(ANA));
+    }
+
+    private static Prestamo prestamo(Long libroId) {
+        Libro libro = new Libro(libroId, "Rayuela", "Julio Cortázar", null, null, 2, 1, null, 0);
+        LocalDate hoy = LocalDate.now();
+        return new Prestamo(libroId * 10, null, libro, null, hoy, hoy.plusDays(15), null,
+                EstadoPrestamo.PRESTADO, 0, 0);
+    }
+}
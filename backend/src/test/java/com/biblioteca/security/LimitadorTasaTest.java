@@ -0,0 +1,47 @@
+package com.biblioteca.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LimitadorTasaTest {
+
+    private static final long SEGUNDO = 1_000_000_000L;
+
+    @Test
+    void admiteLaRafagaYLuegoUnTokenPorIntervalo() {
+        LimitadorTasa limitador = new LimitadorTasa(60, 3, 100);
+        long ahora = System.nanoTime();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limitador.consumir("ip", ahora)).isZero();
+        }
+        assertThat(limitador.consumir("ip", ahora)).isPositive().isLessThanOrEqualTo(SEGUNDO);
+        assertThat(limitador.consumir("ip", ahora + SEGUNDO)).isZero();
+    }
+
+    @Test
+    void devolverRestituyeElToken() {
+        LimitadorTasa limitador = new LimitadorTasa(60, 2, 100);
+        long ahora = System.nanoTime();
+        limitador.consumir("ip", ahora);
+        limitador.consumir("ip", ahora);
+        assertThat(limitador.consumir("ip", ahora)).isPositive();
+
+        limitador.devolver("ip");
+
+        assertThat(limitador.consumir("ip", ahora)).isZero();
+        assertThat(limitador.consumir("ip", ahora)).isPositive();
+    }
+
+    @Test
+    void devolverUnaClaveBarridaNoDaTokensDeMas() {
+        LimitadorTasa limitador = new LimitadorTasa(60, 2, 100);
+        limitador.devolver("ip");
+        long ahora = System.nanoTime();
+
+        assertThat(limitador.consumir("ip", ahora)).isZero();
+        assertThat(limitador.consumir("ip", ahora)).isZero();
+        assertThat(limitador.consumir("ip", ahora)).isPositive();
+    }
+}
@@ -0,0 +1,110 @@
+package com.biblioteca.security;
+
+import com.biblioteca.exception.RespuestasError;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+
+    private static final String IP = "203.0.113.7";
+
+    // 2 préstamos por minuto por IP y 1 por usuario
+    private final RateLimitFilter filtro = new RateLimitFilter(20, 2, 1, 30, 10, 1000, respuestasError());
+
+    @AfterEach
+    void limpiar() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void elRechazoPorUsuarioNoGastaElCupoDeLaIp() throws Exception {
+        assertThat(prestar("ana", IP)).isEqualTo(200);
+        // Rechazada por el límite de ana: el token de la IP se devuelve
+        assertThat(prestar("ana", IP)).isEqualTo(429);
+        assertThat(prestar("ana", IP)).isEqualTo(429);
+
+        assertThat(prestar("luis", IP)).isEqualTo(200);
+        assertThat(prestar("marta", IP)).isEqualTo(429);
+    }
+
+    @Test
+    void elRechazoPorIpNoGastaElCupoDelUsuario() throws Exception {
+        assertThat(prestar("ana", IP)).isEqualTo(200);
+        assertThat(prestar("luis", IP)).isEqualTo(200);
+        assertThat(prestar("marta", IP)).isEqualTo(429);
+
+        assertThat(prestar("marta", "198.51.100.20")).isEqualTo(200);
+    }
+
+    @Test
+    void respondeRetryAfter() throws Exception {
+        MockHttpServletResponse respuesta = null;
+        for (int i = 0; i < 3; i++) {
+            respuesta = ejecutar(null, IP);
+        }
+
+        assertThat(respuesta.getStatus()).isEqualTo(429);
+        assertThat(Long.parseLong(respuesta.getHeader("Retry-After"))).isBetween(1L, 60L);
+        assertThat(respuesta.getContentType()).isEqualTo("application/json");
+        assertThat(respuesta.getContentAsString()).contains("DEMASIADAS_SOLICITUDES");
+    }
+
+    @Test
+    void elErrorSeRespondeEnElFormatoQuePideElCliente() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            ejecutar(null, IP);
+        }
+        MockHttpServletRequest peticion = new MockHttpServletRequest("POST", "/api/libros/1/prestar");
+        peticion.setRemoteAddr(IP);
+        peticion.addHeader("Accept", "application/cbor");
+        MockHttpServletResponse respuesta = new MockHttpServletResponse();
+        filtro.doFilter(peticion, respuesta, new MockFilterChain());
+
+        assertThat(respuesta.getStatus()).isEqualTo(429);
+        assertThat(respuesta.getContentType()).isEqualTo("application/cbor");
+        Map<String, String> error = new ObjectMapper(new CBORFactory())
+                .readValue(respuesta.getContentAsByteArray(), new TypeReference<>() {
+                });
+        assertThat(error).containsOnlyKeys("error", "message").containsEntry("error", "DEMASIADAS_SOLICITUDES");
+    }
+
+    // Los mismos conversores que registra la aplicación: JSON primero y CBOR
+    static RespuestasError respuestasError() {
+        return new RespuestasError(new HttpMessageConverters(false, List.of(
+                new MappingJackson2HttpMessageConverter(), new MappingJackson2CborHttpMessageConverter())));
+    }
+
+    private int prestar(String usuario, String ip) throws Exception {
+        return ejecutar(usuario, ip).getStatus();
+    }
+
+    private MockHttpServletResponse ejecutar(String usuario, String ip) throws Exception {
+        SecurityContextHolder.clearContext();
+        if (usuario != null) {
+            SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                    usuario, null, List.of(new SimpleGrantedAuthority("ROLE_USUARIO"))));
+        }
+        MockHttpServletRequest peticion = new MockHttpServletRequest("POST", "/api/libros/1/prestar");
+        peticion.setRemoteAddr(ip);
+        MockHttpServletResponse respuesta = new MockHttpServletResponse();
+        filtro.doFilter(peticion, respuesta, new MockFilterChain());
+        return respuesta;
+    }
+}
@@ -0,0 +1,68 @@
+package com.biblioteca.service;
+
+import com.biblioteca.service.AlmacenIdempotencia.RespuestaGuardada;
+import com.biblioteca.service.AlmacenIdempotencia.Tipo;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AlmacenIdempotenciaMemoriaTest {
+
+    private static final RespuestaGuardada OK = new RespuestaGuardada(200, "application/json", "{}".getBytes());
+
+    @Test
+    void guardaLaRespuestaYDistingueLaHuella() {
+        AlmacenIdempotencia almacen = new AlmacenIdempotenciaMemoria(24, 10);
+
+        assertThat(almacen.iniciar("ana:1", "h1").tipo()).isEqualTo(Tipo.NUEVA);
+        assertThat(almacen.iniciar("ana:1", "h1").tipo()).isEqualTo(Tipo.EN_CURSO);
+        assertThat(almacen.iniciar("ana:1", "h2").tipo()).isEqualTo(Tipo.HUELLA_DISTINTA);
+
+        almacen.completar("ana:1", OK);
+        AlmacenIdempotencia.Resultado repetida = almacen.iniciar("ana:1", "h1");
+        assertThat(repetida.tipo()).isEqualTo(Tipo.REPETIDA);
+        assertThat(repetida.respuesta()).isSameAs(OK);
+        assertThat(almacen.iniciar("ana:1", "h2").tipo()).isEqualTo(Tipo.HUELLA_DISTINTA);
+    }
+
+    @Test
+    void liberarSoloQuitaClavesEnCurso() {
+        AlmacenIdempotencia almacen = new AlmacenIdempotenciaMemoria(24, 10);
+        almacen.iniciar("ana:1", "h1");
+        almacen.iniciar("ana:2", "h2");
+        almacen.completar("ana:2", OK);
+
+        almacen.liberar("ana:1");
+        almacen.liberar("ana:2");
+
+        assertThat(almacen.iniciar("ana:1", "h1").tipo()).isEqualTo(Tipo.NUEVA);
+        assertThat(almacen.iniciar("ana:2", "h2").tipo()).isEqualTo(Tipo.REPETIDA);
+    }
+
+    @Test
+    void unaRespuestaVencidaNoSeRepiteYSePurga() {
+        // TTL de 0 horas: la respuesta vence en cuanto se guarda
+        AlmacenIdempotencia almacen = new AlmacenIdempotenciaMemoria(0, 10);
+        almacen.iniciar("ana:1", "h1");
+        almacen.completar("ana:1", OK);
+        almacen.iniciar("ana:2", "h2");
+
+        // La clave en curso sigue protegida por su propio plazo
+        assertThat(almacen.purgarVencidas()).isEqualTo(1);
+        assertThat(almacen.iniciar("ana:1", "otra").tipo()).isEqualTo(Tipo.NUEVA);
+        assertThat(almacen.iniciar("ana:2", "h2").tipo()).isEqualTo(Tipo.EN_CURSO);
+    }
+
+    @Test
+    void alLlenarseSeDescartaLaClaveMasAntigua() {
+        AlmacenIdempotencia almacen = new AlmacenIdempotenciaMemoria(24, 2);
+        for (String clave : new String[]{"ana:1", "ana:2", "ana:3"}) {
+            almacen.iniciar(clave, "h");
+            almacen.completar(clave, OK);
+        }
+
+        assertThat(almacen.iniciar("ana:2", "h").tipo()).isEqualTo(Tipo.REPETIDA);
+        assertThat(almacen.iniciar("ana:3", "h").tipo()).isEqualTo(Tipo.REPETIDA);
+        assertThat(almacen.iniciar("ana:1", "h").tipo()).isEqualTo(Tipo.NUEVA);
+    }
+}
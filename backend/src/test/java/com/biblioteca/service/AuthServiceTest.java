@@ -0,0 +1,77 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.LoginResponse;
+import com.biblioteca.model.Rol;
+import com.biblioteca.model.Usuario;
+import com.biblioteca.repository.UsuarioRepository;
+import com.biblioteca.security.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// renovar con TokensRenovacion real sobre la tabla simulada de TokensRenovacionTest: sin AuthenticationManager
+class AuthServiceTest {
+
+    private static final long USUARIO_ID = 5L;
+
+    private final JwtUtil jwtUtil = new JwtUtil("clave-de-prueba-de-al-menos-treinta-y-dos-bytes", 60_000);
+    private AuthenticationManager authenticationManager;
+    private Usuario usuario;
+    private TokensRenovacion tokensRenovacion;
+    private AuthService authService;
+
+    @BeforeEach
+    void preparar() {
+        UsuarioRepository usuarioRepository = mock(UsuarioRepository.class);
+        authenticationManager = mock(AuthenticationManager.class);
+        usuario = new Usuario(USUARIO_ID, "ana", "x", "Ana", "Pérez", "ana@prueba.local", Rol.USUARIO, false, 0);
+        when(usuarioRepository.findById(USUARIO_ID)).thenAnswer(i -> Optional.of(usuario));
+        tokensRenovacion = new TokensRenovacion(new TokensRenovacionTest.TablaTokens().repository, usuarioRepository, 14);
+        authService = new AuthService(usuarioRepository, mock(PasswordEncoder.class), authenticationManager,
+                jwtUtil, tokensRenovacion);
+    }
+
+    @Test
+    void renovarEmiteUnAccessTokenConElRolActualYUnTokenDeRenovacionNuevo() {
+        String refresh = tokensRenovacion.emitir(USUARIO_ID);
+        // Ascendido después del login: el token renovado ya lleva el rol nuevo
+        usuario.setRol(Rol.ADMIN);
+
+        LoginResponse respuesta = authService.renovar(refresh);
+
+        assertThat(respuesta.getUsername()).isEqualTo("ana");
+        assertThat(respuesta.getRol()).isEqualTo("ADMIN");
+        assertThat(respuesta.getRefreshToken()).isNotEqualTo(refresh);
+        assertThat(jwtUtil.validar(respuesta.getToken()).get("rol")).isEqualTo("ADMIN");
+        assertThat(jwtUtil.extractUsername(respuesta.getToken())).isEqualTo("ana");
+        verifyNoInteractions(authenticationManager);
+    }
+
+    @Test
+    void renovarDosVecesConElMismoTokenCierraLaSesion() {
+        String refresh = tokensRenovacion.emitir(USUARIO_ID);
+        String siguiente = authService.renovar(refresh).getRefreshToken();
+
+        assertThatThrownBy(() -> authService.renovar(refresh)).isInstanceOf(BadCredentialsException.class);
+        assertThatThrownBy(() -> authService.renovar(siguiente)).isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void unUsuarioBloqueadoNoRenueva() {
+        String refresh = tokensRenovacion.emitir(USUARIO_ID);
+        usuario.setBloqueado(true);
+
+        assertThatThrownBy(() -> authService.renovar(refresh)).isInstanceOf(DisabledException.class);
+    }
+}
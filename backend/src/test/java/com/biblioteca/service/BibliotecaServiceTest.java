@@ -0,0 +1,80 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.Ejemplar;
+import com.biblioteca.model.EstadoPrestamo;
+import com.biblioteca.model.Libro;
+import com.biblioteca.model.Prestamo;
+import com.biblioteca.model.Usuario;
+import com.biblioteca.repository.LibroRepository;
+import com.biblioteca.repository.PrestamoRepository;
+import com.biblioteca.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BibliotecaServiceTest {
+
+    private PrestamoRepository prestamoRepository;
+    private ReservaService reservaService;
+    private InventarioEjemplares inventarioEjemplares;
+    private BibliotecaService bibliotecaService;
+
+    @BeforeEach
+    void preparar() {
+        prestamoRepository = mock(PrestamoRepository.class);
+        reservaService = mock(ReservaService.class);
+        inventarioEjemplares = mock(InventarioEjemplares.class);
+        bibliotecaService = new BibliotecaService(mock(LibroRepository.class), prestamoRepository,
+                mock(UsuarioRepository.class), reservaService, mock(EstadisticasService.class),
+                mock(RecomendacionService.class), mock(TendenciasService.class), mock(DiarioPrestamos.class),
+                mock(OutboxService.class), inventarioEjemplares, mock(PoliticaMultas.class));
+        when(prestamoRepository.save(any(Prestamo.class))).thenAnswer(i -> i.getArgument(0));
+    }
+
+    @Test
+    void pagarLaMultaDeUnaDevolucionConRetrasoConservaLaFechaDeDevolucion() {
+        LocalDate devuelto = LocalDate.now().minusDays(20);
+        Prestamo prestamo = conMulta(devuelto);
+
+        Prestamo pagado = bibliotecaService.pagarMulta(prestamo.getId());
+
+        assertThat(pagado.getEstado()).isEqualTo(EstadoPrestamo.DEVUELTO);
+        assertThat(pagado.getFechaDevolucion()).isEqualTo(devuelto);
+        // El ejemplar ya había vuelto al inventario en devolverLibro
+        verify(reservaService, never()).liberarEjemplar(any());
+        verify(inventarioEjemplares, never()).devolver(any());
+    }
+
+    @Test
+    void pagarLaMultaSinHaberDevueltoElLibroLoDevuelveHoy() {
+        Prestamo prestamo = conMulta(null);
+
+        Prestamo pagado = bibliotecaService.pagarMulta(prestamo.getId());
+
+        assertThat(pagado.getEstado()).isEqualTo(EstadoPrestamo.DEVUELTO);
+        assertThat(pagado.getFechaDevolucion()).isEqualTo(LocalDate.now());
+        verify(reservaService).liberarEjemplar(prestamo.getLibro());
+        verify(inventarioEjemplares).devolver(prestamo.getEjemplar());
+    }
+
+    private Prestamo conMulta(LocalDate fechaDevolucion) {
+        Libro libro = new Libro();
+        libro.setId(3L);
+        Usuario usuario = new Usuario();
+        usuario.setId(5L);
+        LocalDate limite = LocalDate.now().minusDays(30);
+        Prestamo prestamo = new Prestamo(9L, usuario, libro, new Ejemplar(), limite.minusDays(7), limite,
+                fechaDevolucion, EstadoPrestamo.MULTA, 10, 15000);
+        when(prestamoRepository.findById(9L)).thenReturn(Optional.of(prestamo));
+        return prestamo;
+    }
+}
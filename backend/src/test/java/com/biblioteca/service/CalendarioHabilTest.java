@@ -0,0 +1,76 @@
+package com.biblioteca.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Ventana del miércoles 4 al viernes 27 de marzo de 2026, con un feriado en sábado y otro en martes
+class CalendarioHabilTest {
+
+    private static final LocalDate DESDE = LocalDate.of(2026, 3, 4);
+    private static final LocalDate HASTA = LocalDate.of(2026, 3, 27);
+    private static final LocalDate FERIADO_SABADO = LocalDate.of(2026, 3, 7);
+    private static final LocalDate FERIADO_MARTES = LocalDate.of(2026, 3, 10);
+    // Fuera de la ventana: no se conoce y el día cuenta como hábil
+    private static final LocalDate FERIADO_FUERA = LocalDate.of(2026, 4, 7);
+
+    private final CalendarioHabil calendario = new CalendarioHabil(DESDE, HASTA,
+            Set.of(FERIADO_SABADO, FERIADO_MARTES, FERIADO_FUERA));
+
+    @Test
+    void coincideConElConteoDiaADiaDentroAntesYDespuesDeLaVentana() {
+        assertThat(FERIADO_SABADO.getDayOfWeek()).isEqualTo(DayOfWeek.SATURDAY);
+        assertThat(FERIADO_MARTES.getDayOfWeek()).isEqualTo(DayOfWeek.TUESDAY);
+
+        LocalDate primero = LocalDate.of(2025, 12, 1);
+        LocalDate ultimo = LocalDate.of(2026, 6, 30);
+        for (LocalDate desde = primero; !desde.isAfter(ultimo); desde = desde.plusDays(1)) {
+            for (LocalDate hasta = desde; !hasta.isAfter(ultimo); hasta = hasta.plusDays(1)) {
+                assertThat(calendario.habilesEntre(desde, hasta)).as("(%s, %s]", desde, hasta)
+                        .isEqualTo(contarDiaADia(desde, hasta));
+            }
+        }
+    }
+
+    @Test
+    void unFeriadoEnFinDeSemanaNoSeDescuentaDosVeces() {
+        // (vie 6, lun 9]: sábado feriado, domingo y lunes -> 1
+        assertThat(calendario.habilesEntre(LocalDate.of(2026, 3, 6), LocalDate.of(2026, 3, 9))).isEqualTo(1);
+        // (lun 9, mié 11]: martes feriado -> 1
+        assertThat(calendario.habilesEntre(LocalDate.of(2026, 3, 9), LocalDate.of(2026, 3, 11))).isEqualTo(1);
+    }
+
+    @Test
+    void rangosCompletamenteFueraDeLaVentanaSoloDescuentanFinesDeSemana() {
+        // Antes: (lun 2 feb, lun 9 feb] -> mar a vie y lunes = 5
+        assertThat(calendario.habilesEntre(LocalDate.of(2026, 2, 2), LocalDate.of(2026, 2, 9))).isEqualTo(5);
+        // Después, con el feriado desconocido del 7 de abril: (lun 6 abr, lun 13 abr] -> 5
+        assertThat(calendario.habilesEntre(LocalDate.of(2026, 4, 6), LocalDate.of(2026, 4, 13))).isEqualTo(5);
+        // Cruzando toda la ventana: las semanas de fuera más los hábiles de dentro
+        assertThat(calendario.habilesEntre(LocalDate.of(2026, 2, 27), LocalDate.of(2026, 4, 3)))
+                .isEqualTo(contarDiaADia(LocalDate.of(2026, 2, 27), LocalDate.of(2026, 4, 3)));
+    }
+
+    @Test
+    void unRangoVacioOInvertidoNoTieneDiasHabiles() {
+        assertThat(calendario.habilesEntre(LocalDate.of(2026, 3, 12), LocalDate.of(2026, 3, 12))).isZero();
+        assertThat(calendario.habilesEntre(LocalDate.of(2026, 3, 20), LocalDate.of(2026, 3, 12))).isZero();
+    }
+
+    private static int contarDiaADia(LocalDate desde, LocalDate hasta) {
+        int habiles = 0;
+        for (LocalDate dia = desde.plusDays(1); !dia.isAfter(hasta); dia = dia.plusDays(1)) {
+            boolean finDeSemana = dia.getDayOfWeek() == DayOfWeek.SATURDAY || dia.getDayOfWeek() == DayOfWeek.SUNDAY;
+            boolean feriado = !dia.isBefore(DESDE) && !dia.isAfter(HASTA)
+                    && (dia.equals(FERIADO_SABADO) || dia.equals(FERIADO_MARTES));
+            if (!finDeSemana && !feriado) {
+                habiles++;
+            }
+        }
+        return habiles;
+    }
+}
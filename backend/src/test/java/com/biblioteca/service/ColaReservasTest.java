@@ -0,0 +1,67 @@
+package com.biblioteca.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ColaReservasTest {
+
+    private static final int TITULARES = 10_000;
+
+    @Test
+    void respetaElOrdenDeLlegadaConMilesDeTitulares() {
+        ColaReservas cola = new ColaReservas();
+        for (long id = 1; id <= TITULARES; id++) {
+            cola.agregar(id);
+        }
+
+        assertThat(cola.tamano()).isEqualTo(TITULARES);
+        assertThat(cola.posicion(1)).isEqualTo(1);
+        assertThat(cola.posicion(TITULARES)).isEqualTo(TITULARES);
+        // Las asignaciones sacan la cabeza: el resto avanza un lugar cada vez
+        for (long id = 1; id < TITULARES; id++) {
+            assertThat(cola.eliminar(id)).isTrue();
+            assertThat(cola.posicion(TITULARES)).isEqualTo(TITULARES - (int) id);
+        }
+        assertThat(cola.tamano()).isEqualTo(1);
+    }
+
+    @Test
+    void eliminarCorreLasPosicionesSiguientes() {
+        ColaReservas cola = new ColaReservas();
+        for (long id = 1; id <= 10; id++) {
+            cola.agregar(id);
+        }
+
+        assertThat(cola.eliminar(1)).isTrue();
+        assertThat(cola.eliminar(5)).isTrue();
+        assertThat(cola.eliminar(42)).isFalse();
+
+        assertThat(cola.tamano()).isEqualTo(8);
+        assertThat(cola.posicion(2)).isEqualTo(1);
+        assertThat(cola.posicion(6)).isEqualTo(4);
+        assertThat(cola.posicion(5)).isZero();
+        assertThat(cola.toString()).isEqualTo("[2, 3, 4, 6, 7, 8, 9, 10]");
+    }
+
+    @Test
+    void agregarUnaReservaQueYaEstaNoLaDuplica() {
+        ColaReservas cola = new ColaReservas();
+        // Recorre el buffer circular para que la cabeza no esté en la posición 0 al crecer
+        for (long id = 1; id <= 3; id++) {
+            cola.agregar(id);
+        }
+        cola.eliminar(1);
+        cola.eliminar(2);
+        for (long id = 4; id <= 20; id++) {
+            cola.agregar(id);
+        }
+
+        cola.agregar(3);
+        cola.agregar(20);
+
+        assertThat(cola.tamano()).isEqualTo(18);
+        assertThat(cola.posicion(3)).isEqualTo(1);
+        assertThat(cola.posicion(20)).isEqualTo(18);
+    }
+}
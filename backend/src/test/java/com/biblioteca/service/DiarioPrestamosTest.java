@@ -0,0 +1,116 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.EstadoPrestamo;
+import com.biblioteca.model.EventoPrestamo;
+import com.biblioteca.model.Prestamo;
+import com.biblioteca.model.TipoEventoPrestamo;
+import com.biblioteca.repository.EventoPrestamoRepository;
+import jakarta.annotation.PreDestroy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Sin transacción activa registrar encola en el acto, como después de un commit
+class DiarioPrestamosTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private final AtomicBoolean baseCaida = new AtomicBoolean();
+    private final List<List<Long>> lotesEscritos = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void preparar() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(i -> {
+                    if (baseCaida.get()) {
+                        throw new DataAccessResourceFailureException("Conexión rechazada");
+                    }
+                    Collection<EventoPrestamo> eventos = i.getArgument(1);
+                    lotesEscritos.add(eventos.stream().map(EventoPrestamo::getPrestamoId).toList());
+                    return new int[1][eventos.size()];
+                });
+    }
+
+    @Test
+    void conLaColaLlenaDescartaLoQueExcedeLaCapacidadYNadaMas() {
+        DiarioPrestamos diario = diario(100, 30);
+        baseCaida.set(true);
+
+        registrar(diario, 1, 150);
+        diario.escribir();
+        diario.escribir();
+
+        // El lote que falló volvió a la cola sin ocupar cupo adicional
+        assertThat(diario.estado()).containsEntry("pendientes", 100L).containsEntry("descartados", 50L)
+                .containsEntry("escritos", 0L);
+        registrar(diario, 151, 160);
+        assertThat(diario.estado()).containsEntry("pendientes", 100L).containsEntry("descartados", 60L);
+
+        baseCaida.set(false);
+        diario.escribir();
+
+        assertThat(lotesEscritos).extracting(List::size).containsExactly(30, 30, 30, 10);
+        assertThat(lotesEscritos.stream().flatMap(List::stream))
+                .containsExactlyInAnyOrderElementsOf(LongStream.rangeClosed(1, 100).boxed().toList());
+        assertThat(diario.estado()).containsEntry("pendientes", 0L).containsEntry("escritos", 100L)
+                .containsEntry("descartados", 60L);
+    }
+
+    @Test
+    void elApagadoOrdenadoVaciaLaColaEnLotes() throws Exception {
+        assertThat(DiarioPrestamos.class.getMethod("cerrar").isAnnotationPresent(PreDestroy.class)).isTrue();
+        DiarioPrestamos diario = diario(100_000, 1000);
+        registrar(diario, 1, 2_500);
+
+        diario.cerrar();
+
+        assertThat(lotesEscritos).extracting(List::size).containsExactly(1000, 1000, 500);
+        assertThat(lotesEscritos.stream().flatMap(List::stream))
+                .containsExactlyElementsOf(LongStream.rangeClosed(1, 2_500).boxed().toList());
+        assertThat(diario.estado()).containsEntry("pendientes", 0L).containsEntry("escritos", 2_500L);
+    }
+
+    @Test
+    void siLaBaseSigueCaidaAlApagarLosEventosQuedanContadosComoPendientes() {
+        DiarioPrestamos diario = diario(1000, 100);
+        registrar(diario, 1, 250);
+        baseCaida.set(true);
+
+        diario.cerrar();
+
+        assertThat(lotesEscritos).isEmpty();
+        assertThat(diario.estado()).containsEntry("pendientes", 250L).containsEntry("escritos", 0L);
+    }
+
+    private DiarioPrestamos diario(int capacidad, int lote) {
+        return new DiarioPrestamos(jdbcTemplate, mock(PlatformTransactionManager.class),
+                mock(EventoPrestamoRepository.class), capacidad, lote);
+    }
+
+    private static void registrar(DiarioPrestamos diario, long desde, long hasta) {
+        for (long id = desde; id <= hasta; id++) {
+            Prestamo prestamo = new Prestamo();
+            prestamo.setId(id);
+            prestamo.setEstado(EstadoPrestamo.PRESTADO);
+            diario.registrar(prestamo, TipoEventoPrestamo.PRESTADO, null);
+        }
+    }
+}
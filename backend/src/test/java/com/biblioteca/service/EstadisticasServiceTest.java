@@ -0,0 +1,119 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.EstadoPrestamo;
+import com.biblioteca.model.Libro;
+import com.biblioteca.model.Prestamo;
+import com.biblioteca.model.Usuario;
+import com.biblioteca.repository.LibroRepository;
+import com.biblioteca.repository.PrestamoArchivadoRepository;
+import com.biblioteca.repository.PrestamoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Sin transacción activa los deltas se aplican en el acto, igual que tras un commit
+class EstadisticasServiceTest {
+
+    private LibroRepository libroRepository;
+    private PrestamoRepository prestamoRepository;
+    private EstadisticasService estadisticasService;
+    private Libro libro;
+    private Usuario usuario;
+
+    @BeforeEach
+    void preparar() {
+        libroRepository = mock(LibroRepository.class);
+        prestamoRepository = mock(PrestamoRepository.class);
+        PrestamoArchivadoRepository archivadoRepository = mock(PrestamoArchivadoRepository.class);
+        estadisticasService = new EstadisticasService(libroRepository, prestamoRepository, archivadoRepository);
+
+        libro = new Libro();
+        libro.setId(1L);
+        libro.setCantidadTotal(3);
+        libro.setCantidadDisponible(3);
+        usuario = new Usuario();
+        usuario.setId(10L);
+    }
+
+    @Test
+    void losPrestamosConfirmadosDuranteLaConciliacionNoSePierden() {
+        when(libroRepository.findResumenInventario()).thenReturn(List.<Object[]>of(new Object[]{1L, null, 3, 3}));
+        // La foto de préstamos tiene uno; mientras se lee se confirma otro que ella no ve
+        List<Object[]> foto = new ArrayList<>();
+        foto.add(new Object[]{1L, null, 10L, EstadoPrestamo.PRESTADO, 1L, 0});
+        when(prestamoRepository.findResumenPorLibroUsuarioEstado()).thenAnswer(i -> {
+            estadisticasService.registrarPrestamo(prestamo(EstadoPrestamo.PRESTADO), null, 0);
+            return foto;
+        });
+
+        estadisticasService.conciliar();
+
+        Map<String, Long> global = estadisticasService.consultar(null, null, null).getGlobal();
+        assertThat(global).containsEntry("prestamos", 2L).containsEntry("prestados", 2L);
+    }
+
+    @Test
+    void elCambioDeInventarioDuranteLaConciliacionPrevaleceSobreLaFoto() {
+        when(libroRepository.findResumenInventario()).thenReturn(List.<Object[]>of(new Object[]{1L, null, 3, 3}));
+        when(prestamoRepository.findResumenPorLibroUsuarioEstado()).thenAnswer(i -> {
+            // Préstamo confirmado tras la foto del inventario
+            libro.setCantidadDisponible(2);
+            estadisticasService.registrarLibro(libro);
+            return new ArrayList<Object[]>();
+        });
+
+        estadisticasService.conciliar();
+
+        Map<String, Long> global = estadisticasService.consultar(null, null, null).getGlobal();
+        assertThat(global).containsEntry("libros", 1L).containsEntry("ejemplares", 3L)
+                .containsEntry("ejemplaresDisponibles", 2L);
+    }
+
+    @Test
+    void elRecorridoDelInventarioNoDetieneLosCommits() {
+        // Un préstamo en otro hilo mientras se lee el inventario: no espera al fin de la consulta
+        when(libroRepository.findResumenInventario()).thenAnswer(i -> {
+            libro.setCantidadDisponible(2);
+            CompletableFuture.runAsync(() -> estadisticasService.registrarLibro(libro)).get(5, TimeUnit.SECONDS);
+            return List.<Object[]>of(new Object[]{1L, null, 3, 3});
+        });
+        when(prestamoRepository.findResumenPorLibroUsuarioEstado()).thenReturn(new ArrayList<>());
+
+        estadisticasService.conciliar();
+
+        Map<String, Long> global = estadisticasService.consultar(null, null, null).getGlobal();
+        assertThat(global).containsEntry("libros", 1L).containsEntry("ejemplaresDisponibles", 2L);
+    }
+
+    @Test
+    void fueraDeLaConciliacionLosDeltasVanAlEstadoVigente() {
+        when(libroRepository.findResumenInventario()).thenReturn(new ArrayList<>());
+        when(prestamoRepository.findResumenPorLibroUsuarioEstado()).thenReturn(new ArrayList<>());
+        estadisticasService.conciliar();
+
+        estadisticasService.registrarPrestamo(prestamo(EstadoPrestamo.PRESTADO), null, 0);
+        estadisticasService.registrarPrestamo(prestamo(EstadoPrestamo.DEVUELTO), EstadoPrestamo.PRESTADO, 0);
+
+        Map<String, Long> usuarioContadores = estadisticasService.consultar(null, null, 10L).getUsuario();
+        assertThat(usuarioContadores).containsEntry("prestamos", 1L).containsEntry("prestados", 0L)
+                .containsEntry("devueltos", 1L);
+    }
+
+    private Prestamo prestamo(EstadoPrestamo estado) {
+        Prestamo prestamo = new Prestamo();
+        prestamo.setLibro(libro);
+        prestamo.setUsuario(usuario);
+        prestamo.setEstado(estado);
+        prestamo.setValorMulta(0);
+        return prestamo;
+    }
+}
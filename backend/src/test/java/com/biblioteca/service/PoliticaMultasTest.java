@@ -0,0 +1,115 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.Feriado;
+import com.biblioteca.model.PoliticaMulta;
+import com.biblioteca.repository.CategoriaRepository;
+import com.biblioteca.repository.FeriadoRepository;
+import com.biblioteca.repository.PoliticaMultaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// El calendario se arma alrededor de hoy, así que las fechas se eligen relativas a un lunes reciente
+class PoliticaMultasTest {
+
+    private static final long NARRATIVA = 3L;
+    private static final long INFANTIL = 4L;
+
+    private PoliticaMultaRepository politicaMultaRepository;
+    private FeriadoRepository feriadoRepository;
+    private PoliticaMultas politicaMultas;
+    // Lunes de hace unas semanas
+    private LocalDate lunes;
+
+    @BeforeEach
+    void preparar() {
+        politicaMultaRepository = mock(PoliticaMultaRepository.class);
+        feriadoRepository = mock(FeriadoRepository.class);
+        lunes = LocalDate.now().minusWeeks(4).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        // Regla general por configuración: 1000 por día hábil, sin tope ni gracia
+        politicaMultas = new PoliticaMultas(politicaMultaRepository, feriadoRepository,
+                mock(CategoriaRepository.class), 1000, 0, 0, true);
+    }
+
+    @Test
+    void sinRetrasoNoHayMulta() {
+        assertThat(calcular(0L, lunes, lunes)).isEqualTo(new PoliticaMultas.Multa(0, 0));
+        assertThat(calcular(0L, lunes, lunes.minusDays(3))).isEqualTo(new PoliticaMultas.Multa(0, 0));
+    }
+
+    @Test
+    void soloCuentanLosDiasHabilesSinFeriados() {
+        // Miércoles feriado y sábado feriado (este último ya no contaba)
+        cargar(List.of(), lunes.plusDays(2), lunes.plusDays(5));
+
+        // (lunes, lunes siguiente]: 5 entre semana - miércoles feriado = 4
+        assertThat(calcular(0L, lunes, lunes.plusWeeks(1))).isEqualTo(new PoliticaMultas.Multa(4, 4000));
+    }
+
+    @Test
+    void unVencimientoEnFinDeSemanaCuentaDesdeElLunes() {
+        cargar(List.of());
+        LocalDate sabado = lunes.plusDays(5);
+
+        // Devuelto el domingo o el lunes siguiente: el lunes es el primer día hábil de retraso
+        assertThat(calcular(0L, sabado, sabado.plusDays(1))).isEqualTo(new PoliticaMultas.Multa(0, 0));
+        assertThat(calcular(0L, sabado, sabado.plusDays(2))).isEqualTo(new PoliticaMultas.Multa(1, 1000));
+        assertThat(calcular(0L, sabado.plusDays(1), sabado.plusDays(2))).isEqualTo(new PoliticaMultas.Multa(1, 1000));
+    }
+
+    @Test
+    void losDiasDeGraciaNoSeCobranPeroSiSeInforman() {
+        cargar(List.of(new PoliticaMulta(1L, NARRATIVA, 1000, 0, 2, true)));
+
+        assertThat(calcular(NARRATIVA, lunes, lunes.plusDays(2))).isEqualTo(new PoliticaMultas.Multa(2, 0));
+        assertThat(calcular(NARRATIVA, lunes, lunes.plusDays(3))).isEqualTo(new PoliticaMultas.Multa(3, 1000));
+    }
+
+    @Test
+    void elTopeLimitaElValor() {
+        cargar(List.of(new PoliticaMulta(1L, NARRATIVA, 1000, 2500, 0, true)));
+
+        assertThat(calcular(NARRATIVA, lunes, lunes.plusDays(2))).isEqualTo(new PoliticaMultas.Multa(2, 2000));
+        assertThat(calcular(NARRATIVA, lunes, lunes.plusWeeks(2))).isEqualTo(new PoliticaMultas.Multa(10, 2500));
+    }
+
+    @Test
+    void cadaCategoriaUsaSuReglaYLasDemasLaGeneral() {
+        cargar(List.of(
+                new PoliticaMulta(1L, null, 200, 0, 0, false),
+                new PoliticaMulta(2L, INFANTIL, 100, 0, 1, true)), lunes.plusDays(1));
+
+        // General en días corridos: el feriado y el fin de semana cuentan
+        assertThat(calcular(NARRATIVA, lunes, lunes.plusWeeks(1))).isEqualTo(new PoliticaMultas.Multa(7, 1400));
+        // Infantil: 4 hábiles (martes feriado), 1 de gracia
+        assertThat(calcular(INFANTIL, lunes, lunes.plusWeeks(1))).isEqualTo(new PoliticaMultas.Multa(4, 300));
+    }
+
+    @Test
+    void unRetrasoDeAniosNoDesbordaElValor() {
+        cargar(List.of(new PoliticaMulta(1L, null, Integer.MAX_VALUE, 0, 0, false)));
+
+        assertThat(calcular(0L, lunes.minusYears(20), lunes).valor()).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    private void cargar(List<PoliticaMulta> politicas, LocalDate... feriados) {
+        when(politicaMultaRepository.findAll()).thenReturn(politicas);
+        when(feriadoRepository.findAll()).thenReturn(Arrays.stream(feriados)
+                .map(fecha -> new Feriado(null, fecha, "Feriado"))
+                .toList());
+        politicaMultas.recargar();
+    }
+
+    private PoliticaMultas.Multa calcular(long categoriaId, LocalDate fechaLimite, LocalDate hasta) {
+        return politicaMultas.calcular(categoriaId, fechaLimite.toEpochDay(), hasta.toEpochDay());
+    }
+}
@@ -0,0 +1,93 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.Libro;
+import com.biblioteca.repository.LibroRepository;
+import com.biblioteca.repository.PrestamoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecomendacionServiceTest {
+
+    private static final int LIBROS = 200;
+
+    private PrestamoRepository prestamoRepository;
+    private RecomendacionService recomendacionService;
+    private final List<Object[]> pares = new ArrayList<>();
+
+    @BeforeEach
+    void preparar() {
+        prestamoRepository = mock(PrestamoRepository.class);
+        LibroRepository libroRepository = mock(LibroRepository.class);
+        when(prestamoRepository.streamParesUsuarioLibro()).thenAnswer(i -> pares.stream());
+        when(libroRepository.findAllById(any())).thenAnswer(i -> {
+            List<Libro> libros = new ArrayList<>();
+            for (Long id : i.<Collection<Long>>getArgument(0)) {
+                Libro libro = new Libro();
+                libro.setId(id);
+                libros.add(libro);
+            }
+            return libros;
+        });
+        // Bloque mínimo (1024 pares): la reconstrucción pasa por muchos cortes
+        recomendacionService = new RecomendacionService(prestamoRepository, libroRepository,
+                mock(PlatformTransactionManager.class), 1);
+    }
+
+    @Test
+    void porBloquesDaLoMismoQueConstruirTodoDeUnaVez() {
+        Random azar = new Random(42);
+        MatrizCoocurrencia esperada = new MatrizCoocurrencia();
+        for (long usuario = 1; usuario <= 3_000; usuario++) {
+            // El usuario 1500 tiene más préstamos distintos que un bloque entero
+            int prestados = usuario == 1_500 ? LIBROS : 1 + azar.nextInt(12);
+            Set<Long> libros = new HashSet<>();
+            while (libros.size() < prestados) {
+                libros.add(1L + azar.nextInt(LIBROS));
+            }
+            for (long libro : libros) {
+                pares.add(new Object[]{usuario, libro});
+                esperada.registrar(usuario, libro);
+            }
+        }
+
+        recomendacionService.reconstruir();
+
+        assertThat(recomendacionService.lista()).isTrue();
+        for (long libro = 1; libro <= LIBROS; libro++) {
+            Set<Long> obtenidos = recomendacionService.recomendar(libro, LIBROS).stream()
+                    .map(Libro::getId).collect(Collectors.toSet());
+            Set<Long> esperados = Arrays.stream(esperada.similares(libro, LIBROS)).boxed().collect(Collectors.toSet());
+            assertThat(obtenidos).as("libro %d", libro).isEqualTo(esperados);
+        }
+    }
+
+    @Test
+    void mientrasSeConstruyeAlIniciarNoRecomiendaNada() {
+        pares.add(new Object[]{1L, 1L});
+        pares.add(new Object[]{1L, 2L});
+        assertThat(recomendacionService.lista()).isFalse();
+        assertThat(recomendacionService.recomendar(1L, 5)).isEmpty();
+
+        recomendacionService.reconstruirAlIniciar();
+
+        await().atMost(10, TimeUnit.SECONDS).until(recomendacionService::lista);
+        assertThat(recomendacionService.recomendar(1L, 5)).extracting(Libro::getId).containsExactly(2L);
+    }
+}
@@ -0,0 +1,109 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.EstadoPrestamo;
+import com.biblioteca.model.EventoOutbox;
+import com.biblioteca.model.TipoEventoPrestamo;
+import com.biblioteca.repository.EventoOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// El gestor de transacciones simulado anota qué se confirma y qué se revierte: la transacción del lote
+// y un savepoint (PROPAGATION_NESTED) por evento
+class RelayOutboxTest {
+
+    private EventoOutboxRepository repository;
+    private PlatformTransactionManager transactionManager;
+    private final Map<TransactionStatus, String> nombres = new IdentityHashMap<>();
+    private final List<String> transacciones = new ArrayList<>();
+    private final List<Long> entregados = new ArrayList<>();
+
+    @BeforeEach
+    void preparar() {
+        repository = mock(EventoOutboxRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(i -> {
+            TransactionDefinition definicion = i.getArgument(0);
+            TransactionStatus estado = new SimpleTransactionStatus();
+            nombres.put(estado,
+                    definicion.getPropagationBehavior() == TransactionDefinition.PROPAGATION_NESTED ? "savepoint" : "lote");
+            return estado;
+        });
+        doAnswer(i -> transacciones.add("commit " + nombres.get(i.getArgument(0))))
+                .when(transactionManager).commit(any());
+        doAnswer(i -> transacciones.add("rollback " + nombres.get(i.getArgument(0))))
+                .when(transactionManager).rollback(any());
+    }
+
+    @Test
+    void unOyenteQueFallaDejaElEventoConReintentoYLosDemasSeEntregan() {
+        when(repository.bloquearPendientes(any(), anyInt())).thenReturn(List.of(evento(1, 0), evento(2, 3), evento(3, 0)));
+        OyenteEventosPrestamo oyente = evento -> {
+            if (evento.getPrestamoId() == 2) {
+                throw new DataIntegrityViolationException("ERROR: current transaction is aborted");
+            }
+            entregados.add(evento.getPrestamoId());
+        };
+
+        LocalDateTime antes = LocalDateTime.now();
+        relay(oyente).despachar();
+
+        assertThat(entregados).containsExactly(1L, 3L);
+        verify(repository).deleteAllByIdInBatch(List.of(1L, 3L));
+        ArgumentCaptor<LocalDateTime> disponible = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(repository).registrarFallo(eq(2L), disponible.capture(), eq("ERROR: current transaction is aborted"));
+        // Cuarto intento: 2^4 segundos
+        assertThat(disponible.getValue()).isBetween(antes.plusSeconds(16), LocalDateTime.now().plusSeconds(16));
+        // Solo se deshace el savepoint del evento que falló; el lote se confirma
+        assertThat(transacciones).containsExactly(
+                "commit savepoint", "rollback savepoint", "commit savepoint", "commit lote");
+    }
+
+    @Test
+    void sinFallosNoSeRegistranReintentos() {
+        when(repository.bloquearPendientes(any(), anyInt())).thenReturn(List.of(evento(1, 0), evento(2, 0)));
+
+        relay(evento -> entregados.add(evento.getPrestamoId())).despachar();
+
+        assertThat(entregados).containsExactly(1L, 2L);
+        verify(repository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(repository, never()).registrarFallo(any(), any(), anyString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private RelayOutbox relay(OyenteEventosPrestamo oyente) {
+        ObjectProvider<OyenteEventosPrestamo> oyentes = mock(ObjectProvider.class);
+        when(oyentes.orderedStream()).thenReturn(Stream.of(oyente));
+        return new RelayOutbox(repository, oyentes, transactionManager, 200);
+    }
+
+    private static EventoOutbox evento(long id, int intentos) {
+        LocalDateTime creado = LocalDateTime.now().minusMinutes(1);
+        return new EventoOutbox(id, TipoEventoPrestamo.PRESTADO, id, 1L, 10L, EstadoPrestamo.PRESTADO,
+                null, null, creado, creado, intentos, null);
+    }
+}
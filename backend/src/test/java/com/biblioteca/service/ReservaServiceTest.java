@@ -0,0 +1,251 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.EstadoReserva;
+import com.biblioteca.model.Libro;
+import com.biblioteca.model.Reserva;
+import com.biblioteca.model.Usuario;
+import com.biblioteca.repository.LibroRepository;
+import com.biblioteca.repository.ReservaRepository;
+import com.biblioteca.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Sin transacción activa Transacciones.despuesDeCommit ejecuta en el acto, así que las colas se actualizan
+// como tras cada commit. La lista de espera "en la base" es una deque: tomarSiguienteEnEspera saca la cabeza
+// de forma atómica, como FOR UPDATE SKIP LOCKED con varias devoluciones a la vez
+class ReservaServiceTest {
+
+    private static final long LIBRO_ID = 7L;
+
+    private ReservaRepository reservaRepository;
+    private LibroRepository libroRepository;
+    private UsuarioRepository usuarioRepository;
+    private EstadisticasService estadisticasService;
+    private BusInvalidaciones bus;
+    private ReservaService reservaService;
+
+    private final ConcurrentLinkedDeque<Reserva> enEspera = new ConcurrentLinkedDeque<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicInteger disponibles = new AtomicInteger();
+    private Libro libro;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void preparar() {
+        reservaRepository = mock(ReservaRepository.class);
+        libroRepository = mock(LibroRepository.class);
+        usuarioRepository = mock(UsuarioRepository.class);
+        estadisticasService = mock(EstadisticasService.class);
+        bus = mock(BusInvalidaciones.class);
+        ObjectProvider<BusInvalidaciones> proveedorBus = mock(ObjectProvider.class);
+        doAnswer(i -> {
+            i.<Consumer<BusInvalidaciones>>getArgument(0).accept(bus);
+            return null;
+        }).when(proveedorBus).ifAvailable(any());
+        reservaService = new ReservaService(reservaRepository, libroRepository, usuarioRepository, estadisticasService,
+                proveedorBus, 48);
+
+        libro = new Libro();
+        libro.setId(LIBRO_ID);
+        libro.setTitulo("Rayuela");
+        libro.setCantidadTotal(1);
+        libro.setCantidadDisponible(0);
+
+        when(reservaRepository.tomarSiguienteEnEspera(LIBRO_ID)).thenAnswer(i -> Optional.ofNullable(enEspera.pollFirst()));
+        when(reservaRepository.save(any(Reserva.class))).thenAnswer(i -> {
+            Reserva reserva = i.getArgument(0);
+            if (reserva.getId() == null) {
+                reserva.setId(ids.incrementAndGet());
+            }
+            return reserva;
+        });
+        when(libroRepository.save(any(Libro.class))).thenAnswer(i -> i.getArgument(0));
+        // UPDATE atómico de la disponibilidad: el libro en memoria recibe el valor de la "base"
+        doAnswer(i -> {
+            Libro devuelto = i.getArgument(0);
+            devuelto.setCantidadDisponible(disponibles.incrementAndGet());
+            return null;
+        }).when(libroRepository).devolverDisponible(any(Libro.class));
+    }
+
+    @Test
+    void laDevolucionAsignaAQuienReservoEnOtroNodo() {
+        // La cola en memoria de este nodo está vacía: la reserva se hizo en otro
+        Reserva reserva = enEspera("ana");
+        reservaService.cargarColas();
+
+        reservaService.liberarEjemplar(libro);
+
+        assertThat(reserva.getEstado()).isEqualTo(EstadoReserva.ASIGNADA);
+        assertThat(reserva.getFechaLimiteRecogida()).isEqualTo(reserva.getFechaAsignacion().plusHours(48));
+        assertThat(libro.getCantidadDisponible()).isZero();
+        verify(libroRepository, never()).save(any());
+    }
+
+    @Test
+    void sinNadieEnEsperaElEjemplarVuelveAlInventario() {
+        reservaService.liberarEjemplar(libro);
+
+        assertThat(libro.getCantidadDisponible()).isEqualTo(1);
+        verify(estadisticasService).registrarLibro(libro);
+        // Sin save: la devolución no incrementa la versión del libro
+        verify(libroRepository, never()).save(any());
+    }
+
+    @Test
+    void laPosicionSeCuentaEnLaBaseSiLaReservaNoEstaEnLaColaLocal() {
+        Usuario usuario = usuario("ana");
+        when(usuarioRepository.findByUsername("ana")).thenReturn(Optional.of(usuario));
+        Reserva reserva = enEspera("ana");
+        when(reservaRepository.findByUsuarioWithLibro(usuario)).thenReturn(List.of(reserva));
+        when(reservaRepository.contarAnterioresEnEspera(LIBRO_ID, reserva.getFechaSolicitud(), reserva.getId())).thenReturn(41L);
+
+        List<Reserva> reservas = reservaService.reservasPorUsuario("ana");
+
+        assertThat(reservas.get(0).getPosicion()).isEqualTo(42);
+    }
+
+    @Test
+    void unCambioEnLaListaDeOtroNodoDescartaLaColaLocal() {
+        Usuario usuario = usuario("ana");
+        when(usuarioRepository.findByUsername("ana")).thenReturn(Optional.of(usuario));
+        Reserva primera = enEspera("luis");
+        Reserva segunda = enEspera("marta");
+        Reserva deAna = enEspera("ana");
+        when(reservaRepository.findLibroIdAndIdByEstado(EstadoReserva.EN_ESPERA)).thenReturn(List.of(
+                new Object[]{LIBRO_ID, primera.getId()}, new Object[]{LIBRO_ID, segunda.getId()}, new Object[]{LIBRO_ID, deAna.getId()}));
+        when(reservaRepository.findByUsuarioWithLibro(usuario)).thenReturn(List.of(deAna));
+        reservaService.cargarColas();
+        assertThat(reservaService.reservasPorUsuario("ana").get(0).getPosicion()).isEqualTo(3);
+
+        // Otro nodo asigna la primera: llega el aviso del bus y la cola se relee de la base
+        when(reservaRepository.findIdsByLibroIdAndEstado(LIBRO_ID, EstadoReserva.EN_ESPERA)).thenReturn(List.of(segunda.getId(), deAna.getId()));
+        reservaService.invalidar(BusInvalidaciones.Tipo.RESERVAS, Set.of(LIBRO_ID));
+
+        assertThat(reservaService.reservasPorUsuario("ana").get(0).getPosicion()).isEqualTo(2);
+    }
+
+    @Test
+    void losCambiosDeLaListaSePublicanParaLosDemasNodos() {
+        enEspera("ana");
+
+        reservaService.liberarEjemplar(libro);
+
+        verify(bus).publicar(BusInvalidaciones.Tipo.RESERVAS, LIBRO_ID);
+    }
+
+    @Test
+    void reservarToleraLaReservaActivaExistente() {
+        Usuario usuario = usuario("ana");
+        Reserva existente = enEspera("ana");
+        when(usuarioRepository.findByUsername("ana")).thenReturn(Optional.of(usuario));
+        when(libroRepository.findByIdParaActualizar(LIBRO_ID)).thenReturn(Optional.of(libro));
+        when(reservaRepository.findFirstByUsuarioAndLibroAndEstadoIn(any(), any(), any())).thenReturn(Optional.of(existente));
+        when(reservaRepository.contarAnterioresEnEspera(any(), any(), anyLong())).thenReturn(0L);
+
+        Reserva reserva = reservaService.reservar(LIBRO_ID, "ana");
+
+        assertThat(reserva).isSameAs(existente);
+        assertThat(reserva.getPosicion()).isEqualTo(1);
+    }
+
+    @Test
+    void milesDeTitularesEnUnTituloConDevolucionesConcurrentes() throws Exception {
+        int titulares = 5_000;
+        List<Reserva> todas = new ArrayList<>();
+        List<Object[]> filas = new ArrayList<>();
+        for (int i = 0; i < titulares; i++) {
+            Reserva reserva = enEspera("lector" + i);
+            todas.add(reserva);
+            filas.add(new Object[]{LIBRO_ID, reserva.getId()});
+        }
+        when(reservaRepository.findLibroIdAndIdByEstado(EstadoReserva.EN_ESPERA)).thenReturn(filas);
+        reservaService.cargarColas();
+
+        // Las primeras devoluciones, en secuencia, siguen el orden de llegada
+        for (int i = 0; i < 100; i++) {
+            Libro devuelto = copia(libro);
+            reservaService.liberarEjemplar(devuelto);
+            assertThat(todas.get(i).getEstado()).isEqualTo(EstadoReserva.ASIGNADA);
+            assertThat(devuelto.getCantidadDisponible()).isZero();
+        }
+
+        // El resto desde 8 hilos: cada reserva se asigna una sola vez y ninguna devolución suma inventario
+        Set<Long> asignadas = ConcurrentHashMap.newKeySet();
+        when(reservaRepository.save(any(Reserva.class))).thenAnswer(i -> {
+            Reserva reserva = i.getArgument(0);
+            assertThat(asignadas.add(reserva.getId())).as("reserva %d asignada dos veces", reserva.getId()).isTrue();
+            return reserva;
+        });
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> devoluciones = new ArrayList<>();
+            for (int i = 100; i < titulares; i++) {
+                devoluciones.add(hilos.submit(() -> reservaService.liberarEjemplar(copia(libro))));
+            }
+            for (Future<?> devolucion : devoluciones) {
+                devolucion.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        assertThat(asignadas).hasSize(titulares - 100);
+        assertThat(todas).allMatch(r -> r.getEstado() == EstadoReserva.ASIGNADA);
+        verify(libroRepository, never()).save(any());
+
+        // Con la lista vacía la siguiente devolución vuelve al inventario
+        reservaService.liberarEjemplar(libro);
+        assertThat(libro.getCantidadDisponible()).isEqualTo(1);
+    }
+
+    private Reserva enEspera(String username) {
+        Reserva reserva = new Reserva();
+        reserva.setId(ids.incrementAndGet());
+        reserva.setUsuario(usuario(username));
+        reserva.setLibro(libro);
+        reserva.setFechaSolicitud(LocalDateTime.now());
+        reserva.setEstado(EstadoReserva.EN_ESPERA);
+        enEspera.addLast(reserva);
+        return reserva;
+    }
+
+    private static Usuario usuario(String username) {
+        Usuario usuario = new Usuario();
+        usuario.setUsername(username);
+        return usuario;
+    }
+
+    private static Libro copia(Libro libro) {
+        Libro copia = new Libro();
+        copia.setId(libro.getId());
+        copia.setCantidadTotal(libro.getCantidadTotal());
+        copia.setCantidadDisponible(libro.getCantidadDisponible());
+        return copia;
+    }
+}
@@ -0,0 +1,170 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.LibroTendencia;
+import com.biblioteca.model.Categoria;
+import com.biblioteca.model.Libro;
+import com.biblioteca.repository.CategoriaRepository;
+import com.biblioteca.repository.LibroRepository;
+import com.biblioteca.repository.PrestamoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Precisión de los rankings frente a los conteos exactos. Sin transacción activa registrarPrestamo suma en el acto
+class TendenciasServiceTest {
+
+    private static final int LIBROS = 3_000;
+    private static final int CAPACIDAD = 64;
+    private static final int PRESTAMOS_POR_DIA = 2_000;
+
+    private CategoriaRepository categoriaRepository;
+    private TendenciasService tendenciasService;
+    private final Map<Long, Libro> catalogo = new HashMap<>();
+    // Día (epoch) -> libro -> préstamos reales
+    private final Map<Long, Map<Long, Long>> exactos = new HashMap<>();
+
+    @BeforeEach
+    void preparar() {
+        LibroRepository libroRepository = mock(LibroRepository.class);
+        categoriaRepository = mock(CategoriaRepository.class);
+        when(libroRepository.findAllById(any())).thenAnswer(i -> i.<Collection<Long>>getArgument(0).stream()
+                .map(catalogo::get).toList());
+        tendenciasService = new TendenciasService(mock(PrestamoRepository.class), libroRepository, categoriaRepository,
+                CAPACIDAD, 60_000);
+
+        for (long id = 1; id <= LIBROS; id++) {
+            Libro libro = new Libro();
+            libro.setId(id);
+            libro.setCategoria(new Categoria(id % 3 + 1, "Categoría " + (id % 3 + 1), 0));
+            catalogo.put(id, libro);
+        }
+
+        // Popularidad tipo Zipf (s = 1.1) que cambia un poco de un día a otro
+        double[] acumulada = new double[LIBROS];
+        double suma = 0;
+        for (int i = 0; i < LIBROS; i++) {
+            suma += 1.0 / Math.pow(i + 1, 1.1);
+            acumulada[i] = suma;
+        }
+        Random azar = new Random(7);
+        LocalDate hoy = LocalDate.now();
+        for (int atras = 0; atras < 30; atras++) {
+            LocalDate fecha = hoy.minusDays(atras);
+            int desplazamiento = azar.nextInt(3);
+            Map<Long, Long> delDia = exactos.computeIfAbsent(fecha.toEpochDay(), d -> new HashMap<>());
+            for (int p = 0; p < PRESTAMOS_POR_DIA; p++) {
+                int indice = buscar(acumulada, azar.nextDouble() * suma);
+                long libroId = (indice + desplazamiento) % LIBROS + 1;
+                delDia.merge(libroId, 1L, Long::sum);
+                tendenciasService.registrarPrestamo(catalogo.get(libroId), fecha);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(TendenciasService.Periodo.class)
+    void lasCotasDelRankingContienenAlConteoExacto(TendenciasService.Periodo periodo) {
+        Map<Long, Long> reales = reales(periodo, null);
+        long total = reales.values().stream().mapToLong(Long::longValue).sum();
+        long cota = total / CAPACIDAD;
+
+        List<LibroTendencia> ranking = tendenciasService.masPrestados(periodo, null, TendenciasService.LIMITE_MAXIMO);
+
+        for (LibroTendencia entrada : ranking) {
+            long real = reales.getOrDefault(entrada.getLibro().getId(), 0L);
+            assertThat(real).as("libro %d", entrada.getLibro().getId())
+                    .isBetween(entrada.getPrestamos() - entrada.getErrorMaximo(), entrada.getPrestamos());
+            assertThat(entrada.getErrorMaximo()).isLessThanOrEqualTo(cota);
+        }
+        // Todo libro con más de N/m préstamos está en el ranking
+        Set<Long> enRanking = ranking.stream().map(e -> e.getLibro().getId()).collect(Collectors.toSet());
+        reales.forEach((libroId, real) -> {
+            if (real > cota) {
+                assertThat(enRanking).as("libro %d con %d préstamos (N/m = %d)", libroId, real, cota).contains(libroId);
+            }
+        });
+        // Los más prestados, bien separados en una distribución Zipf, salen en el orden real
+        List<Long> cincoReales = reales.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(5).map(Map.Entry::getKey).toList();
+        assertThat(ranking.subList(0, 5)).extracting(e -> e.getLibro().getId()).containsExactlyElementsOf(cincoReales);
+    }
+
+    @Test
+    void porCategoriaSoloCuentaLosLibrosDeEsaCategoria() {
+        when(categoriaRepository.existsById(2L)).thenReturn(true);
+        Map<Long, Long> reales = reales(TendenciasService.Periodo.MES, 2L);
+
+        List<LibroTendencia> ranking = tendenciasService.masPrestados(TendenciasService.Periodo.MES, 2L, 10);
+
+        assertThat(ranking).hasSize(10).allMatch(e -> e.getLibro().getCategoria().getId() == 2L);
+        for (LibroTendencia entrada : ranking) {
+            long real = reales.getOrDefault(entrada.getLibro().getId(), 0L);
+            assertThat(real).isBetween(entrada.getPrestamos() - entrada.getErrorMaximo(), entrada.getPrestamos());
+        }
+    }
+
+    @Test
+    void rechazaCategoriasDesconocidasSinGuardarlasEnCache() {
+        when(categoriaRepository.existsById(999L)).thenReturn(false);
+
+        assertThatThrownBy(() -> tendenciasService.masPrestados(TendenciasService.Periodo.SEMANA, 999L, 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Categoría");
+        assertThatThrownBy(() -> tendenciasService.masPrestados(TendenciasService.Periodo.SEMANA, null, 101))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void limitesDistintosCompartenElMismoRanking() {
+        List<LibroTendencia> diez = tendenciasService.masPrestados(TendenciasService.Periodo.SEMANA, null, 10);
+        List<LibroTendencia> tres = tendenciasService.masPrestados(TendenciasService.Periodo.SEMANA, null, 3);
+
+        assertThat(tres).isEqualTo(diez.subList(0, 3));
+    }
+
+    private Map<Long, Long> reales(TendenciasService.Periodo periodo, Long categoriaId) {
+        int dias = periodo == TendenciasService.Periodo.SEMANA ? 7 : 30;
+        long hoy = LocalDate.now().toEpochDay();
+        Map<Long, Long> reales = new HashMap<>();
+        for (long dia = hoy - dias + 1; dia <= hoy; dia++) {
+            exactos.getOrDefault(dia, Map.of()).forEach((libroId, cantidad) -> {
+                if (categoriaId == null || catalogo.get(libroId).getCategoria().getId().equals(categoriaId)) {
+                    reales.merge(libroId, cantidad, Long::sum);
+                }
+            });
+        }
+        return reales;
+    }
+
+    private static int buscar(double[] acumulada, double valor) {
+        int desde = 0;
+        int hasta = acumulada.length - 1;
+        while (desde < hasta) {
+            int medio = (desde + hasta) >>> 1;
+            if (acumulada[medio] < valor) {
+                desde = medio + 1;
+            } else {
+                hasta = medio;
+            }
+        }
+        return desde;
+    }
+}
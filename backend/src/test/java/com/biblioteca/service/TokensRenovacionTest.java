@@ -0,0 +1,216 @@
+package com.biblioteca.service;
+
+import com.biblioteca.model.Rol;
+import com.biblioteca.model.TokenRenovacion;
+import com.biblioteca.model.Usuario;
+import com.biblioteca.repository.TokenRenovacionRepository;
+import com.biblioteca.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// La tabla de tokens es una lista en memoria con los UPDATE condicionales del repositorio. findByHash
+// devuelve una copia, como la entidad que JPA cargó antes del UPDATE masivo
+class TokensRenovacionTest {
+
+    private static final long USUARIO_ID = 5L;
+
+    private TablaTokens tabla;
+    private UsuarioRepository usuarioRepository;
+    private Usuario usuario;
+    private TokensRenovacion tokensRenovacion;
+
+    @BeforeEach
+    void preparar() {
+        tabla = new TablaTokens();
+        usuarioRepository = mock(UsuarioRepository.class);
+        usuario = new Usuario(USUARIO_ID, "ana", "x", "Ana", "Pérez", "ana@prueba.local", Rol.USUARIO, false, 0);
+        when(usuarioRepository.findById(USUARIO_ID)).thenAnswer(i -> Optional.of(usuario));
+        tokensRenovacion = new TokensRenovacion(tabla.repository, usuarioRepository, 14);
+    }
+
+    @Test
+    void rotarEmiteOtroTokenDeLaMismaFamiliaYMarcaElAnterior() {
+        String token = tokensRenovacion.emitir(USUARIO_ID);
+
+        TokensRenovacion.Rotacion rotacion = tokensRenovacion.rotar(token);
+
+        assertThat(rotacion.usuario()).isSameAs(usuario);
+        assertThat(rotacion.token()).isNotEqualTo(token);
+        assertThat(tabla.filas).hasSize(2);
+        assertThat(tabla.filas.get(0).getUsado()).isNotNull();
+        assertThat(tabla.filas.get(1).getFamilia()).isEqualTo(tabla.filas.get(0).getFamilia());
+        assertThat(tabla.filas).noneMatch(TokenRenovacion::isRevocado);
+    }
+
+    @Test
+    void reusarUnTokenYaUsadoRevocaTodaLaFamilia() {
+        String copiado = tokensRenovacion.emitir(USUARIO_ID);
+        String otraSesion = tokensRenovacion.emitir(USUARIO_ID);
+        String vigente = tokensRenovacion.rotar(copiado).token();
+
+        assertThatThrownBy(() -> tokensRenovacion.rotar(copiado)).isInstanceOf(BadCredentialsException.class);
+
+        // El último token de la familia tampoco sirve: quien tenía la copia no puede seguir la cadena
+        assertThatThrownBy(() -> tokensRenovacion.rotar(vigente)).isInstanceOf(BadCredentialsException.class);
+        // La otra sesión del mismo usuario no se toca
+        assertThat(tokensRenovacion.rotar(otraSesion).token()).isNotBlank();
+    }
+
+    @Test
+    void dosRotacionesSimultaneasDelMismoTokenGananUnaSolaVez() throws Exception {
+        String token = tokensRenovacion.emitir(USUARIO_ID);
+        // Las dos leen el token sin usar antes de que cualquiera lo marque
+        tabla.barrera = new CyclicBarrier(2);
+
+        ExecutorService hilos = Executors.newFixedThreadPool(2);
+        List<TokensRenovacion.Rotacion> ganadoras = new ArrayList<>();
+        List<Throwable> rechazos = new ArrayList<>();
+        try {
+            List<Future<TokensRenovacion.Rotacion>> rotaciones = List.of(
+                    hilos.submit(() -> tokensRenovacion.rotar(token)),
+                    hilos.submit(() -> tokensRenovacion.rotar(token)));
+            for (Future<TokensRenovacion.Rotacion> rotacion : rotaciones) {
+                try {
+                    ganadoras.add(rotacion.get(10, TimeUnit.SECONDS));
+                } catch (ExecutionException e) {
+                    rechazos.add(e.getCause());
+                }
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+        tabla.barrera = null;
+
+        assertThat(ganadoras).hasSize(1);
+        assertThat(rechazos).singleElement().isInstanceOf(BadCredentialsException.class);
+        // marcarUsado devolvió 0 a la perdedora: se trata como reuso y la familia queda revocada
+        assertThatThrownBy(() -> tokensRenovacion.rotar(ganadoras.get(0).token()))
+                .isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void unUsuarioBloqueadoPierdeTodasSusSesiones() {
+        String token = tokensRenovacion.emitir(USUARIO_ID);
+        String otraSesion = tokensRenovacion.emitir(USUARIO_ID);
+        usuario.setBloqueado(true);
+
+        assertThatThrownBy(() -> tokensRenovacion.rotar(token)).isInstanceOf(DisabledException.class);
+
+        verify(tabla.repository).revocarUsuarios(List.of(USUARIO_ID));
+        assertThat(tabla.filas).allMatch(TokenRenovacion::isRevocado);
+        usuario.setBloqueado(false);
+        assertThatThrownBy(() -> tokensRenovacion.rotar(otraSesion)).isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void unTokenVencidoODesconocidoNoRenueva() {
+        String token = tokensRenovacion.emitir(USUARIO_ID);
+        tabla.filas.get(0).setExpira(LocalDateTime.now().minusMinutes(1));
+
+        assertThatThrownBy(() -> tokensRenovacion.rotar(token)).isInstanceOf(BadCredentialsException.class)
+                .hasMessageContaining("vencido");
+        assertThatThrownBy(() -> tokensRenovacion.rotar("inventado")).isInstanceOf(BadCredentialsException.class);
+        assertThatThrownBy(() -> tokensRenovacion.rotar(" ")).isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void cerrarSesionRevocaSoloEsaFamilia() {
+        String token = tokensRenovacion.emitir(USUARIO_ID);
+        String otraSesion = tokensRenovacion.emitir(USUARIO_ID);
+
+        tokensRenovacion.revocar(token);
+        tokensRenovacion.revocar("desconocido");
+
+        assertThatThrownBy(() -> tokensRenovacion.rotar(token)).isInstanceOf(BadCredentialsException.class);
+        assertThat(tokensRenovacion.rotar(otraSesion).token()).isNotBlank();
+    }
+
+    // Repositorio simulado sobre una lista; los UPDATE van sincronizados como filas bloqueadas
+    static final class TablaTokens {
+
+        final List<TokenRenovacion> filas = new ArrayList<>();
+        final TokenRenovacionRepository repository = mock(TokenRenovacionRepository.class);
+        volatile CyclicBarrier barrera;
+        private final AtomicLong ids = new AtomicLong();
+
+        TablaTokens() {
+            when(repository.save(any(TokenRenovacion.class))).thenAnswer(i -> {
+                TokenRenovacion token = i.getArgument(0);
+                token.setId(ids.incrementAndGet());
+                synchronized (this) {
+                    filas.add(token);
+                }
+                return token;
+            });
+            when(repository.findByHash(anyString())).thenAnswer(i -> {
+                Optional<TokenRenovacion> copia;
+                synchronized (this) {
+                    copia = filas.stream().filter(t -> t.getHash().equals(i.getArgument(0))).findFirst().map(TablaTokens::copia);
+                }
+                CyclicBarrier espera = barrera;
+                if (espera != null) {
+                    espera.await(5, TimeUnit.SECONDS);
+                }
+                return copia;
+            });
+            when(repository.marcarUsado(anyLong(), any(LocalDateTime.class))).thenAnswer(i -> {
+                synchronized (this) {
+                    for (TokenRenovacion token : filas) {
+                        if (token.getId().equals(i.getArgument(0)) && token.getUsado() == null && !token.isRevocado()) {
+                            token.setUsado(i.getArgument(1));
+                            return 1;
+                        }
+                    }
+                    return 0;
+                }
+            });
+            when(repository.revocarFamilia(anyString())).thenAnswer(i -> revocar(t -> t.getFamilia().equals(i.getArgument(0))));
+            when(repository.revocarUsuarios(anyCollection())).thenAnswer(i -> {
+                Collection<Long> usuarios = i.getArgument(0);
+                return revocar(t -> usuarios.contains(t.getUsuarioId()));
+            });
+        }
+
+        private synchronized int revocar(Predicate<TokenRenovacion> condicion) {
+            int revocados = 0;
+            for (TokenRenovacion token : filas) {
+                if (condicion.test(token) && !token.isRevocado()) {
+                    token.setRevocado(true);
+                    revocados++;
+                }
+            }
+            return revocados;
+        }
+
+        private static TokenRenovacion copia(TokenRenovacion t) {
+            return new TokenRenovacion(t.getId(), t.getHash(), t.getUsuarioId(), t.getFamilia(), t.getCreado(),
+                    t.getExpira(), t.getUsado(), t.isRevocado());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.biblioteca.benchmarks;
+
+import com.biblioteca.repository.LibroRepository;
+import com.biblioteca.service.IndiceCatalogo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Latencia de /api/libros/buscar sobre el índice en memoria (objetivo: < 20 ms con un millón de títulos):
+// búsqueda exacta, búsqueda con errores de tipeo y sin tildes que cae en la aproximada, y solo facetas.
+// Los títulos se arman con palabras frecuentes en español para que haya trigramas muy repetidos.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class CatalogoBenchmark {
+
+    private static final String[] PALABRAS = {"amor", "tiempo", "cólera", "soledad", "años", "casa", "espíritus",
+            "sombra", "viento", "ciudad", "perros", "guerra", "paz", "noche", "mar", "montaña", "río", "jardín",
+            "secreto", "memoria", "olvido", "historia", "vida", "muerte", "sueño", "lluvia", "fuego", "silencio"};
+    private static final String[] ENLACES = {"de", "la", "el", "los", "en", "y", "del", "las"};
+    private static final String[] NOMBRES = {"Gabriel", "Isabel", "Mario", "Julio", "Laura", "Carlos", "Elena",
+            "Jorge", "Rosa", "Pablo", "Juana", "Miguel", "Octavio", "Rómulo", "Ángeles"};
+    private static final String[] APELLIDOS = {"García", "Márquez", "Allende", "Vargas", "Cortázar", "Esquivel",
+            "Fuentes", "Borges", "Mastretta", "Neruda", "Inés", "Unamuno", "Paz", "Gallegos", "Núñez", "Peña"};
+
+    @Param({"1000000"})
+    public int libros;
+
+    private IndiceCatalogo indice;
+
+    @Setup
+    public void preparar() {
+        SplittableRandom aleatorio = new SplittableRandom(42);
+        List<Object[]> filas = new ArrayList<>(libros);
+        for (long id = 1; id <= libros; id++) {
+            String titulo = elegir(aleatorio, PALABRAS) + " " + elegir(aleatorio, ENLACES) + " "
+                    + elegir(aleatorio, PALABRAS) + (aleatorio.nextInt(3) == 0 ? " " + aleatorio.nextInt(1000) : "");
+            String autor = elegir(aleatorio, NOMBRES) + " " + elegir(aleatorio, APELLIDOS) + " " + elegir(aleatorio, APELLIDOS);
+            filas.add(new Object[]{id, titulo, autor, (long) (1 + aleatorio.nextInt(30)), aleatorio.nextInt(4)});
+        }
+        LibroRepository libroRepository = Repositorios.stub(LibroRepository.class,
+                Map.of("findResumenCatalogo", args -> filas));
+        indice = new IndiceCatalogo(libroRepository, 0.5);
+        indice.recargar();
+    }
+
+    private static String elegir(SplittableRandom aleatorio, String[] opciones) {
+        return opciones[aleatorio.nextInt(opciones.length)];
+    }
+
+    @Benchmark
+    public IndiceCatalogo.Resultado exacta() {
+        return indice.buscar(new IndiceCatalogo.Filtro("soledad", 7L, null, true, IndiceCatalogo.Modo.AUTO), 0, 20);
+    }
+
+    @Benchmark
+    public IndiceCatalogo.Resultado conErrores() {
+        return indice.buscar(new IndiceCatalogo.Filtro("Garcia Marques", null, null, null, IndiceCatalogo.Modo.AUTO), 0, 20);
+    }
+
+    @Benchmark
+    public IndiceCatalogo.Resultado sinTildes() {
+        return indice.buscar(new IndiceCatalogo.Filtro("cien anos de soledat", null, null, null, IndiceCatalogo.Modo.AUTO), 0, 20);
+    }
+
+    @Benchmark
+    public IndiceCatalogo.Resultado soloFacetas() {
+        return indice.buscar(new IndiceCatalogo.Filtro(null, 12L, "G", null, IndiceCatalogo.Modo.AUTO), 0, 20);
+    }
+}
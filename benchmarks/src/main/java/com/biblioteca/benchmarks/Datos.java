@@ -0,0 +1,89 @@
+package com.biblioteca.benchmarks;
+
+import com.biblioteca.config.JacksonConfig;
+import com.biblioteca.model.Categoria;
+import com.biblioteca.model.EstadoPrestamo;
+import com.biblioteca.model.Libro;
+import com.biblioteca.model.Prestamo;
+import com.biblioteca.model.Rol;
+import com.biblioteca.model.Usuario;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Entidades de ejemplo con tamaños parecidos a los reales (descripciones largas, relaciones completas)
+final class Datos {
+
+    static final String SECRETO_JWT = "MiClaveSuperSecretaParaJWT_ChangeMe";
+    // Hash BCrypt con el formato y coste que guarda el registro (no se verifica en los benchmarks)
+    static final String PASSWORD_BCRYPT = "$2a$10$7EqJtq98hPqEX7fNZaFWoOHi5GZ4p2nYbQ7wU6eWmZV8Rz1v1W1bS";
+
+    private Datos() {
+    }
+
+    // ObjectMapper como el de Spring Boot (fechas ISO, filtros de JacksonConfig) sobre el formato dado
+    static ObjectMapper objectMapper(JsonFactory formato) {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .factory(formato);
+        new JacksonConfig().filtrosPorDefecto().customize(builder);
+        return builder.build();
+    }
+
+    static Usuario usuario(long id) {
+        Usuario usuario = new Usuario();
+        usuario.setId(id);
+        usuario.setUsername("lector" + id);
+        usuario.setPassword(PASSWORD_BCRYPT);
+        usuario.setNombre("Nombre" + id);
+        usuario.setApellido("Apellido" + id);
+        usuario.setEmail("lector" + id + "@inkverse.com");
+        usuario.setRol(Rol.USUARIO);
+        usuario.setBloqueado(false);
+        return usuario;
+    }
+
+    static Libro libro(long id) {
+        Categoria categoria = new Categoria();
+        categoria.setId(id % 12 + 1);
+        categoria.setNombre("Categoría " + categoria.getId());
+
+        Libro libro = new Libro();
+        libro.setId(id);
+        libro.setTitulo("Cien años de soledad, edición " + id);
+        libro.setAutor("Gabriel García Márquez");
+        libro.setDescripcion("Descripción extensa del libro. ".repeat(30));
+        libro.setImagenUrl("/uploads/" + id + ".jpg");
+        libro.setCantidadTotal(5);
+        libro.setCantidadDisponible(3);
+        libro.setCategoria(categoria);
+        return libro;
+    }
+
+    static Prestamo prestamoVencido(long id, int diasRetraso) {
+        LocalDate hoy = LocalDate.now();
+        Prestamo prestamo = new Prestamo();
+        prestamo.setId(id);
+        prestamo.setUsuario(usuario(id % 500 + 1));
+        prestamo.setLibro(libro(id % 200 + 1));
+        prestamo.setFechaPrestamo(hoy.minusDays(7L + diasRetraso));
+        prestamo.setFechaLimite(hoy.minusDays(diasRetraso));
+        prestamo.setEstado(EstadoPrestamo.PRESTADO);
+        prestamo.setDiasRetraso(0);
+        prestamo.setValorMulta(0);
+        return prestamo;
+    }
+
+    static List<Prestamo> prestamos(int cantidad) {
+        List<Prestamo> prestamos = new ArrayList<>(cantidad);
+        for (int i = 1; i <= cantidad; i++) {
+            prestamos.add(prestamoVencido(i, i % 20));
+        }
+        return prestamos;
+    }
+}
@@ -0,0 +1,83 @@
+package com.biblioteca.benchmarks;
+
+import com.biblioteca.model.Prestamo;
+import com.biblioteca.repository.CategoriaRepository;
+import com.biblioteca.repository.EjemplarRepository;
+import com.biblioteca.repository.EventoOutboxRepository;
+import com.biblioteca.repository.EventoPrestamoRepository;
+import com.biblioteca.repository.FeriadoRepository;
+import com.biblioteca.repository.LibroRepository;
+import com.biblioteca.repository.PoliticaMultaRepository;
+import com.biblioteca.repository.PrestamoArchivadoRepository;
+import com.biblioteca.repository.PrestamoRepository;
+import com.biblioteca.repository.ReservaRepository;
+import com.biblioteca.repository.UsuarioRepository;
+import com.biblioteca.service.BibliotecaService;
+import com.biblioteca.service.DiarioPrestamos;
+import com.biblioteca.service.EstadisticasService;
+import com.biblioteca.service.InventarioEjemplares;
+import com.biblioteca.service.OutboxService;
+import com.biblioteca.service.PoliticaMultas;
+import com.biblioteca.service.RecomendacionService;
+import com.biblioteca.service.ReservaService;
+import com.biblioteca.service.TendenciasService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Lógica de devolución (cálculo de multa, liberación del ejemplar, contadores) sin base de datos.
+// Cada invocación devuelve un préstamo nuevo con los días de retraso del parámetro.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DevolucionBenchmark {
+
+    @Param({"0", "15"})
+    public int diasRetraso;
+
+    private BibliotecaService bibliotecaService;
+    private long siguienteId;
+
+    @Setup
+    public void preparar() {
+        PrestamoRepository prestamos = Repositorios.stub(PrestamoRepository.class,
+                Map.of("findById", args -> Optional.of(Datos.prestamoVencido((Long) args[0], diasRetraso))));
+        LibroRepository libros = Repositorios.stub(LibroRepository.class);
+        UsuarioRepository usuarios = Repositorios.stub(UsuarioRepository.class);
+
+        EstadisticasService estadisticas = new EstadisticasService(libros, prestamos,
+                Repositorios.stub(PrestamoArchivadoRepository.class));
+        ReservaService reservas = new ReservaService(Repositorios.stub(ReservaRepository.class),
+                libros, usuarios, estadisticas, 48);
+        // Sin escritor: la cola del diario se llena y luego descarta, como con la base de datos caída
+        DiarioPrestamos diario = new DiarioPrestamos(null, null, Repositorios.stub(EventoPrestamoRepository.class),
+                100_000, 1000);
+        bibliotecaService = new BibliotecaService(libros, prestamos, usuarios, reservas, estadisticas,
+                new RecomendacionService(prestamos, libros, null, 500_000), new TendenciasService(prestamos, libros,
+                        Repositorios.stub(CategoriaRepository.class), 512, 60_000),
+                diario, new OutboxService(Repositorios.stub(EventoOutboxRepository.class)),
+                new InventarioEjemplares(Repositorios.stub(EjemplarRepository.class), libros, null),
+                new PoliticaMultas(Repositorios.stub(PoliticaMultaRepository.class), Repositorios.stub(FeriadoRepository.class),
+                        Repositorios.stub(CategoriaRepository.class), 5000, 0, 0, true));
+    }
+
+    @Benchmark
+    public Prestamo devolverLibro() {
+        return bibliotecaService.devolverLibro(++siguienteId);
+    }
+}
@@ -0,0 +1,24 @@
+package com.biblioteca.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Igual que org.openjdk.jmh.Main, pero por defecto escribe los resultados en JSON
+// (target/jmh-result.json) para comparar entre versiones. Acepta las opciones de JMH (-rf, -rff, -p, ...).
+public class EjecutarBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions linea = new CommandLineOptions(args);
+        ChainedOptionsBuilder opciones = new OptionsBuilder().parent(linea);
+        if (!linea.getResultFormat().hasValue()) {
+            opciones.resultFormat(ResultFormatType.JSON);
+        }
+        if (!linea.getResult().hasValue()) {
+            opciones.result("target/jmh-result.json");
+        }
+        new Runner(opciones.build()).run();
+    }
+}
@@ -0,0 +1,85 @@
+package com.biblioteca.benchmarks;
+
+import com.biblioteca.model.Libro;
+import com.biblioteca.model.Prestamo;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// JSON frente a CBOR (Accept: application/cbor) en las listas que descargan kioscos y clientes de
+// sincronización: codificación en el servidor y decodificación en el cliente, con las mismas entidades.
+// El tamaño de cada respuesta se imprime al preparar el estado, antes de las iteraciones.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormatosBenchmark {
+
+    @Param({"json", "cbor"})
+    public String formato;
+
+    @Param({"1000"})
+    public int cantidad;
+
+    private ObjectMapper objectMapper;
+    private ObjectReader lectorPrestamos;
+    private ObjectReader lectorLibros;
+    private List<Prestamo> prestamos;
+    private List<Libro> libros;
+    private byte[] prestamosCodificados;
+    private byte[] librosCodificados;
+
+    @Setup
+    public void preparar() throws Exception {
+        objectMapper = Datos.objectMapper(formato.equals("cbor") ? new CBORFactory() : new JsonFactory());
+        lectorPrestamos = objectMapper.readerForListOf(Prestamo.class);
+        lectorLibros = objectMapper.readerForListOf(Libro.class);
+        prestamos = Datos.prestamos(cantidad);
+        libros = new ArrayList<>(cantidad);
+        for (int i = 1; i <= cantidad; i++) {
+            libros.add(Datos.libro(i));
+        }
+        prestamosCodificados = objectMapper.writeValueAsBytes(prestamos);
+        librosCodificados = objectMapper.writeValueAsBytes(libros);
+        System.out.printf("%n%s: %d préstamos = %d bytes, %d libros = %d bytes%n",
+                formato, cantidad, prestamosCodificados.length, cantidad, librosCodificados.length);
+    }
+
+    @Benchmark
+    public byte[] codificarPrestamos() throws Exception {
+        return objectMapper.writeValueAsBytes(prestamos);
+    }
+
+    @Benchmark
+    public List<Prestamo> decodificarPrestamos() throws Exception {
+        return lectorPrestamos.readValue(prestamosCodificados);
+    }
+
+    @Benchmark
+    public byte[] codificarLibros() throws Exception {
+        return objectMapper.writeValueAsBytes(libros);
+    }
+
+    @Benchmark
+    public List<Libro> decodificarLibros() throws Exception {
+        return lectorLibros.readValue(librosCodificados);
+    }
+}
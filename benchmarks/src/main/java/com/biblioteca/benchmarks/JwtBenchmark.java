@@ -0,0 +1,50 @@
+package com.biblioteca.benchmarks;
+
+import com.biblioteca.security.JwtUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Costo de emitir y validar tokens. isTokenValid parsea el token dos veces (usuario y expiración),
+// así que validar cuesta aproximadamente el doble que extraer el usuario.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void preparar() {
+        jwtUtil = new JwtUtil(Datos.SECRETO_JWT, 86_400_000L);
+        token = jwtUtil.generateToken("lector1", "USUARIO");
+    }
+
+    @Benchmark
+    public String generarToken() {
+        return jwtUtil.generateToken("lector1", "USUARIO");
+    }
+
+    @Benchmark
+    public String extraerUsuario() {
+        return jwtUtil.extractUsername(token);
+    }
+
+    @Benchmark
+    public boolean validarToken() {
+        return jwtUtil.isTokenValid(token, "lector1");
+    }
+}
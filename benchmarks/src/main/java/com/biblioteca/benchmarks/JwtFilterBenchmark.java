@@ -0,0 +1,62 @@
+package com.biblioteca.benchmarks;
+
+import com.biblioteca.model.Usuario;
+import com.biblioteca.security.JwtAuthenticationFilter;
+import com.biblioteca.security.JwtUtil;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+// Una petición autenticada completa por el filtro JWT: parseo del token y armado del contexto de
+// seguridad con los claims (el filtro ya no carga el usuario de la base)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JwtFilterBenchmark {
+
+    private JwtAuthenticationFilter filtro;
+    private MockHttpServletRequest peticion;
+    private final FilterChain cadena = (request, response) -> { };
+
+    @Setup
+    public void preparar() {
+        Usuario usuario = Datos.usuario(1);
+        JwtUtil jwtUtil = new JwtUtil(Datos.SECRETO_JWT, 86_400_000L);
+        filtro = new JwtAuthenticationFilter(jwtUtil);
+
+        peticion = new MockHttpServletRequest("GET", "/api/libros/mis-prestamos");
+        peticion.addHeader("Authorization", "Bearer " + jwtUtil.generateToken(usuario.getUsername(), "USUARIO"));
+    }
+
+    @TearDown(Level.Invocation)
+    public void limpiarContexto() {
+        SecurityContextHolder.clearContext();
+        // OncePerRequestFilter marca la petición como ya filtrada
+        peticion.clearAttributes();
+    }
+
+    @Benchmark
+    public void filtrarPeticion(Blackhole blackhole) throws Exception {
+        filtro.doFilter(peticion, new MockHttpServletResponse(), cadena);
+        blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+    }
+}
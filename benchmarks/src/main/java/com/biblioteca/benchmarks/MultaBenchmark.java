@@ -0,0 +1,85 @@
+package com.biblioteca.benchmarks;
+
+import com.biblioteca.model.Feriado;
+import com.biblioteca.model.PoliticaMulta;
+import com.biblioteca.repository.CategoriaRepository;
+import com.biblioteca.repository.FeriadoRepository;
+import com.biblioteca.repository.PoliticaMultaRepository;
+import com.biblioteca.service.PoliticaMultas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Evaluaciones de multa por segundo (objetivo: millones) con 20 categorías con regla propia, una regla
+// general, 15 feriados por año y préstamos vencidos entre 1 y 90 días, como en un recálculo masivo.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MultaBenchmark {
+
+    private static final int EVALUACIONES = 4096;
+    private static final int CATEGORIAS = 30;
+
+    private PoliticaMultas politicaMultas;
+    private final long[] categorias = new long[EVALUACIONES];
+    private final long[] limites = new long[EVALUACIONES];
+    private final long[] devoluciones = new long[EVALUACIONES];
+
+    @Setup
+    public void preparar() {
+        List<PoliticaMulta> politicas = new ArrayList<>();
+        politicas.add(new PoliticaMulta(1L, null, 5000, 0, 0, true));
+        for (long c = 1; c <= 20; c++) {
+            politicas.add(new PoliticaMulta(c + 1, c, 1000 * (int) c, 150_000, (int) (c % 3), c % 2 == 0));
+        }
+        List<Feriado> feriados = new ArrayList<>();
+        LocalDate hoy = LocalDate.now();
+        SplittableRandom aleatorio = new SplittableRandom(42);
+        for (int anio = -5; anio <= 1; anio++) {
+            for (int i = 0; i < 15; i++) {
+                feriados.add(new Feriado(null, LocalDate.of(hoy.getYear() + anio, 1 + aleatorio.nextInt(12), 1 + aleatorio.nextInt(28)), null));
+            }
+        }
+        politicaMultas = new PoliticaMultas(
+                Repositorios.stub(PoliticaMultaRepository.class, Map.of("findAll", args -> politicas)),
+                Repositorios.stub(FeriadoRepository.class, Map.of("findAll", args -> feriados)),
+                Repositorios.stub(CategoriaRepository.class),
+                5000, 0, 0, true);
+        politicaMultas.recargar();
+
+        // Categorías 21..29 no tienen regla propia y caen en la general
+        for (int i = 0; i < EVALUACIONES; i++) {
+            categorias[i] = aleatorio.nextInt(CATEGORIAS);
+            devoluciones[i] = hoy.toEpochDay() - aleatorio.nextInt(365);
+            limites[i] = devoluciones[i] - 1 - aleatorio.nextInt(90);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVALUACIONES)
+    public long calcularMultas() {
+        long total = 0;
+        for (int i = 0; i < EVALUACIONES; i++) {
+            total += politicaMultas.calcular(categorias[i], limites[i], devoluciones[i]).valor();
+        }
+        return total;
+    }
+}
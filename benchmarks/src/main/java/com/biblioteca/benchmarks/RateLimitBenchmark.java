@@ -0,0 +1,99 @@
+package com.biblioteca.benchmarks;
+
+import com.biblioteca.security.LimitadorTasa;
+import com.biblioteca.security.RateLimitFilter;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+
+// Sobrecosto del limitador por solicitud (objetivo: < 1 µs). Los límites son altos para medir el camino
+// de admisión; 4 hilos sobre las mismas claves miden la contención del CAS.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimitBenchmark {
+
+    private static final int IPS = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class Limitador {
+        LimitadorTasa limitador;
+        String[] ips;
+
+        @Setup
+        public void preparar() {
+            limitador = new LimitadorTasa(Integer.MAX_VALUE / 2, 1_000_000, 100_000);
+            ips = new String[IPS];
+            for (int i = 0; i < IPS; i++) {
+                ips[i] = "10.0." + (i >> 8) + "." + (i & 255);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int siguiente;
+    }
+
+    @State(Scope.Thread)
+    public static class Filtro {
+        RateLimitFilter filtro;
+        MockHttpServletRequest peticion;
+        final FilterChain cadena = (request, response) -> { };
+
+        @Setup
+        public void preparar() {
+            int alto = Integer.MAX_VALUE / 2;
+            filtro = new RateLimitFilter(alto, alto, alto, alto, alto, 100_000);
+            peticion = new MockHttpServletRequest("POST", "/api/auth/login");
+            peticion.setRemoteAddr("10.0.0.1");
+        }
+
+        @TearDown(Level.Invocation)
+        public void limpiar() {
+            peticion.clearAttributes();
+        }
+    }
+
+    @Benchmark
+    public long consumirMismaClave(Limitador estado) {
+        return estado.limitador.consumir("10.0.0.1");
+    }
+
+    @Benchmark
+    public long consumirClavesDistintas(Limitador estado, Cursor cursor) {
+        cursor.siguiente = (cursor.siguiente + 1) % IPS;
+        return estado.limitador.consumir(estado.ips[cursor.siguiente]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long consumirConcurrente(Limitador estado, Cursor cursor) {
+        cursor.siguiente = (cursor.siguiente + 1) % IPS;
+        return estado.limitador.consumir(estado.ips[cursor.siguiente]);
+    }
+
+    @Benchmark
+    public int filtrarLogin(Filtro estado) throws Exception {
+        MockHttpServletResponse respuesta = new MockHttpServletResponse();
+        estado.filtro.doFilter(estado.peticion, respuesta, estado.cadena);
+        return respuesta.getStatus();
+    }
+}
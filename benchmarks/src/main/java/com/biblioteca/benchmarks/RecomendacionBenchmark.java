@@ -0,0 +1,73 @@
+package com.biblioteca.benchmarks;
+
+import com.biblioteca.service.MatrizCoocurrencia;
+import com.biblioteca.service.ReconstruccionCoocurrencias;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Reconstrucción de la matriz de co-préstamos y consulta de similares sobre pares (usuario, libro)
+// sintéticos, ordenados por usuario como los entrega PrestamoRepository.streamParesUsuarioLibro.
+// La escala objetivo de 50M préstamos se corre con: -p prestamos=50000000 -jvmArgs -Xmx16g
+// El -Xmx4g por defecto va antes de lo que se pase con -jvmArgs, así que ese valor prevalece
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsPrepend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class RecomendacionBenchmark {
+
+    private static final int LIBROS = 20_000;
+
+    @Param({"1000000"})
+    public int prestamos;
+
+    private long[] usuarios;
+    private long[] libros;
+    private MatrizCoocurrencia matriz;
+
+    @Setup
+    public void preparar() {
+        usuarios = new long[prestamos];
+        libros = new long[prestamos];
+        SplittableRandom aleatorio = new SplittableRandom(42);
+        long usuario = 1;
+        for (int i = 0; i < prestamos; i++) {
+            // Historias de ~20 préstamos por lector; libros sesgados hacia los populares
+            if (aleatorio.nextInt(20) == 0) {
+                usuario++;
+            }
+            double u = aleatorio.nextDouble();
+            usuarios[i] = usuario;
+            libros[i] = 1 + (long) (LIBROS * u * u * u);
+        }
+        matriz = ForkJoinPool.commonPool().invoke(new ReconstruccionCoocurrencias(usuarios, libros, prestamos));
+    }
+
+    @Benchmark
+    public MatrizCoocurrencia reconstruir() {
+        return ForkJoinPool.commonPool().invoke(new ReconstruccionCoocurrencias(usuarios, libros, prestamos));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public long[] similaresLibroPopular() {
+        return matriz.similares(1, 10);
+    }
+}
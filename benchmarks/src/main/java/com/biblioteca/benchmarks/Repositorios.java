@@ -0,0 +1,59 @@
+package com.biblioteca.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+// Repositorios Spring Data en memoria: cada método responde con la función registrada o con un
+// valor neutro (save devuelve su argumento, find* vacío, count 0). Sin base de datos ni Mockito.
+final class Repositorios {
+
+    private Repositorios() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T stub(Class<T> tipo, Map<String, Function<Object[], Object>> respuestas) {
+        return (T) Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, (proxy, metodo, args) -> {
+            Function<Object[], Object> respuesta = respuestas.get(metodo.getName());
+            if (respuesta != null) {
+                return respuesta.apply(args);
+            }
+            Class<?> retorno = metodo.getReturnType();
+            if (metodo.getName().startsWith("save") && args != null && args.length == 1) {
+                return args[0];
+            }
+            if (retorno == Optional.class) {
+                return Optional.empty();
+            }
+            if (List.class.isAssignableFrom(retorno) || retorno == Iterable.class) {
+                return Collections.emptyList();
+            }
+            if (retorno == boolean.class) {
+                return false;
+            }
+            if (retorno == long.class) {
+                return 0L;
+            }
+            if (retorno == int.class) {
+                return 0;
+            }
+            if (metodo.getName().equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            if (metodo.getName().equals("equals")) {
+                return proxy == args[0];
+            }
+            if (metodo.getName().equals("toString")) {
+                return tipo.getSimpleName() + "Stub";
+            }
+            return null;
+        });
+    }
+
+    static <T> T stub(Class<T> tipo) {
+        return stub(tipo, Map.of());
+    }
+}
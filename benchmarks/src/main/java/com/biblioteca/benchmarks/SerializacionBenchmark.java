@@ -0,0 +1,59 @@
+package com.biblioteca.benchmarks;
+
+import com.biblioteca.model.Libro;
+import com.biblioteca.model.Prestamo;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Serialización JSON de las respuestas más pesadas: historial de préstamos (con usuario y libro
+// anidados) y catálogo. ObjectMapper configurado como el de Spring Boot (fechas ISO).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializacionBenchmark {
+
+    @Param({"50", "1000"})
+    public int cantidad;
+
+    private ObjectMapper objectMapper;
+    private List<Prestamo> prestamos;
+    private List<Libro> libros;
+
+    @Setup
+    public void preparar() {
+        objectMapper = Datos.objectMapper(new JsonFactory());
+        prestamos = Datos.prestamos(cantidad);
+        libros = new ArrayList<>(cantidad);
+        for (int i = 1; i <= cantidad; i++) {
+            libros.add(Datos.libro(i));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializarPrestamos() throws Exception {
+        return objectMapper.writeValueAsBytes(prestamos);
+    }
+
+    @Benchmark
+    public byte[] serializarLibros() throws Exception {
+        return objectMapper.writeValueAsBytes(libros);
+    }
+}
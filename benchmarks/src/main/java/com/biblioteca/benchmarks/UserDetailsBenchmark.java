@@ -0,0 +1,44 @@
+package com.biblioteca.benchmarks;
+
+import com.biblioteca.model.Usuario;
+import com.biblioteca.repository.UsuarioRepository;
+import com.biblioteca.security.CustomUserDetailsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Conversión Usuario -> UserDetails que se repite en cada petición autenticada
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserDetailsBenchmark {
+
+    private CustomUserDetailsService servicio;
+
+    @Setup
+    public void preparar() {
+        Usuario usuario = Datos.usuario(1);
+        servicio = new CustomUserDetailsService(Repositorios.stub(UsuarioRepository.class,
+                Map.of("findByUsername", args -> Optional.of(usuario))));
+    }
+
+    @Benchmark
+    public UserDetails cargarUsuario() {
+        return servicio.loadUserByUsername("lector1");
+    }
+}
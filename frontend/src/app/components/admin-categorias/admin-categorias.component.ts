@@ -116,7 +116,8 @@ export class AdminCategoriasComponent implements OnInit, AfterViewInit {
 
     const categoria: Categoria = {
       id: this.categoriaSeleccionada?.id || 0,
-      nombre: this.categoriaForm.value.nombre
+      nombre: this.categoriaForm.value.nombre,
+      version: this.categoriaSeleccionada?.version
     };
 
     const operacion = this.modoEdicionCategoria
@@ -136,6 +137,9 @@ export class AdminCategoriasComponent implements OnInit, AfterViewInit {
       },
       error: (err) => {
         console.error('❌ Error al guardar categoría:', err);
+        if (err.status === 412) {
+          this.cargarCategorias();
+        }
         this.alertService.error('Error al guardar', err?.error?.message || err?.error?.error || 'Error al guardar la categoría');
       }
     });
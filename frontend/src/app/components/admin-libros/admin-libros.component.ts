@@ -235,7 +235,8 @@ export class AdminLibrosComponent implements OnInit, AfterViewInit {
       imagenUrl: formValue.imagenUrl || '',
       cantidadTotal: formValue.cantidadTotal,
       cantidadDisponible: formValue.cantidadDisponible,
-      categoria: categoria || undefined
+      categoria: categoria || undefined,
+      version: this.libroSeleccionado?.version
     };
 
     console.log('📤 Enviando libro:', {
@@ -257,6 +258,9 @@ export class AdminLibrosComponent implements OnInit, AfterViewInit {
         );
       },
       error: (err) => {
+        if (err.status === 412) {
+          this.cargarLibros();
+        }
         this.alertService.error('Error al guardar', err?.error?.message || 'Error al guardar el libro');
       }
     });
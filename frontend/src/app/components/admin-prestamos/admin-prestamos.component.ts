@@ -3,7 +3,7 @@ import { Router } from '@angular/router';
 import { AuthService } from '../../services/auth.service';
 import { AdminService } from '../../services/admin.service';
 import { AlertService } from '../../services/alert.service';
-import { Prestamo } from '../../services/api.service';
+import { ApiService, Estadisticas, Prestamo } from '../../services/api.service';
 import { FormsModule } from '@angular/forms';
 
 declare const $: any;
@@ -18,12 +18,14 @@ export class AdminPrestamosComponent implements OnInit, AfterViewInit {
   @ViewChild('prestamosTable') prestamosTable!: ElementRef;
 
   prestamos: Prestamo[] = [];
+  estadisticas: Estadisticas | null = null;
   loading = false;
   filtroEstado: string = 'TODOS'; // TODOS, PRESTADO, MULTA, DEVUELTO
 
   constructor(
     public authService: AuthService,
     private adminService: AdminService,
+    private apiService: ApiService,
     private alertService: AlertService,
     private router: Router
   ) {}
@@ -86,6 +88,7 @@ export class AdminPrestamosComponent implements OnInit, AfterViewInit {
         console.log('✅ Préstamos cargados exitosamente:', prestamos.length, 'préstamos');
         this.prestamos = prestamos;
         this.loading = false;
+        this.cargarEstadisticas();
         setTimeout(() => this.inicializarDataTable(), 100);
       },
       error: (err) => {
@@ -223,7 +226,7 @@ export class AdminPrestamosComponent implements OnInit, AfterViewInit {
 
     this.alertService.confirm(
       'Actualizar multas',
-      '¿Deseas actualizar las multas de todos los préstamos vencidos? Esto calculará las multas de $5,000 por día de retraso.',
+      '¿Deseas actualizar las multas de todos los préstamos vencidos? Esto calculará las multas según la política de multas vigente.',
       'Sí, actualizar',
       'Cancelar'
     ).then((confirmed) => {
@@ -393,20 +396,28 @@ export class AdminPrestamosComponent implements OnInit, AfterViewInit {
     return this.prestamos.filter(p => p.estado === this.filtroEstado);
   }
 
+  cargarEstadisticas(): void {
+    this.apiService.obtenerEstadisticas().subscribe({
+      next: estadisticas => this.estadisticas = estadisticas,
+      error: () => this.estadisticas = null
+    });
+  }
+
+  // Los contadores vienen de /api/stats; si no están disponibles se cuentan en el cliente
   getTotalPrestamos(): number {
-    return this.prestamos.length;
+    return this.estadisticas?.global['prestamos'] ?? this.prestamos.length;
   }
 
   getPrestadosCount(): number {
-    return this.prestamos.filter(p => p.estado === 'PRESTADO').length;
+    return this.estadisticas?.global['prestados'] ?? this.prestamos.filter(p => p.estado === 'PRESTADO').length;
   }
 
   getMultasCount(): number {
-    return this.prestamos.filter(p => p.estado === 'MULTA').length;
+    return this.estadisticas?.global['conMulta'] ?? this.prestamos.filter(p => p.estado === 'MULTA').length;
   }
 
   getDevueltosCount(): number {
-    return this.prestamos.filter(p => p.estado === 'DEVUELTO').length;
+    return this.estadisticas?.global['devueltos'] ?? this.prestamos.filter(p => p.estado === 'DEVUELTO').length;
   }
 
   getDiasRestantesClass(fechaLimite: string): string {
@@ -1,12 +1,12 @@
-import { Component, OnInit, AfterViewInit, ViewChild, ElementRef } from '@angular/core';
+import { Component, OnInit, OnDestroy } from '@angular/core';
 import { Router } from '@angular/router';
+import { Subject, Subscription, debounceTime, distinctUntilChanged } from 'rxjs';
 import { AuthService } from '../../services/auth.service';
-import { AdminService } from '../../services/admin.service';
+import { AdminService, FiltroUsuarios, OperacionUsuarios } from '../../services/admin.service';
 import { AlertService } from '../../services/alert.service';
 import { Usuario } from '../../services/api.service';
 import { FormBuilder, FormGroup, Validators } from '@angular/forms';
 
-declare const $: any;
 declare const bootstrap: any;
 
 @Component({
@@ -14,15 +14,22 @@ declare const bootstrap: any;
   templateUrl: './admin-usuarios.component.html',
   styleUrls: ['./admin-usuarios.component.css']
 })
-export class AdminUsuariosComponent implements OnInit, AfterViewInit {
-  @ViewChild('usuariosTable') usuariosTable!: ElementRef;
-
+export class AdminUsuariosComponent implements OnInit, OnDestroy {
   usuarios: Usuario[] = [];
   loading = false;
+  cargandoMas = false;
+  // El directorio se pagina en el servidor: siguiente es el cursor de la próxima página
+  siguiente: string | null = null;
+  filtro: FiltroUsuarios = { q: '', rol: '', bloqueado: null };
+  private busqueda$ = new Subject<string>();
+  private busquedaSub?: Subscription;
   mostrarFormularioUsuario = false;
   modoEdicion = false;
   usuarioSeleccionado: Usuario | null = null;
   usuarioParaVer: Usuario | null = null;
+  // Ids marcados para las acciones masivas
+  seleccionados = new Set<number>();
+  aplicandoMasivo = false;
 
   usuarioForm: FormGroup;
 
@@ -51,20 +58,29 @@ export class AdminUsuariosComponent implements OnInit, AfterViewInit {
       });
       return;
     }
+    this.busquedaSub = this.busqueda$
+      .pipe(debounceTime(300), distinctUntilChanged())
+      .subscribe(() => this.cargarUsuarios());
     this.cargarUsuarios();
   }
 
-  ngAfterViewInit(): void {
-    // DataTable se inicializará después de cargar los datos
+  ngOnDestroy(): void {
+    this.busquedaSub?.unsubscribe();
+  }
+
+  onBuscar(texto: string): void {
+    this.filtro.q = texto;
+    this.busqueda$.next(texto);
   }
 
   cargarUsuarios(): void {
     this.loading = true;
-    this.adminService.listarUsuarios().subscribe({
-      next: (usuarios) => {
-        this.usuarios = usuarios;
+    this.adminService.buscarUsuarios(this.filtro, null).subscribe({
+      next: (pagina) => {
+        this.usuarios = pagina.usuarios;
+        this.siguiente = pagina.siguiente;
+        this.seleccionados.clear();
         this.loading = false;
-        setTimeout(() => this.inicializarDataTable(), 100);
       },
       error: (err) => {
         console.error('Error al cargar usuarios:', err);
@@ -78,23 +94,82 @@ export class AdminUsuariosComponent implements OnInit, AfterViewInit {
     });
   }
 
-  inicializarDataTable(): void {
-    if (this.usuariosTable && this.usuariosTable.nativeElement) {
-      if ($.fn.DataTable.isDataTable(this.usuariosTable.nativeElement)) {
-        $(this.usuariosTable.nativeElement).DataTable().destroy();
+  cargarMas(): void {
+    if (!this.siguiente || this.cargandoMas) {
+      return;
+    }
+    this.cargandoMas = true;
+    this.adminService.buscarUsuarios(this.filtro, this.siguiente).subscribe({
+      next: (pagina) => {
+        this.usuarios = [...this.usuarios, ...pagina.usuarios];
+        this.siguiente = pagina.siguiente;
+        this.cargandoMas = false;
+      },
+      error: (err) => {
+        this.cargandoMas = false;
+        this.alertService.error('Error al cargar usuarios', err?.error?.message || 'Error desconocido');
       }
+    });
+  }
+
+  alternarSeleccion(id: number): void {
+    if (!this.seleccionados.delete(id)) {
+      this.seleccionados.add(id);
+    }
+  }
+
+  todosSeleccionados(): boolean {
+    return this.usuarios.length > 0 && this.usuarios.every(u => this.seleccionados.has(u.id));
+  }
 
-      $(this.usuariosTable.nativeElement).DataTable({
-        language: {
-          url: '//cdn.datatables.net/plug-ins/1.13.6/i18n/es-ES.json'
+  alternarTodos(): void {
+    if (this.todosSeleccionados()) {
+      this.seleccionados.clear();
+    } else {
+      this.usuarios.forEach(u => this.seleccionados.add(u.id));
+    }
+  }
+
+  aplicarMasivo(accion: OperacionUsuarios['accion'], nuevoRol?: 'ADMIN' | 'USUARIO'): void {
+    const ids = [...this.seleccionados];
+    if (ids.length === 0 || this.aplicandoMasivo) {
+      return;
+    }
+    const textos: Record<OperacionUsuarios['accion'], string> = {
+      BLOQUEAR: 'bloquear',
+      DESBLOQUEAR: 'desbloquear',
+      CAMBIAR_ROL: `cambiar a ${nuevoRol}`,
+      ELIMINAR: 'eliminar'
+    };
+    this.alertService.confirm(
+      'Acción masiva',
+      `¿Seguro que quieres ${textos[accion]} ${ids.length} usuario(s)?`,
+      'Sí, aplicar',
+      'Cancelar'
+    ).then((confirmed) => {
+      if (!confirmed) {
+        return;
+      }
+      this.aplicandoMasivo = true;
+      this.adminService.operacionMasivaUsuarios({ accion, nuevoRol, ids }).subscribe({
+        next: (r) => {
+          this.aplicandoMasivo = false;
+          this.cargarUsuarios();
+          const omitidos = r.resultados
+            .filter(d => d.estado === 'OMITIDO')
+            .map(d => `${d.username}: ${d.motivo}`)
+            .join('; ');
+          this.alertService.success(
+            'Acción aplicada',
+            `Aplicada a ${r.aplicados}, sin cambios ${r.sinCambios}, omitidos ${r.omitidos}` + (omitidos ? ` (${omitidos})` : '')
+          );
         },
-        pageLength: 10,
-        order: [[0, 'asc']],
-        columnDefs: [
-          { orderable: false, targets: [7] } // Botones de acción no ordenables
-        ]
+        error: (err) => {
+          this.aplicandoMasivo = false;
+          this.alertService.error('Error en la acción masiva', err?.error?.message || err?.error?.error || 'No se aplicó ningún cambio');
+        }
       });
-    }
+    });
   }
 
   abrirCrearUsuario(): void {
@@ -147,7 +222,8 @@ export class AdminUsuariosComponent implements OnInit, AfterViewInit {
       apellido: formValue.apellido,
       email: formValue.email,
       rol: formValue.rol,
-      bloqueado: formValue.bloqueado
+      bloqueado: formValue.bloqueado,
+      version: this.usuarioSeleccionado?.version
     };
 
     // Solo incluir password si se proporcionó una nueva
@@ -169,6 +245,9 @@ export class AdminUsuariosComponent implements OnInit, AfterViewInit {
         );
       },
       error: (err) => {
+        if (err.status === 412) {
+          this.cargarUsuarios();
+        }
         this.alertService.error('Error al guardar', err?.error?.message || err?.error?.error || 'Error al guardar el usuario');
       }
     });
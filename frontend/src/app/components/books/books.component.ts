@@ -1,6 +1,7 @@
-import { Component, OnInit } from '@angular/core';
+import { Component, OnInit, OnDestroy } from '@angular/core';
 import { Router } from '@angular/router';
-import { ApiService, Libro, Categoria } from '../../services/api.service';
+import { Subject, Subscription, debounceTime, distinctUntilChanged } from 'rxjs';
+import { ApiService, Libro, Categoria, Estadisticas, CatalogoFacetado, FiltroCatalogo } from '../../services/api.service';
 import { AuthService } from '../../services/auth.service';
 import { AlertService } from '../../services/alert.service';
 
@@ -11,10 +12,14 @@ declare const bootstrap: any;
   templateUrl: './books.component.html',
   styleUrls: ['./books.component.css']
 })
-export class BooksComponent implements OnInit {
-  libros: Libro[] = [];
+export class BooksComponent implements OnInit, OnDestroy {
   librosFiltrados: Libro[] = [];
+  // Filtrado, paginación y conteos por faceta se resuelven en el servidor (/api/libros/buscar)
+  resultado: CatalogoFacetado | null = null;
+  pagina = 0;
+  cargandoMas = false;
   categorias: Categoria[] = [];
+  estadisticas: Estadisticas | null = null;
   loading = false;
   error: string | null = null;
 
@@ -24,6 +29,9 @@ export class BooksComponent implements OnInit {
   filtroNombre: string = '';
   filtroCategoria: string = 'TODAS';
   filtroDisponibilidad: string = 'TODOS'; // TODOS, DISPONIBLES, NO_DISPONIBLES
+  filtroInicial: string = '';
+  private busqueda$ = new Subject<string>();
+  private busquedaSub?: Subscription;
 
   constructor(
     private apiService: ApiService,
@@ -34,18 +42,27 @@ export class BooksComponent implements OnInit {
 
   ngOnInit(): void {
     console.log('BooksComponent inicializado');
+    this.busquedaSub = this.busqueda$
+      .pipe(debounceTime(250), distinctUntilChanged())
+      .subscribe(() => this.aplicarFiltros());
     this.cargarLibros();
     this.cargarCategorias();
   }
 
+  ngOnDestroy(): void {
+    this.busquedaSub?.unsubscribe();
+  }
+
   cargarLibros(): void {
     this.loading = true;
     this.error = null;
-    this.apiService.listarLibros().subscribe({
-      next: libros => {
-        this.libros = libros;
-        this.aplicarFiltros();
+    this.pagina = 0;
+    this.apiService.buscarCatalogo(this.filtroActual(), 0).subscribe({
+      next: resultado => {
+        this.resultado = resultado;
+        this.librosFiltrados = resultado.libros;
         this.loading = false;
+        this.cargarEstadisticas();
       },
       error: () => {
         this.error = 'Error al cargar los libros.';
@@ -54,6 +71,53 @@ export class BooksComponent implements OnInit {
     });
   }
 
+  cargarMas(): void {
+    if (this.cargandoMas || !this.hayMas()) {
+      return;
+    }
+    this.cargandoMas = true;
+    this.apiService.buscarCatalogo(this.filtroActual(), this.pagina + 1).subscribe({
+      next: resultado => {
+        this.pagina++;
+        this.resultado = resultado;
+        this.librosFiltrados = [...this.librosFiltrados, ...resultado.libros];
+        this.cargandoMas = false;
+      },
+      error: () => {
+        this.cargandoMas = false;
+        this.alertService.error('Error', 'No se pudieron cargar más libros.');
+      }
+    });
+  }
+
+  usarSugerencia(): void {
+    if (this.resultado?.sugerencia) {
+      this.filtroNombre = this.resultado.sugerencia;
+      this.aplicarFiltros();
+    }
+  }
+
+  hayFiltros(): boolean {
+    return !!this.filtroNombre.trim() || this.filtroCategoria !== 'TODAS'
+      || this.filtroDisponibilidad !== 'TODOS' || !!this.filtroInicial;
+  }
+
+  hayMas(): boolean {
+    return !!this.resultado && this.librosFiltrados.length < this.resultado.total;
+  }
+
+  onBuscar(texto: string): void {
+    this.filtroNombre = texto;
+    this.busqueda$.next(texto);
+  }
+
+  cargarEstadisticas(): void {
+    this.apiService.obtenerEstadisticas().subscribe({
+      next: estadisticas => this.estadisticas = estadisticas,
+      error: () => this.estadisticas = null
+    });
+  }
+
   cargarCategorias(): void {
     this.apiService.listarCategorias().subscribe({
       next: categorias => {
@@ -74,39 +138,31 @@ export class BooksComponent implements OnInit {
   }
 
   aplicarFiltros(): void {
-    let filtrados = [...this.libros];
-
-    // Filtro por nombre (título o autor)
-    if (this.filtroNombre.trim()) {
-      const busqueda = this.filtroNombre.toLowerCase().trim();
-      filtrados = filtrados.filter(libro =>
-        libro.titulo.toLowerCase().includes(busqueda) ||
-        libro.autor.toLowerCase().includes(busqueda)
-      );
-    }
+    this.cargarLibros();
+  }
 
-    // Filtro por categoría
-    if (this.filtroCategoria !== 'TODAS') {
-      const categoriaId = parseInt(this.filtroCategoria);
-      filtrados = filtrados.filter(libro =>
-        libro.categoria && libro.categoria.id === categoriaId
-      );
-    }
+  private filtroActual(): FiltroCatalogo {
+    return {
+      q: this.filtroNombre,
+      categoriaId: this.filtroCategoria !== 'TODAS' ? parseInt(this.filtroCategoria) : null,
+      inicial: this.filtroInicial,
+      disponible: this.filtroDisponibilidad === 'TODOS' ? null : this.filtroDisponibilidad === 'DISPONIBLES'
+    };
+  }
 
-    // Filtro por disponibilidad
-    if (this.filtroDisponibilidad === 'DISPONIBLES') {
-      filtrados = filtrados.filter(libro => libro.cantidadDisponible > 0);
-    } else if (this.filtroDisponibilidad === 'NO_DISPONIBLES') {
-      filtrados = filtrados.filter(libro => libro.cantidadDisponible === 0);
-    }
+  conteoCategoria(id: number): number {
+    return this.resultado?.categorias[id] ?? 0;
+  }
 
-    this.librosFiltrados = filtrados;
+  iniciales(): string[] {
+    return this.resultado ? Object.keys(this.resultado.iniciales) : [];
   }
 
   limpiarFiltros(): void {
     this.filtroNombre = '';
     this.filtroCategoria = 'TODAS';
     this.filtroDisponibilidad = 'TODOS';
+    this.filtroInicial = '';
     this.aplicarFiltros();
   }
 
@@ -182,11 +238,12 @@ export class BooksComponent implements OnInit {
     });
   }
 
+  // Los totales vienen de /api/stats; si no están disponibles se usan los conteos de la búsqueda
   getTotalLibros(): number {
-    return this.libros.length;
+    return this.estadisticas?.global['libros'] ?? this.resultado?.total ?? 0;
   }
 
   getLibrosDisponibles(): number {
-    return this.libros.filter(l => l.cantidadDisponible > 0).length;
+    return this.estadisticas?.global['librosDisponibles'] ?? this.resultado?.disponibles ?? 0;
   }
 }
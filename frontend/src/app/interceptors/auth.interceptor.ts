@@ -1,36 +1,80 @@
 import { Injectable } from '@angular/core';
 import {
+  HttpBackend,
+  HttpClient,
+  HttpErrorResponse,
   HttpEvent,
   HttpHandler,
   HttpInterceptor,
   HttpRequest
 } from '@angular/common/http';
-import { Observable } from 'rxjs';
+import { Observable, catchError, finalize, shareReplay, switchMap, tap, throwError } from 'rxjs';
+
+const API_BASE = 'http://localhost:8080/api';
+
+interface Renovacion {
+  token: string;
+  refreshToken: string;
+  username: string;
+  rol: string;
+}
 
 @Injectable({
   providedIn: 'root'
 })
 export class AuthInterceptor implements HttpInterceptor {
+  // Cliente sin interceptores para renovar (no pasa por aquí ni se reintenta a sí mismo)
+  private readonly http: HttpClient;
+  // Renovación en curso: las peticiones que fallen mientras tanto esperan la misma, así el refresh token
+  // (de un solo uso) se presenta una sola vez
+  private renovacion$: Observable<Renovacion> | null = null;
+
+  constructor(backend: HttpBackend) {
+    this.http = new HttpClient(backend);
+  }
+
   intercept(req: HttpRequest<any>, next: HttpHandler): Observable<HttpEvent<any>> {
-    // Acceder directamente a localStorage para evitar problemas de dependencias
-    try {
-      const token = localStorage.getItem('jwt');
-      if (token && req.url.startsWith('http://localhost:8080')) {
-        const cloned = req.clone({
-          setHeaders: {
-            Authorization: `Bearer ${token}`
-          }
-        });
-        console.log('🔐 JWT agregado a la petición:', req.url);
-        return next.handle(cloned);
-      } else {
-        console.warn('⚠️ No hay token JWT para la petición:', req.url);
-      }
-    } catch (e) {
-      console.error('❌ Error al obtener token:', e);
+    if (!req.url.startsWith('http://localhost:8080')) {
+      return next.handle(req);
     }
-    return next.handle(req);
+    // Acceder directamente a localStorage para evitar problemas de dependencias
+    const token = localStorage.getItem('jwt');
+    return next.handle(this.conToken(req, token)).pipe(
+      catchError((err: HttpErrorResponse) => {
+        // El access token dura minutos: ante un 401 se renueva y se reintenta una vez
+        if (err.status !== 401 || !token || req.url.includes('/auth/') || !localStorage.getItem('refreshToken')) {
+          return throwError(() => err);
+        }
+        return this.renovar().pipe(
+          switchMap(res => next.handle(this.conToken(req, res.token))),
+          catchError(() => throwError(() => err))
+        );
+      })
+    );
   }
-}
 
+  private conToken(req: HttpRequest<any>, token: string | null): HttpRequest<any> {
+    return token ? req.clone({ setHeaders: { Authorization: `Bearer ${token}` } }) : req;
+  }
 
+  private renovar(): Observable<Renovacion> {
+    if (!this.renovacion$) {
+      const refreshToken = localStorage.getItem('refreshToken');
+      this.renovacion$ = this.http.post<Renovacion>(`${API_BASE}/auth/refresh`, { refreshToken }).pipe(
+        tap({
+          next: res => {
+            localStorage.setItem('jwt', res.token);
+            localStorage.setItem('refreshToken', res.refreshToken);
+            localStorage.setItem('username', res.username);
+            localStorage.setItem('rol', res.rol);
+          },
+          // Sesión vencida, revocada o usuario bloqueado: hay que volver a iniciar sesión
+          error: () => ['jwt', 'refreshToken', 'username', 'rol'].forEach(clave => localStorage.removeItem(clave))
+        }),
+        finalize(() => this.renovacion$ = null),
+        shareReplay(1)
+      );
+    }
+    return this.renovacion$;
+  }
+}
@@ -1,14 +1,45 @@
 import { Injectable } from '@angular/core';
-import { HttpClient } from '@angular/common/http';
+import { HttpClient, HttpHeaders, HttpParams } from '@angular/common/http';
 import { Observable } from 'rxjs';
 import { Libro, Categoria, Usuario, Prestamo } from './api.service';
 
 const API_BASE = 'http://localhost:8080/api';
 
+export interface PaginaUsuarios {
+  usuarios: Usuario[];
+  siguiente: string | null; // se envía como despuesDe para la página siguiente
+}
+
+export interface FiltroUsuarios {
+  q?: string;
+  rol?: 'ADMIN' | 'USUARIO' | '';
+  bloqueado?: boolean | null;
+}
+
+export interface OperacionUsuarios {
+  accion: 'BLOQUEAR' | 'DESBLOQUEAR' | 'CAMBIAR_ROL' | 'ELIMINAR';
+  nuevoRol?: 'ADMIN' | 'USUARIO';
+  ids: number[];
+}
+
+export interface ResultadoOperacionUsuarios {
+  aplicados: number;
+  sinCambios: number;
+  omitidos: number;
+  noEncontrados: number;
+  sesionesRevocadas: number;
+  resultados: { id: number; username: string | null; estado: string; motivo: string | null }[];
+}
+
 @Injectable({ providedIn: 'root' })
 export class AdminService {
   constructor(private http: HttpClient) {}
 
+  // If-Match con la versión que se leyó: si otro admin guardó antes, el backend responde 412 en vez de pisar sus cambios
+  private siNoCambio(version?: number): HttpHeaders {
+    return version == null ? new HttpHeaders() : new HttpHeaders({ 'If-Match': `"${version}"` });
+  }
+
   // CRUD Libros
   listarLibros(): Observable<Libro[]> {
     return this.http.get<Libro[]>(`${API_BASE}/admin/libros`);
@@ -23,7 +54,7 @@ export class AdminService {
   }
 
   actualizarLibro(id: number, libro: Libro): Observable<Libro> {
-    return this.http.put<Libro>(`${API_BASE}/admin/libros/${id}`, libro);
+    return this.http.put<Libro>(`${API_BASE}/admin/libros/${id}`, libro, { headers: this.siNoCambio(libro.version) });
   }
 
   eliminarLibro(id: number): Observable<void> {
@@ -44,7 +75,7 @@ export class AdminService {
   }
 
   actualizarCategoria(id: number, categoria: Categoria): Observable<Categoria> {
-    return this.http.put<Categoria>(`${API_BASE}/admin/categorias/${id}`, categoria);
+    return this.http.put<Categoria>(`${API_BASE}/admin/categorias/${id}`, categoria, { headers: this.siNoCambio(categoria.version) });
   }
 
   eliminarCategoria(id: number): Observable<void> {
@@ -56,6 +87,23 @@ export class AdminService {
     return this.http.get<Usuario[]>(`${API_BASE}/admin/usuarios`);
   }
 
+  buscarUsuarios(filtro: FiltroUsuarios, despuesDe: string | null, limite = 50): Observable<PaginaUsuarios> {
+    let params = new HttpParams().set('limite', limite);
+    if (filtro.q && filtro.q.trim() !== '') {
+      params = params.set('q', filtro.q.trim());
+    }
+    if (filtro.rol) {
+      params = params.set('rol', filtro.rol);
+    }
+    if (filtro.bloqueado !== undefined && filtro.bloqueado !== null) {
+      params = params.set('bloqueado', filtro.bloqueado);
+    }
+    if (despuesDe) {
+      params = params.set('despuesDe', despuesDe);
+    }
+    return this.http.get<PaginaUsuarios>(`${API_BASE}/admin/usuarios/buscar`, { params });
+  }
+
   obtenerUsuario(id: number): Observable<Usuario> {
     return this.http.get<Usuario>(`${API_BASE}/admin/usuarios/${id}`);
   }
@@ -65,24 +113,33 @@ export class AdminService {
   }
 
   actualizarUsuario(id: number, usuario: Usuario): Observable<Usuario> {
-    return this.http.put<Usuario>(`${API_BASE}/admin/usuarios/${id}`, usuario);
+    return this.http.put<Usuario>(`${API_BASE}/admin/usuarios/${id}`, usuario, { headers: this.siNoCambio(usuario.version) });
   }
 
   eliminarUsuario(id: number): Observable<void> {
     return this.http.delete<void>(`${API_BASE}/admin/usuarios/${id}`);
   }
 
-  // CRUD Préstamos
+  operacionMasivaUsuarios(operacion: OperacionUsuarios): Observable<ResultadoOperacionUsuarios> {
+    return this.http.post<ResultadoOperacionUsuarios>(`${API_BASE}/admin/usuarios/masivo`, operacion);
+  }
+
+  // CRUD Préstamos. La tabla solo muestra estos campos: el backend no serializa el resto (?fields, ?include)
+  private readonly camposTablaPrestamos = new HttpParams()
+    .set('fields', 'fechaPrestamo,fechaLimite,estado,diasRetraso,valorMulta,libro.titulo,libro.autor,'
+      + 'usuario.username,usuario.nombre,usuario.apellido')
+    .set('include', 'libro,usuario');
+
   listarPrestamos(): Observable<Prestamo[]> {
-    return this.http.get<Prestamo[]>(`${API_BASE}/admin/prestamos`);
+    return this.http.get<Prestamo[]>(`${API_BASE}/admin/prestamos`, { params: this.camposTablaPrestamos });
   }
 
   listarPrestamosActivos(): Observable<Prestamo[]> {
-    return this.http.get<Prestamo[]>(`${API_BASE}/admin/prestamos/activos`);
+    return this.http.get<Prestamo[]>(`${API_BASE}/admin/prestamos/activos`, { params: this.camposTablaPrestamos });
   }
 
   listarPrestamosConMulta(): Observable<Prestamo[]> {
-    return this.http.get<Prestamo[]>(`${API_BASE}/admin/prestamos/multas`);
+    return this.http.get<Prestamo[]>(`${API_BASE}/admin/prestamos/multas`, { params: this.camposTablaPrestamos });
   }
 
   recibirLibro(prestamoId: number): Observable<Prestamo> {
@@ -96,7 +153,8 @@ export class AdminService {
   }
 
   pagarMulta(prestamoId: number): Observable<Prestamo> {
-    return this.http.put<Prestamo>(`${API_BASE}/admin/prestamos/${prestamoId}/pagar-multa`, {});
+    const headers = new HttpHeaders({ 'Idempotency-Key': crypto.randomUUID() });
+    return this.http.put<Prestamo>(`${API_BASE}/admin/prestamos/${prestamoId}/pagar-multa`, {}, { headers });
   }
 
   // Subir imagen
@@ -1,5 +1,5 @@
 import { Injectable } from '@angular/core';
-import { HttpClient } from '@angular/common/http';
+import { HttpClient, HttpHeaders, HttpParams } from '@angular/common/http';
 import { Observable } from 'rxjs';
 
 const API_BASE = 'http://localhost:8080/api';
@@ -7,6 +7,7 @@ const API_BASE = 'http://localhost:8080/api';
 export interface Categoria {
   id: number;
   nombre: string;
+  version?: number; // @Version del backend; se envía como If-Match al editar
 }
 
 export interface Libro {
@@ -18,6 +19,7 @@ export interface Libro {
   cantidadTotal: number;
   cantidadDisponible: number;
   categoria?: Categoria;
+  version?: number;
 }
 
 export interface Usuario {
@@ -29,6 +31,7 @@ export interface Usuario {
   email: string;
   rol: 'ADMIN' | 'USUARIO';
   bloqueado: boolean;
+  version?: number;
 }
 
 export interface Prestamo {
@@ -43,6 +46,33 @@ export interface Prestamo {
   valorMulta?: number;
 }
 
+export interface FiltroCatalogo {
+  q?: string;
+  categoriaId?: number | null;
+  inicial?: string;
+  disponible?: boolean | null;
+}
+
+// Conteos de cada faceta calculados con los demás filtros aplicados
+export interface CatalogoFacetado {
+  libros: Libro[];
+  total: number;
+  categorias: { [categoriaId: string]: number };
+  iniciales: { [inicial: string]: number };
+  disponibles: number;
+  noDisponibles: number;
+  aproximado: boolean; // sin coincidencias exactas: resultados por parecido
+  sugerencia: string | null;
+}
+
+export interface Estadisticas {
+  global: { [clave: string]: number };
+  libro?: { [clave: string]: number };
+  categoria?: { [clave: string]: number };
+  usuario?: { [clave: string]: number };
+  ultimaConciliacion?: string;
+}
+
 @Injectable({ providedIn: 'root' })
 export class ApiService {
   constructor(private http: HttpClient) {}
@@ -51,12 +81,31 @@ export class ApiService {
     return this.http.get<Libro[]>(`${API_BASE}/libros`);
   }
 
+  buscarCatalogo(filtro: FiltroCatalogo, pagina = 0, tamano = 48): Observable<CatalogoFacetado> {
+    let params = new HttpParams().set('pagina', pagina).set('tamano', tamano);
+    if (filtro.q && filtro.q.trim() !== '') {
+      params = params.set('q', filtro.q.trim());
+    }
+    if (filtro.categoriaId !== undefined && filtro.categoriaId !== null) {
+      params = params.set('categoriaId', filtro.categoriaId);
+    }
+    if (filtro.inicial) {
+      params = params.set('inicial', filtro.inicial);
+    }
+    if (filtro.disponible !== undefined && filtro.disponible !== null) {
+      params = params.set('disponible', filtro.disponible);
+    }
+    return this.http.get<CatalogoFacetado>(`${API_BASE}/libros/buscar`, { params });
+  }
+
   obtenerLibro(id: number): Observable<Libro> {
     return this.http.get<Libro>(`${API_BASE}/libros/${id}`);
   }
 
   prestarLibro(id: number): Observable<any> {
-    return this.http.post(`${API_BASE}/libros/${id}/prestar`, {});
+    // Una clave por intento: si la petición se reintenta, el backend no crea un segundo préstamo
+    const headers = new HttpHeaders({ 'Idempotency-Key': crypto.randomUUID() });
+    return this.http.post(`${API_BASE}/libros/${id}/prestar`, {}, { headers });
   }
 
   misPrestamos(): Observable<Prestamo[]> {
@@ -66,6 +115,10 @@ export class ApiService {
   listarCategorias(): Observable<Categoria[]> {
     return this.http.get<Categoria[]>(`${API_BASE}/libros/categorias`);
   }
+
+  obtenerEstadisticas(): Observable<Estadisticas> {
+    return this.http.get<Estadisticas>(`${API_BASE}/stats`);
+  }
 }
 
 
@@ -6,6 +6,7 @@ const API_BASE = 'http://localhost:8080/api';
 
 interface LoginResponse {
   token: string;
+  refreshToken: string;
   username: string;
   rol: string;
 }
@@ -21,6 +22,7 @@ interface RegisterRequest {
 @Injectable({ providedIn: 'root' })
 export class AuthService {
   private readonly TOKEN_KEY = 'jwt';
+  private readonly REFRESH_KEY = 'refreshToken';
   private readonly USERNAME_KEY = 'username';
   private readonly ROL_KEY = 'rol';
 
@@ -32,6 +34,7 @@ export class AuthService {
       .pipe(
         tap(res => {
           localStorage.setItem(this.TOKEN_KEY, res.token);
+          localStorage.setItem(this.REFRESH_KEY, res.refreshToken);
           localStorage.setItem(this.USERNAME_KEY, res.username);
           localStorage.setItem(this.ROL_KEY, res.rol);
         })
@@ -47,7 +50,13 @@ export class AuthService {
   }
 
   logout(): void {
+    const refreshToken = this.getRefreshToken();
+    if (refreshToken) {
+      // Revoca la sesión en el servidor; si falla, el refresh token vence solo
+      this.http.post(`${API_BASE}/auth/logout`, { refreshToken }).subscribe({ error: () => {} });
+    }
     localStorage.removeItem(this.TOKEN_KEY);
+    localStorage.removeItem(this.REFRESH_KEY);
     localStorage.removeItem(this.USERNAME_KEY);
     localStorage.removeItem(this.ROL_KEY);
   }
@@ -56,6 +65,10 @@ export class AuthService {
     return localStorage.getItem(this.TOKEN_KEY);
   }
 
+  getRefreshToken(): string | null {
+    return localStorage.getItem(this.REFRESH_KEY);
+  }
+
   isLoggedIn(): boolean {
     return !!this.getToken();
   }
@@ -0,0 +1,48 @@
+package com.biblioteca.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Opciones de línea de comandos con la forma --clave=valor
+final class Argumentos {
+
+    private final Map<String, String> valores;
+
+    private Argumentos(Map<String, String> valores) {
+        this.valores = valores;
+    }
+
+    static Argumentos leer(String[] args) {
+        Map<String, String> valores = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Opción inválida: " + arg + " (se espera --clave=valor)");
+            }
+            int igual = arg.indexOf('=');
+            valores.put(arg.substring(2, igual), arg.substring(igual + 1));
+        }
+        return new Argumentos(valores);
+    }
+
+    String texto(String clave, String porDefecto) {
+        return valores.getOrDefault(clave, porDefecto);
+    }
+
+    String obligatorio(String clave) {
+        String valor = valores.get(clave);
+        if (valor == null) {
+            throw new IllegalArgumentException("Falta la opción --" + clave);
+        }
+        return valor;
+    }
+
+    int entero(String clave, int porDefecto) {
+        String valor = valores.get(clave);
+        return valor == null ? porDefecto : Integer.parseInt(valor.replace("_", ""));
+    }
+
+    long largo(String clave, long porDefecto) {
+        String valor = valores.get(clave);
+        return valor == null ? porDefecto : Long.parseLong(valor.replace("_", ""));
+    }
+}
@@ -0,0 +1,31 @@
+package com.biblioteca.loadtest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Muestreo Zipf sobre 1..n con la CDF precalculada (8 bytes por elemento) y búsqueda binaria.
+// Con exponente ~1 unos pocos libros y lectores concentran la mayoría de los préstamos, como en producción.
+final class DistribucionZipf {
+
+    private final double[] acumulada;
+
+    DistribucionZipf(int n, double exponente) {
+        acumulada = new double[n];
+        double suma = 0;
+        for (int i = 0; i < n; i++) {
+            suma += 1.0 / Math.pow(i + 1, exponente);
+            acumulada[i] = suma;
+        }
+        for (int i = 0; i < n; i++) {
+            acumulada[i] /= suma;
+        }
+        // Evita que el redondeo deje el último valor por debajo de 1
+        acumulada[n - 1] = 1.0;
+    }
+
+    // Rango 1-based; el 1 es el más frecuente
+    int muestra(SplittableRandom aleatorio) {
+        int posicion = Arrays.binarySearch(acumulada, aleatorio.nextDouble());
+        return (posicion >= 0 ? posicion : -posicion - 1) + 1;
+    }
+}
@@ -0,0 +1,371 @@
+package com.biblioteca.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Carga de lazo cerrado: cada usuario virtual (un hilo virtual) elige un flujo según la mezcla,
+// lo ejecuta y repite hasta agotar la duración. Las latencias se agrupan por plantilla de endpoint
+// y solo se miden después del calentamiento.
+final class EscenarioCarga {
+
+    enum Flujo { NAVEGAR, CATALOGO, LOGIN, PRESTAR, DEVOLVER, REPORTE }
+
+    // Algo menos que biblioteca.jwt.expiration, para renovar antes de recibir 401
+    private static final long VIDA_TOKEN_MS = 4 * 60_000;
+
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final String url;
+    private final int usuariosVirtuales;
+    private final long duracionMs;
+    private final long calentamientoMs;
+    private final long pausaMs;
+    private final int usuarios;
+    private final String prefijo;
+    private final String password;
+    private final String salida;
+    private final Flujo[] flujos;
+    private final int[] pesosAcumulados;
+    private final DistribucionZipf popularidad;
+    private final int libros;
+    private final long primerLibro;
+
+    private final HttpClient cliente;
+    private final Map<String, Metricas> metricas = new ConcurrentHashMap<>();
+    // Préstamos creados por el escenario PRESTAR, pendientes de que un admin los reciba
+    private final ConcurrentLinkedQueue<Long> prestamosActivos = new ConcurrentLinkedQueue<>();
+    private volatile boolean midiendo;
+    private volatile String tokenAdmin;
+    // El access token dura 5 minutos: el admin lo renueva con su refresh token antes de que venza
+    private volatile String refreshAdmin;
+    private volatile long renovarAdminEn;
+
+    EscenarioCarga(Argumentos argumentos) {
+        this.url = argumentos.texto("url", "http://localhost:8080");
+        this.usuariosVirtuales = argumentos.entero("usuarios-virtuales", 200);
+        this.duracionMs = argumentos.largo("duracion", 120) * 1000;
+        this.calentamientoMs = argumentos.largo("calentamiento", 20) * 1000;
+        this.pausaMs = argumentos.largo("pausa-ms", 0);
+        this.usuarios = argumentos.entero("usuarios", 200_000);
+        this.libros = argumentos.entero("libros", 100_000);
+        this.primerLibro = argumentos.largo("primer-libro", 1);
+        this.prefijo = argumentos.texto("prefijo", "carga");
+        this.password = argumentos.texto("password", "carga123");
+        this.salida = argumentos.texto("salida", null);
+        this.popularidad = new DistribucionZipf(libros, 1.0);
+
+        Map<Flujo, Integer> mezcla = leerMezcla(
+                argumentos.texto("mezcla", "navegar:70,login:5,prestar:10,devolver:10,reporte:5"));
+        this.flujos = mezcla.keySet().toArray(new Flujo[0]);
+        this.pesosAcumulados = new int[flujos.length];
+        int suma = 0;
+        for (int i = 0; i < flujos.length; i++) {
+            suma += mezcla.get(flujos[i]);
+            pesosAcumulados[i] = suma;
+        }
+        if (suma <= 0) {
+            throw new IllegalArgumentException("La mezcla debe tener al menos un peso positivo");
+        }
+
+        this.cliente = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    void ejecutar() throws Exception {
+        JsonNode sesion = iniciarSesion(prefijo + "_admin");
+        if (sesion != null) {
+            guardarSesionAdmin(sesion);
+        }
+        if (tokenAdmin == null) {
+            System.out.println("Aviso: no se pudo iniciar sesión como " + prefijo
+                    + "_admin; los flujos devolver y reporte fallarán");
+        }
+
+        long inicio = System.currentTimeMillis();
+        long inicioMedicion = inicio + calentamientoMs;
+        long fin = inicioMedicion + duracionMs;
+        System.out.printf("%d usuarios virtuales contra %s: %d s de calentamiento, %d s medidos%n",
+                usuariosVirtuales, url, calentamientoMs / 1000, duracionMs / 1000);
+
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < usuariosVirtuales; i++) {
+                long semilla = i;
+                hilos.submit(() -> usuarioVirtual(new SplittableRandom(semilla), fin));
+            }
+            Thread.sleep(Math.max(0, inicioMedicion - System.currentTimeMillis()));
+            midiendo = true;
+            hilos.shutdown();
+            hilos.awaitTermination(fin - System.currentTimeMillis() + 60_000, TimeUnit.MILLISECONDS);
+        }
+        reportar((System.currentTimeMillis() - inicioMedicion) / 1000.0);
+    }
+
+    private void usuarioVirtual(SplittableRandom aleatorio, long fin) {
+        String token = null;
+        long tokenVence = 0;
+        while (System.currentTimeMillis() < fin) {
+            try {
+                switch (elegirFlujo(aleatorio)) {
+                    case NAVEGAR -> navegar(aleatorio);
+                    case CATALOGO -> enviar("GET /api/libros", get("/api/libros", null));
+                    case LOGIN -> {
+                        token = login(usuarioAleatorio(aleatorio));
+                        tokenVence = System.currentTimeMillis() + VIDA_TOKEN_MS;
+                    }
+                    case PRESTAR -> {
+                        if (token == null || System.currentTimeMillis() > tokenVence) {
+                            token = login(usuarioAleatorio(aleatorio));
+                            tokenVence = System.currentTimeMillis() + VIDA_TOKEN_MS;
+                        }
+                        prestar(aleatorio, token);
+                    }
+                    case DEVOLVER -> devolver();
+                    case REPORTE -> reporte(aleatorio);
+                }
+                if (pausaMs > 0) {
+                    Thread.sleep(pausaMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void navegar(SplittableRandom aleatorio) throws InterruptedException {
+        long libroId = libroAleatorio(aleatorio);
+        enviar("GET /api/libros/{id}", get("/api/libros/" + libroId, null));
+        enviar("GET /api/libros/{id}/recomendaciones", get("/api/libros/" + libroId + "/recomendaciones", null));
+        if (aleatorio.nextInt(4) == 0) {
+            enviar("GET /api/libros/tendencias", get("/api/libros/tendencias?periodo=SEMANA", null));
+        }
+        if (aleatorio.nextInt(4) == 0) {
+            enviar("GET /api/stats", get("/api/stats?libroId=" + libroId, null));
+        }
+    }
+
+    private String login(String username) throws InterruptedException {
+        JsonNode cuerpo = iniciarSesion(username);
+        return cuerpo != null && cuerpo.hasNonNull("token") ? cuerpo.get("token").asText() : null;
+    }
+
+    private JsonNode iniciarSesion(String username) throws InterruptedException {
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create(url + "/api/auth/login"))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}"))
+                .build();
+        return enviar("POST /api/auth/login", peticion);
+    }
+
+    private void guardarSesionAdmin(JsonNode sesion) {
+        if (sesion.hasNonNull("token")) {
+            tokenAdmin = sesion.get("token").asText();
+            refreshAdmin = sesion.hasNonNull("refreshToken") ? sesion.get("refreshToken").asText() : null;
+            renovarAdminEn = System.currentTimeMillis() + VIDA_TOKEN_MS;
+        }
+    }
+
+    // Un solo hilo renueva: el refresh token es de un solo uso
+    private String tokenAdmin() throws InterruptedException {
+        if (System.currentTimeMillis() > renovarAdminEn && refreshAdmin != null) {
+            synchronized (this) {
+                if (System.currentTimeMillis() > renovarAdminEn) {
+                    HttpRequest peticion = HttpRequest.newBuilder(URI.create(url + "/api/auth/refresh"))
+                            .timeout(Duration.ofSeconds(30))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(
+                                    "{\"refreshToken\":\"" + refreshAdmin + "\"}"))
+                            .build();
+                    JsonNode sesion = enviar("POST /api/auth/refresh", peticion);
+                    if (sesion != null) {
+                        guardarSesionAdmin(sesion);
+                    } else {
+                        renovarAdminEn = System.currentTimeMillis() + 5_000;
+                    }
+                }
+            }
+        }
+        return tokenAdmin;
+    }
+
+    private void prestar(SplittableRandom aleatorio, String token) throws InterruptedException {
+        if (token == null) {
+            return;
+        }
+        HttpRequest peticion = HttpRequest.newBuilder(
+                        URI.create(url + "/api/libros/" + libroAleatorio(aleatorio) + "/prestar"))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        JsonNode prestamo = enviar("POST /api/libros/{id}/prestar", peticion);
+        if (prestamo != null && prestamo.hasNonNull("id")) {
+            prestamosActivos.add(prestamo.get("id").asLong());
+        }
+    }
+
+    private void devolver() throws InterruptedException {
+        Long prestamoId = prestamosActivos.poll();
+        String tokenAdmin = tokenAdmin();
+        if (prestamoId == null || tokenAdmin == null) {
+            return;
+        }
+        HttpRequest peticion = HttpRequest.newBuilder(
+                        URI.create(url + "/api/admin/prestamos/" + prestamoId + "/devolver"))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + tokenAdmin)
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build();
+        enviar("PUT /api/admin/prestamos/{id}/devolver", peticion);
+    }
+
+    private void reporte(SplittableRandom aleatorio) throws InterruptedException {
+        String tokenAdmin = tokenAdmin();
+        if (tokenAdmin == null) {
+            return;
+        }
+        enviar("GET /api/admin/prestamos/multas", get("/api/admin/prestamos/multas", tokenAdmin));
+        enviar("GET /api/stats", get("/api/stats", null));
+        if (aleatorio.nextInt(3) == 0) {
+            enviar("GET /api/libros/tendencias", get("/api/libros/tendencias?periodo=MES&limite=50", null));
+        }
+    }
+
+    private HttpRequest get(String ruta, String token) {
+        HttpRequest.Builder peticion = HttpRequest.newBuilder(URI.create(url + ruta))
+                .timeout(Duration.ofSeconds(30))
+                .GET();
+        if (token != null) {
+            peticion.header("Authorization", "Bearer " + token);
+        }
+        return peticion.build();
+    }
+
+    // Envía, mide y devuelve el cuerpo JSON si la respuesta fue 2xx
+    private JsonNode enviar(String endpoint, HttpRequest peticion) throws InterruptedException {
+        Metricas m = metricas.computeIfAbsent(endpoint, e -> new Metricas());
+        long inicio = System.nanoTime();
+        try {
+            HttpResponse<byte[]> respuesta = cliente.send(peticion, HttpResponse.BodyHandlers.ofByteArray());
+            long micros = (System.nanoTime() - inicio) / 1000;
+            int estado = respuesta.statusCode();
+            if (midiendo) {
+                m.latencias.registrar(micros);
+                if (estado >= 500) {
+                    m.errores.increment();
+                } else if (estado >= 400) {
+                    m.rechazadas.increment();
+                }
+            }
+            if (estado >= 200 && estado < 300 && respuesta.body().length > 0) {
+                try {
+                    return JSON.readTree(respuesta.body());
+                } catch (IOException e) {
+                    return null;
+                }
+            }
+        } catch (IOException e) {
+            if (midiendo) {
+                m.latencias.registrar((System.nanoTime() - inicio) / 1000);
+                m.errores.increment();
+            }
+        }
+        return null;
+    }
+
+    private Flujo elegirFlujo(SplittableRandom aleatorio) {
+        int valor = aleatorio.nextInt(pesosAcumulados[pesosAcumulados.length - 1]);
+        for (int i = 0; i < pesosAcumulados.length; i++) {
+            if (valor < pesosAcumulados[i]) {
+                return flujos[i];
+            }
+        }
+        return flujos[flujos.length - 1];
+    }
+
+    private String usuarioAleatorio(SplittableRandom aleatorio) {
+        return prefijo + (1 + aleatorio.nextInt(usuarios));
+    }
+
+    private long libroAleatorio(SplittableRandom aleatorio) {
+        return primerLibro + popularidad.muestra(aleatorio) - 1;
+    }
+
+    private void reportar(double segundos) throws IOException {
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        List<Map<String, Object>> filas = new ArrayList<>();
+        System.out.printf("%n%-42s %9s %9s %8s %8s %8s %8s %8s %6s %6s%n", "endpoint", "peticiones", "req/s",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "4xx", "error");
+        for (Map.Entry<String, Metricas> entrada : new TreeMap<>(metricas).entrySet()) {
+            Histograma h = entrada.getValue().latencias;
+            long total = h.total();
+            Map<String, Object> fila = new LinkedHashMap<>();
+            fila.put("endpoint", entrada.getKey());
+            fila.put("peticiones", total);
+            fila.put("porSegundo", total / segundos);
+            fila.put("p50Ms", h.percentil(50) / 1000.0);
+            fila.put("p90Ms", h.percentil(90) / 1000.0);
+            fila.put("p99Ms", h.percentil(99) / 1000.0);
+            fila.put("p999Ms", h.percentil(99.9) / 1000.0);
+            fila.put("maxMs", h.maximo() / 1000.0);
+            fila.put("rechazadas", entrada.getValue().rechazadas.sum());
+            fila.put("errores", entrada.getValue().errores.sum());
+            filas.add(fila);
+            System.out.printf("%-42s %9d %9.1f %8.1f %8.1f %8.1f %8.1f %8.1f %6d %6d%n", entrada.getKey(), total,
+                    total / segundos, h.percentil(50) / 1000.0, h.percentil(90) / 1000.0, h.percentil(99) / 1000.0,
+                    h.percentil(99.9) / 1000.0, h.maximo() / 1000.0,
+                    entrada.getValue().rechazadas.sum(), entrada.getValue().errores.sum());
+        }
+        if (salida != null) {
+            resultado.put("url", url);
+            resultado.put("usuariosVirtuales", usuariosVirtuales);
+            resultado.put("segundosMedidos", segundos);
+            resultado.put("endpoints", filas);
+            JSON.writeValue(new File(salida), resultado);
+            System.out.println("\nResultados en " + salida);
+        }
+    }
+
+    private static Map<Flujo, Integer> leerMezcla(String texto) {
+        Map<Flujo, Integer> mezcla = new LinkedHashMap<>();
+        for (String parte : texto.split(",")) {
+            String[] claveValor = parte.trim().split(":");
+            if (claveValor.length != 2) {
+                throw new IllegalArgumentException("Mezcla inválida: " + parte + " (se espera flujo:peso)");
+            }
+            mezcla.put(Flujo.valueOf(claveValor[0].trim().toUpperCase()), Integer.parseInt(claveValor[1].trim()));
+        }
+        return mezcla;
+    }
+
+    private static final class Metricas {
+        final Histograma latencias = new Histograma();
+        final LongAdder rechazadas = new LongAdder();
+        final LongAdder errores = new LongAdder();
+    }
+}
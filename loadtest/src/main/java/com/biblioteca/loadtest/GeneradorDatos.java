@@ -0,0 +1,356 @@
+package com.biblioteca.loadtest;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+// Siembra categorías, usuarios, libros y préstamos con distribuciones parecidas a las reales:
+// popularidad Zipf de libros y lectores, ejemplares por título sesgados a pocos, historia de préstamos
+// repartida en los últimos días, devoluciones tardías con multa y préstamos activos que descuentan
+// disponibilidad. Inserta por lotes con ids explícitos y al final ajusta las secuencias de identidad.
+//
+// Para PostgreSQL conviene agregar reWriteBatchedInserts=true a la URL JDBC.
+// Para H2: jdbc:h2:file:./carga;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH
+final class GeneradorDatos {
+
+    private static final int LOTE = 5_000;
+    private static final int DIAS_PRESTAMO = 7;
+    private static final int MULTA_POR_DIA = 5000;
+
+    private static final String[] PALABRAS = {
+            "sombra", "viento", "ciudad", "memoria", "río", "silencio", "noche", "jardín", "tiempo", "mar",
+            "fuego", "camino", "historia", "secreto", "luz", "casa", "montaña", "sueño", "guerra", "amor",
+            "invierno", "espejo", "isla", "reino", "ciencia", "destino", "bosque", "lluvia", "palabra", "estrella"
+    };
+    private static final String[] NOMBRES = {
+            "Gabriel", "Isabel", "Jorge", "Laura", "Mario", "Ana", "Julio", "Rosa", "Carlos", "Elena",
+            "Pablo", "Lucía", "Andrés", "Sofía", "Miguel", "Clara", "Diego", "Marta", "Luis", "Teresa"
+    };
+    private static final String[] APELLIDOS = {
+            "García", "Rodríguez", "Martínez", "López", "González", "Pérez", "Sánchez", "Ramírez", "Torres", "Flores",
+            "Rivera", "Gómez", "Díaz", "Cruz", "Morales", "Ortiz", "Gutiérrez", "Castro", "Vargas", "Romero"
+    };
+
+    private final String jdbc;
+    private final String dbUsuario;
+    private final String dbPassword;
+    private final int categorias;
+    private final int libros;
+    private final int usuarios;
+    private final long prestamos;
+    private final int diasHistoria;
+    private final String prefijo;
+    private final String password;
+    private final SplittableRandom aleatorio;
+
+    GeneradorDatos(Argumentos argumentos) {
+        this.jdbc = argumentos.obligatorio("jdbc");
+        this.dbUsuario = argumentos.texto("db-usuario", "postgres");
+        this.dbPassword = argumentos.texto("db-password", "");
+        this.categorias = argumentos.entero("categorias", 30);
+        this.libros = argumentos.entero("libros", 100_000);
+        this.usuarios = argumentos.entero("usuarios", 200_000);
+        this.prestamos = argumentos.largo("prestamos", 2_000_000);
+        this.diasHistoria = argumentos.entero("dias-historia", 730);
+        this.prefijo = argumentos.texto("prefijo", "carga");
+        this.password = argumentos.texto("password", "carga123");
+        this.aleatorio = new SplittableRandom(argumentos.largo("semilla", 42));
+    }
+
+    void ejecutar() throws SQLException, IOException {
+        try (Connection conexion = DriverManager.getConnection(jdbc, dbUsuario, dbPassword)) {
+            conexion.setAutoCommit(false);
+            crearEsquema(conexion);
+
+            long primeraCategoria = siguienteId(conexion, "categorias");
+            long primerUsuario = siguienteId(conexion, "usuarios");
+            long primerLibro = siguienteId(conexion, "libros");
+
+            insertarCategorias(conexion, primeraCategoria);
+            insertarUsuarios(conexion, primerUsuario);
+            int[] disponibles = insertarLibros(conexion, primerLibro, primeraCategoria);
+            insertarPrestamos(conexion, primerUsuario, primerLibro, disponibles);
+            actualizarDisponibles(conexion, primerLibro, disponibles);
+
+            for (String tabla : new String[]{"categorias", "usuarios", "libros", "prestamos"}) {
+                ajustarSecuencia(conexion, tabla);
+            }
+            conexion.commit();
+        }
+        System.out.printf("Listo. Usuarios %s1..%s%d y %s_admin, contraseña '%s'%n",
+                prefijo, prefijo, usuarios, prefijo, password);
+    }
+
+    private void crearEsquema(Connection conexion) throws SQLException, IOException {
+        String sql;
+        try (InputStream entrada = GeneradorDatos.class.getResourceAsStream("/esquema-carga.sql")) {
+            sql = new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Statement sentencia = conexion.createStatement()) {
+            for (String parte : sql.replaceAll("(?m)^--.*$", "").split(";")) {
+                if (!parte.isBlank()) {
+                    sentencia.execute(parte);
+                }
+            }
+        }
+        conexion.commit();
+    }
+
+    private long siguienteId(Connection conexion, String tabla) throws SQLException {
+        try (Statement sentencia = conexion.createStatement();
+             ResultSet resultado = sentencia.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM " + tabla)) {
+            resultado.next();
+            return resultado.getLong(1);
+        }
+    }
+
+    private void insertarCategorias(Connection conexion, long primerId) throws SQLException {
+        try (PreparedStatement insert = conexion.prepareStatement(
+                "INSERT INTO categorias (id, nombre) VALUES (?, ?)")) {
+            for (int i = 0; i < categorias; i++) {
+                insert.setLong(1, primerId + i);
+                insert.setString(2, prefijo + " " + capitalizar(PALABRAS[i % PALABRAS.length]) + " " + (i + 1));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        conexion.commit();
+        System.out.printf("Categorías: %d%n", categorias);
+    }
+
+    private void insertarUsuarios(Connection conexion, long primerId) throws SQLException {
+        // BCrypt es deliberadamente lento: se calcula una vez y se comparte entre todos los usuarios
+        String hash = new BCryptPasswordEncoder().encode(password);
+        Progreso progreso = new Progreso("Usuarios", usuarios + 1L);
+        try (PreparedStatement insert = conexion.prepareStatement(
+                "INSERT INTO usuarios (id, username, password, nombre, apellido, email, rol, bloqueado) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i <= usuarios; i++) {
+                boolean admin = i == usuarios;
+                String username = admin ? prefijo + "_admin" : prefijo + (i + 1);
+                insert.setLong(1, primerId + i);
+                insert.setString(2, username);
+                insert.setString(3, hash);
+                insert.setString(4, NOMBRES[aleatorio.nextInt(NOMBRES.length)]);
+                insert.setString(5, APELLIDOS[aleatorio.nextInt(APELLIDOS.length)]);
+                insert.setString(6, username + "@carga.local");
+                insert.setString(7, admin ? "ADMIN" : "USUARIO");
+                // Una fracción pequeña de cuentas bloqueadas, como en producción
+                insert.setBoolean(8, !admin && aleatorio.nextInt(200) == 0);
+                insert.addBatch();
+                if ((i + 1) % LOTE == 0) {
+                    insert.executeBatch();
+                    conexion.commit();
+                    progreso.avanzar(LOTE);
+                }
+            }
+            insert.executeBatch();
+        }
+        conexion.commit();
+        progreso.terminar();
+    }
+
+    private int[] insertarLibros(Connection conexion, long primerId, long primeraCategoria) throws SQLException {
+        DistribucionZipf categoria = new DistribucionZipf(categorias, 0.8);
+        int[] disponibles = new int[libros];
+        Progreso progreso = new Progreso("Libros", libros);
+        try (PreparedStatement insert = conexion.prepareStatement(
+                "INSERT INTO libros (id, titulo, autor, descripcion, imagen_url, cantidad_total, "
+                        + "cantidad_disponible, categoria_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < libros; i++) {
+                // La mayoría de títulos tiene 1-3 ejemplares; unos pocos, hasta 20
+                int total = Math.min(20, 1 + (int) (-Math.log(1 - aleatorio.nextDouble()) * 2));
+                disponibles[i] = total;
+                insert.setLong(1, primerId + i);
+                insert.setString(2, titulo());
+                insert.setString(3, NOMBRES[aleatorio.nextInt(NOMBRES.length)] + " "
+                        + APELLIDOS[aleatorio.nextInt(APELLIDOS.length)]);
+                insert.setString(4, descripcion());
+                insert.setNull(5, Types.VARCHAR);
+                insert.setInt(6, total);
+                insert.setInt(7, total);
+                insert.setLong(8, primeraCategoria + categoria.muestra(aleatorio) - 1);
+                insert.addBatch();
+                if ((i + 1) % LOTE == 0) {
+                    insert.executeBatch();
+                    conexion.commit();
+                    progreso.avanzar(LOTE);
+                }
+            }
+            insert.executeBatch();
+        }
+        conexion.commit();
+        progreso.terminar();
+        return disponibles;
+    }
+
+    private void insertarPrestamos(Connection conexion, long primerUsuario, long primerLibro, int[] disponibles)
+            throws SQLException {
+        DistribucionZipf lector = new DistribucionZipf(usuarios, 1.1);
+        DistribucionZipf popularidad = new DistribucionZipf(libros, 1.0);
+        // Rango de popularidad -> posición, para que los más prestados no sean siempre los de id bajo
+        int[] ordenUsuarios = permutacion(usuarios);
+        int[] ordenLibros = permutacion(libros);
+        LocalDate hoy = LocalDate.now();
+
+        Progreso progreso = new Progreso("Préstamos", prestamos);
+        try (PreparedStatement insert = conexion.prepareStatement(
+                "INSERT INTO prestamos (usuario_id, libro_id, fecha_prestamo, fecha_limite, fecha_devolucion, "
+                        + "estado, dias_retraso, valor_multa) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (long i = 0; i < prestamos; i++) {
+                int libro = ordenLibros[popularidad.muestra(aleatorio) - 1];
+                LocalDate fechaPrestamo = hoy.minusDays(aleatorio.nextInt(diasHistoria));
+                LocalDate fechaLimite = fechaPrestamo.plusDays(DIAS_PRESTAMO);
+
+                // Activo: reciente y aún sin devolver, o uno de los pocos olvidados; solo si queda ejemplar
+                boolean activo = (fechaLimite.isAfter(hoy) ? aleatorio.nextInt(10) < 6 : aleatorio.nextInt(100) < 2)
+                        && disponibles[libro] > 0;
+                LocalDate fechaDevolucion = null;
+                String estado = "PRESTADO";
+                int diasRetraso = 0;
+                if (activo) {
+                    disponibles[libro]--;
+                } else {
+                    // Devolución entre el día siguiente y una semana después del límite
+                    fechaDevolucion = fechaPrestamo.plusDays(1 + aleatorio.nextInt(DIAS_PRESTAMO * 2));
+                    if (fechaDevolucion.isAfter(hoy)) {
+                        fechaDevolucion = hoy;
+                    }
+                    diasRetraso = (int) Math.max(0, fechaDevolucion.toEpochDay() - fechaLimite.toEpochDay());
+                    // Tres de cada diez multas siguen sin pagar
+                    estado = diasRetraso > 0 && aleatorio.nextInt(10) < 3 ? "MULTA" : "DEVUELTO";
+                }
+
+                insert.setLong(1, primerUsuario + ordenUsuarios[lector.muestra(aleatorio) - 1]);
+                insert.setLong(2, primerLibro + libro);
+                insert.setDate(3, Date.valueOf(fechaPrestamo));
+                insert.setDate(4, Date.valueOf(fechaLimite));
+                insert.setDate(5, fechaDevolucion == null ? null : Date.valueOf(fechaDevolucion));
+                insert.setString(6, estado);
+                insert.setInt(7, diasRetraso);
+                insert.setInt(8, diasRetraso * MULTA_POR_DIA);
+                insert.addBatch();
+                if ((i + 1) % LOTE == 0) {
+                    insert.executeBatch();
+                    conexion.commit();
+                    progreso.avanzar(LOTE);
+                }
+            }
+            insert.executeBatch();
+        }
+        conexion.commit();
+        progreso.terminar();
+    }
+
+    private void actualizarDisponibles(Connection conexion, long primerLibro, int[] disponibles) throws SQLException {
+        try (PreparedStatement update = conexion.prepareStatement(
+                "UPDATE libros SET cantidad_disponible = ? WHERE id = ? AND cantidad_disponible <> ?")) {
+            int pendientes = 0;
+            for (int i = 0; i < disponibles.length; i++) {
+                update.setInt(1, disponibles[i]);
+                update.setLong(2, primerLibro + i);
+                update.setInt(3, disponibles[i]);
+                update.addBatch();
+                if (++pendientes == LOTE) {
+                    update.executeBatch();
+                    pendientes = 0;
+                }
+            }
+            update.executeBatch();
+        }
+        conexion.commit();
+    }
+
+    // Los ids se insertaron explícitamente: la identidad debe continuar después del máximo
+    private void ajustarSecuencia(Connection conexion, String tabla) throws SQLException {
+        long siguiente = siguienteId(conexion, tabla);
+        boolean postgres = conexion.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres");
+        String sql = postgres
+                ? "SELECT setval(pg_get_serial_sequence('" + tabla + "', 'id'), " + siguiente + ", false)"
+                : "ALTER TABLE " + tabla + " ALTER COLUMN id RESTART WITH " + siguiente;
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute(sql);
+        }
+    }
+
+    private int[] permutacion(int n) {
+        int[] orden = new int[n];
+        for (int i = 0; i < n; i++) {
+            orden[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = aleatorio.nextInt(i + 1);
+            int temporal = orden[i];
+            orden[i] = orden[j];
+            orden[j] = temporal;
+        }
+        return orden;
+    }
+
+    private String titulo() {
+        int palabras = 1 + aleatorio.nextInt(4);
+        StringBuilder titulo = new StringBuilder(capitalizar(PALABRAS[aleatorio.nextInt(PALABRAS.length)]));
+        for (int i = 1; i < palabras; i++) {
+            titulo.append(i == 1 ? " de " : " y ").append(PALABRAS[aleatorio.nextInt(PALABRAS.length)]);
+        }
+        return titulo.toString();
+    }
+
+    private String descripcion() {
+        StringBuilder descripcion = new StringBuilder();
+        int palabras = 20 + aleatorio.nextInt(100);
+        for (int i = 0; i < palabras; i++) {
+            descripcion.append(PALABRAS[aleatorio.nextInt(PALABRAS.length)]).append(' ');
+        }
+        return descripcion.toString().trim();
+    }
+
+    private static String capitalizar(String palabra) {
+        return Character.toUpperCase(palabra.charAt(0)) + palabra.substring(1);
+    }
+
+    private static final class Progreso {
+
+        private final String nombre;
+        private final long total;
+        private final long inicio = System.nanoTime();
+        private long hechos;
+        private long ultimoReporte = inicio;
+
+        Progreso(String nombre, long total) {
+            this.nombre = nombre;
+            this.total = total;
+        }
+
+        void avanzar(long cantidad) {
+            hechos += cantidad;
+            long ahora = System.nanoTime();
+            if (ahora - ultimoReporte > 5_000_000_000L) {
+                ultimoReporte = ahora;
+                System.out.printf("%s: %,d / %,d (%,.0f filas/s)%n", nombre, hechos, total, porSegundo(ahora));
+            }
+        }
+
+        void terminar() {
+            hechos = total;
+            System.out.printf("%s: %,d en %.1f s (%,.0f filas/s)%n", nombre, total,
+                    (System.nanoTime() - inicio) / 1e9, porSegundo(System.nanoTime()));
+        }
+
+        private double porSegundo(long ahora) {
+            return hechos / Math.max((ahora - inicio) / 1e9, 1e-9);
+        }
+    }
+}
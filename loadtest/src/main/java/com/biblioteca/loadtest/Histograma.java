@@ -0,0 +1,69 @@
+package com.biblioteca.loadtest;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+// Histograma de latencias en microsegundos, concurrente y de tamaño fijo: 32 subcubetas por potencia
+// de dos (error relativo < 3,2%) hasta ~9 horas. Registrar es un incremento atómico, sin bloqueos.
+final class Histograma {
+
+    private static final int BITS_SUBCUBETA = 5;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    private static final int CUBETAS = SUBCUBETAS + 40 * SUBCUBETAS;
+
+    private final AtomicLongArray conteos = new AtomicLongArray(CUBETAS);
+    private final LongAccumulator maximo = new LongAccumulator(Long::max, 0);
+
+    void registrar(long micros) {
+        long valor = Math.max(0, micros);
+        conteos.incrementAndGet(indice(valor));
+        maximo.accumulate(valor);
+    }
+
+    long total() {
+        long total = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            total += conteos.get(i);
+        }
+        return total;
+    }
+
+    long maximo() {
+        return maximo.get();
+    }
+
+    // Cota superior de la cubeta que contiene el percentil p (0-100)
+    long percentil(double p) {
+        long total = total();
+        if (total == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += conteos.get(i);
+            if (acumulado >= objetivo) {
+                return Math.min(limiteSuperior(i), maximo());
+            }
+        }
+        return maximo();
+    }
+
+    static int indice(long valor) {
+        if (valor < SUBCUBETAS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int subcubeta = (int) (valor >>> (exponente - BITS_SUBCUBETA)) - SUBCUBETAS;
+        return Math.min(SUBCUBETAS + (exponente - BITS_SUBCUBETA) * SUBCUBETAS + subcubeta, CUBETAS - 1);
+    }
+
+    static long limiteSuperior(int indice) {
+        if (indice < SUBCUBETAS) {
+            return indice;
+        }
+        int exponente = (indice - SUBCUBETAS) / SUBCUBETAS + BITS_SUBCUBETA;
+        int subcubeta = (indice - SUBCUBETAS) % SUBCUBETAS;
+        return ((long) (SUBCUBETAS + subcubeta + 1) << (exponente - BITS_SUBCUBETA)) - 1;
+    }
+}
@@ -0,0 +1,33 @@
+package com.biblioteca.loadtest;
+
+import java.util.Arrays;
+
+// Punto de entrada del jar: "generar" siembra la base, "escenario" lanza la carga HTTP
+public class PruebaCarga {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            uso();
+            return;
+        }
+        Argumentos argumentos = Argumentos.leer(Arrays.copyOfRange(args, 1, args.length));
+        switch (args[0]) {
+            case "generar" -> new GeneradorDatos(argumentos).ejecutar();
+            case "escenario" -> new EscenarioCarga(argumentos).ejecutar();
+            default -> uso();
+        }
+    }
+
+    private static void uso() {
+        System.out.println("""
+                Uso:
+                  java -jar loadtest.jar generar --jdbc=URL [--db-usuario=postgres] [--db-password=...]
+                        [--categorias=30] [--libros=100000] [--usuarios=200000] [--prestamos=2000000]
+                        [--dias-historia=730] [--semilla=42] [--password=carga123]
+                  java -jar loadtest.jar escenario [--url=http://localhost:8080] [--usuarios-virtuales=200]
+                        [--duracion=120] [--calentamiento=20] [--pausa-ms=0]
+                        [--mezcla=navegar:70,login:5,prestar:10,devolver:10,reporte:5]
+                        [--usuarios=200000] [--libros=100000] [--password=carga123] [--salida=resultado.json]
+                """);
+    }
+}
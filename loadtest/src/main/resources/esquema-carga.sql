@@ -0,0 +1,42 @@
+-- Esquema equivalente al que genera Hibernate (ddl-auto=update) para sembrar una base vacía.
+-- Válido en PostgreSQL y en H2 con MODE=PostgreSQL. Si la aplicación ya arrancó contra la base, no cambia nada.
+CREATE TABLE IF NOT EXISTS categorias (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nombre VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS usuarios (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL,
+    nombre VARCHAR(255) NOT NULL,
+    apellido VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    rol VARCHAR(255) NOT NULL,
+    bloqueado BOOLEAN NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS libros (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    titulo VARCHAR(255) NOT NULL,
+    autor VARCHAR(255) NOT NULL,
+    descripcion VARCHAR(1000),
+    imagen_url VARCHAR(255),
+    cantidad_total INTEGER NOT NULL,
+    cantidad_disponible INTEGER NOT NULL,
+    categoria_id BIGINT REFERENCES categorias (id)
+);
+
+CREATE TABLE IF NOT EXISTS prestamos (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    usuario_id BIGINT NOT NULL REFERENCES usuarios (id),
+    libro_id BIGINT NOT NULL REFERENCES libros (id),
+    fecha_prestamo DATE NOT NULL,
+    fecha_limite DATE NOT NULL,
+    fecha_devolucion DATE,
+    estado VARCHAR(255) NOT NULL,
+    dias_retraso INTEGER,
+    valor_multa INTEGER
+);
+
+CREATE INDEX IF NOT EXISTS idx_prestamos_fecha_prestamo ON prestamos (fecha_prestamo);